@@ -0,0 +1,83 @@
+package com.hybris.caas.client.cache;
+
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+
+/**
+ * A fully read response, shared by coalesced requests and kept by the {@link ResponseCacheExchangeFilterFunction}.
+ */
+class CachedResponse
+{
+	private static final DataBufferFactory BUFFER_FACTORY = new DefaultDataBufferFactory();
+
+	private final HttpStatus status;
+	private final HttpHeaders headers;
+	private final byte[] body;
+	private final Instant expiresAt;
+
+	CachedResponse(final HttpStatus status, final HttpHeaders headers, final byte[] body, final Instant expiresAt)
+	{
+		this.status = status;
+		final HttpHeaders copy = new HttpHeaders();
+		copy.putAll(headers);
+		this.headers = HttpHeaders.readOnlyHttpHeaders(copy);
+		this.body = body;
+		this.expiresAt = expiresAt;
+	}
+
+	HttpStatus getStatus()
+	{
+		return status;
+	}
+
+	HttpHeaders getHeaders()
+	{
+		return headers;
+	}
+
+	int getBodySize()
+	{
+		return body.length;
+	}
+
+	boolean isFresh(final Instant now)
+	{
+		return now.isBefore(expiresAt);
+	}
+
+	boolean hasValidators()
+	{
+		return hasValidators(headers);
+	}
+
+	static boolean hasValidators(final HttpHeaders headers)
+	{
+		return headers.getETag() != null || headers.getLastModified() != -1;
+	}
+
+	/**
+	 * Creates a copy of this response confirmed by a {@code 304 Not Modified} response.
+	 *
+	 * @param expiresAt the new expiry of the response
+	 * @return the revalidated response
+	 */
+	CachedResponse revalidate(final Instant expiresAt)
+	{
+		return new CachedResponse(status, headers, body, expiresAt);
+	}
+
+	ClientResponse toClientResponse(final ExchangeStrategies strategies)
+	{
+		return ClientResponse.create(status, strategies)
+				.headers(h -> h.addAll(headers))
+				.body(Flux.defer(() -> Flux.just(BUFFER_FACTORY.wrap(body))))
+				.build();
+	}
+}
@@ -0,0 +1,271 @@
+package com.hybris.caas.client.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+import com.hybris.caas.client.metrics.OutboundCallContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces and caches the responses of idempotent {@code GET} requests.
+ * <p>
+ * Concurrent identical requests share a single exchange. Requests are identical when they target the same URI on
+ * behalf of the same principal and with the same values of the configured key headers. The principal is the tenant
+ * recorded by the {@link com.hybris.caas.client.client.OauthCaasWebClient}, see
+ * {@link OutboundCallContext#withPrincipal(String)}, so that the entries survive the token refreshes. Without a recorded
+ * principal, the requests are keyed by a SHA-256 digest of their {@code Authorization} header, i.e. the cache is per
+ * token, and the tokens themselves are never kept. Successful responses are kept for their {@code Cache-Control: max-age}, never when marked
+ * {@code no-store}, and stale responses carrying an {@code ETag} or a {@code Last-Modified} header are revalidated
+ * with a conditional request. The cache is bounded by the total size of the cached bodies.
+ * <p>
+ * The cacheability of a response is decided from its status and headers: only the cacheable responses are buffered, with
+ * the codecs of the given {@link ExchangeStrategies}, which should be the ones of the web client. The other responses are
+ * passed through unchanged to one of the coalesced requests, the others being sent again.
+ */
+public class ResponseCacheExchangeFilterFunction implements ExchangeFilterFunction
+{
+	/**
+	 * Request attribute disabling the coalescing and the caching of a request, e.g. for streamed responses.
+	 */
+	public static final String BYPASS_ATTRIBUTE = ResponseCacheExchangeFilterFunction.class.getName() + ".BYPASS";
+
+	private static final byte[] EMPTY_BODY = new byte[0];
+	private static final String NO_STORE = "no-store";
+	private static final String NO_CACHE = "no-cache";
+	private static final String MAX_AGE = "max-age=";
+
+	private final Cache<CacheKey, CachedResponse> cache;
+	private final Map<CacheKey, Mono<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+	private final List<String> keyHeaders;
+	private final Duration defaultTtl;
+	private final ExchangeStrategies strategies;
+	private final Clock clock;
+
+	public ResponseCacheExchangeFilterFunction(final CaasWebClientProperties.ResponseCache properties,
+			final ExchangeStrategies strategies)
+	{
+		this(properties, strategies, Clock.systemUTC());
+	}
+
+	ResponseCacheExchangeFilterFunction(final CaasWebClientProperties.ResponseCache properties,
+			final ExchangeStrategies strategies, final Clock clock)
+	{
+		this.keyHeaders = List.copyOf(properties.getKeyHeaders());
+		this.defaultTtl = Duration.ofMillis(properties.getDefaultTtlMs());
+		this.strategies = strategies;
+		this.clock = clock;
+		this.cache = Caffeine.newBuilder()
+				.maximumWeight(properties.getMaxSizeBytes())
+				.<CacheKey, CachedResponse>weigher((key, response) -> response.getBodySize())
+				.build();
+	}
+
+	@Override
+	public Mono<ClientResponse> filter(final ClientRequest request, final ExchangeFunction next)
+	{
+		if (request.method() != HttpMethod.GET || request.attribute(BYPASS_ATTRIBUTE).isPresent())
+		{
+			return next.exchange(request);
+		}
+
+		return Mono.subscriberContext().flatMap(context -> {
+			final CacheKey key = new CacheKey(request, principal(request, context), keyHeaders);
+			final CachedResponse cached = cache.getIfPresent(key);
+			if (cached != null && cached.isFresh(clock.instant()))
+			{
+				return Mono.just(cached.toClientResponse(strategies));
+			}
+			return inFlight.computeIfAbsent(key, k -> exchange(request, next, k, cached)
+					.doFinally(signal -> inFlight.remove(k))
+					.cache())
+					.flatMap(fetched -> fetched.toClientResponse(strategies, () -> next.exchange(request)));
+		});
+	}
+
+	private static String principal(final ClientRequest request, final Context context)
+	{
+		return OutboundCallContext.getPrincipal(context).orElseGet(() -> {
+			final String authorization = request.headers().getFirst(HttpHeaders.AUTHORIZATION);
+			return authorization == null ? null : sha256(authorization);
+		});
+	}
+
+	private static String sha256(final String value)
+	{
+		try
+		{
+			final byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+			return Base64.getEncoder().encodeToString(digest);
+		}
+		catch (final NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+	}
+
+	private Mono<Fetched> exchange(final ClientRequest request, final ExchangeFunction next, final CacheKey key,
+			final CachedResponse stale)
+	{
+		final boolean revalidate = stale != null && stale.hasValidators();
+		final ClientRequest actualRequest = revalidate ? conditionalRequest(request, stale.getHeaders()) : request;
+
+		return next.exchange(actualRequest).flatMap(response -> {
+			final HttpHeaders headers = response.headers().asHttpHeaders();
+			if (revalidate && response.rawStatusCode() == HttpStatus.NOT_MODIFIED.value())
+			{
+				return response.releaseBody().then(Mono.fromSupplier(() -> {
+					final CachedResponse revalidated = stale.revalidate(expiresAt(headers));
+					cache.put(key, revalidated);
+					return new Fetched(revalidated, null);
+				}));
+			}
+
+			final Instant expiresAt = expiresAt(headers);
+			if (!isCacheable(response.rawStatusCode(), headers, expiresAt))
+			{
+				// the body is not buffered, whatever its size
+				cache.invalidate(key);
+				return Mono.just(new Fetched(null, response));
+			}
+			return response.bodyToMono(byte[].class).defaultIfEmpty(EMPTY_BODY).map(body -> {
+				final CachedResponse fetched = new CachedResponse(HttpStatus.OK, headers, body, expiresAt);
+				cache.put(key, fetched);
+				return new Fetched(fetched, null);
+			});
+		});
+	}
+
+	private boolean isCacheable(final int status, final HttpHeaders headers, final Instant expiresAt)
+	{
+		final String cacheControl = headers.getCacheControl();
+		return status == HttpStatus.OK.value()
+				&& (cacheControl == null || !cacheControl.contains(NO_STORE))
+				&& (clock.instant().isBefore(expiresAt) || CachedResponse.hasValidators(headers));
+	}
+
+	private Instant expiresAt(final HttpHeaders headers)
+	{
+		return clock.instant().plus(timeToLive(headers.getCacheControl()));
+	}
+
+	private Duration timeToLive(final String cacheControl)
+	{
+		if (!StringUtils.hasText(cacheControl))
+		{
+			return defaultTtl;
+		}
+		Duration timeToLive = defaultTtl;
+		for (final String directive : StringUtils.tokenizeToStringArray(cacheControl.toLowerCase(Locale.ENGLISH), ","))
+		{
+			if (NO_CACHE.equals(directive) || NO_STORE.equals(directive))
+			{
+				return Duration.ZERO;
+			}
+			if (directive.startsWith(MAX_AGE))
+			{
+				try
+				{
+					timeToLive = Duration.ofSeconds(Long.parseLong(directive.substring(MAX_AGE.length())));
+				}
+				catch (final NumberFormatException e)
+				{
+					return Duration.ZERO;
+				}
+			}
+		}
+		return timeToLive;
+	}
+
+	private static ClientRequest conditionalRequest(final ClientRequest request, final HttpHeaders cachedHeaders)
+	{
+		return ClientRequest.from(request).headers(h -> {
+			if (cachedHeaders.getETag() != null)
+			{
+				h.setIfNoneMatch(cachedHeaders.getETag());
+			}
+			if (cachedHeaders.getLastModified() != -1)
+			{
+				h.setIfModifiedSince(cachedHeaders.getLastModified());
+			}
+		}).build();
+	}
+
+	/**
+	 * Outcome of an exchange shared by coalesced requests: a buffered response, or an uncacheable response handed over
+	 * to a single request.
+	 */
+	private static final class Fetched
+	{
+		private final CachedResponse cached;
+		private final ClientResponse passThrough;
+		private final AtomicBoolean claimed = new AtomicBoolean();
+
+		Fetched(final CachedResponse cached, final ClientResponse passThrough)
+		{
+			this.cached = cached;
+			this.passThrough = passThrough;
+		}
+
+		Mono<ClientResponse> toClientResponse(final ExchangeStrategies strategies, final Supplier<Mono<ClientResponse>> exchange)
+		{
+			if (cached != null)
+			{
+				return Mono.just(cached.toClientResponse(strategies));
+			}
+			return claimed.compareAndSet(false, true) ? Mono.just(passThrough) : exchange.get();
+		}
+	}
+
+	private static final class CacheKey
+	{
+		private final List<Object> parts;
+		private final int hashCode;
+
+		CacheKey(final ClientRequest request, final String principal, final List<String> keyHeaders)
+		{
+			final List<Object> values = new ArrayList<>(keyHeaders.size() + 2);
+			values.add(request.url());
+			values.add(principal);
+			keyHeaders.forEach(name -> values.add(request.headers().get(name)));
+			this.parts = values;
+			this.hashCode = values.hashCode();
+		}
+
+		@Override
+		public boolean equals(final Object o)
+		{
+			return this == o || (o instanceof CacheKey && parts.equals(((CacheKey) o).parts));
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.hybris.caas.client.client;
+
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+
+/**
+ * Options of the bulk calls of {@link CaasWebClient}.
+ */
+public final class BulkOptions
+{
+	/**
+	 * Runs up to 16 calls concurrently, returns the results in the order of the requests and sets no deadline.
+	 */
+	public static final BulkOptions DEFAULT = new BulkOptions(16, true, null);
+
+	private final int maxConcurrency;
+	private final boolean ordered;
+	private final Duration timeout;
+
+	private BulkOptions(final int maxConcurrency, final boolean ordered, final Duration timeout)
+	{
+		Assert.isTrue(maxConcurrency > 0, "maxConcurrency must be positive");
+		this.maxConcurrency = maxConcurrency;
+		this.ordered = ordered;
+		this.timeout = timeout;
+	}
+
+	/**
+	 * @param maxConcurrency the maximum number of calls in flight at once
+	 * @return a copy of these options with the given concurrency
+	 */
+	public BulkOptions withMaxConcurrency(final int maxConcurrency)
+	{
+		return new BulkOptions(maxConcurrency, ordered, timeout);
+	}
+
+	/**
+	 * @param ordered {@code true} to emit the results in the order of the requests, {@code false} to emit them as
+	 *                they complete
+	 * @return a copy of these options with the given ordering
+	 */
+	public BulkOptions withOrdered(final boolean ordered)
+	{
+		return new BulkOptions(maxConcurrency, ordered, timeout);
+	}
+
+	/**
+	 * @param timeout the deadline of the whole bulk call, after which the pending calls fail with a
+	 *                {@link java.util.concurrent.TimeoutException}, {@code null} for no deadline
+	 * @return a copy of these options with the given deadline
+	 */
+	public BulkOptions withTimeout(final Duration timeout)
+	{
+		return new BulkOptions(maxConcurrency, ordered, timeout);
+	}
+
+	public int getMaxConcurrency()
+	{
+		return maxConcurrency;
+	}
+
+	public boolean isOrdered()
+	{
+		return ordered;
+	}
+
+	public Duration getTimeout()
+	{
+		return timeout;
+	}
+}
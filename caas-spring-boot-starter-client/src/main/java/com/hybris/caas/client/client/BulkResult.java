@@ -0,0 +1,59 @@
+package com.hybris.caas.client.client;
+
+/**
+ * The outcome of one call of a bulk call of {@link CaasWebClient}: either the response body or the error of the call.
+ *
+ * @param <T> the response body type
+ */
+public final class BulkResult<T>
+{
+	private final int index;
+	private final T value;
+	private final Throwable error;
+
+	private BulkResult(final int index, final T value, final Throwable error)
+	{
+		this.index = index;
+		this.value = value;
+		this.error = error;
+	}
+
+	static <T> BulkResult<T> success(final int index, final T value)
+	{
+		return new BulkResult<>(index, value, null);
+	}
+
+	static <T> BulkResult<T> failure(final int index, final Throwable error)
+	{
+		return new BulkResult<>(index, null, error);
+	}
+
+	/**
+	 * @return the position of the request of this call in the requests of the bulk call
+	 */
+	public int getIndex()
+	{
+		return index;
+	}
+
+	/**
+	 * @return the response body, {@code null} if the call failed or the response has no body
+	 */
+	public T getValue()
+	{
+		return value;
+	}
+
+	/**
+	 * @return the error of the call, {@code null} if it succeeded
+	 */
+	public Throwable getError()
+	{
+		return error;
+	}
+
+	public boolean isSuccess()
+	{
+		return error == null;
+	}
+}
@@ -1,17 +1,28 @@
 package com.hybris.caas.client.client;
 
+import com.hybris.caas.client.cache.ResponseCacheExchangeFilterFunction;
+import com.hybris.caas.client.metrics.OutboundCallContext;
+import com.hybris.caas.client.resilience.HedgingPolicy;
+import com.hybris.caas.client.resilience.RetryPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
 import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
 
 /**
  * Base client that for making REST calls using {@link WebClient}.
@@ -19,14 +30,36 @@ import java.net.URI;
 public class CaasWebClient
 {
 	private static final Logger LOG = LoggerFactory.getLogger(CaasWebClient.class);
+	private static final List<MediaType> STREAMING_MEDIA_TYPES = List.of(MediaType.APPLICATION_STREAM_JSON,
+			MediaType.APPLICATION_JSON);
+
+	/**
+	 * The default number of elements requested upstream at once by streaming responses.
+	 */
+	public static final int DEFAULT_STREAM_PREFETCH = 256;
 
 	private final WebClient webClient;
-	private final int retriesMaxAttempts;
+	private final RetryPolicy retryPolicy;
+	private final HedgingPolicy hedgingPolicy;
+	private final int streamPrefetch;
 
 	public CaasWebClient(final WebClient webClient, int retriesMaxAttempts)
+	{
+		this(webClient, RetryPolicy.of(retriesMaxAttempts), DEFAULT_STREAM_PREFETCH);
+	}
+
+	public CaasWebClient(final WebClient webClient, final RetryPolicy retryPolicy, final int streamPrefetch)
+	{
+		this(webClient, retryPolicy, HedgingPolicy.disabled(), streamPrefetch);
+	}
+
+	public CaasWebClient(final WebClient webClient, final RetryPolicy retryPolicy, final HedgingPolicy hedgingPolicy,
+			final int streamPrefetch)
 	{
 		this.webClient = webClient;
-		this.retriesMaxAttempts = retriesMaxAttempts;
+		this.retryPolicy = retryPolicy;
+		this.hedgingPolicy = hedgingPolicy;
+		this.streamPrefetch = streamPrefetch;
 	}
 
 	/**
@@ -40,13 +73,7 @@ public class CaasWebClient
 	 */
 	public <T> Mono<T> get(final String authorization, final URI uri, final Class<T> responseClass)
 	{
-		return webClient.get()
-				.uri(uri)
-				.headers(h -> h.add(HttpHeaders.AUTHORIZATION, authorization))
-				.retrieve()
-				.bodyToMono(responseClass)
-				.doOnError(e -> LOG.warn("Exception while getting data from {}: {}", uri.getPath(), e.toString()))
-				.retry(retriesMaxAttempts);
+		return doGet(authorization, uri, responseClass, null);
 	}
 
 	/**
@@ -62,7 +89,41 @@ public class CaasWebClient
 	public <T> Mono<T> get(final String authorization, final URI uri, final Class<T> responseClass,
 			final MultiValueMap<String, String> additionalHeaders)
 	{
-		return webClient.get()
+		return doGet(authorization, uri, responseClass, additionalHeaders);
+	}
+
+	private <T> Mono<T> doGet(final String authorization, final URI uri, final Class<T> responseClass,
+			final MultiValueMap<String, String> additionalHeaders)
+	{
+		return hedgingPolicy.hedge(uri, retrieveGet(authorization, uri, additionalHeaders, false).bodyToMono(responseClass),
+				() -> retrieveGet(authorization, uri, additionalHeaders, true).bodyToMono(responseClass))
+				.doOnError(e -> LOG.warn("Exception while getting data from {}: {}", uri.getPath(), e.toString()))
+				.retryWhen(retryPolicy.forMethod(HttpMethod.GET))
+				.subscriberContext(OutboundCallContext::initialize);
+	}
+
+	/**
+	 * Gets data from a specified {@link URI} without hedging and bypassing the response cache, e.g. for fetching
+	 * credentials. Failed requests are still retried according to the retry policy.
+	 *
+	 * @param authorization the authorization value
+	 * @param uri           the {@link URI} of the endpoint to make the request to
+	 * @param responseClass the {@link Class} of the response body type
+	 * @param <T>           the response body type
+	 * @return a mono containing the converted response body or an exception
+	 */
+	protected <T> Mono<T> getWithoutHedging(final String authorization, final URI uri, final Class<T> responseClass)
+	{
+		return retrieveGet(authorization, uri, null, true).bodyToMono(responseClass)
+				.doOnError(e -> LOG.warn("Exception while getting data from {}: {}", uri.getPath(), e.toString()))
+				.retryWhen(retryPolicy.forMethod(HttpMethod.GET))
+				.subscriberContext(OutboundCallContext::initialize);
+	}
+
+	private WebClient.ResponseSpec retrieveGet(final String authorization, final URI uri,
+			final MultiValueMap<String, String> additionalHeaders, final boolean bypassCache)
+	{
+		final WebClient.RequestHeadersSpec<?> request = webClient.get()
 				.uri(uri)
 				.headers(h -> {
 					if (!CollectionUtils.isEmpty(additionalHeaders))
@@ -70,11 +131,13 @@ public class CaasWebClient
 						h.addAll(additionalHeaders);
 					}
 					h.add(HttpHeaders.AUTHORIZATION, authorization);
-				})
-				.retrieve()
-				.bodyToMono(responseClass)
-				.doOnError(e -> LOG.warn("Exception while getting data from {}: {}", uri.getPath(), e.toString()))
-				.retry(retriesMaxAttempts);
+				});
+		if (bypassCache)
+		{
+			// a hedge request coalesced with the late primary request would be pointless, and credentials must not be cached
+			request.attribute(ResponseCacheExchangeFilterFunction.BYPASS_ATTRIBUTE, true);
+		}
+		return request.retrieve();
 	}
 
 	/**
@@ -88,6 +151,11 @@ public class CaasWebClient
 	 * @return @return a mono containing the converted response body or an exception
 	 */
 	public <T> Mono<T> post(final String authorization, final URI uri, final Object body, final Class<T> responseClass)
+	{
+		return doPost(authorization, uri, body, responseClass);
+	}
+
+	private <T> Mono<T> doPost(final String authorization, final URI uri, final Object body, final Class<T> responseClass)
 	{
 		return webClient.post()
 				.uri(uri)
@@ -97,7 +165,8 @@ public class CaasWebClient
 				.retrieve()
 				.bodyToMono(responseClass)
 				.doOnError(e -> LOG.warn("Exception while posting data to {}: {}", uri.getPath(), e))
-				.retry(retriesMaxAttempts);
+				.retryWhen(retryPolicy.forMethod(HttpMethod.POST))
+				.subscriberContext(OutboundCallContext::initialize);
 	}
 
 	/**
@@ -121,7 +190,8 @@ public class CaasWebClient
 				.retrieve()
 				.bodyToMono(typeReference)
 				.doOnError(e -> LOG.warn("Exception while posting data to {}: {}", uri.getPath(), e))
-				.retry(retriesMaxAttempts);
+				.retryWhen(retryPolicy.forMethod(HttpMethod.POST))
+				.subscriberContext(OutboundCallContext::initialize);
 	}
 
 	/**
@@ -152,7 +222,8 @@ public class CaasWebClient
 				.retrieve()
 				.bodyToMono(responseClass)
 				.doOnError(e -> LOG.warn("Exception while posting data to {}: {}", uri.getPath(), e))
-				.retry(retriesMaxAttempts);
+				.retryWhen(retryPolicy.forMethod(HttpMethod.POST))
+				.subscriberContext(OutboundCallContext::initialize);
 	}
 
 	/**
@@ -175,7 +246,8 @@ public class CaasWebClient
 				.retrieve()
 				.bodyToMono(responseClass)
 				.doOnError(e -> LOG.warn("Exception while putting data to {}: {}", uri.getPath(), e))
-				.retry(retriesMaxAttempts);
+				.retryWhen(retryPolicy.forMethod(HttpMethod.PUT))
+				.subscriberContext(OutboundCallContext::initialize);
 	}
 
 	/**
@@ -206,7 +278,8 @@ public class CaasWebClient
 				.retrieve()
 				.bodyToMono(responseClass)
 				.doOnError(e -> LOG.warn("Exception while putting data to {}: {}", uri.getPath(), e))
-				.retry(retriesMaxAttempts);
+				.retryWhen(retryPolicy.forMethod(HttpMethod.PUT))
+				.subscriberContext(OutboundCallContext::initialize);
 	}
 
 	/**
@@ -229,7 +302,8 @@ public class CaasWebClient
 				.retrieve()
 				.bodyToMono(responseClass)
 				.doOnError(e -> LOG.warn("Exception while patching data to {}: {}", uri.getPath(), e))
-				.retry(retriesMaxAttempts);
+				.retryWhen(retryPolicy.forMethod(HttpMethod.PATCH))
+				.subscriberContext(OutboundCallContext::initialize);
 	}
 
 	/**
@@ -260,7 +334,8 @@ public class CaasWebClient
 				.retrieve()
 				.bodyToMono(responseClass)
 				.doOnError(e -> LOG.warn("Exception while patching data to {}: {}", uri.getPath(), e))
-				.retry(retriesMaxAttempts);
+				.retryWhen(retryPolicy.forMethod(HttpMethod.PATCH))
+				.subscriberContext(OutboundCallContext::initialize);
 	}
 
 	/**
@@ -284,7 +359,8 @@ public class CaasWebClient
 				.exchange()
 				.flatMap(response -> response.toEntity(typeReference))
 				.doOnError(e -> LOG.warn("Exception while posting data to {}: {}", uri.getPath(), e))
-				.retry(retriesMaxAttempts);
+				.retryWhen(retryPolicy.forMethod(HttpMethod.POST))
+				.subscriberContext(OutboundCallContext::initialize);
 	}
 
 	/**
@@ -306,7 +382,8 @@ public class CaasWebClient
 				.exchange()
 				.flatMap(response -> response.toEntity(responseClass))
 				.doOnError(e -> LOG.warn("Exception while posting data to {}: {}", uri.getPath(), e))
-				.retry(retriesMaxAttempts);
+				.retryWhen(retryPolicy.forMethod(HttpMethod.POST))
+				.subscriberContext(OutboundCallContext::initialize);
 	}
 
 	/**
@@ -335,7 +412,8 @@ public class CaasWebClient
 				.exchange()
 				.flatMap(response -> response.toEntity(responseClass))
 				.doOnError(e -> LOG.warn("Exception while posting data to {}: {}", uri.getPath(), e))
-				.retry(retriesMaxAttempts);
+				.retryWhen(retryPolicy.forMethod(HttpMethod.POST))
+				.subscriberContext(OutboundCallContext::initialize);
 	}
 
 	/**
@@ -357,7 +435,8 @@ public class CaasWebClient
 				.exchange()
 				.flatMap(response -> response.toEntity(responseClass))
 				.doOnError(e -> LOG.warn("Exception while posting data to {}: {}", uri.getPath(), e))
-				.retry(retriesMaxAttempts);
+				.retryWhen(retryPolicy.forMethod(HttpMethod.PUT))
+				.subscriberContext(OutboundCallContext::initialize);
 	}
 
 	/**
@@ -386,7 +465,8 @@ public class CaasWebClient
 				.exchange()
 				.flatMap(response -> response.toEntity(responseClass))
 				.doOnError(e -> LOG.warn("Exception while posting data to {}: {}", uri.getPath(), e))
-				.retry(retriesMaxAttempts);
+				.retryWhen(retryPolicy.forMethod(HttpMethod.PUT))
+				.subscriberContext(OutboundCallContext::initialize);
 	}
 
 	/**
@@ -406,6 +486,164 @@ public class CaasWebClient
 				.retrieve()
 				.bodyToMono(responseClass)
 				.doOnError(e -> LOG.warn("Exception while deleting data from {}: {}", uri.getPath(), e.toString()))
-				.retry(retriesMaxAttempts);
+				.retryWhen(retryPolicy.forMethod(HttpMethod.DELETE))
+				.subscriberContext(OutboundCallContext::initialize);
+	}
+
+	/**
+	 * Streams the elements of a JSON array or of a newline delimited JSON stream from a specified {@link URI}.
+	 * Elements are decoded as they arrive and requested upstream in batches of the configured prefetch, so the
+	 * response is never buffered as a whole. Streams are not retried, since elements may already have been emitted.
+	 *
+	 * @param authorization the authorization value
+	 * @param uri           the {@link URI} of the endpoint to make the request to
+	 * @param elementClass  the {@link Class} of the elements of the response body
+	 * @param <T>           the element type
+	 * @return a flux containing the converted elements or an exception
+	 */
+	public <T> Flux<T> getFlux(final String authorization, final URI uri, final Class<T> elementClass)
+	{
+		return getFlux(authorization, uri, elementClass, null);
+	}
+
+	/**
+	 * Streams the elements of a JSON array or of a newline delimited JSON stream from a specified {@link URI}.
+	 * Elements are decoded as they arrive and requested upstream in batches of the configured prefetch, so the
+	 * response is never buffered as a whole. Streams are not retried, since elements may already have been emitted.
+	 *
+	 * @param authorization     the authorization value
+	 * @param uri               the {@link URI} of the endpoint to make the request to
+	 * @param elementClass      the {@link Class} of the elements of the response body
+	 * @param additionalHeaders a List of additional headers.
+	 * @param <T>               the element type
+	 * @return a flux containing the converted elements or an exception
+	 */
+	public <T> Flux<T> getFlux(final String authorization, final URI uri, final Class<T> elementClass,
+			final MultiValueMap<String, String> additionalHeaders)
+	{
+		return webClient.get()
+				.uri(uri)
+				.headers(h -> {
+					if (!CollectionUtils.isEmpty(additionalHeaders))
+					{
+						h.addAll(additionalHeaders);
+					}
+					h.setAccept(STREAMING_MEDIA_TYPES);
+					h.add(HttpHeaders.AUTHORIZATION, authorization);
+				})
+				.attribute(ResponseCacheExchangeFilterFunction.BYPASS_ATTRIBUTE, true)
+				.retrieve()
+				.bodyToFlux(elementClass)
+				.limitRate(streamPrefetch)
+				.doOnError(e -> LOG.warn("Exception while streaming data from {}: {}", uri.getPath(), e.toString()))
+				.subscriberContext(OutboundCallContext::initialize);
+	}
+
+	/**
+	 * Posts data to a specified {@link URI} and streams the elements of the JSON array or of the newline delimited
+	 * JSON stream returned. Streams are not retried, since elements may already have been emitted.
+	 *
+	 * @param authorization the authorization value
+	 * @param uri           the {@link URI} of the endpoint to make the request to
+	 * @param body          the body of the request
+	 * @param elementClass  the {@link Class} of the elements of the response body
+	 * @param <T>           the element type
+	 * @return a flux containing the converted elements or an exception
+	 */
+	public <T> Flux<T> postFlux(final String authorization, final URI uri, final Object body, final Class<T> elementClass)
+	{
+		return webClient.post()
+				.uri(uri)
+				.contentType(MediaType.APPLICATION_JSON)
+				.headers(h -> {
+					h.setAccept(STREAMING_MEDIA_TYPES);
+					h.add(HttpHeaders.AUTHORIZATION, authorization);
+				})
+				.bodyValue(body)
+				.retrieve()
+				.bodyToFlux(elementClass)
+				.limitRate(streamPrefetch)
+				.doOnError(e -> LOG.warn("Exception while streaming data from {}: {}", uri.getPath(), e.toString()))
+				.subscriberContext(OutboundCallContext::initialize);
+	}
+
+	/**
+	 * Streams the raw response body from a specified {@link URI} without decoding it, e.g. to pass it through to a
+	 * server response. The subscriber is responsible for releasing each {@link DataBuffer}, see
+	 * {@link org.springframework.core.io.buffer.DataBufferUtils#release(DataBuffer)}.
+	 *
+	 * @param authorization the authorization value
+	 * @param uri           the {@link URI} of the endpoint to make the request to
+	 * @return a flux containing the response body buffers or an exception
+	 */
+	public Flux<DataBuffer> getDataBuffers(final String authorization, final URI uri)
+	{
+		return webClient.get()
+				.uri(uri)
+				.headers(h -> h.add(HttpHeaders.AUTHORIZATION, authorization))
+				.attribute(ResponseCacheExchangeFilterFunction.BYPASS_ATTRIBUTE, true)
+				.retrieve()
+				.bodyToFlux(DataBuffer.class)
+				.limitRate(streamPrefetch)
+				.doOnError(e -> LOG.warn("Exception while streaming data from {}: {}", uri.getPath(), e.toString()))
+				.subscriberContext(OutboundCallContext::initialize);
+	}
+
+	/**
+	 * Gets data from several {@link URI}s, running up to {@link BulkOptions#getMaxConcurrency()} calls at once.
+	 * A failed call does not fail the others: its error is reported in its {@link BulkResult}.
+	 *
+	 * @param authorization the authorization value, shared by all the calls
+	 * @param uris          the {@link URI}s of the endpoints to make the requests to
+	 * @param responseClass the {@link Class} of the response body type
+	 * @param options       the concurrency, ordering and deadline of the bulk call
+	 * @param <T>           the response body type
+	 * @return a flux containing one result per {@link URI}
+	 */
+	public <T> Flux<BulkResult<T>> getAll(final String authorization, final Collection<URI> uris, final Class<T> responseClass,
+			final BulkOptions options)
+	{
+		return executeAll(uris, uri -> doGet(authorization, uri, responseClass, null), options);
+	}
+
+	/**
+	 * Posts several bodies to a specified {@link URI}, running up to {@link BulkOptions#getMaxConcurrency()} calls at
+	 * once. A failed call does not fail the others: its error is reported in its {@link BulkResult}.
+	 *
+	 * @param authorization the authorization value, shared by all the calls
+	 * @param uri           the {@link URI} of the endpoint to make the requests to
+	 * @param bodies        the bodies of the requests
+	 * @param responseClass the {@link Class} of the response body type
+	 * @param options       the concurrency, ordering and deadline of the bulk call
+	 * @param <T>           the response body type
+	 * @return a flux containing one result per body
+	 */
+	public <T> Flux<BulkResult<T>> postAll(final String authorization, final URI uri, final Collection<?> bodies,
+			final Class<T> responseClass, final BulkOptions options)
+	{
+		return executeAll(bodies, body -> doPost(authorization, uri, body, responseClass), options);
+	}
+
+	private static <R, T> Flux<BulkResult<T>> executeAll(final Collection<R> requests, final Function<R, Mono<T>> call,
+			final BulkOptions options)
+	{
+		return Flux.defer(() -> {
+			final Mono<Long> deadline = options.getTimeout() == null ? null : Mono.delay(options.getTimeout()).cache();
+			final Function<Tuple2<Long, R>, Mono<BulkResult<T>>> execute = indexed -> {
+				final int index = indexed.getT1().intValue();
+				Mono<T> result = call.apply(indexed.getT2());
+				if (deadline != null)
+				{
+					result = result.timeout(deadline);
+				}
+				return result.map(value -> BulkResult.success(index, value))
+						.defaultIfEmpty(BulkResult.success(index, null))
+						.onErrorResume(e -> Mono.just(BulkResult.failure(index, e)));
+			};
+			final Flux<Tuple2<Long, R>> indexedRequests = Flux.fromIterable(requests).index();
+			return options.isOrdered() ?
+					indexedRequests.flatMapSequential(execute, options.getMaxConcurrency()) :
+					indexedRequests.flatMap(execute, options.getMaxConcurrency());
+		});
 	}
 }
@@ -3,6 +3,12 @@ package com.hybris.caas.client.client;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+import com.hybris.caas.client.metrics.OutboundCallContext;
+import com.hybris.caas.client.metrics.OutboundCallContext.TokenLookup;
+import com.hybris.caas.client.resilience.HedgingPolicy;
+import com.hybris.caas.client.resilience.RetryPolicy;
+import com.hybris.caas.client.token.OauthToken;
+import com.hybris.caas.client.token.OauthTokenCache;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.Option;
@@ -10,182 +16,250 @@ import com.jayway.jsonpath.ReadContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.Assert;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
-import reactor.cache.CacheMono;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Signal;
 
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
-import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.util.Collection;
+import java.util.function.Function;
 
 public class OauthCaasWebClient extends CaasWebClient
 {
 	private static final Logger LOG = LoggerFactory.getLogger(OauthCaasWebClient.class);
 
-	private static final String BEARER = "Bearer %s";
 	private static final String BASIC = "Basic %s";
 
-	private final Cache<String, String> tokenCache;
-	private final String clientId;
-	private final String clientSecret;
+	private final OauthTokenCache tokenCache;
+	private final Cache<String, URI> uaaUris;
+	private final String basicAuthorization;
 	private final String tokenUriTemplate;
+	private final Duration defaultTokenLifetime;
 
 	public OauthCaasWebClient(final WebClient webClient, final CaasWebClientProperties caasWebClientProperties)
 	{
-		super(webClient, caasWebClientProperties.getProperties().getRetry().getMaxAttempts());
+		super(webClient, new RetryPolicy(caasWebClientProperties.getProperties().getRetry()),
+				new HedgingPolicy(caasWebClientProperties.getProperties().getHedging()),
+				caasWebClientProperties.getProperties().getStreaming().getPrefetch());
 
-		this.clientId = caasWebClientProperties.getUaa().getClientId();
-		this.clientSecret = caasWebClientProperties.getUaa().getClientSecret();
+		this.basicAuthorization = getBasicAuth(caasWebClientProperties.getUaa().getClientId(),
+				caasWebClientProperties.getUaa().getClientSecret());
 		this.tokenUriTemplate = caasWebClientProperties.getUaa().getTokenUriTemplate();
+		this.uaaUris = Caffeine.newBuilder().maximumSize(caasWebClientProperties.getTokenCache().getMaxSize()).build();
 
-		this.tokenCache = Caffeine.newBuilder()
-				.expireAfterWrite(caasWebClientProperties.getTokenCache().getExpireAfterWrite(), TimeUnit.HOURS)
-				.maximumSize(caasWebClientProperties.getTokenCache().getMaxSize())
-				.build();
+		this.defaultTokenLifetime = Duration.ofHours(caasWebClientProperties.getTokenCache().getExpireAfterWrite());
+
+		this.tokenCache = new OauthTokenCache(caasWebClientProperties.getTokenCache(), this::getTokenInternal);
 	}
 
 	@Override
 	public <T> Mono<T> get(final String authorization, final URI uri, final Class<T> responseClass)
 	{
-		return getToken(authorization).flatMap(token -> super.get(String.format(BEARER, token), uri, responseClass));
+		return withAuthorization(authorization, bearer -> super.get(bearer, uri, responseClass));
 	}
 
 	@Override
 	public <T> Mono<T> get(final String authorization, final URI uri, final Class<T> responseClass,
 			final MultiValueMap<String, String> additionalHeaders)
 	{
-		return getToken(authorization).flatMap(
-				token -> super.get(String.format(BEARER, token), uri, responseClass, additionalHeaders));
+		return withAuthorization(authorization, bearer -> super.get(bearer, uri, responseClass, additionalHeaders));
 	}
 
 	@Override
 	public <T> Mono<T> post(final String authorization, final URI uri, final Object body, final Class<T> responseClass)
 	{
-		return getToken(authorization).flatMap(token -> super.post(String.format(BEARER, token), uri, body, responseClass));
+		return withAuthorization(authorization, bearer -> super.post(bearer, uri, body, responseClass));
 	}
 
 	@Override
 	public <T> Mono<T> post(final String authorization, final URI uri, final Object body, final ParameterizedTypeReference<T> typeReference)
 	{
-		return getToken(authorization).flatMap(token -> super.post(String.format(BEARER, token), uri, body, typeReference));
+		return withAuthorization(authorization, bearer -> super.post(bearer, uri, body, typeReference));
 	}
 
 	@Override
 	public <T> Mono<T> post(final String authorization, final URI uri, final Object body, final Class<T> responseClass,
 			final MultiValueMap<String, String> additionalHeaders)
 	{
-		return getToken(authorization).flatMap(
-				token -> super.post(String.format(BEARER, token), uri, body, responseClass, additionalHeaders));
+		return withAuthorization(authorization,
+				bearer -> super.post(bearer, uri, body, responseClass, additionalHeaders));
 	}
 
 	@Override
 	public <T> Mono<ResponseEntity<T>> postWithExchange(final String authorization, final URI uri, final Object body,
 			final Class<T> responseClass)
 	{
-		return getToken(authorization).flatMap(
-				token -> super.postWithExchange(String.format(BEARER, token), uri, body, responseClass));
+		return withAuthorization(authorization, bearer -> super.postWithExchange(bearer, uri, body, responseClass));
 	}
 
 	@Override
 	public <T> Mono<ResponseEntity<T>> postWithExchange(final String authorization, final URI uri, final Object body,
 			final ParameterizedTypeReference<T> typeReference)
 	{
-		return getToken(authorization).flatMap(
-				token -> super.postWithExchange(String.format(BEARER, token), uri, body, typeReference));
+		return withAuthorization(authorization, bearer -> super.postWithExchange(bearer, uri, body, typeReference));
 	}
 
 	@Override
 	public <T> Mono<ResponseEntity<T>> postWithExchange(final String authorization, final URI uri, final Object body,
 			final Class<T> responseClass, final MultiValueMap<String, String> additionalHeaders)
 	{
-		return getToken(authorization).flatMap(
-				token -> super.postWithExchange(String.format(BEARER, token), uri, body, responseClass, additionalHeaders));
+		return withAuthorization(authorization,
+				bearer -> super.postWithExchange(bearer, uri, body, responseClass, additionalHeaders));
 	}
 
 	@Override
 	public <T> Mono<T> put(final String authorization, final URI uri, final Object body, final Class<T> responseClass)
 	{
-		return getToken(authorization).flatMap(token -> super.put(String.format(BEARER, token), uri, body, responseClass));
+		return withAuthorization(authorization, bearer -> super.put(bearer, uri, body, responseClass));
 	}
 
 	@Override
 	public <T> Mono<T> put(final String authorization, final URI uri, final Object body, final Class<T> responseClass,
 			final MultiValueMap<String, String> additionalHeaders)
 	{
-		return getToken(authorization).flatMap(
-				token -> super.put(String.format(BEARER, token), uri, body, responseClass, additionalHeaders));
+		return withAuthorization(authorization,
+				bearer -> super.put(bearer, uri, body, responseClass, additionalHeaders));
 	}
 
 	@Override
 	public <T> Mono<ResponseEntity<T>> putWithExchange(final String authorization, final URI uri, final Object body,
 			final Class<T> responseClass)
 	{
-		return getToken(authorization).flatMap(
-				token -> super.putWithExchange(String.format(BEARER, token), uri, body, responseClass));
+		return withAuthorization(authorization, bearer -> super.putWithExchange(bearer, uri, body, responseClass));
 	}
 
 	@Override
 	public <T> Mono<ResponseEntity<T>> putWithExchange(final String authorization, final URI uri, final Object body,
 			final Class<T> responseClass, final MultiValueMap<String, String> additionalHeaders)
 	{
-		return getToken(authorization).flatMap(
-				token -> super.putWithExchange(String.format(BEARER, token), uri, body, responseClass, additionalHeaders));
+		return withAuthorization(authorization,
+				bearer -> super.putWithExchange(bearer, uri, body, responseClass, additionalHeaders));
 	}
 
 	@Override
 	public <T> Mono<T> patch(final String authorization, final URI uri, final Object body, final Class<T> responseClass)
 	{
-		return getToken(authorization).flatMap(token -> super.patch(String.format(BEARER, token), uri, body, responseClass));
+		return withAuthorization(authorization, bearer -> super.patch(bearer, uri, body, responseClass));
 	}
 
 	@Override
 	public <T> Mono<T> patch(final String authorization, final URI uri, final Object body, final Class<T> responseClass,
 			final MultiValueMap<String, String> additionalHeaders)
 	{
-		return getToken(authorization).flatMap(
-				token -> super.patch(String.format(BEARER, token), uri, body, responseClass, additionalHeaders));
+		return withAuthorization(authorization,
+				bearer -> super.patch(bearer, uri, body, responseClass, additionalHeaders));
 	}
 
 	@Override
 	public <T> Mono<T> delete(final String authorization, final URI uri, final Class<T> responseClass)
 	{
-		return getToken(authorization).flatMap(token -> super.delete(String.format(BEARER, token), uri, responseClass));
+		return withAuthorization(authorization, bearer -> super.delete(bearer, uri, responseClass));
+	}
+
+	@Override
+	public <T> Flux<T> getFlux(final String authorization, final URI uri, final Class<T> elementClass)
+	{
+		return withAuthorizationMany(authorization, bearer -> super.getFlux(bearer, uri, elementClass));
+	}
+
+	@Override
+	public <T> Flux<T> getFlux(final String authorization, final URI uri, final Class<T> elementClass,
+			final MultiValueMap<String, String> additionalHeaders)
+	{
+		return withAuthorizationMany(authorization,
+				bearer -> super.getFlux(bearer, uri, elementClass, additionalHeaders));
+	}
+
+	@Override
+	public <T> Flux<T> postFlux(final String authorization, final URI uri, final Object body, final Class<T> elementClass)
+	{
+		return withAuthorizationMany(authorization, bearer -> super.postFlux(bearer, uri, body, elementClass));
+	}
+
+	@Override
+	public Flux<DataBuffer> getDataBuffers(final String authorization, final URI uri)
+	{
+		return withAuthorizationMany(authorization, bearer -> super.getDataBuffers(bearer, uri));
+	}
+
+	@Override
+	public <T> Flux<BulkResult<T>> getAll(final String authorization, final Collection<URI> uris,
+			final Class<T> responseClass, final BulkOptions options)
+	{
+		return withAuthorizationMany(authorization, bearer -> super.getAll(bearer, uris, responseClass, options));
+	}
+
+	@Override
+	public <T> Flux<BulkResult<T>> postAll(final String authorization, final URI uri, final Collection<?> bodies,
+			final Class<T> responseClass, final BulkOptions options)
+	{
+		return withAuthorizationMany(authorization,
+				bearer -> super.postAll(bearer, uri, bodies, responseClass, options));
+	}
+
+	private <T> Mono<T> withAuthorization(final String tenantId, final Function<String, Mono<T>> call)
+	{
+		return Mono.defer(() -> {
+			final TokenLookup tokenLookup = getTokenLookup(tenantId);
+			return getAuthorization(tenantId).flatMap(call)
+					.subscriberContext(OutboundCallContext.withTokenLookup(tokenLookup))
+					.subscriberContext(OutboundCallContext.withPrincipal(tenantId));
+		});
+	}
+
+	private <T> Flux<T> withAuthorizationMany(final String tenantId, final Function<String, Flux<T>> call)
+	{
+		return Flux.defer(() -> {
+			final TokenLookup tokenLookup = getTokenLookup(tenantId);
+			return getAuthorization(tenantId).flatMapMany(call)
+					.subscriberContext(OutboundCallContext.withTokenLookup(tokenLookup))
+					.subscriberContext(OutboundCallContext.withPrincipal(tenantId));
+		});
+	}
+
+	private TokenLookup getTokenLookup(final String tenantId)
+	{
+		return tokenCache.isCached(tenantId) ? TokenLookup.HIT : TokenLookup.MISS;
 	}
 
-	private Mono<String> getToken(final String tenantId)
+	private Mono<String> getAuthorization(final String tenantId)
 	{
-		return CacheMono.lookup(key -> Mono.justOrEmpty(tokenCache.getIfPresent(key)).map(Signal::next), tenantId)
-				.onCacheMissResume(getTokenInternal(tenantId))
-				.andWriteWith((key, signal) -> Mono.fromRunnable(
-						() -> Optional.ofNullable(signal.get()).ifPresent(value -> tokenCache.put(key, value))));
+		return tokenCache.getToken(tenantId).map(OauthToken::getAuthorizationHeader);
 	}
 
-	private Mono<String> getTokenInternal(final String tenantId)
+	private Mono<OauthToken> getTokenInternal(final String tenantId)
 	{
-		return Mono.defer(() -> super.get(getBasicAuth(), getUAAUri(tenantId), String.class)).map(response -> {
+		return Mono.defer(() -> getWithoutHedging(basicAuthorization, getUAAUri(tenantId), String.class)).map(response -> {
 			LOG.debug("getToken for tenantId '{}' returned: {}", tenantId, response);
 			final ReadContext readContext = JsonPath.using(
 					Configuration.defaultConfiguration().addOptions(Option.DEFAULT_PATH_LEAF_TO_NULL, Option.SUPPRESS_EXCEPTIONS))
 					.parse(response);
 			final String token = readContext.read("$.access_token");
 			Assert.notNull(token, "Did not receive token from XSUAA");
-			return token;
+			final Long expiresIn = readContext.read("$.expires_in", Long.class);
+			final Instant expiresAt = expiresIn == null ?
+					Instant.now().plus(defaultTokenLifetime) :
+					Instant.now().plusSeconds(expiresIn);
+			return new OauthToken(token, expiresAt);
 		});
 	}
 
 	private URI getUAAUri(final String tenantId)
 	{
-		return UriComponentsBuilder.fromUriString(String.format(tokenUriTemplate, tenantId)).build().toUri();
+		return uaaUris.get(tenantId,
+				key -> UriComponentsBuilder.fromUriString(String.format(tokenUriTemplate, key)).build().toUri());
 	}
 
-	private String getBasicAuth()
+	private static String getBasicAuth(final String clientId, final String clientSecret)
 	{
 		final byte[] bytes = (clientId + ":" + clientSecret).getBytes(StandardCharsets.UTF_8);
 		final String base64 = new String(Base64.getEncoder().encode(bytes), StandardCharsets.UTF_8);
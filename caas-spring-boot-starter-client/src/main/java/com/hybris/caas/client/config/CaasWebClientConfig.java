@@ -1,31 +1,50 @@
 package com.hybris.caas.client.config;
 
+import com.hybris.caas.client.cache.ResponseCacheExchangeFilterFunction;
 import com.hybris.caas.client.client.CaasWebClient;
 import com.hybris.caas.client.client.OauthCaasWebClient;
 import com.hybris.caas.client.config.utils.CaasWebClientLogUtils;
 import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+import com.hybris.caas.client.metrics.MetricsExchangeFilterFunction;
+import com.hybris.caas.client.resilience.MicrometerResilienceListener;
+import com.hybris.caas.client.resilience.ResilienceExchangeFilterFunction;
+import com.hybris.caas.client.resilience.ResilienceListener;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.codec.CodecCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.Assert;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Configuration
 @EnableConfigurationProperties(CaasWebClientProperties.class)
+@AutoConfigureAfter(name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
 public class CaasWebClientConfig
 {
+	private static final String CONNECTION_PROVIDER_NAME = "caas-web-client";
+
 	private final CaasWebClientProperties caasWebClientProperties;
 
 	public CaasWebClientConfig(final CaasWebClientProperties caasWebClientProperties)
@@ -46,22 +65,42 @@ public class CaasWebClientConfig
 	 * @return an instance of web client
 	 */
 	@Bean
-	public WebClient createWebClient(final HttpClient httpClient)
+	public WebClient createWebClient(final HttpClient httpClient,
+			final ObjectProvider<ResilienceListener> resilienceListeners,
+			final ObjectProvider<MetricsExchangeFilterFunction> metricsFilter,
+			final ObjectProvider<CodecCustomizer> codecCustomizers)
 	{
-		return WebClient.builder()
-				.clientConnector(new ReactorClientHttpConnector(httpClient))
+		// the codecs customized for the application, e.g. its ObjectMapper or max in memory size, also decode the cached responses
+		final ExchangeStrategies strategies = ExchangeStrategies.builder()
+				.codecs(configurer -> codecCustomizers.orderedStream().forEach(customizer -> customizer.customize(configurer)))
+				.build();
+		final WebClient.Builder builder = WebClient.builder().exchangeStrategies(strategies);
+		if (caasWebClientProperties.getProperties().getResponseCache().isEnabled())
+		{
+			builder.filter(new ResponseCacheExchangeFilterFunction(caasWebClientProperties.getProperties().getResponseCache(),
+					strategies));
+		}
+		builder.clientConnector(new ReactorClientHttpConnector(httpClient))
 				.defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
 				.defaultHeader(HttpHeaders.ACCEPT_CHARSET, StandardCharsets.UTF_8.name())
-				.filter(CaasWebClientLogUtils.logRequest(caasWebClientProperties.getProperties().getObfuscate().getHeaders()))
-				.filter(CaasWebClientLogUtils.logResponse(caasWebClientProperties.getProperties().getObfuscate().getHeaders()))
+				.filter(CaasWebClientLogUtils.logExchange(caasWebClientProperties.getProperties().getObfuscate().getHeaders(),
+						caasWebClientProperties.getProperties().getLog().getSampleRate(),
+						caasWebClientProperties.getProperties().getLog().getFormat()));
+		metricsFilter.ifAvailable(builder::filter);
+		return builder
+				.filter(new ResilienceExchangeFilterFunction(caasWebClientProperties.getProperties(),
+						resilienceListeners.orderedStream().collect(Collectors.toList())))
 				.build();
 	}
 
 	@Bean
 	@ConditionalOnMissingBean
-	public HttpClient defaultHttpClient(ObjectProvider<HttpClientCustomizer> customizers)
+	public HttpClient defaultHttpClient(final ConnectionProvider connectionProvider,
+			ObjectProvider<HttpClientCustomizer> customizers)
 	{
-		HttpClient httpClient = HttpClient.create()
+		HttpClient httpClient = HttpClient.create(connectionProvider)
+				.keepAlive(caasWebClientProperties.getProperties().isKeepAlive())
+				.compress(caasWebClientProperties.getProperties().isCompression())
 				.tcpConfiguration(client -> client.option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
 						caasWebClientProperties.getProperties().getConnectTimeoutMs())
 						.doOnConnected(conn -> conn.addHandlerLast(
@@ -77,4 +116,61 @@ public class CaasWebClientConfig
 
 		return httpClient;
 	}
+
+	/**
+	 * The connection pool shared by the calls of the web client, disposed with the application context.
+	 *
+	 * @return the connection provider
+	 */
+	@Bean(destroyMethod = "dispose")
+	@ConditionalOnMissingBean
+	public ConnectionProvider caasWebClientConnectionProvider()
+	{
+		final CaasWebClientProperties.Pool pool = caasWebClientProperties.getProperties().getPool();
+		final ConnectionProvider.Builder builder = ConnectionProvider.builder(CONNECTION_PROVIDER_NAME)
+				.maxConnections(pool.getMaxConnections())
+				.pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+				.pendingAcquireTimeout(Duration.ofMillis(pool.getPendingAcquireTimeoutMs()))
+				.metrics(pool.isMetricsEnabled());
+		if (pool.getMaxIdleTimeMs() > 0)
+		{
+			builder.maxIdleTime(Duration.ofMillis(pool.getMaxIdleTimeMs()));
+		}
+		if (pool.getMaxLifeTimeMs() > 0)
+		{
+			builder.maxLifeTime(Duration.ofMillis(pool.getMaxLifeTimeMs()));
+		}
+		pool.getHosts().forEach((host, hostPool) -> builder.forRemoteHost(toAddress(host),
+				spec -> spec.maxConnections(hostPool.getMaxConnections())
+						.pendingAcquireMaxCount(hostPool.getPendingAcquireMaxCount())));
+		return builder.build();
+	}
+
+	private static InetSocketAddress toAddress(final String host)
+	{
+		final int separator = host.lastIndexOf(':');
+		Assert.isTrue(separator > 0, "Pool host '" + host + "' must be defined as host:port");
+		return InetSocketAddress.createUnresolved(host.substring(0, separator), Integer.parseInt(host.substring(separator + 1)));
+	}
+
+	@Configuration
+	@ConditionalOnClass(MeterRegistry.class)
+	static class CaasWebClientMetricsConfig
+	{
+		@Bean
+		@ConditionalOnBean(MeterRegistry.class)
+		public MicrometerResilienceListener micrometerResilienceListener(final MeterRegistry meterRegistry)
+		{
+			return new MicrometerResilienceListener(meterRegistry);
+		}
+
+		@Bean
+		@ConditionalOnBean(MeterRegistry.class)
+		@ConditionalOnProperty(prefix = "caas.web.client.properties.metrics", name = "enabled", matchIfMissing = true)
+		public MetricsExchangeFilterFunction caasWebClientMetricsFilter(final MeterRegistry meterRegistry,
+				final CaasWebClientProperties caasWebClientProperties)
+		{
+			return new MetricsExchangeFilterFunction(meterRegistry, caasWebClientProperties.getProperties().getMetrics());
+		}
+	}
 }
@@ -4,16 +4,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
 
 public final class CaasWebClientLogUtils
 {
 	private static final Logger LOG = LoggerFactory.getLogger(CaasWebClientLogUtils.class);
 	private static final Marker HTTP_MARKER = MarkerFactory.getMarker("HTTP");
+	private static final String OBFUSCATED_VALUE = "*****";
 
 	protected CaasWebClientLogUtils()
 	{
@@ -22,45 +31,113 @@ public final class CaasWebClientLogUtils
 
 	public static ExchangeFilterFunction logRequest(final List<String> obfuscateHeaders)
 	{
+		final Set<String> obfuscatedHeaderNames = toHeaderNameSet(obfuscateHeaders);
 		return ExchangeFilterFunction.ofRequestProcessor(clientRequest -> {
-			final StringBuilder sb = new StringBuilder("\nWeb Client Request: ");
-			sb.append("\nUrl: ").append(clientRequest.url().toString());
-			sb.append("\nMethod: ").append(clientRequest.method().name());
-			sb.append("\nHeaders: ");
-			clientRequest.headers().forEach((name, values) -> filterHeaderValues(sb, obfuscateHeaders, name, values));
-
-			LOG.info(HTTP_MARKER, sb.toString());
+			if (isLogEnabled())
+			{
+				logRequest(clientRequest, obfuscatedHeaderNames, CaasWebClientProperties.LogFormat.MULTILINE);
+			}
 			return Mono.just(clientRequest);
 		});
 	}
 
 	public static ExchangeFilterFunction logResponse(final List<String> obfuscateHeaders)
 	{
+		final Set<String> obfuscatedHeaderNames = toHeaderNameSet(obfuscateHeaders);
 		return ExchangeFilterFunction.ofResponseProcessor(response -> {
-			final StringBuilder sb = new StringBuilder("\nWeb Client Response: ");
-			sb.append("\nStatus: ").append(response.statusCode().toString());
-			sb.append("\nHeaders: ");
-			response.headers().asHttpHeaders().forEach((name, values) -> filterHeaderValues(sb, obfuscateHeaders, name, values));
-			LOG.info(HTTP_MARKER, sb.toString());
-
+			if (isLogEnabled())
+			{
+				logResponse(response, obfuscatedHeaderNames, CaasWebClientProperties.LogFormat.MULTILINE);
+			}
 			return Mono.just(response);
 		});
 	}
 
+	/**
+	 * Creates a filter logging the requests and the responses of the web client. Nothing is computed unless the
+	 * {@code HTTP} marker is enabled at INFO level, and only one exchange out of {@code sampleRate} is logged, the
+	 * request and the response of a logged exchange being logged together.
+	 *
+	 * @param obfuscateHeaders the names of the headers whose values are obfuscated, case insensitive
+	 * @param sampleRate       the sample rate, 1 to log every exchange
+	 * @param format           the format of the log messages
+	 * @return the exchange filter function
+	 */
+	public static ExchangeFilterFunction logExchange(final List<String> obfuscateHeaders, final int sampleRate,
+			final CaasWebClientProperties.LogFormat format)
+	{
+		final Set<String> obfuscatedHeaderNames = toHeaderNameSet(obfuscateHeaders);
+		return (request, next) -> {
+			if (!isLogEnabled() || (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0))
+			{
+				return next.exchange(request);
+			}
+			logRequest(request, obfuscatedHeaderNames, format);
+			return next.exchange(request).doOnNext(response -> logResponse(response, obfuscatedHeaderNames, format));
+		};
+	}
+
 	public static void filterHeaderValues(final StringBuilder sb, final List<String> headers, final String name,
 			final List<String> values)
 	{
-		sb.append(name).append(": ");
-		if (headers.stream()
-				.findAny()
-				.filter(f -> f.toLowerCase(Locale.ENGLISH).matches(name.toLowerCase(Locale.ENGLISH)))
-				.isPresent())
+		sb.append(formatHeader(toHeaderNameSet(headers), name, values)).append(", ");
+	}
+
+	private static boolean isLogEnabled()
+	{
+		return LOG.isInfoEnabled(HTTP_MARKER);
+	}
+
+	private static Set<String> toHeaderNameSet(final Collection<String> headerNames)
+	{
+		final Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+		set.addAll(headerNames);
+		return Collections.unmodifiableSet(set);
+	}
+
+	private static void logRequest(final ClientRequest request, final Set<String> obfuscatedHeaderNames,
+			final CaasWebClientProperties.LogFormat format)
+	{
+		final String headers = formatHeaders(request.headers(), obfuscatedHeaderNames, format);
+		if (format == CaasWebClientProperties.LogFormat.KEY_VALUE)
 		{
-			sb.append("*****").append(", ");
+			LOG.info(HTTP_MARKER, "web_client_request method={} url={} headers={}", request.method().name(), request.url(),
+					headers);
 		}
 		else
 		{
-			values.forEach(v -> sb.append(v).append(", "));
+			LOG.info(HTTP_MARKER, "\nWeb Client Request: \nUrl: {}\nMethod: {}\nHeaders: {}", request.url(),
+					request.method().name(), headers);
 		}
 	}
+
+	private static void logResponse(final ClientResponse response, final Set<String> obfuscatedHeaderNames,
+			final CaasWebClientProperties.LogFormat format)
+	{
+		final String headers = formatHeaders(response.headers().asHttpHeaders(), obfuscatedHeaderNames, format);
+		if (format == CaasWebClientProperties.LogFormat.KEY_VALUE)
+		{
+			LOG.info(HTTP_MARKER, "web_client_response status={} headers={}", response.rawStatusCode(), headers);
+		}
+		else
+		{
+			LOG.info(HTTP_MARKER, "\nWeb Client Response: \nStatus: {}\nHeaders: {}", response.statusCode(), headers);
+		}
+	}
+
+	private static String formatHeaders(final HttpHeaders headers, final Set<String> obfuscatedHeaderNames,
+			final CaasWebClientProperties.LogFormat format)
+	{
+		final StringJoiner joiner = format == CaasWebClientProperties.LogFormat.KEY_VALUE ?
+				new StringJoiner("; ", "[", "]") :
+				new StringJoiner(", ");
+		headers.forEach((name, values) -> joiner.add(formatHeader(obfuscatedHeaderNames, name, values)));
+		return joiner.toString();
+	}
+
+	private static String formatHeader(final Set<String> obfuscatedHeaderNames, final String name,
+			final List<String> values)
+	{
+		return name + ": " + (obfuscatedHeaderNames.contains(name) ? OBFUSCATED_VALUE : String.join(", ", values));
+	}
 }
@@ -2,14 +2,24 @@ package com.hybris.caas.client.config.utils;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
 
 import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Encapsulates configuration properties required for making REST calls to internal web services.
@@ -76,6 +86,40 @@ public class CaasWebClientProperties
 		@Valid
 		private Obfuscate obfuscate = new Obfuscate();
 
+		@Valid
+		private Streaming streaming = new Streaming();
+
+		@Valid
+		private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+		@Valid
+		private Bulkhead bulkhead = new Bulkhead();
+
+		@Valid
+		private Pool pool = new Pool();
+
+		@Valid
+		private Log log = new Log();
+
+		@Valid
+		private ResponseCache responseCache = new ResponseCache();
+
+		@Valid
+		private Metrics metrics = new Metrics();
+
+		@Valid
+		private Hedging hedging = new Hedging();
+
+		/**
+		 * Whether persistent connections are used.
+		 */
+		private boolean keepAlive = true;
+
+		/**
+		 * Whether compressed responses are requested and decompressed.
+		 */
+		private boolean compression;
+
 		public int getConnectTimeoutMs()
 		{
 			return connectTimeoutMs;
@@ -115,6 +159,106 @@ public class CaasWebClientProperties
 		{
 			this.obfuscate = obfuscate;
 		}
+
+		public Streaming getStreaming()
+		{
+			return streaming;
+		}
+
+		public void setStreaming(final Streaming streaming)
+		{
+			this.streaming = streaming;
+		}
+
+		public CircuitBreaker getCircuitBreaker()
+		{
+			return circuitBreaker;
+		}
+
+		public void setCircuitBreaker(final CircuitBreaker circuitBreaker)
+		{
+			this.circuitBreaker = circuitBreaker;
+		}
+
+		public Bulkhead getBulkhead()
+		{
+			return bulkhead;
+		}
+
+		public void setBulkhead(final Bulkhead bulkhead)
+		{
+			this.bulkhead = bulkhead;
+		}
+
+		public Pool getPool()
+		{
+			return pool;
+		}
+
+		public void setPool(final Pool pool)
+		{
+			this.pool = pool;
+		}
+
+		public Log getLog()
+		{
+			return log;
+		}
+
+		public void setLog(final Log log)
+		{
+			this.log = log;
+		}
+
+		public ResponseCache getResponseCache()
+		{
+			return responseCache;
+		}
+
+		public void setResponseCache(final ResponseCache responseCache)
+		{
+			this.responseCache = responseCache;
+		}
+
+		public Metrics getMetrics()
+		{
+			return metrics;
+		}
+
+		public void setMetrics(final Metrics metrics)
+		{
+			this.metrics = metrics;
+		}
+
+		public Hedging getHedging()
+		{
+			return hedging;
+		}
+
+		public void setHedging(final Hedging hedging)
+		{
+			this.hedging = hedging;
+		}
+
+		public boolean isKeepAlive()
+		{
+			return keepAlive;
+		}
+
+		public void setKeepAlive(final boolean keepAlive)
+		{
+			this.keepAlive = keepAlive;
+		}
+
+		public boolean isCompression()
+		{
+			return compression;
+		}
+
+		public void setCompression(final boolean compression)
+		{
+			this.compression = compression;
+		}
 	}
 
 	public static class Retry
@@ -125,6 +269,38 @@ public class CaasWebClientProperties
 		@Min(0)
 		private int maxAttempts;
 
+		/**
+		 * The delay in milliseconds before the first retry, doubled on each following retry.
+		 */
+		@Min(0)
+		private long minBackoffMs = 100;
+
+		/**
+		 * The maximum delay in milliseconds between two retries.
+		 */
+		@Min(0)
+		private long maxBackoffMs = 2000;
+
+		/**
+		 * The jitter factor applied to each retry delay, between 0 and 1.
+		 */
+		@DecimalMin("0.0")
+		@DecimalMax("1.0")
+		private double jitter = 0.5;
+
+		/**
+		 * The idempotent HTTP methods whose calls are retried.
+		 */
+		@NotNull
+		private Set<HttpMethod> methods = EnumSet.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.PUT,
+				HttpMethod.DELETE);
+
+		/**
+		 * The response status codes on which a call is retried.
+		 */
+		@NotNull
+		private Set<Integer> statuses = new HashSet<>(List.of(408, 429, 502, 503, 504));
+
 		public int getMaxAttempts()
 		{
 			return maxAttempts;
@@ -134,6 +310,654 @@ public class CaasWebClientProperties
 		{
 			this.maxAttempts = maxAttempts;
 		}
+
+		public long getMinBackoffMs()
+		{
+			return minBackoffMs;
+		}
+
+		public void setMinBackoffMs(final long minBackoffMs)
+		{
+			this.minBackoffMs = minBackoffMs;
+		}
+
+		public long getMaxBackoffMs()
+		{
+			return maxBackoffMs;
+		}
+
+		public void setMaxBackoffMs(final long maxBackoffMs)
+		{
+			this.maxBackoffMs = maxBackoffMs;
+		}
+
+		public double getJitter()
+		{
+			return jitter;
+		}
+
+		public void setJitter(final double jitter)
+		{
+			this.jitter = jitter;
+		}
+
+		public Set<HttpMethod> getMethods()
+		{
+			return methods;
+		}
+
+		public void setMethods(final Set<HttpMethod> methods)
+		{
+			this.methods = methods;
+		}
+
+		public Set<Integer> getStatuses()
+		{
+			return statuses;
+		}
+
+		public void setStatuses(final Set<Integer> statuses)
+		{
+			this.statuses = statuses;
+		}
+	}
+
+	public static class CircuitBreaker
+	{
+		/**
+		 * Whether calls are guarded by a circuit breaker per target host.
+		 */
+		private boolean enabled;
+
+		/**
+		 * The number of consecutive failed calls to a host after which its circuit breaker opens.
+		 */
+		@Min(1)
+		private int failureThreshold = 10;
+
+		/**
+		 * The duration in milliseconds an open circuit breaker rejects calls before letting trial calls through.
+		 */
+		@Min(0)
+		private long openDurationMs = 30000;
+
+		/**
+		 * The number of trial calls let through by a half open circuit breaker.
+		 */
+		@Min(1)
+		private int halfOpenPermits = 1;
+
+		public boolean isEnabled()
+		{
+			return enabled;
+		}
+
+		public void setEnabled(final boolean enabled)
+		{
+			this.enabled = enabled;
+		}
+
+		public int getFailureThreshold()
+		{
+			return failureThreshold;
+		}
+
+		public void setFailureThreshold(final int failureThreshold)
+		{
+			this.failureThreshold = failureThreshold;
+		}
+
+		public long getOpenDurationMs()
+		{
+			return openDurationMs;
+		}
+
+		public void setOpenDurationMs(final long openDurationMs)
+		{
+			this.openDurationMs = openDurationMs;
+		}
+
+		public int getHalfOpenPermits()
+		{
+			return halfOpenPermits;
+		}
+
+		public void setHalfOpenPermits(final int halfOpenPermits)
+		{
+			this.halfOpenPermits = halfOpenPermits;
+		}
+	}
+
+	public static class Bulkhead
+	{
+		/**
+		 * Whether the number of concurrent calls per target host is limited.
+		 */
+		private boolean enabled;
+
+		/**
+		 * The maximum number of concurrent calls per target host, further calls are rejected.
+		 */
+		@Min(1)
+		private int maxConcurrentCalls = 100;
+
+		/**
+		 * The time after which the permission of a call whose response body has not been subscribed to is released, 0 to
+		 * hold it until the body is consumed.
+		 */
+		@Min(0)
+		private long unconsumedBodyTimeoutMs = 30000;
+
+		public boolean isEnabled()
+		{
+			return enabled;
+		}
+
+		public void setEnabled(final boolean enabled)
+		{
+			this.enabled = enabled;
+		}
+
+		public int getMaxConcurrentCalls()
+		{
+			return maxConcurrentCalls;
+		}
+
+		public void setMaxConcurrentCalls(final int maxConcurrentCalls)
+		{
+			this.maxConcurrentCalls = maxConcurrentCalls;
+		}
+
+		public long getUnconsumedBodyTimeoutMs()
+		{
+			return unconsumedBodyTimeoutMs;
+		}
+
+		public void setUnconsumedBodyTimeoutMs(final long unconsumedBodyTimeoutMs)
+		{
+			this.unconsumedBodyTimeoutMs = unconsumedBodyTimeoutMs;
+		}
+	}
+
+	public static class Hedging
+	{
+		/**
+		 * Whether a second identical request is sent when a GET call is slower than usual.
+		 */
+		private boolean enabled;
+
+		/**
+		 * The percentile of the recent latencies of the target host after which the hedge request is sent.
+		 */
+		@DecimalMin("0.5")
+		@DecimalMax("1.0")
+		private double percentile = 0.95;
+
+		/**
+		 * The delay in milliseconds before the hedge request until enough latencies of the target host are recorded.
+		 */
+		@Min(1)
+		private long initialDelayMs = 100;
+
+		/**
+		 * The minimum delay in milliseconds before the hedge request.
+		 */
+		@Min(1)
+		private long minDelayMs = 5;
+
+		/**
+		 * The number of recent latencies per target host the delay is computed from.
+		 */
+		@Min(10)
+		private int sampleSize = 1000;
+
+		/**
+		 * The hedge requests allowed per GET call, e.g. {@code 0.1} for at most 10% of additional load.
+		 */
+		@DecimalMin("0.0")
+		@DecimalMax("1.0")
+		private double budgetRatio = 0.1;
+
+		/**
+		 * The maximum number of hedge requests that can be saved up by the budget and sent in a burst.
+		 */
+		@Min(1)
+		private int budgetCapacity = 10;
+
+		public boolean isEnabled()
+		{
+			return enabled;
+		}
+
+		public void setEnabled(final boolean enabled)
+		{
+			this.enabled = enabled;
+		}
+
+		public double getPercentile()
+		{
+			return percentile;
+		}
+
+		public void setPercentile(final double percentile)
+		{
+			this.percentile = percentile;
+		}
+
+		public long getInitialDelayMs()
+		{
+			return initialDelayMs;
+		}
+
+		public void setInitialDelayMs(final long initialDelayMs)
+		{
+			this.initialDelayMs = initialDelayMs;
+		}
+
+		public long getMinDelayMs()
+		{
+			return minDelayMs;
+		}
+
+		public void setMinDelayMs(final long minDelayMs)
+		{
+			this.minDelayMs = minDelayMs;
+		}
+
+		public int getSampleSize()
+		{
+			return sampleSize;
+		}
+
+		public void setSampleSize(final int sampleSize)
+		{
+			this.sampleSize = sampleSize;
+		}
+
+		public double getBudgetRatio()
+		{
+			return budgetRatio;
+		}
+
+		public void setBudgetRatio(final double budgetRatio)
+		{
+			this.budgetRatio = budgetRatio;
+		}
+
+		public int getBudgetCapacity()
+		{
+			return budgetCapacity;
+		}
+
+		public void setBudgetCapacity(final int budgetCapacity)
+		{
+			this.budgetCapacity = budgetCapacity;
+		}
+	}
+
+	public static class ResponseCache
+	{
+		/**
+		 * Whether concurrent identical GET requests are coalesced and their responses cached.
+		 */
+		private boolean enabled;
+
+		/**
+		 * The maximum total size in bytes of the cached response bodies.
+		 */
+		@Min(0)
+		private long maxSizeBytes = 10L * 1024 * 1024;
+
+		/**
+		 * The time in milliseconds a response without {@code Cache-Control} header is considered fresh.
+		 */
+		@Min(0)
+		private long defaultTtlMs;
+
+		/**
+		 * The request headers whose values are part of the cache key, in addition to the URI and the authorization.
+		 */
+		@NotNull
+		private List<String> keyHeaders = new ArrayList<>(List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_LANGUAGE));
+
+		public boolean isEnabled()
+		{
+			return enabled;
+		}
+
+		public void setEnabled(final boolean enabled)
+		{
+			this.enabled = enabled;
+		}
+
+		public long getMaxSizeBytes()
+		{
+			return maxSizeBytes;
+		}
+
+		public void setMaxSizeBytes(final long maxSizeBytes)
+		{
+			this.maxSizeBytes = maxSizeBytes;
+		}
+
+		public long getDefaultTtlMs()
+		{
+			return defaultTtlMs;
+		}
+
+		public void setDefaultTtlMs(final long defaultTtlMs)
+		{
+			this.defaultTtlMs = defaultTtlMs;
+		}
+
+		public List<String> getKeyHeaders()
+		{
+			return keyHeaders;
+		}
+
+		public void setKeyHeaders(final List<String> keyHeaders)
+		{
+			this.keyHeaders = keyHeaders;
+		}
+	}
+
+	public enum LogFormat
+	{
+		/**
+		 * Human readable message spanning several lines.
+		 */
+		MULTILINE,
+		/**
+		 * Single line of {@code key=value} pairs.
+		 */
+		KEY_VALUE
+	}
+
+	public static class Log
+	{
+		/**
+		 * The sample rate of the logged exchanges: one exchange out of {@code sampleRate} is logged.
+		 */
+		@Min(1)
+		private int sampleRate = 1;
+
+		/**
+		 * The format of the logged requests and responses.
+		 */
+		@NotNull
+		private LogFormat format = LogFormat.MULTILINE;
+
+		public int getSampleRate()
+		{
+			return sampleRate;
+		}
+
+		public void setSampleRate(final int sampleRate)
+		{
+			this.sampleRate = sampleRate;
+		}
+
+		public LogFormat getFormat()
+		{
+			return format;
+		}
+
+		public void setFormat(final LogFormat format)
+		{
+			this.format = format;
+		}
+	}
+
+	public static class Metrics
+	{
+		/**
+		 * Whether the outbound calls are timed when a meter registry is available.
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * The URI templates, e.g. {@code /{tenant}/products/{id}}, the paths of the calls are matched against to tag
+		 * them. Calls matching none of them are tagged with {@code UNKNOWN}. The calls of the {@code CaasWebClient} are
+		 * sent to built URIs, so they are all tagged with {@code UNKNOWN} when no template is configured.
+		 */
+		@NotNull
+		private List<String> uriTemplates = new ArrayList<>();
+
+		/**
+		 * The percentiles, e.g. {@code 0.95, 0.99}, computed client side and published for each timer.
+		 */
+		@NotNull
+		private List<@DecimalMin("0.0") @DecimalMax("1.0") Double> percentiles = new ArrayList<>();
+
+		/**
+		 * Whether histogram buckets are published so that percentiles can be aggregated by the monitoring system.
+		 */
+		private boolean percentilesHistogram;
+
+		/**
+		 * The service level objectives in milliseconds published as histogram buckets, e.g. to alert on or to scale by
+		 * the share of calls slower than a threshold.
+		 */
+		@NotNull
+		private List<@Min(1) Long> slosMs = new ArrayList<>();
+
+		public boolean isEnabled()
+		{
+			return enabled;
+		}
+
+		public void setEnabled(final boolean enabled)
+		{
+			this.enabled = enabled;
+		}
+
+		public List<String> getUriTemplates()
+		{
+			return uriTemplates;
+		}
+
+		public void setUriTemplates(final List<String> uriTemplates)
+		{
+			this.uriTemplates = uriTemplates;
+		}
+
+		public List<Double> getPercentiles()
+		{
+			return percentiles;
+		}
+
+		public void setPercentiles(final List<Double> percentiles)
+		{
+			this.percentiles = percentiles;
+		}
+
+		public boolean isPercentilesHistogram()
+		{
+			return percentilesHistogram;
+		}
+
+		public void setPercentilesHistogram(final boolean percentilesHistogram)
+		{
+			this.percentilesHistogram = percentilesHistogram;
+		}
+
+		public List<Long> getSlosMs()
+		{
+			return slosMs;
+		}
+
+		public void setSlosMs(final List<Long> slosMs)
+		{
+			this.slosMs = slosMs;
+		}
+	}
+
+	public static class Pool
+	{
+		/**
+		 * The maximum number of connections per host.
+		 */
+		@Min(1)
+		private int maxConnections = 500;
+
+		/**
+		 * The maximum number of requests waiting for a connection per host, -1 for no limit.
+		 */
+		@Min(-1)
+		private int pendingAcquireMaxCount = 1000;
+
+		/**
+		 * The time in milliseconds a request waits for a connection before failing.
+		 */
+		@Min(0)
+		private long pendingAcquireTimeoutMs = 45000;
+
+		/**
+		 * The time in milliseconds after which an idle connection is closed, 0 to keep idle connections open.
+		 */
+		@Min(0)
+		private long maxIdleTimeMs = 30000;
+
+		/**
+		 * The time in milliseconds after which a connection is closed once released, 0 for no limit.
+		 */
+		@Min(0)
+		private long maxLifeTimeMs;
+
+		/**
+		 * Whether the pool publishes its total, active, idle and pending connections as Micrometer gauges.
+		 */
+		private boolean metricsEnabled;
+
+		/**
+		 * The pool limits of specific hosts, keyed by {@code host:port}.
+		 */
+		@Valid
+		private Map<String, HostPool> hosts = new HashMap<>();
+
+		public int getMaxConnections()
+		{
+			return maxConnections;
+		}
+
+		public void setMaxConnections(final int maxConnections)
+		{
+			this.maxConnections = maxConnections;
+		}
+
+		public int getPendingAcquireMaxCount()
+		{
+			return pendingAcquireMaxCount;
+		}
+
+		public void setPendingAcquireMaxCount(final int pendingAcquireMaxCount)
+		{
+			this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+		}
+
+		public long getPendingAcquireTimeoutMs()
+		{
+			return pendingAcquireTimeoutMs;
+		}
+
+		public void setPendingAcquireTimeoutMs(final long pendingAcquireTimeoutMs)
+		{
+			this.pendingAcquireTimeoutMs = pendingAcquireTimeoutMs;
+		}
+
+		public long getMaxIdleTimeMs()
+		{
+			return maxIdleTimeMs;
+		}
+
+		public void setMaxIdleTimeMs(final long maxIdleTimeMs)
+		{
+			this.maxIdleTimeMs = maxIdleTimeMs;
+		}
+
+		public long getMaxLifeTimeMs()
+		{
+			return maxLifeTimeMs;
+		}
+
+		public void setMaxLifeTimeMs(final long maxLifeTimeMs)
+		{
+			this.maxLifeTimeMs = maxLifeTimeMs;
+		}
+
+		public boolean isMetricsEnabled()
+		{
+			return metricsEnabled;
+		}
+
+		public void setMetricsEnabled(final boolean metricsEnabled)
+		{
+			this.metricsEnabled = metricsEnabled;
+		}
+
+		public Map<String, HostPool> getHosts()
+		{
+			return hosts;
+		}
+
+		public void setHosts(final Map<String, HostPool> hosts)
+		{
+			this.hosts = hosts;
+		}
+	}
+
+	public static class HostPool
+	{
+		/**
+		 * The maximum number of connections to the host.
+		 */
+		@Min(1)
+		private int maxConnections;
+
+		/**
+		 * The maximum number of requests waiting for a connection to the host, -1 for no limit.
+		 */
+		@Min(-1)
+		private int pendingAcquireMaxCount = -1;
+
+		public int getMaxConnections()
+		{
+			return maxConnections;
+		}
+
+		public void setMaxConnections(final int maxConnections)
+		{
+			this.maxConnections = maxConnections;
+		}
+
+		public int getPendingAcquireMaxCount()
+		{
+			return pendingAcquireMaxCount;
+		}
+
+		public void setPendingAcquireMaxCount(final int pendingAcquireMaxCount)
+		{
+			this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+		}
+	}
+
+	public static class Streaming
+	{
+		/**
+		 * The number of elements requested upstream at once by streaming responses.
+		 */
+		@Min(1)
+		private int prefetch = 256;
+
+		public int getPrefetch()
+		{
+			return prefetch;
+		}
+
+		public void setPrefetch(final int prefetch)
+		{
+			this.prefetch = prefetch;
+		}
 	}
 
 	public static class TokenCache
@@ -145,11 +969,23 @@ public class CaasWebClientProperties
 		private int maxSize;
 
 		/**
-		 * The duration that an element is kept in the cache.
+		 * The duration in hours that a token is kept in the cache when XSUAA does not return its {@code expires_in}.
 		 */
 		@Min(0)
 		private int expireAfterWrite;
 
+		/**
+		 * The time in milliseconds before the token expiry at which a token is evicted from the cache.
+		 */
+		@Min(0)
+		private long expirySafetyMarginMs;
+
+		/**
+		 * The time in milliseconds before the token eviction from which a token is refreshed in the background.
+		 */
+		@Min(0)
+		private long refreshAheadMs;
+
 		public int getMaxSize()
 		{
 			return maxSize;
@@ -169,6 +1005,26 @@ public class CaasWebClientProperties
 		{
 			this.expireAfterWrite = expireAfterWrite;
 		}
+
+		public long getExpirySafetyMarginMs()
+		{
+			return expirySafetyMarginMs;
+		}
+
+		public void setExpirySafetyMarginMs(final long expirySafetyMarginMs)
+		{
+			this.expirySafetyMarginMs = expirySafetyMarginMs;
+		}
+
+		public long getRefreshAheadMs()
+		{
+			return refreshAheadMs;
+		}
+
+		public void setRefreshAheadMs(final long refreshAheadMs)
+		{
+			this.refreshAheadMs = refreshAheadMs;
+		}
 	}
 
 	public static class Obfuscate
@@ -0,0 +1,18 @@
+package com.hybris.caas.client.exception;
+
+import com.hybris.caas.error.ErrorConstants;
+import com.hybris.caas.error.annotation.WebException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when a web client REST call is rejected without being sent, because the circuit breaker of the
+ * target host is open or its bulkhead is full.
+ */
+@WebException(status = HttpStatus.INTERNAL_SERVER_ERROR, type = ErrorConstants.TYPE_500_BACKING_SERVICE_UNAVAILABLE)
+public class CallNotPermittedException extends RuntimeException
+{
+	public CallNotPermittedException(final String message)
+	{
+		super(message);
+	}
+}
@@ -0,0 +1,135 @@
+package com.hybris.caas.client.metrics;
+
+import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+import com.hybris.caas.client.exception.CallNotPermittedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Times every attempt of the calls sent by the web client.
+ * <p>
+ * Calls are tagged with their URI template rather than their URI to keep the number of timers bounded: the template
+ * set by {@code WebClient.uri(String, Object...)} is used when present, otherwise the path is matched against the
+ * configured templates and {@code UNKNOWN} is used when none matches.
+ * <p>
+ * The calls of the {@code CaasWebClient} are sent to a built {@link URI}, so they are only tagged with a template when
+ * the {@code metrics.uri-templates} are configured.
+ */
+public class MetricsExchangeFilterFunction implements ExchangeFilterFunction
+{
+	static final String REQUESTS = "caas.webclient.requests";
+
+	private static final Logger LOG = LoggerFactory.getLogger(MetricsExchangeFilterFunction.class);
+
+	private static final String URI_TEMPLATE_ATTRIBUTE = WebClient.class.getName() + ".uriTemplate";
+	private static final Pattern SCHEME_AND_AUTHORITY = Pattern.compile("^\\w+://[^/]*");
+	private static final String UNKNOWN = "UNKNOWN";
+	private static final String IO_ERROR = "IO_ERROR";
+	private static final String REJECTED = "REJECTED";
+	private static final String CANCELLED = "CANCELLED";
+
+	private final MeterRegistry meterRegistry;
+	private final List<PathPattern> uriTemplates;
+	private final double[] percentiles;
+	private final boolean percentilesHistogram;
+	private final Duration[] slos;
+
+	public MetricsExchangeFilterFunction(final MeterRegistry meterRegistry,
+			final CaasWebClientProperties.Metrics metricsProperties)
+	{
+		this.meterRegistry = meterRegistry;
+		this.uriTemplates = metricsProperties.getUriTemplates()
+				.stream()
+				.map(PathPatternParser.defaultInstance::parse)
+				.collect(Collectors.toList());
+		if (uriTemplates.isEmpty())
+		{
+			LOG.warn("No caas.web.client.properties.metrics.uri-templates configured, the calls sent to a built URI are "
+					+ "tagged with uri={}.", UNKNOWN);
+		}
+		this.percentiles = metricsProperties.getPercentiles().stream().mapToDouble(Double::doubleValue).toArray();
+		this.percentilesHistogram = metricsProperties.isPercentilesHistogram();
+		this.slos = metricsProperties.getSlosMs().stream().map(Duration::ofMillis).toArray(Duration[]::new);
+	}
+
+	@Override
+	public Mono<ClientResponse> filter(final ClientRequest request, final ExchangeFunction next)
+	{
+		return Mono.subscriberContext().flatMap(context -> {
+			final OutboundCallContext call = OutboundCallContext.get(context);
+			final Tags tags = Tags.of("method", request.method().name(), "host", getHost(request.url()), "uri",
+					getUriTemplate(request), "retry", String.valueOf(call == null ? 0 : call.startAttempt()), "token",
+					(call == null ? OutboundCallContext.TokenLookup.NONE : call.getTokenLookup()).name()
+							.toLowerCase(Locale.ENGLISH));
+			final Timer.Sample sample = Timer.start(meterRegistry);
+			final AtomicBoolean recorded = new AtomicBoolean();
+
+			return next.exchange(request)
+					.doOnNext(response -> record(sample, recorded, tags, response.rawStatusCode() / 100 + "xx"))
+					.doOnError(e -> record(sample, recorded, tags, e instanceof CallNotPermittedException ? REJECTED : IO_ERROR))
+					.doOnCancel(() -> record(sample, recorded, tags, CANCELLED));
+		});
+	}
+
+	private void record(final Timer.Sample sample, final AtomicBoolean recorded, final Tags tags, final String status)
+	{
+		if (recorded.compareAndSet(false, true))
+		{
+			sample.stop(Timer.builder(REQUESTS)
+					.description("The duration of the attempts of the outbound calls of the web client")
+					.tags(tags)
+					.tag("status", status)
+					.publishPercentiles(percentiles)
+					.publishPercentileHistogram(percentilesHistogram)
+					.serviceLevelObjectives(slos)
+					.register(meterRegistry));
+		}
+	}
+
+	private String getUriTemplate(final ClientRequest request)
+	{
+		final Object uriTemplate = request.attribute(URI_TEMPLATE_ATTRIBUTE).orElse(null);
+		if (uriTemplate != null)
+		{
+			return SCHEME_AND_AUTHORITY.matcher(uriTemplate.toString()).replaceFirst("");
+		}
+		if (uriTemplates.isEmpty())
+		{
+			return UNKNOWN;
+		}
+		final PathContainer path = PathContainer.parsePath(request.url().getRawPath());
+		for (final PathPattern template : uriTemplates)
+		{
+			if (template.matches(path))
+			{
+				return template.getPatternString();
+			}
+		}
+		return UNKNOWN;
+	}
+
+	private static String getHost(final URI uri)
+	{
+		return uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+	}
+}
@@ -0,0 +1,94 @@
+package com.hybris.caas.client.metrics;
+
+import reactor.util.context.Context;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * State of a single logical call of the web client, shared through the Reactor context by all of its attempts.
+ * <p>
+ * It lets the {@link MetricsExchangeFilterFunction} tag each attempt with its retry count and with the outcome of the
+ * OAuth token lookup that preceded the call, and the response cache key the responses with the principal of the call
+ * instead of its token.
+ */
+public final class OutboundCallContext
+{
+	public enum TokenLookup
+	{
+		HIT, MISS, NONE
+	}
+
+	private static final Object CALL_KEY = OutboundCallContext.class.getName() + ".CALL";
+	private static final Object TOKEN_LOOKUP_KEY = OutboundCallContext.class.getName() + ".TOKEN_LOOKUP";
+	private static final Object PRINCIPAL_KEY = OutboundCallContext.class.getName() + ".PRINCIPAL";
+
+	private final TokenLookup tokenLookup;
+	private final AtomicInteger attempts = new AtomicInteger();
+
+	private OutboundCallContext(final TokenLookup tokenLookup)
+	{
+		this.tokenLookup = tokenLookup;
+	}
+
+	/**
+	 * Starts a new logical call, to be applied downstream of the retry operator of the call.
+	 *
+	 * @param context the subscriber context
+	 * @return the subscriber context holding the state of the new call
+	 */
+	public static Context initialize(final Context context)
+	{
+		return context.put(CALL_KEY, new OutboundCallContext(context.getOrDefault(TOKEN_LOOKUP_KEY, TokenLookup.NONE)));
+	}
+
+	/**
+	 * Records the outcome of the token lookup for the calls started upstream.
+	 *
+	 * @param tokenLookup whether the token was served from the cache
+	 * @return the function adding the outcome to the subscriber context
+	 */
+	public static Function<Context, Context> withTokenLookup(final TokenLookup tokenLookup)
+	{
+		return context -> context.put(TOKEN_LOOKUP_KEY, tokenLookup);
+	}
+
+	/**
+	 * Records the principal, e.g. the tenant, on behalf of which the calls started upstream are sent.
+	 *
+	 * @param principal the principal of the calls
+	 * @return the function adding the principal to the subscriber context
+	 */
+	public static Function<Context, Context> withPrincipal(final String principal)
+	{
+		return context -> context.put(PRINCIPAL_KEY, principal);
+	}
+
+	/**
+	 * @param context the subscriber context
+	 * @return the principal of the calls, empty when none was recorded
+	 */
+	public static Optional<String> getPrincipal(final Context context)
+	{
+		return context.getOrEmpty(PRINCIPAL_KEY);
+	}
+
+	static OutboundCallContext get(final Context context)
+	{
+		return context.getOrDefault(CALL_KEY, null);
+	}
+
+	TokenLookup getTokenLookup()
+	{
+		return tokenLookup;
+	}
+
+	/**
+	 * @return the number of attempts that preceded the one starting, i.e. its retry count
+	 */
+	int startAttempt()
+	{
+		return attempts.getAndIncrement();
+	}
+}
@@ -0,0 +1,41 @@
+package com.hybris.caas.client.resilience;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the number of concurrent calls to a single host. Calls exceeding the limit are rejected immediately instead
+ * of queuing for a connection of the shared pool.
+ */
+public class Bulkhead
+{
+	private final String host;
+	private final int maxConcurrentCalls;
+	private final Semaphore permits;
+
+	public Bulkhead(final String host, final int maxConcurrentCalls)
+	{
+		this.host = host;
+		this.maxConcurrentCalls = maxConcurrentCalls;
+		this.permits = new Semaphore(maxConcurrentCalls);
+	}
+
+	public String getHost()
+	{
+		return host;
+	}
+
+	public boolean tryAcquirePermission()
+	{
+		return permits.tryAcquire();
+	}
+
+	public void releasePermission()
+	{
+		permits.release();
+	}
+
+	public int getConcurrentCalls()
+	{
+		return maxConcurrentCalls - permits.availablePermits();
+	}
+}
@@ -0,0 +1,145 @@
+package com.hybris.caas.client.resilience;
+
+import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuit breaker guarding the calls to a single host.
+ * <p>
+ * The breaker opens after a number of consecutive failed calls and rejects all calls while open. Once the open
+ * duration elapsed, it becomes half open and lets a limited number of trial calls through: a successful trial closes
+ * it again, a failed one opens it for another open duration.
+ */
+public class CircuitBreaker
+{
+	public enum State
+	{
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final String host;
+	private final int failureThreshold;
+	private final long openDurationMs;
+	private final int halfOpenPermits;
+	private final ResilienceListener listener;
+	private final Clock clock;
+
+	private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	private final AtomicInteger availableTrials = new AtomicInteger();
+	private volatile long openedAt;
+
+	public CircuitBreaker(final String host, final CaasWebClientProperties.CircuitBreaker properties,
+			final ResilienceListener listener, final Clock clock)
+	{
+		this.host = host;
+		this.failureThreshold = properties.getFailureThreshold();
+		this.openDurationMs = properties.getOpenDurationMs();
+		this.halfOpenPermits = properties.getHalfOpenPermits();
+		this.listener = listener;
+		this.clock = clock;
+	}
+
+	public String getHost()
+	{
+		return host;
+	}
+
+	public State getState()
+	{
+		return state.get();
+	}
+
+	/**
+	 * Acquires the permission to send a call. A call that is permitted must be completed by exactly one of
+	 * {@link #onSuccess()}, {@link #onFailure()} or {@link #onIgnored()}.
+	 *
+	 * @return {@code true} if the call may be sent, {@code false} if it has to be rejected
+	 */
+	public boolean tryAcquirePermission()
+	{
+		final State current = state.get();
+		if (current == State.CLOSED)
+		{
+			return true;
+		}
+		if (current == State.OPEN)
+		{
+			if (clock.millis() - openedAt < openDurationMs || !transition(State.OPEN, State.HALF_OPEN))
+			{
+				return state.get() == State.HALF_OPEN && acquireTrial();
+			}
+			availableTrials.set(halfOpenPermits);
+		}
+		return acquireTrial();
+	}
+
+	public void onSuccess()
+	{
+		consecutiveFailures.set(0);
+		if (state.get() == State.HALF_OPEN)
+		{
+			transition(State.HALF_OPEN, State.CLOSED);
+		}
+	}
+
+	public void onFailure()
+	{
+		final State current = state.get();
+		if (current == State.HALF_OPEN)
+		{
+			open(State.HALF_OPEN);
+		}
+		else if (current == State.CLOSED && consecutiveFailures.incrementAndGet() >= failureThreshold)
+		{
+			open(State.CLOSED);
+		}
+	}
+
+	/**
+	 * Completes a permitted call whose outcome does not tell anything about the host, e.g. a cancelled call.
+	 */
+	public void onIgnored()
+	{
+		if (state.get() == State.HALF_OPEN)
+		{
+			availableTrials.incrementAndGet();
+		}
+	}
+
+	private boolean acquireTrial()
+	{
+		int trials = availableTrials.get();
+		while (trials > 0)
+		{
+			if (availableTrials.compareAndSet(trials, trials - 1))
+			{
+				return true;
+			}
+			trials = availableTrials.get();
+		}
+		return false;
+	}
+
+	private void open(final State from)
+	{
+		openedAt = clock.millis();
+		if (transition(from, State.OPEN))
+		{
+			consecutiveFailures.set(0);
+		}
+	}
+
+	private boolean transition(final State from, final State to)
+	{
+		if (state.compareAndSet(from, to))
+		{
+			listener.onStateTransition(host, from, to);
+			return true;
+		}
+		return false;
+	}
+}
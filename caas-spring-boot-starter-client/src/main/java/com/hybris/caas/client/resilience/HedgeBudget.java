@@ -0,0 +1,44 @@
+package com.hybris.caas.client.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket limiting the hedge requests to a share of the calls.
+ * <p>
+ * Every call deposits a fraction of a token and every hedge request withdraws a whole one, so hedging stops by itself
+ * once a slowdown makes more calls late than the budget allows.
+ */
+class HedgeBudget
+{
+	private static final long TOKEN = 1000;
+
+	private final long deposit;
+	private final long capacity;
+	private final AtomicLong balance;
+
+	HedgeBudget(final double ratio, final int capacity)
+	{
+		this.deposit = Math.round(ratio * TOKEN);
+		this.capacity = capacity * TOKEN;
+		this.balance = new AtomicLong(this.capacity);
+	}
+
+	void deposit()
+	{
+		balance.accumulateAndGet(deposit, (current, amount) -> Math.min(capacity, current + amount));
+	}
+
+	boolean tryWithdraw()
+	{
+		long current = balance.get();
+		while (current >= TOKEN)
+		{
+			if (balance.compareAndSet(current, current - TOKEN))
+			{
+				return true;
+			}
+			current = balance.get();
+		}
+		return false;
+	}
+}
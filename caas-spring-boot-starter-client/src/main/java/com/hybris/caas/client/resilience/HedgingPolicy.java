@@ -0,0 +1,112 @@
+package com.hybris.caas.client.resilience;
+
+import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Decides whether and when a second identical request is sent for a read-only call that is slower than usual.
+ * <p>
+ * The hedge request is sent once the call has been running for the configured percentile of the recent latencies of
+ * its target host, provided the hedge budget allows it. Whichever request completes first wins and the other one is
+ * cancelled. A failed hedge request is ignored, so the call fails only when its primary request fails.
+ * <p>
+ * The primary request is sampled however it terminates. A primary request cancelled because its hedge won is sampled
+ * with its elapsed time, a lower bound of its latency. Otherwise, the slow primary requests would never be sampled, and
+ * the percentile, and with it the hedge delay, would drift down.
+ */
+public class HedgingPolicy
+{
+	private final boolean enabled;
+	private final double percentile;
+	private final int sampleSize;
+	private final long initialDelayNanos;
+	private final long minDelayNanos;
+	private final HedgeBudget budget;
+
+	private final Map<String, LatencyTracker> trackers = new ConcurrentHashMap<>();
+
+	public HedgingPolicy(final CaasWebClientProperties.Hedging hedgingProperties)
+	{
+		this.enabled = hedgingProperties.isEnabled();
+		this.percentile = hedgingProperties.getPercentile();
+		this.sampleSize = hedgingProperties.getSampleSize();
+		this.initialDelayNanos = Duration.ofMillis(hedgingProperties.getInitialDelayMs()).toNanos();
+		this.minDelayNanos = Duration.ofMillis(hedgingProperties.getMinDelayMs()).toNanos();
+		this.budget = new HedgeBudget(hedgingProperties.getBudgetRatio(), hedgingProperties.getBudgetCapacity());
+	}
+
+	/**
+	 * Creates a hedging policy never sending hedge requests.
+	 *
+	 * @return the hedging policy
+	 */
+	public static HedgingPolicy disabled()
+	{
+		return new HedgingPolicy(new CaasWebClientProperties.Hedging());
+	}
+
+	/**
+	 * Hedges a read-only call.
+	 *
+	 * @param uri     the {@link URI} the call is sent to
+	 * @param primary the request of the call
+	 * @param hedge   the supplier of the identical request sent when the primary one is late
+	 * @param <T>     the response body type
+	 * @return a mono containing the response of the request completing first or the error of the primary request
+	 */
+	public <T> Mono<T> hedge(final URI uri, final Mono<T> primary, final Supplier<Mono<T>> hedge)
+	{
+		if (!enabled)
+		{
+			return primary;
+		}
+
+		final LatencyTracker tracker = getTracker(uri);
+		return Mono.defer(() -> {
+			budget.deposit();
+			final Mono<T> delayedHedge = Mono.delay(getDelay(tracker))
+					.flatMap(tick -> budget.tryWithdraw() ?
+							timedOnSuccess(hedge.get(), tracker).onErrorResume(e -> Mono.never()) :
+							Mono.never());
+			return Mono.first(timed(primary, tracker), delayedHedge);
+		});
+	}
+
+	LatencyTracker getTracker(final URI uri)
+	{
+		return trackers.computeIfAbsent(getHost(uri), key -> new LatencyTracker(sampleSize, percentile));
+	}
+
+	private Duration getDelay(final LatencyTracker tracker)
+	{
+		final long percentileNanos = tracker.getPercentileNanos();
+		return Duration.ofNanos(percentileNanos < 0 ? initialDelayNanos : Math.max(minDelayNanos, percentileNanos));
+	}
+
+	private static <T> Mono<T> timed(final Mono<T> request, final LatencyTracker tracker)
+	{
+		return Mono.defer(() -> {
+			final long start = System.nanoTime();
+			return request.doFinally(signal -> tracker.record(System.nanoTime() - start));
+		});
+	}
+
+	private static <T> Mono<T> timedOnSuccess(final Mono<T> request, final LatencyTracker tracker)
+	{
+		return Mono.defer(() -> {
+			final long start = System.nanoTime();
+			return request.doOnSuccess(value -> tracker.record(System.nanoTime() - start));
+		});
+	}
+
+	private static String getHost(final URI uri)
+	{
+		return uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+	}
+}
@@ -0,0 +1,56 @@
+package com.hybris.caas.client.resilience;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the most recent latencies of the calls to a single host and derives a percentile from them.
+ * <p>
+ * Latencies are recorded into a lock free ring buffer and the percentile is recomputed once every tenth of the
+ * buffer, so that reading it costs a volatile read only.
+ */
+class LatencyTracker
+{
+	private final AtomicLongArray samples;
+	private final AtomicLong recorded = new AtomicLong();
+	private final double percentile;
+	private final int recomputeInterval;
+	private volatile long percentileNanos = -1;
+
+	LatencyTracker(final int sampleSize, final double percentile)
+	{
+		this.samples = new AtomicLongArray(sampleSize);
+		this.percentile = percentile;
+		this.recomputeInterval = Math.max(1, sampleSize / 10);
+	}
+
+	void record(final long latencyNanos)
+	{
+		final long index = recorded.getAndIncrement();
+		samples.set((int) (index % samples.length()), latencyNanos);
+		if ((index + 1) % recomputeInterval == 0 && index + 1 >= samples.length())
+		{
+			recompute();
+		}
+	}
+
+	/**
+	 * @return the percentile of the recent latencies in nanoseconds, or {@code -1} until the buffer is full
+	 */
+	long getPercentileNanos()
+	{
+		return percentileNanos;
+	}
+
+	private void recompute()
+	{
+		final long[] sorted = new long[samples.length()];
+		for (int i = 0; i < sorted.length; i++)
+		{
+			sorted[i] = samples.get(i);
+		}
+		Arrays.sort(sorted);
+		percentileNanos = sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+	}
+}
@@ -0,0 +1,64 @@
+package com.hybris.caas.client.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Publishes the circuit breaker and bulkhead events of the web client as Micrometer meters tagged with the host.
+ */
+public class MicrometerResilienceListener implements ResilienceListener
+{
+	static final String CIRCUIT_BREAKER_STATE = "caas.webclient.circuitbreaker.state";
+	static final String CIRCUIT_BREAKER_TRANSITIONS = "caas.webclient.circuitbreaker.transitions";
+	static final String BULKHEAD_CONCURRENT_CALLS = "caas.webclient.bulkhead.concurrent.calls";
+	static final String CALLS_NOT_PERMITTED = "caas.webclient.calls.not.permitted";
+
+	private static final String HOST = "host";
+
+	private final MeterRegistry meterRegistry;
+
+	public MicrometerResilienceListener(final MeterRegistry meterRegistry)
+	{
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public void onCircuitBreakerCreated(final CircuitBreaker circuitBreaker)
+	{
+		Gauge.builder(CIRCUIT_BREAKER_STATE, circuitBreaker, cb -> cb.getState().ordinal())
+				.description("The state of the circuit breaker: 0 closed, 1 open, 2 half open")
+				.tag(HOST, circuitBreaker.getHost())
+				.register(meterRegistry);
+	}
+
+	@Override
+	public void onBulkheadCreated(final Bulkhead bulkhead)
+	{
+		Gauge.builder(BULKHEAD_CONCURRENT_CALLS, bulkhead, Bulkhead::getConcurrentCalls)
+				.description("The number of calls currently holding a bulkhead permission")
+				.tag(HOST, bulkhead.getHost())
+				.register(meterRegistry);
+	}
+
+	@Override
+	public void onStateTransition(final String host, final CircuitBreaker.State from, final CircuitBreaker.State to)
+	{
+		Counter.builder(CIRCUIT_BREAKER_TRANSITIONS)
+				.tag(HOST, host)
+				.tag("from", from.name())
+				.tag("to", to.name())
+				.register(meterRegistry)
+				.increment();
+	}
+
+	@Override
+	public void onCallNotPermitted(final String host, final RejectionReason reason)
+	{
+		Counter.builder(CALLS_NOT_PERMITTED)
+				.tag(HOST, host)
+				.tag("reason", reason.name())
+				.register(meterRegistry)
+				.increment();
+	}
+}
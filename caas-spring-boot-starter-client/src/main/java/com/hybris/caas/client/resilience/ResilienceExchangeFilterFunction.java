@@ -0,0 +1,249 @@
+package com.hybris.caas.client.resilience;
+
+import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+import com.hybris.caas.client.exception.CallNotPermittedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Guards every call sent by the web client with the circuit breaker and the bulkhead of its target host.
+ * <p>
+ * A call is failed when it completes with an error or with a 5xx response status. Rejected calls complete with a
+ * {@link CallNotPermittedException} without reaching the connection pool. The bulkhead permission of a call is held until
+ * the body of its response is consumed, released or cancelled, so that the streaming of the body is bounded as well. It is
+ * also released when the call is cancelled as its response is emitted, and, as a safety net for the responses discarded
+ * without their body being subscribed to, once the configured unconsumed body timeout elapses.
+ */
+public class ResilienceExchangeFilterFunction implements ExchangeFilterFunction, ResilienceListener
+{
+	private static final Logger LOG = LoggerFactory.getLogger(ResilienceExchangeFilterFunction.class);
+
+	private final CaasWebClientProperties.CircuitBreaker circuitBreakerProperties;
+	private final CaasWebClientProperties.Bulkhead bulkheadProperties;
+	private final List<ResilienceListener> listeners;
+	private final Clock clock;
+	private final Scheduler scheduler;
+
+	private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+	private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+	public ResilienceExchangeFilterFunction(final CaasWebClientProperties.Properties properties,
+			final List<ResilienceListener> listeners)
+	{
+		this(properties, listeners, Clock.systemUTC(), Schedulers.parallel());
+	}
+
+	ResilienceExchangeFilterFunction(final CaasWebClientProperties.Properties properties,
+			final List<ResilienceListener> listeners, final Clock clock, final Scheduler scheduler)
+	{
+		this.circuitBreakerProperties = properties.getCircuitBreaker();
+		this.bulkheadProperties = properties.getBulkhead();
+		this.listeners = List.copyOf(listeners);
+		this.clock = clock;
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	public Mono<ClientResponse> filter(final ClientRequest request, final ExchangeFunction next)
+	{
+		final String host = getHost(request.url());
+		final CircuitBreaker circuitBreaker = getCircuitBreaker(host);
+		final Bulkhead bulkhead = getBulkhead(host);
+
+		return Mono.defer(() -> {
+			if (circuitBreaker != null && !circuitBreaker.tryAcquirePermission())
+			{
+				onCallNotPermitted(host, RejectionReason.CIRCUIT_OPEN);
+				return Mono.error(new CallNotPermittedException("Circuit breaker of host '" + host + "' is open"));
+			}
+			if (bulkhead != null && !bulkhead.tryAcquirePermission())
+			{
+				if (circuitBreaker != null)
+				{
+					circuitBreaker.onIgnored();
+				}
+				onCallNotPermitted(host, RejectionReason.BULKHEAD_FULL);
+				return Mono.error(new CallNotPermittedException("Bulkhead of host '" + host + "' is full"));
+			}
+
+			final AtomicBoolean completed = new AtomicBoolean();
+			final BulkheadPermission permission = bulkhead == null ? null : new BulkheadPermission(bulkhead);
+			return next.exchange(request)
+					.doOnNext(response -> {
+						if (circuitBreaker != null && completed.compareAndSet(false, true))
+						{
+							if (response.rawStatusCode() >= 500)
+							{
+								circuitBreaker.onFailure();
+							}
+							else
+							{
+								circuitBreaker.onSuccess();
+							}
+						}
+					})
+					.map(response -> permission == null ? response : permission.holdUntilBodyTermination(response))
+					.doOnError(e -> {
+						if (circuitBreaker != null && completed.compareAndSet(false, true))
+						{
+							circuitBreaker.onFailure();
+						}
+					})
+					.doFinally(signal -> {
+						if (circuitBreaker != null && signal == SignalType.CANCEL && completed.compareAndSet(false, true))
+						{
+							circuitBreaker.onIgnored();
+						}
+						if (permission != null)
+						{
+							permission.onExchangeTerminated(signal);
+						}
+					});
+		});
+	}
+
+	/**
+	 * Bulkhead permission of a call, released once whichever of the exchange and the response body terminates it.
+	 */
+	private final class BulkheadPermission
+	{
+		private final Bulkhead bulkhead;
+		private final AtomicBoolean released = new AtomicBoolean();
+		private final AtomicBoolean bodySubscribed = new AtomicBoolean();
+		private volatile boolean responded;
+		private volatile Disposable unconsumedBodyTimeout;
+
+		BulkheadPermission(final Bulkhead bulkhead)
+		{
+			this.bulkhead = bulkhead;
+		}
+
+		ClientResponse holdUntilBodyTermination(final ClientResponse response)
+		{
+			responded = true;
+			final long timeoutMs = bulkheadProperties.getUnconsumedBodyTimeoutMs();
+			if (timeoutMs > 0)
+			{
+				unconsumedBodyTimeout = scheduler.schedule(this::releaseIfBodyNotSubscribed, timeoutMs, TimeUnit.MILLISECONDS);
+			}
+
+			return ClientResponse.from(response)
+					.body(response.bodyToFlux(DataBuffer.class).doOnSubscribe(subscription -> {
+						bodySubscribed.set(true);
+						cancelUnconsumedBodyTimeout();
+					}).doFinally(signal -> release()))
+					.build();
+		}
+
+		void onExchangeTerminated(final SignalType signal)
+		{
+			// once the response is emitted, the permission is held until its body is consumed or released, unless the call was
+			// cancelled along with the response
+			if (!responded || signal == SignalType.CANCEL)
+			{
+				releaseIfBodyNotSubscribed();
+			}
+		}
+
+		private void releaseIfBodyNotSubscribed()
+		{
+			if (!bodySubscribed.get())
+			{
+				release();
+			}
+		}
+
+		private void release()
+		{
+			if (released.compareAndSet(false, true))
+			{
+				cancelUnconsumedBodyTimeout();
+				bulkhead.releasePermission();
+			}
+		}
+
+		private void cancelUnconsumedBodyTimeout()
+		{
+			final Disposable timeout = unconsumedBodyTimeout;
+			if (timeout != null)
+			{
+				timeout.dispose();
+			}
+		}
+	}
+
+	@Override
+	public void onCircuitBreakerCreated(final CircuitBreaker circuitBreaker)
+	{
+		listeners.forEach(listener -> listener.onCircuitBreakerCreated(circuitBreaker));
+	}
+
+	@Override
+	public void onBulkheadCreated(final Bulkhead bulkhead)
+	{
+		listeners.forEach(listener -> listener.onBulkheadCreated(bulkhead));
+	}
+
+	@Override
+	public void onStateTransition(final String host, final CircuitBreaker.State from, final CircuitBreaker.State to)
+	{
+		LOG.warn("Circuit breaker of host '{}' changed from {} to {}", host, from, to);
+		listeners.forEach(listener -> listener.onStateTransition(host, from, to));
+	}
+
+	@Override
+	public void onCallNotPermitted(final String host, final RejectionReason reason)
+	{
+		LOG.debug("Call to host '{}' not permitted: {}", host, reason);
+		listeners.forEach(listener -> listener.onCallNotPermitted(host, reason));
+	}
+
+	private CircuitBreaker getCircuitBreaker(final String host)
+	{
+		if (!circuitBreakerProperties.isEnabled())
+		{
+			return null;
+		}
+		return circuitBreakers.computeIfAbsent(host, key -> {
+			final CircuitBreaker circuitBreaker = new CircuitBreaker(key, circuitBreakerProperties, this, clock);
+			onCircuitBreakerCreated(circuitBreaker);
+			return circuitBreaker;
+		});
+	}
+
+	private Bulkhead getBulkhead(final String host)
+	{
+		if (!bulkheadProperties.isEnabled())
+		{
+			return null;
+		}
+		return bulkheads.computeIfAbsent(host, key -> {
+			final Bulkhead bulkhead = new Bulkhead(key, bulkheadProperties.getMaxConcurrentCalls());
+			onBulkheadCreated(bulkhead);
+			return bulkhead;
+		});
+	}
+
+	private static String getHost(final URI uri)
+	{
+		return uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+	}
+}
@@ -0,0 +1,55 @@
+package com.hybris.caas.client.resilience;
+
+/**
+ * Callback interface notified of the events of the circuit breakers and bulkheads guarding the web client calls.
+ */
+public interface ResilienceListener
+{
+	/**
+	 * Called when the circuit breaker of a host is created, on the first call to this host.
+	 *
+	 * @param circuitBreaker the circuit breaker
+	 */
+	default void onCircuitBreakerCreated(final CircuitBreaker circuitBreaker)
+	{
+		// no-op
+	}
+
+	/**
+	 * Called when the bulkhead of a host is created, on the first call to this host.
+	 *
+	 * @param bulkhead the bulkhead
+	 */
+	default void onBulkheadCreated(final Bulkhead bulkhead)
+	{
+		// no-op
+	}
+
+	/**
+	 * Called when the circuit breaker of a host changes its state.
+	 *
+	 * @param host the host guarded by the circuit breaker
+	 * @param from the previous state
+	 * @param to   the new state
+	 */
+	default void onStateTransition(final String host, final CircuitBreaker.State from, final CircuitBreaker.State to)
+	{
+		// no-op
+	}
+
+	/**
+	 * Called when a call is rejected without being sent.
+	 *
+	 * @param host   the target host of the call
+	 * @param reason the reason of the rejection
+	 */
+	default void onCallNotPermitted(final String host, final RejectionReason reason)
+	{
+		// no-op
+	}
+
+	enum RejectionReason
+	{
+		CIRCUIT_OPEN, BULKHEAD_FULL
+	}
+}
@@ -0,0 +1,88 @@
+package com.hybris.caas.client.resilience;
+
+import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+import com.hybris.caas.client.exception.CallNotPermittedException;
+import io.netty.channel.ChannelException;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides whether and when a failed web client REST call is retried.
+ * <p>
+ * Only calls of idempotent methods are retried, with an exponential backoff and jitter, and only when they failed
+ * with a retryable response status or an I/O error. Calls rejected by a circuit breaker or a bulkhead are never
+ * retried.
+ */
+public class RetryPolicy
+{
+	private static final Retry NO_RETRY = Retry.max(0);
+
+	private final Map<HttpMethod, Retry> retries = new EnumMap<>(HttpMethod.class);
+	private final Set<Integer> retryableStatuses;
+
+	public RetryPolicy(final CaasWebClientProperties.Retry retryProperties)
+	{
+		this.retryableStatuses = Set.copyOf(retryProperties.getStatuses());
+
+		final Retry retry = Retry.backoff(retryProperties.getMaxAttempts(), Duration.ofMillis(retryProperties.getMinBackoffMs()))
+				.maxBackoff(Duration.ofMillis(retryProperties.getMaxBackoffMs()))
+				.jitter(retryProperties.getJitter())
+				.filter(this::isRetryable)
+				.onRetryExhaustedThrow((spec, signal) -> signal.failure());
+		for (final HttpMethod method : HttpMethod.values())
+		{
+			retries.put(method, retryProperties.getMethods().contains(method) ? retry : NO_RETRY);
+		}
+	}
+
+	/**
+	 * Creates a retry policy retrying idempotent calls up to the given number of times with the default backoff.
+	 *
+	 * @param maxAttempts the maximum number of retries
+	 * @return the retry policy
+	 */
+	public static RetryPolicy of(final int maxAttempts)
+	{
+		final CaasWebClientProperties.Retry retryProperties = new CaasWebClientProperties.Retry();
+		retryProperties.setMaxAttempts(maxAttempts);
+		return new RetryPolicy(retryProperties);
+	}
+
+	/**
+	 * Gets the retry strategy to apply to calls of the given method.
+	 *
+	 * @param method the HTTP method of the call
+	 * @return the retry strategy
+	 */
+	public Retry forMethod(final HttpMethod method)
+	{
+		return retries.get(method);
+	}
+
+	protected boolean isRetryable(final Throwable e)
+	{
+		if (e instanceof WebClientResponseException)
+		{
+			return retryableStatuses.contains(((WebClientResponseException) e).getRawStatusCode());
+		}
+		if (e instanceof CallNotPermittedException)
+		{
+			return false;
+		}
+		for (Throwable cause = e; cause != null; cause = cause.getCause())
+		{
+			if (cause instanceof IOException || cause instanceof ChannelException)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
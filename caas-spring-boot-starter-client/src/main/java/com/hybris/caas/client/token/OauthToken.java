@@ -0,0 +1,41 @@
+package com.hybris.caas.client.token;
+
+import java.time.Instant;
+
+/**
+ * An OAuth access token issued by XSUAA together with the instant it expires at and the ready to send
+ * {@code Authorization} header value.
+ */
+public class OauthToken
+{
+	private static final String BEARER_PREFIX = "Bearer ";
+
+	private final String accessToken;
+	private final String authorizationHeader;
+	private final Instant expiresAt;
+
+	public OauthToken(final String accessToken, final Instant expiresAt)
+	{
+		this.accessToken = accessToken;
+		this.authorizationHeader = BEARER_PREFIX + accessToken;
+		this.expiresAt = expiresAt;
+	}
+
+	public String getAccessToken()
+	{
+		return accessToken;
+	}
+
+	/**
+	 * @return the {@code Authorization} header value carrying this token, computed once per token
+	 */
+	public String getAuthorizationHeader()
+	{
+		return authorizationHeader;
+	}
+
+	public Instant getExpiresAt()
+	{
+		return expiresAt;
+	}
+}
@@ -0,0 +1,132 @@
+package com.hybris.caas.client.token;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Per tenant cache of OAuth tokens.
+ * <p>
+ * Concurrent lookups for a tenant without a cached token share a single in-flight token request. Each entry expires
+ * at the token's {@code expires_in} minus a safety margin, and a token that is still valid but close to its expiry is
+ * refreshed in the background so that callers keep being served from the cache.
+ */
+public class OauthTokenCache
+{
+	private static final Logger LOG = LoggerFactory.getLogger(OauthTokenCache.class);
+
+	private final AsyncLoadingCache<String, OauthToken> cache;
+	private final Function<String, Mono<OauthToken>> tokenFetcher;
+	private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+	private final Duration expirySafetyMargin;
+	private final Duration refreshAhead;
+	private final Clock clock;
+
+	public OauthTokenCache(final CaasWebClientProperties.TokenCache tokenCacheProperties,
+			final Function<String, Mono<OauthToken>> tokenFetcher)
+	{
+		this(tokenCacheProperties, tokenFetcher, Clock.systemUTC());
+	}
+
+	OauthTokenCache(final CaasWebClientProperties.TokenCache tokenCacheProperties,
+			final Function<String, Mono<OauthToken>> tokenFetcher, final Clock clock)
+	{
+		this.tokenFetcher = tokenFetcher;
+		this.expirySafetyMargin = Duration.ofMillis(tokenCacheProperties.getExpirySafetyMarginMs());
+		this.refreshAhead = Duration.ofMillis(tokenCacheProperties.getRefreshAheadMs());
+		this.clock = clock;
+
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(tokenCacheProperties.getMaxSize())
+				.expireAfter(new TokenExpiry())
+				.buildAsync((tenantId, executor) -> tokenFetcher.apply(tenantId).toFuture());
+	}
+
+	/**
+	 * Gets the token of the given tenant, fetching it if no valid token is cached.
+	 *
+	 * @param tenantId the tenant identifier
+	 * @return a mono containing the token or an exception
+	 */
+	public Mono<OauthToken> getToken(final String tenantId)
+	{
+		return Mono.defer(() -> Mono.fromFuture(cache.get(tenantId))).doOnNext(token -> refreshIfNeeded(tenantId, token));
+	}
+
+	/**
+	 * Tells whether a valid token of the given tenant is cached, i.e. whether {@link #getToken(String)} is served
+	 * without a token request.
+	 *
+	 * @param tenantId the tenant identifier
+	 * @return {@code true} if the token is cached
+	 */
+	public boolean isCached(final String tenantId)
+	{
+		final CompletableFuture<OauthToken> token = cache.getIfPresent(tenantId);
+		return token != null && token.isDone() && !token.isCompletedExceptionally();
+	}
+
+	/**
+	 * Removes the cached token of the given tenant, e.g. when it has been rejected by the downstream service.
+	 *
+	 * @param tenantId the tenant identifier
+	 */
+	public void invalidate(final String tenantId)
+	{
+		cache.synchronous().invalidate(tenantId);
+	}
+
+	private void refreshIfNeeded(final String tenantId, final OauthToken token)
+	{
+		if (clock.instant().isBefore(token.getExpiresAt().minus(expirySafetyMargin).minus(refreshAhead))
+				|| !refreshing.add(tenantId))
+		{
+			return;
+		}
+
+		tokenFetcher.apply(tenantId)
+				.doFinally(signal -> refreshing.remove(tenantId))
+				.subscribe(refreshed -> cache.put(tenantId, CompletableFuture.completedFuture(refreshed)),
+						e -> LOG.warn("Background refresh of token for tenant '{}' failed: {}", tenantId, e.toString()));
+	}
+
+	private long timeToLiveNanos(final OauthToken token)
+	{
+		final Duration timeToLive = Duration.between(clock.instant(), token.getExpiresAt()).minus(expirySafetyMargin);
+		return timeToLive.isNegative() ? 0 : timeToLive.toNanos();
+	}
+
+	private class TokenExpiry implements Expiry<String, OauthToken>
+	{
+		@Override
+		public long expireAfterCreate(final String tenantId, final OauthToken token, final long currentTime)
+		{
+			return timeToLiveNanos(token);
+		}
+
+		@Override
+		public long expireAfterUpdate(final String tenantId, final OauthToken token, final long currentTime,
+				final long currentDuration)
+		{
+			return timeToLiveNanos(token);
+		}
+
+		@Override
+		public long expireAfterRead(final String tenantId, final OauthToken token, final long currentTime,
+				final long currentDuration)
+		{
+			return currentDuration;
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package com.hybris.caas.client.cache;
+
+import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+import com.hybris.caas.client.metrics.OutboundCallContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheExchangeFilterFunctionTest
+{
+	private static final URI CONFIGURATION_URI = URI.create("http://example.com/configuration");
+
+	private final List<ClientRequest> exchanged = new ArrayList<>();
+	private final ExchangeStrategies strategies = ExchangeStrategies.builder()
+			.codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(1024))
+			.build();
+	private final ResponseCacheExchangeFilterFunction filter = new ResponseCacheExchangeFilterFunction(
+			new CaasWebClientProperties.ResponseCache(), strategies,
+			Clock.fixed(Instant.parse("2020-10-01T10:00:00Z"), ZoneOffset.UTC));
+
+	@Test
+	void should_share_exchange_of_concurrent_identical_requests()
+	{
+		final CompletableFuture<ClientResponse> response = new CompletableFuture<>();
+		final ExchangeFunction next = request -> {
+			exchanged.add(request);
+			return Mono.fromFuture(response);
+		};
+
+		final CompletableFuture<String> first = filter.filter(request("Bearer a"), next).flatMap(this::body).toFuture();
+		final CompletableFuture<String> second = filter.filter(request("Bearer a"), next).flatMap(this::body).toFuture();
+		response.complete(ClientResponse.create(HttpStatus.OK).header(HttpHeaders.CACHE_CONTROL, "max-age=60").body("value").build());
+
+		assertThat(first.join()).isEqualTo("value");
+		assertThat(second.join()).isEqualTo("value");
+		assertThat(exchanged).hasSize(1);
+	}
+
+	@Test
+	void should_send_again_concurrent_identical_requests_of_uncacheable_response()
+	{
+		final CompletableFuture<ClientResponse> response = new CompletableFuture<>();
+		final ExchangeFunction next = request -> {
+			exchanged.add(request);
+			return exchanged.size() == 1 ?
+					Mono.fromFuture(response) :
+					Mono.just(ClientResponse.create(HttpStatus.OK).body("other").build());
+		};
+
+		final CompletableFuture<String> first = filter.filter(request("Bearer a"), next).flatMap(this::body).toFuture();
+		final CompletableFuture<String> second = filter.filter(request("Bearer a"), next).flatMap(this::body).toFuture();
+		response.complete(ClientResponse.create(HttpStatus.OK).body("value").build());
+
+		assertThat(List.of(first.join(), second.join())).containsExactlyInAnyOrder("value", "other");
+		assertThat(exchanged).hasSize(2);
+	}
+
+	@Test
+	void should_pass_uncacheable_response_through_without_buffering_its_body()
+	{
+		// larger than the max in memory size of the codecs
+		final String largeBody = "x".repeat(4096);
+		final ClientResponse response = ClientResponse.create(HttpStatus.OK)
+				.header(HttpHeaders.CACHE_CONTROL, "no-store")
+				.body(largeBody)
+				.build();
+
+		final ClientResponse passedThrough = filter.filter(request("Bearer a"), request -> Mono.just(response)).block();
+
+		assertThat(passedThrough).isSameAs(response);
+	}
+
+	@Test
+	void should_pass_non_standard_status_through()
+	{
+		final ClientResponse response = ClientResponse.create(HttpStatus.OK).rawStatusCode(599).build();
+
+		assertThat(filter.filter(request("Bearer a"), request -> Mono.just(response)).block()).isSameAs(response);
+	}
+
+	@Test
+	void should_decode_cached_response_with_given_strategies()
+	{
+		final ExchangeFunction next = respondWith("max-age=60", null);
+
+		filter.filter(request("Bearer a"), next).flatMap(this::body).block();
+		final ClientResponse cached = filter.filter(request("Bearer a"), next).block();
+
+		assertThat(cached.strategies()).isSameAs(strategies);
+		assertThat(exchanged).hasSize(1);
+	}
+
+	@Test
+	void should_serve_fresh_response_from_cache()
+	{
+		final ExchangeFunction next = respondWith("max-age=60", null);
+
+		filter.filter(request("Bearer a"), next).flatMap(this::body).block();
+		final String body = filter.filter(request("Bearer a"), next).flatMap(this::body).block();
+
+		assertThat(body).isEqualTo("value");
+		assertThat(exchanged).hasSize(1);
+	}
+
+	@Test
+	void should_not_share_response_between_authorizations()
+	{
+		final ExchangeFunction next = respondWith("max-age=60", null);
+
+		filter.filter(request("Bearer a"), next).flatMap(this::body).block();
+		filter.filter(request("Bearer b"), next).flatMap(this::body).block();
+
+		assertThat(exchanged).hasSize(2);
+	}
+
+	@Test
+	void should_share_response_of_principal_across_token_refreshes()
+	{
+		final ExchangeFunction next = respondWith("max-age=60", null);
+
+		filter.filter(request("Bearer a"), next).subscriberContext(OutboundCallContext.withPrincipal("tenant")).block();
+		final String body = filter.filter(request("Bearer refreshed"), next)
+				.flatMap(this::body)
+				.subscriberContext(OutboundCallContext.withPrincipal("tenant"))
+				.block();
+
+		assertThat(body).isEqualTo("value");
+		assertThat(exchanged).hasSize(1);
+	}
+
+	@Test
+	void should_not_share_response_between_principals()
+	{
+		final ExchangeFunction next = respondWith("max-age=60", null);
+
+		filter.filter(request("Bearer a"), next).subscriberContext(OutboundCallContext.withPrincipal("tenant")).block();
+		filter.filter(request("Bearer a"), next).subscriberContext(OutboundCallContext.withPrincipal("other")).block();
+
+		assertThat(exchanged).hasSize(2);
+	}
+
+	@Test
+	void should_not_cache_no_store_response()
+	{
+		final ExchangeFunction next = respondWith("no-store", "\"v1\"");
+
+		filter.filter(request("Bearer a"), next).flatMap(this::body).block();
+		filter.filter(request("Bearer a"), next).flatMap(this::body).block();
+
+		assertThat(exchanged).hasSize(2);
+		assertThat(exchanged.get(1).headers().getIfNoneMatch()).isEmpty();
+	}
+
+	@Test
+	void should_revalidate_stale_response_with_etag()
+	{
+		final ExchangeFunction next = request -> {
+			exchanged.add(request);
+			return Mono.just(exchanged.size() == 1 ?
+					ClientResponse.create(HttpStatus.OK).header(HttpHeaders.ETAG, "\"v1\"").body("value").build() :
+					ClientResponse.create(HttpStatus.NOT_MODIFIED).build());
+		};
+
+		filter.filter(request("Bearer a"), next).flatMap(this::body).block();
+		final String body = filter.filter(request("Bearer a"), next).flatMap(this::body).block();
+
+		assertThat(body).isEqualTo("value");
+		assertThat(exchanged).hasSize(2);
+		assertThat(exchanged.get(1).headers().getIfNoneMatch()).containsExactly("\"v1\"");
+	}
+
+	@Test
+	void should_bypass_cache_for_other_methods()
+	{
+		final ExchangeFunction next = respondWith("max-age=60", null);
+		final ClientRequest post = ClientRequest.create(HttpMethod.POST, CONFIGURATION_URI).build();
+
+		filter.filter(post, next).block();
+		filter.filter(post, next).block();
+
+		assertThat(exchanged).hasSize(2);
+	}
+
+	private ExchangeFunction respondWith(final String cacheControl, final String etag)
+	{
+		return request -> {
+			exchanged.add(request);
+			final ClientResponse.Builder builder = ClientResponse.create(HttpStatus.OK)
+					.header(HttpHeaders.CACHE_CONTROL, cacheControl);
+			if (etag != null)
+			{
+				builder.header(HttpHeaders.ETAG, etag);
+			}
+			return Mono.just(builder.body("value").build());
+		};
+	}
+
+	private Mono<String> body(final ClientResponse response)
+	{
+		return response.bodyToMono(String.class);
+	}
+
+	private static ClientRequest request(final String authorization)
+	{
+		return ClientRequest.create(HttpMethod.GET, CONFIGURATION_URI).header(HttpHeaders.AUTHORIZATION, authorization).build();
+	}
+}
@@ -1,10 +1,13 @@
 package com.hybris.caas.client.client;
 
+import com.hybris.caas.client.cache.ResponseCacheExchangeFilterFunction;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -13,14 +16,23 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.HttpHeaders.ACCEPT_LANGUAGE;
 
@@ -36,6 +48,10 @@ public class CaasWebClientTest
 	private WebClient.ResponseSpec responseSpec;
 	@Mock
 	private WebClient.RequestBodyUriSpec requestBodyUriSpec;
+	@Mock
+	private WebClient.RequestHeadersUriSpec failingRequestHeadersUriSpec;
+	@Mock
+	private WebClient.ResponseSpec failingResponseSpec;
 
 	private final String tenantId = "tenantId";
 	private final URI uri = URI.create("http://example.com");
@@ -82,6 +98,42 @@ public class CaasWebClientTest
 		assertThat(result.block()).isInstanceOf(String.class);
 	}
 
+	@Test
+	public void shouldSendGetRequestWithoutHedgingBypassingResponseCache()
+	{
+		final AtomicInteger attempts = new AtomicInteger();
+		when(webClient.get()).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.uri(uri)).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.headers(any(Consumer.class))).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
+		when(responseSpec.bodyToMono(String.class)).thenReturn(Mono.defer(() -> attempts.incrementAndGet() == 1 ?
+				Mono.error(WebClientResponseException.create(HttpStatus.SERVICE_UNAVAILABLE.value(), "unavailable", null,
+						null, null)) :
+				Mono.just("result")));
+
+		assertThat(caasWebClient.getWithoutHedging(tenantId, uri, String.class).block()).isEqualTo("result");
+		assertThat(attempts.get()).isEqualTo(2);
+		verify(requestHeadersUriSpec).attribute(ResponseCacheExchangeFilterFunction.BYPASS_ATTRIBUTE, true);
+	}
+
+	@Test
+	public void shouldNotRetryGetRequestWithoutHedgingOnNonRetryableError()
+	{
+		final AtomicInteger attempts = new AtomicInteger();
+		when(webClient.get()).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.uri(uri)).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.headers(any(Consumer.class))).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
+		when(responseSpec.bodyToMono(String.class)).thenReturn(Mono.defer(() -> {
+			attempts.incrementAndGet();
+			return Mono.error(new IllegalStateException("unavailable"));
+		}));
+
+		assertThatThrownBy(() -> caasWebClient.getWithoutHedging(tenantId, uri, String.class).block())
+				.isInstanceOf(IllegalStateException.class);
+		assertThat(attempts.get()).isEqualTo(1);
+	}
+
 	@Test
 	public void shouldSendPostRequest()
 	{
@@ -275,4 +327,92 @@ public class CaasWebClientTest
 		assertThat(result).isNotNull();
 		assertThat(result.block()).isNull();
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void shouldStreamGetResponse()
+	{
+		when(webClient.get()).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.uri(uri)).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.headers(any(Consumer.class))).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.attribute(ResponseCacheExchangeFilterFunction.BYPASS_ATTRIBUTE, true))
+				.thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
+		when(responseSpec.bodyToFlux(String.class)).thenReturn(Flux.just("first", "second"));
+
+		final Flux<String> result = caasWebClient.getFlux(tenantId, uri, String.class);
+
+		assertThat(result.collectList().block()).containsExactly("first", "second");
+	}
+
+	@Test
+	public void shouldStreamPostResponse()
+	{
+		when(webClient.post()).thenReturn(requestBodyUriSpec);
+		when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
+		when(requestBodyUriSpec.uri(uri)).thenReturn(requestBodyUriSpec);
+		when(requestBodyUriSpec.contentType(MediaType.APPLICATION_JSON)).thenReturn(requestBodyUriSpec);
+		when(requestBodyUriSpec.headers(any(Consumer.class))).thenReturn(requestBodyUriSpec);
+		when(requestBodyUriSpec.bodyValue(any())).thenReturn(requestHeadersUriSpec);
+		when(responseSpec.bodyToFlux(String.class)).thenReturn(Flux.just("first", "second"));
+
+		final Flux<String> result = caasWebClient.postFlux(tenantId, uri, "body", String.class);
+
+		assertThat(result.collectList().block()).containsExactly("first", "second");
+	}
+
+	@Test
+	public void shouldStreamDataBuffers()
+	{
+		final DataBuffer buffer = new DefaultDataBufferFactory().wrap("raw".getBytes(StandardCharsets.UTF_8));
+		when(webClient.get()).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.uri(uri)).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.headers(any(Consumer.class))).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.attribute(ResponseCacheExchangeFilterFunction.BYPASS_ATTRIBUTE, true))
+				.thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
+		when(responseSpec.bodyToFlux(DataBuffer.class)).thenReturn(Flux.just(buffer));
+
+		final Flux<DataBuffer> result = caasWebClient.getDataBuffers(tenantId, uri);
+
+		assertThat(result.collectList().block()).containsExactly(buffer);
+	}
+
+	@Test
+	public void shouldIsolateFailuresOfBulkGet()
+	{
+		final URI failingUri = URI.create("http://example.com/failing");
+		when(webClient.get()).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.uri(uri)).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.uri(failingUri)).thenReturn(failingRequestHeadersUriSpec);
+		when(requestHeadersUriSpec.headers(any(Consumer.class))).thenReturn(requestHeadersUriSpec);
+		when(failingRequestHeadersUriSpec.headers(any(Consumer.class))).thenReturn(failingRequestHeadersUriSpec);
+		when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
+		when(failingRequestHeadersUriSpec.retrieve()).thenReturn(failingResponseSpec);
+		when(responseSpec.bodyToMono(String.class)).thenReturn(Mono.just("result"));
+		when(failingResponseSpec.bodyToMono(String.class)).thenReturn(Mono.error(new IllegalStateException("failed")));
+
+		final List<BulkResult<String>> results = caasWebClient.getAll(tenantId, List.of(uri, failingUri, uri), String.class,
+				BulkOptions.DEFAULT.withMaxConcurrency(2)).collectList().block();
+
+		assertThat(results).extracting(BulkResult::getIndex).containsExactly(0, 1, 2);
+		assertThat(results).extracting(BulkResult::isSuccess).containsExactly(true, false, true);
+		assertThat(results.get(0).getValue()).isEqualTo("result");
+		assertThat(results.get(1).getError()).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void shouldFailPendingCallsOfBulkGetAfterDeadline()
+	{
+		when(webClient.get()).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.uri(uri)).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.headers(any(Consumer.class))).thenReturn(requestHeadersUriSpec);
+		when(requestHeadersUriSpec.retrieve()).thenReturn(responseSpec);
+		when(responseSpec.bodyToMono(String.class)).thenReturn(Mono.never());
+
+		final List<BulkResult<String>> results = caasWebClient.getAll(tenantId, List.of(uri), String.class,
+				BulkOptions.DEFAULT.withTimeout(Duration.ofMillis(50))).collectList().block();
+
+		assertThat(results).hasSize(1);
+		assertThat(results.get(0).getError()).isInstanceOf(TimeoutException.class);
+	}
+}
@@ -1,19 +1,25 @@
 package com.hybris.caas.client.config;
 
 import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+import com.hybris.caas.client.metrics.MetricsExchangeFilterFunction;
+import com.hybris.caas.client.resilience.ResilienceListener;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.http.codec.CodecConfigurer;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import java.nio.charset.StandardCharsets;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -29,13 +35,25 @@ class CaasWebClientConfigTest
 	private HttpClientCustomizer httpClientCustomizer2;
 	@Mock
 	private HttpClient customizedHttpClient;
+	@Mock
+	private ObjectProvider<ResilienceListener> resilienceListeners;
+	@Mock
+	private ObjectProvider<MetricsExchangeFilterFunction> metricsFilter;
+	@Mock
+	private ObjectProvider<CodecCustomizer> codecCustomizers;
+	@Mock
+	private CodecCustomizer codecCustomizer;
 
 	private CaasWebClientConfig config = new CaasWebClientConfig(new CaasWebClientProperties());
 
 	@Test
 	void should_create_web_client()
 	{
-		final WebClient webClient = config.createWebClient(HttpClient.create());
+		when(resilienceListeners.orderedStream()).thenReturn(Stream.empty());
+		when(codecCustomizers.orderedStream()).thenReturn(Stream.empty());
+
+		final WebClient webClient = config.createWebClient(HttpClient.create(), resilienceListeners, metricsFilter,
+				codecCustomizers);
 
 		assertThat(webClient).isNotNull();
 		webClient.mutate().defaultHeaders(defaultHeaders -> {
@@ -44,6 +62,20 @@ class CaasWebClientConfigTest
 		}).build();
 	}
 
+	@Test
+	void should_apply_codec_customizers()
+	{
+		final CaasWebClientProperties properties = new CaasWebClientProperties();
+		properties.getProperties().getResponseCache().setEnabled(true);
+		when(resilienceListeners.orderedStream()).thenReturn(Stream.empty());
+		when(codecCustomizers.orderedStream()).thenReturn(Stream.of(codecCustomizer));
+
+		new CaasWebClientConfig(properties).createWebClient(HttpClient.create(), resilienceListeners, metricsFilter,
+				codecCustomizers);
+
+		verify(codecCustomizer).customize(any(CodecConfigurer.class));
+	}
+
 	@Test
 	void should_apply_customizers()
 	{
@@ -51,10 +83,37 @@ class CaasWebClientConfigTest
 		when(httpClientCustomizer1.customize(any(HttpClient.class))).thenReturn(customizedHttpClient);
 		when(httpClientCustomizer2.customize(any(HttpClient.class))).thenReturn(customizedHttpClient);
 
-		final HttpClient httpClient = config.defaultHttpClient(httpClientCustomizerObjProvider);
+		final HttpClient httpClient = config.defaultHttpClient(ConnectionProvider.newConnection(),
+				httpClientCustomizerObjProvider);
 
 		verify(httpClientCustomizer1).customize(any(HttpClient.class));
 		verify(httpClientCustomizer2).customize(any(HttpClient.class));
 		assertThat(httpClient).isSameAs(customizedHttpClient);
 	}
+
+	@Test
+	void should_create_connection_provider_with_host_limits()
+	{
+		final CaasWebClientProperties properties = new CaasWebClientProperties();
+		final CaasWebClientProperties.HostPool hostPool = new CaasWebClientProperties.HostPool();
+		hostPool.setMaxConnections(10);
+		properties.getProperties().getPool().getHosts().put("example.com:443", hostPool);
+
+		final ConnectionProvider connectionProvider = new CaasWebClientConfig(properties).caasWebClientConnectionProvider();
+
+		assertThat(connectionProvider).isNotNull();
+		connectionProvider.dispose();
+	}
+
+	@Test
+	void should_reject_pool_host_without_port()
+	{
+		final CaasWebClientProperties properties = new CaasWebClientProperties();
+		final CaasWebClientProperties.HostPool hostPool = new CaasWebClientProperties.HostPool();
+		hostPool.setMaxConnections(10);
+		properties.getProperties().getPool().getHosts().put("example.com", hostPool);
+
+		assertThatThrownBy(() -> new CaasWebClientConfig(properties).caasWebClientConnectionProvider())
+				.isInstanceOf(IllegalArgumentException.class);
+	}
 }
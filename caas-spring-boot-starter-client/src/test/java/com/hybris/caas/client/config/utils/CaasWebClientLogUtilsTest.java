@@ -35,4 +35,28 @@ public class CaasWebClientLogUtilsTest
 		CaasWebClientLogUtils.filterHeaderValues(sb, List.of("Authorization"), "Accept-Language", List.of("fr-ca"));
 		assertThat(sb.toString(), equalTo("Accept-Language: fr-ca, "));
 	}
+
+	@Test
+	public void should_obfuscate_any_listed_header()
+	{
+		final StringBuilder sb = new StringBuilder();
+		CaasWebClientLogUtils.filterHeaderValues(sb, List.of("Authorization", "X-Api-Key"), "x-api-key", List.of("abc"));
+		assertThat(sb.toString(), equalTo("x-api-key: *****, "));
+	}
+
+	@Test
+	public void should_not_treat_header_name_as_pattern()
+	{
+		final StringBuilder sb = new StringBuilder();
+		CaasWebClientLogUtils.filterHeaderValues(sb, List.of("X-Token"), "X-.*", List.of("abc"));
+		assertThat(sb.toString(), equalTo("X-.*: abc, "));
+	}
+
+	@Test
+	public void should_join_header_values()
+	{
+		final StringBuilder sb = new StringBuilder();
+		CaasWebClientLogUtils.filterHeaderValues(sb, List.of("Authorization"), "Accept", List.of("a", "b"));
+		assertThat(sb.toString(), equalTo("Accept: a, b, "));
+	}
 }
@@ -0,0 +1,111 @@
+package com.hybris.caas.client.metrics;
+
+import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+import com.hybris.caas.client.exception.CallNotPermittedException;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetricsExchangeFilterFunctionTest
+{
+	private static final URI PRODUCT_URI = URI.create("http://product.internal:8080/tenant/products/42");
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final CaasWebClientProperties.Metrics properties = new CaasWebClientProperties.Metrics();
+	private MetricsExchangeFilterFunction filter;
+
+	@BeforeEach
+	void setUp()
+	{
+		properties.setUriTemplates(List.of("/{tenant}/products/{id}"));
+		filter = new MetricsExchangeFilterFunction(meterRegistry, properties);
+	}
+
+	@Test
+	void should_tag_call_with_uri_template_and_status_class()
+	{
+		filter.filter(request(PRODUCT_URI), respondWith(HttpStatus.NOT_FOUND)).block();
+
+		final Timer timer = meterRegistry.get(MetricsExchangeFilterFunction.REQUESTS)
+				.tag("method", "GET")
+				.tag("host", "product.internal:8080")
+				.tag("uri", "/{tenant}/products/{id}")
+				.tag("status", "4xx")
+				.tag("retry", "0")
+				.tag("token", "none")
+				.timer();
+		assertThat(timer.count()).isEqualTo(1);
+	}
+
+	@Test
+	void should_tag_unmatched_uri_as_unknown()
+	{
+		filter.filter(request(URI.create("http://product.internal/health")), respondWith(HttpStatus.OK)).block();
+
+		assertThat(meterRegistry.get(MetricsExchangeFilterFunction.REQUESTS).tag("uri", "UNKNOWN").timer().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void should_tag_attempts_with_retry_count_and_token_lookup()
+	{
+		final AtomicInteger attempts = new AtomicInteger();
+		final ExchangeFunction next = request -> attempts.incrementAndGet() == 1 ?
+				Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build()) :
+				Mono.just(ClientResponse.create(HttpStatus.OK).build());
+
+		filter.filter(request(PRODUCT_URI), next)
+				.flatMap(response -> response.statusCode().isError() ?
+						Mono.error(new IllegalStateException()) :
+						Mono.just(response))
+				.retryWhen(Retry.max(1))
+				.subscriberContext(OutboundCallContext::initialize)
+				.subscriberContext(OutboundCallContext.withTokenLookup(OutboundCallContext.TokenLookup.HIT))
+				.block();
+
+		assertThat(meterRegistry.get(MetricsExchangeFilterFunction.REQUESTS)
+				.tags("status", "5xx", "retry", "0", "token", "hit")
+				.timer()
+				.count()).isEqualTo(1);
+		assertThat(meterRegistry.get(MetricsExchangeFilterFunction.REQUESTS)
+				.tags("status", "2xx", "retry", "1", "token", "hit")
+				.timer()
+				.count()).isEqualTo(1);
+	}
+
+	@Test
+	void should_tag_rejected_call()
+	{
+		final Mono<ClientResponse> response = filter.filter(request(PRODUCT_URI),
+				request -> Mono.error(new CallNotPermittedException("open")));
+
+		assertThatThrownBy(response::block).isInstanceOf(CallNotPermittedException.class);
+		assertThat(meterRegistry.get(MetricsExchangeFilterFunction.REQUESTS).tag("status", "REJECTED").timer().count())
+				.isEqualTo(1);
+	}
+
+	private static ClientRequest request(final URI uri)
+	{
+		return ClientRequest.create(HttpMethod.GET, uri).build();
+	}
+
+	private static ExchangeFunction respondWith(final HttpStatus status)
+	{
+		return request -> Mono.just(ClientResponse.create(status).build());
+	}
+}
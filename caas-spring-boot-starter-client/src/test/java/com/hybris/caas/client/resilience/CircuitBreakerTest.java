@@ -0,0 +1,124 @@
+package com.hybris.caas.client.resilience;
+
+import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CircuitBreakerTest
+{
+	private static final String HOST = "example.com";
+
+	@Mock
+	private ResilienceListener listener;
+
+	private Instant now = Instant.parse("2020-10-01T10:00:00Z");
+	private CircuitBreaker circuitBreaker;
+
+	@BeforeEach
+	void setUp()
+	{
+		final CaasWebClientProperties.CircuitBreaker properties = new CaasWebClientProperties.CircuitBreaker();
+		properties.setFailureThreshold(2);
+		properties.setOpenDurationMs(1000);
+		properties.setHalfOpenPermits(1);
+		circuitBreaker = new CircuitBreaker(HOST, properties, listener, new Clock()
+		{
+			@Override
+			public ZoneOffset getZone()
+			{
+				return ZoneOffset.UTC;
+			}
+
+			@Override
+			public Clock withZone(final ZoneId zone)
+			{
+				return this;
+			}
+
+			@Override
+			public Instant instant()
+			{
+				return now;
+			}
+		});
+	}
+
+	@Test
+	void should_open_after_consecutive_failures()
+	{
+		circuitBreaker.onFailure();
+		circuitBreaker.onFailure();
+
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+		verify(listener).onStateTransition(HOST, CircuitBreaker.State.CLOSED, CircuitBreaker.State.OPEN);
+	}
+
+	@Test
+	void should_reset_failures_on_success()
+	{
+		circuitBreaker.onFailure();
+		circuitBreaker.onSuccess();
+		circuitBreaker.onFailure();
+
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+	}
+
+	@Test
+	void should_let_trial_call_through_after_open_duration()
+	{
+		circuitBreaker.onFailure();
+		circuitBreaker.onFailure();
+		now = now.plus(Duration.ofSeconds(2));
+
+		assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+		assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+		circuitBreaker.onSuccess();
+
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		verify(listener).onStateTransition(HOST, CircuitBreaker.State.HALF_OPEN, CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	void should_open_again_when_trial_call_fails()
+	{
+		circuitBreaker.onFailure();
+		circuitBreaker.onFailure();
+		now = now.plus(Duration.ofSeconds(2));
+		circuitBreaker.tryAcquirePermission();
+
+		circuitBreaker.onFailure();
+
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+	}
+
+	@Test
+	void should_release_trial_of_ignored_call()
+	{
+		circuitBreaker.onFailure();
+		circuitBreaker.onFailure();
+		now = now.plus(Duration.ofSeconds(2));
+		circuitBreaker.tryAcquirePermission();
+
+		circuitBreaker.onIgnored();
+
+		assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+	}
+}
@@ -0,0 +1,106 @@
+package com.hybris.caas.client.resilience;
+
+import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgingPolicyTest
+{
+	private static final URI PRODUCT_URI = URI.create("http://product.internal/products/42");
+	private static final Mono<String> SLOW_PRIMARY = Mono.delay(Duration.ofSeconds(2)).thenReturn("primary");
+
+	private final CaasWebClientProperties.Hedging properties = new CaasWebClientProperties.Hedging();
+	private final AtomicInteger hedges = new AtomicInteger();
+
+	@BeforeEach
+	void setUp()
+	{
+		properties.setEnabled(true);
+		properties.setInitialDelayMs(20);
+	}
+
+	@Test
+	void should_not_hedge_when_disabled()
+	{
+		final Mono<String> primary = Mono.just("primary");
+
+		assertThat(HedgingPolicy.disabled().hedge(PRODUCT_URI, primary, this::hedge)).isSameAs(primary);
+	}
+
+	@Test
+	void should_take_hedge_response_when_primary_is_late()
+	{
+		final String response = new HedgingPolicy(properties).hedge(PRODUCT_URI, SLOW_PRIMARY, this::hedge).block();
+
+		assertThat(response).isEqualTo("hedge");
+		assertThat(hedges.get()).isEqualTo(1);
+	}
+
+	@Test
+	void should_not_hedge_when_primary_is_on_time()
+	{
+		final String response = new HedgingPolicy(properties).hedge(PRODUCT_URI, Mono.just("primary"), this::hedge)
+				.block();
+
+		assertThat(response).isEqualTo("primary");
+		assertThat(hedges.get()).isZero();
+	}
+
+	@Test
+	void should_not_hedge_beyond_budget()
+	{
+		properties.setBudgetRatio(0);
+		properties.setBudgetCapacity(1);
+		final HedgingPolicy hedgingPolicy = new HedgingPolicy(properties);
+		final Mono<String> latePrimary = Mono.delay(Duration.ofMillis(200)).thenReturn("primary");
+
+		final String first = hedgingPolicy.hedge(PRODUCT_URI, latePrimary, this::hedge).block();
+		final String second = hedgingPolicy.hedge(PRODUCT_URI, latePrimary, this::hedge).block();
+
+		assertThat(first).isEqualTo("hedge");
+		assertThat(second).isEqualTo("primary");
+		assertThat(hedges.get()).isEqualTo(1);
+	}
+
+	@Test
+	void should_ignore_failed_hedge()
+	{
+		final Mono<String> latePrimary = Mono.delay(Duration.ofMillis(200)).thenReturn("primary");
+
+		final String response = new HedgingPolicy(properties).hedge(PRODUCT_URI, latePrimary,
+				() -> Mono.error(new IllegalStateException())).block();
+
+		assertThat(response).isEqualTo("primary");
+	}
+
+	@Test
+	void should_sample_primary_cancelled_by_winning_hedge()
+	{
+		properties.setSampleSize(10);
+		properties.setPercentile(0.6);
+		properties.setBudgetRatio(1);
+		final HedgingPolicy hedgingPolicy = new HedgingPolicy(properties);
+
+		for (int i = 0; i < 10; i++)
+		{
+			assertThat(hedgingPolicy.hedge(PRODUCT_URI, SLOW_PRIMARY, this::hedge).block()).isEqualTo("hedge");
+		}
+
+		// without the cancelled primaries, only the immediate hedge responses would be sampled
+		assertThat(hedgingPolicy.getTracker(PRODUCT_URI).getPercentileNanos())
+				.isGreaterThanOrEqualTo(Duration.ofMillis(properties.getInitialDelayMs()).toNanos());
+	}
+
+	private Mono<String> hedge()
+	{
+		hedges.incrementAndGet();
+		return Mono.just("hedge");
+	}
+}
@@ -0,0 +1,159 @@
+package com.hybris.caas.client.resilience;
+
+import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+import com.hybris.caas.client.exception.CallNotPermittedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Mono;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResilienceExchangeFilterFunctionTest
+{
+	private static final URI PRODUCT_URI = URI.create("http://product.internal:8080/tenant/products/42");
+
+	private final AtomicReference<Bulkhead> bulkhead = new AtomicReference<>();
+	private final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+	private ResilienceExchangeFilterFunction filter;
+
+	@BeforeEach
+	void setUp()
+	{
+		final CaasWebClientProperties.Properties properties = new CaasWebClientProperties.Properties();
+		properties.getBulkhead().setEnabled(true);
+		properties.getBulkhead().setMaxConcurrentCalls(1);
+		properties.getBulkhead().setUnconsumedBodyTimeoutMs(1000);
+		properties.getCircuitBreaker().setEnabled(true);
+		filter = new ResilienceExchangeFilterFunction(properties, List.of(new ResilienceListener()
+		{
+			@Override
+			public void onBulkheadCreated(final Bulkhead created)
+			{
+				bulkhead.set(created);
+			}
+		}), Clock.systemUTC(), scheduler);
+	}
+
+	@Test
+	void should_hold_bulkhead_permission_until_body_is_consumed()
+	{
+		final ClientResponse response = filter.filter(request(), respondWith("body")).block();
+
+		assertThat(bulkhead.get().getConcurrentCalls()).isEqualTo(1);
+		assertThatThrownBy(() -> filter.filter(request(), respondWith("other")).block())
+				.isInstanceOf(CallNotPermittedException.class);
+
+		assertThat(response.bodyToMono(String.class).block()).isEqualTo("body");
+		assertThat(bulkhead.get().getConcurrentCalls()).isZero();
+	}
+
+	@Test
+	void should_release_bulkhead_permission_when_body_is_cancelled()
+	{
+		final ClientResponse response = filter.filter(request(), respondWith("body")).block();
+
+		response.bodyToFlux(String.class).take(0).blockLast();
+
+		assertThat(bulkhead.get().getConcurrentCalls()).isZero();
+	}
+
+	@Test
+	void should_release_bulkhead_permission_when_cancelled_before_body_is_subscribed()
+	{
+		final AtomicReference<ClientResponse> response = new AtomicReference<>();
+
+		// the downstream cancels as soon as the response is emitted, without subscribing to its body
+		filter.filter(request(), respondWith("body")).subscribe(new BaseSubscriber<>()
+		{
+			@Override
+			protected void hookOnNext(final ClientResponse value)
+			{
+				response.set(value);
+				cancel();
+			}
+		});
+
+		assertThat(response.get()).isNotNull();
+		assertThat(bulkhead.get().getConcurrentCalls()).isZero();
+	}
+
+	@Test
+	void should_release_bulkhead_permission_when_body_is_not_subscribed_in_time()
+	{
+		filter.filter(request(), respondWith("body")).block();
+		assertThat(bulkhead.get().getConcurrentCalls()).isEqualTo(1);
+
+		scheduler.advanceTimeBy(Duration.ofSeconds(1));
+
+		assertThat(bulkhead.get().getConcurrentCalls()).isZero();
+	}
+
+	@Test
+	void should_hold_bulkhead_permission_while_body_is_streamed_past_unconsumed_body_timeout()
+	{
+		final ClientResponse response = filter.filter(request(), respondWith("body")).block();
+		final HeldBodySubscriber body = new HeldBodySubscriber();
+
+		response.bodyToFlux(String.class).subscribe(body);
+		scheduler.advanceTimeBy(Duration.ofSeconds(1));
+
+		assertThat(bulkhead.get().getConcurrentCalls()).isEqualTo(1);
+		body.dispose();
+		assertThat(bulkhead.get().getConcurrentCalls()).isZero();
+	}
+
+	@Test
+	void should_accept_non_standard_status_code()
+	{
+		final ClientResponse response = filter.filter(request(),
+				request -> Mono.just(ClientResponse.create(HttpStatus.OK).rawStatusCode(599).build())).block();
+
+		assertThat(response.rawStatusCode()).isEqualTo(599);
+	}
+
+	@Test
+	void should_release_bulkhead_permission_when_exchange_fails()
+	{
+		assertThatThrownBy(() -> filter.filter(request(), request -> Mono.error(new IllegalStateException())).block())
+				.isInstanceOf(IllegalStateException.class);
+
+		assertThat(bulkhead.get().getConcurrentCalls()).isZero();
+	}
+
+	/**
+	 * Subscriber requesting the body without consuming it until disposed.
+	 */
+	private static final class HeldBodySubscriber extends BaseSubscriber<String>
+	{
+		@Override
+		protected void hookOnSubscribe(final Subscription subscription)
+		{
+			// holds the body
+		}
+	}
+
+	private static ClientRequest request()
+	{
+		return ClientRequest.create(HttpMethod.GET, PRODUCT_URI).build();
+	}
+
+	private static ExchangeFunction respondWith(final String body)
+	{
+		return request -> Mono.just(ClientResponse.create(HttpStatus.OK).body(body).build());
+	}
+}
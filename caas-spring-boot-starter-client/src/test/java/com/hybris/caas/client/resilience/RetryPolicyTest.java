@@ -0,0 +1,87 @@
+package com.hybris.caas.client.resilience;
+
+import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+import com.hybris.caas.client.exception.CallNotPermittedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RetryPolicyTest
+{
+	private final RetryPolicy retryPolicy = createRetryPolicy();
+	private final AtomicInteger attempts = new AtomicInteger();
+
+	@Test
+	void should_retry_idempotent_call_on_retryable_status()
+	{
+		assertThatThrownBy(() -> failWith(WebClientResponseException.create(503, "", null, null, null))
+				.retryWhen(retryPolicy.forMethod(HttpMethod.GET))
+				.block()).isInstanceOf(WebClientResponseException.class);
+
+		assertThat(attempts.get()).isEqualTo(3);
+	}
+
+	@Test
+	void should_retry_idempotent_call_on_io_error()
+	{
+		assertThatThrownBy(() -> failWith(new RuntimeException(new IOException("connection reset")))
+				.retryWhen(retryPolicy.forMethod(HttpMethod.PUT))
+				.block()).hasCauseInstanceOf(IOException.class);
+
+		assertThat(attempts.get()).isEqualTo(3);
+	}
+
+	@Test
+	void should_not_retry_non_retryable_status()
+	{
+		assertThatThrownBy(() -> failWith(WebClientResponseException.create(400, "", null, null, null))
+				.retryWhen(retryPolicy.forMethod(HttpMethod.GET))
+				.block()).isInstanceOf(WebClientResponseException.class);
+
+		assertThat(attempts.get()).isEqualTo(1);
+	}
+
+	@Test
+	void should_not_retry_non_idempotent_call()
+	{
+		assertThatThrownBy(() -> failWith(WebClientResponseException.create(503, "", null, null, null))
+				.retryWhen(retryPolicy.forMethod(HttpMethod.POST))
+				.block()).isInstanceOf(WebClientResponseException.class);
+
+		assertThat(attempts.get()).isEqualTo(1);
+	}
+
+	@Test
+	void should_not_retry_rejected_call()
+	{
+		assertThatThrownBy(() -> failWith(new CallNotPermittedException("open"))
+				.retryWhen(retryPolicy.forMethod(HttpMethod.GET))
+				.block()).isInstanceOf(CallNotPermittedException.class);
+
+		assertThat(attempts.get()).isEqualTo(1);
+	}
+
+	private Mono<String> failWith(final RuntimeException e)
+	{
+		return Mono.defer(() -> {
+			attempts.incrementAndGet();
+			return Mono.error(e);
+		});
+	}
+
+	private static RetryPolicy createRetryPolicy()
+	{
+		final CaasWebClientProperties.Retry retry = new CaasWebClientProperties.Retry();
+		retry.setMaxAttempts(2);
+		retry.setMinBackoffMs(1);
+		retry.setMaxBackoffMs(2);
+		return new RetryPolicy(retry);
+	}
+}
@@ -0,0 +1,115 @@
+package com.hybris.caas.client.token;
+
+import com.hybris.caas.client.config.utils.CaasWebClientProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OauthTokenCacheTest
+{
+	private static final String TENANT = "tenant";
+
+	private final Clock clock = Clock.fixed(Instant.parse("2020-10-01T10:00:00Z"), ZoneOffset.UTC);
+	private final CaasWebClientProperties.TokenCache properties = new CaasWebClientProperties.TokenCache();
+	private final AtomicInteger fetches = new AtomicInteger();
+
+	@BeforeEach
+	void setUp()
+	{
+		properties.setMaxSize(10);
+		properties.setExpirySafetyMarginMs(60_000);
+		properties.setRefreshAheadMs(300_000);
+	}
+
+	@Test
+	void should_share_in_flight_token_request()
+	{
+		final CompletableFuture<OauthToken> response = new CompletableFuture<>();
+		final OauthTokenCache cache = new OauthTokenCache(properties, tenantId -> {
+			fetches.incrementAndGet();
+			return Mono.fromFuture(response);
+		}, clock);
+
+		final CompletableFuture<OauthToken> first = cache.getToken(TENANT).toFuture();
+		final CompletableFuture<OauthToken> second = cache.getToken(TENANT).toFuture();
+		response.complete(token("abc", 3600));
+
+		assertThat(first.join().getAccessToken()).isEqualTo("abc");
+		assertThat(second.join().getAccessToken()).isEqualTo("abc");
+		assertThat(fetches.get()).isEqualTo(1);
+	}
+
+	@Test
+	void should_serve_valid_token_from_cache()
+	{
+		final OauthTokenCache cache = new OauthTokenCache(properties, tenantId -> {
+			fetches.incrementAndGet();
+			return Mono.just(token("abc", 3600));
+		}, clock);
+
+		assertThat(cache.isCached(TENANT)).isFalse();
+		cache.getToken(TENANT).block();
+		assertThat(cache.isCached(TENANT)).isTrue();
+		final OauthToken token = cache.getToken(TENANT).block();
+
+		assertThat(token.getAccessToken()).isEqualTo("abc");
+		assertThat(token.getAuthorizationHeader()).isEqualTo("Bearer abc");
+		assertThat(fetches.get()).isEqualTo(1);
+	}
+
+	@Test
+	void should_refetch_token_expiring_within_safety_margin()
+	{
+		final OauthTokenCache cache = new OauthTokenCache(properties, tenantId -> {
+			fetches.incrementAndGet();
+			return Mono.just(token("abc", 30));
+		}, clock);
+
+		cache.getToken(TENANT).block();
+		cache.getToken(TENANT).block();
+
+		assertThat(fetches.get()).isGreaterThanOrEqualTo(2);
+	}
+
+	@Test
+	void should_refresh_token_ahead_of_expiry()
+	{
+		final OauthTokenCache cache = new OauthTokenCache(properties,
+				tenantId -> Mono.just(fetches.incrementAndGet() == 1 ? token("old", 200) : token("new", 3600)), clock);
+
+		final OauthToken first = cache.getToken(TENANT).block();
+		final OauthToken second = cache.getToken(TENANT).block();
+
+		assertThat(first.getAccessToken()).isEqualTo("old");
+		assertThat(second.getAccessToken()).isEqualTo("new");
+		assertThat(fetches.get()).isEqualTo(2);
+	}
+
+	@Test
+	void should_fetch_again_after_invalidation()
+	{
+		final OauthTokenCache cache = new OauthTokenCache(properties, tenantId -> {
+			fetches.incrementAndGet();
+			return Mono.just(token("abc", 3600));
+		}, clock);
+
+		cache.getToken(TENANT).block();
+		cache.invalidate(TENANT);
+		cache.getToken(TENANT).block();
+
+		assertThat(fetches.get()).isEqualTo(2);
+	}
+
+	private OauthToken token(final String accessToken, final long expiresInSeconds)
+	{
+		return new OauthToken(accessToken, clock.instant().plusSeconds(expiresInSeconds));
+	}
+}
@@ -4,29 +4,55 @@ import brave.Tracer;
 import brave.kafka.clients.KafkaTracing;
 import com.hybris.caas.error.converter.ExceptionConverter;
 import com.hybris.caas.kafka.error.CaasKafkaLoggingErrorHandler;
+import com.hybris.caas.kafka.error.CaasKafkaRecoveringBatchErrorHandler;
 import com.hybris.caas.kafka.error.RetryableConsumerDeadLetterPublishingRecoverer;
 import com.hybris.caas.kafka.error.RetryableConsumerDestinationTopicResolver;
 import com.hybris.caas.kafka.interceptor.RetryableConsumerAfterRollbackProcessorDecorator;
+import com.hybris.caas.kafka.interceptor.RetryableConsumerBatchMessageListener;
 import com.hybris.caas.kafka.interceptor.RetryableConsumerErrorHandler;
 import com.hybris.caas.kafka.interceptor.RetryableConsumerRecordInterceptor;
+import com.hybris.caas.kafka.interceptor.RetryTopicPartitionPauser;
+import com.hybris.caas.kafka.listener.BatchMessageProcessor;
+import com.hybris.caas.kafka.listener.KeyOrderedExecutor;
+import com.hybris.caas.kafka.listener.KeyOrderedIdleCommitter;
+import com.hybris.caas.kafka.listener.KeyOrderedMessageListener;
+import com.hybris.caas.kafka.message.ByteArrayPassThroughSerializer;
+import com.hybris.caas.kafka.message.ContentTypeMessageConverter;
+import com.hybris.caas.kafka.metrics.MicrometerRetryableConsumerMetricsListener;
+import com.hybris.caas.kafka.metrics.RetryableConsumerMetricsListener;
+import com.hybris.caas.kafka.metrics.RetryableConsumerMetricsMessageListener;
 import com.hybris.caas.kafka.tracing.ConsumerRecordTracing;
+import com.hybris.caas.kafka.transaction.AsyncKafkaTemplate;
 import com.hybris.caas.kafka.transaction.SyncKafkaTemplate;
+import com.hybris.caas.kafka.util.RetryableConsumerRoutingTable;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.RoundRobinAssignor;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.config.ConstructorArgumentValues;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaConsumerFactoryCustomizer;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
 import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
 import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -37,6 +63,7 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.listener.BatchLoggingErrorHandler;
@@ -54,21 +81,25 @@ import org.springframework.retry.backoff.BackOffPolicy;
 import org.springframework.retry.backoff.ExponentialBackOffPolicy;
 import org.springframework.retry.policy.SimpleRetryPolicy;
 import org.springframework.retry.support.RetryTemplate;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.backoff.FixedBackOff;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.hybris.caas.kafka.util.CaasKafkaConstants.DEAD_LETTER_TOPIC_SUFFIX;
-import static com.hybris.caas.kafka.util.CaasKafkaConstants.IDLE_BETWEEN_RETRY_POLLS_MS;
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.KEY_ORDERED_IDLE_COMMIT_INTERVAL_MS;
 import static com.hybris.caas.kafka.util.CaasKafkaConstants.LONG_DELAY_RETRY_TOPIC_SUFFIX;
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.RETRY_PARTITION_RESUME_CHECK_INTERVAL_MS;
 import static com.hybris.caas.kafka.util.CaasKafkaConstants.SHORT_DELAY_RETRY_TOPIC_SUFFIX;
 
 /**
@@ -78,6 +109,7 @@ import static com.hybris.caas.kafka.util.CaasKafkaConstants.SHORT_DELAY_RETRY_TO
 @Configuration
 @EnableConfigurationProperties(CaasKafkaProperties.class)
 @AutoConfigureBefore(KafkaAutoConfiguration.class)
+@AutoConfigureAfter(name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
 @PropertySource("classpath:kafka.properties")
 public class CaasKafkaConfig
 {
@@ -194,10 +226,16 @@ public class CaasKafkaConfig
 		return new SyncKafkaTemplate(kafkaTemplate, caasKafkaProperties);
 	}
 
+	@Bean
+	public AsyncKafkaTemplate asyncKafkaTemplate(final KafkaTemplate kafkaTemplate)
+	{
+		return new AsyncKafkaTemplate(kafkaTemplate, caasKafkaProperties);
+	}
+
 	@Bean
 	@ConditionalOnMissingBean(ConsumerFactory.class)
 	@SuppressWarnings("squid:S1452")
-	public ConsumerFactory<?, ?> kafkaConsumerFactory()
+	public ConsumerFactory<?, ?> kafkaConsumerFactory(final ObjectProvider<DefaultKafkaConsumerFactoryCustomizer> customizers)
 	{
 		final KafkaProperties.Consumer consumer = kafkaProperties.getConsumer();
 
@@ -207,7 +245,17 @@ public class CaasKafkaConfig
 		// disable auto commit
 		consumer.setEnableAutoCommit(false);
 
-		return new DefaultKafkaConsumerFactory<>(this.kafkaProperties.buildConsumerProperties());
+		if (caasKafkaProperties.getSerialization().isEnabled())
+		{
+			// values are deserialized by the message converter, straight from the bytes
+			consumer.setValueDeserializer(ByteArrayDeserializer.class);
+		}
+
+		final DefaultKafkaConsumerFactory<Object, Object> factory = new DefaultKafkaConsumerFactory<>(
+				this.kafkaProperties.buildConsumerProperties());
+		// e.g. the micrometer consumer listener binding the kafka client metrics, including the consumer lag
+		customizers.orderedStream().forEach(customizer -> customizer.customize(factory));
+		return factory;
 	}
 
 	@Bean
@@ -226,8 +274,8 @@ public class CaasKafkaConfig
 		factory.setConcurrency(caasKafkaProperties.getBatch().getConcurrency());
 		factory.setMessageConverter(new BatchMessagingMessageConverter(messageConverter));
 		factory.setBatchListener(true);
-		// register error handler
-		factory.setBatchErrorHandler(new BatchLoggingErrorHandler());
+		// register error handler, committing the records processed before the failed record reported by BatchMessageProcessor
+		factory.setBatchErrorHandler(new CaasKafkaRecoveringBatchErrorHandler(caasKafkaProperties.getBatch().getRedeliveryInterval()));
 
 		final ContainerProperties containerProperties = factory.getContainerProperties();
 		containerProperties.setTransactionManager(null);
@@ -236,6 +284,58 @@ public class CaasKafkaConfig
 		return factory;
 	}
 
+	@Bean
+	@ConditionalOnProperty(name = "caas.kafka.key-ordered.enabled", havingValue = "true")
+	public KeyOrderedExecutor keyOrderedExecutor()
+	{
+		return new KeyOrderedExecutor(caasKafkaProperties.getKeyOrdered().getWorkers());
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "caas.kafka.key-ordered.enabled", havingValue = "true")
+	public KeyOrderedIdleCommitter keyOrderedIdleCommitter()
+	{
+		return new KeyOrderedIdleCommitter();
+	}
+
+	@Bean
+	@ConditionalOnMissingBean(name = "keyOrderedKafkaListenerContainerFactory")
+	@ConditionalOnProperty(name = "caas.kafka.key-ordered.enabled", havingValue = "true")
+	@SuppressWarnings("squid:S1452")
+	public ConcurrentKafkaListenerContainerFactory<?, ?> keyOrderedKafkaListenerContainerFactory(
+			final ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+			final ConsumerFactory<Object, Object> kafkaConsumerFactory, final RecordMessageConverter messageConverter,
+			final ErrorHandler errorHandler, final KeyOrderedExecutor keyOrderedExecutor)
+	{
+		LOG.info("CaaS Kafka - registering key ordered concurrent kafka listener container");
+
+		final CaasKafkaProperties.KeyOrdered keyOrdered = caasKafkaProperties.getKeyOrdered();
+
+		final ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+		configurer.configure(factory, kafkaConsumerFactory);
+
+		factory.setConcurrency(keyOrdered.getConcurrency());
+		factory.setMessageConverter(messageConverter);
+		// the record errors are handled on the workers, the batch error handler only handles dispatching errors
+		factory.setBatchErrorHandler(new BatchLoggingErrorHandler());
+
+		// wrap the record listener of each container to dispatch the polled records to the workers by key
+		factory.setContainerCustomizer(container -> {
+			final KeyOrderedMessageListener<Object, Object> listener = new KeyOrderedMessageListener<>(
+					container.getContainerProperties().getMessageListener(), keyOrderedExecutor, errorHandler,
+					keyOrdered.getMaxInFlight(), keyOrdered.getRevocationTimeout(), container);
+			container.setupMessageListener(listener);
+			container.getContainerProperties().setConsumerRebalanceListener(listener);
+		});
+
+		final ContainerProperties containerProperties = factory.getContainerProperties();
+		containerProperties.setTransactionManager(null);
+		// offsets are committed by the key ordered listener once the records completed
+		containerProperties.setAckMode(AckMode.MANUAL);
+		containerProperties.setIdleEventInterval(KEY_ORDERED_IDLE_COMMIT_INTERVAL_MS);
+		return factory;
+	}
+
 	@Bean
 	@ConditionalOnMissingBean(name = "kafkaListenerContainerFactory")
 	@SuppressWarnings("squid:S1452")
@@ -305,10 +405,12 @@ public class CaasKafkaConfig
 	@ConditionalOnExpression("!'${caas.kafka.listener.retryable-consumer.transaction-id-prefix:}'.isEmpty()")
 	RetryableConsumerDeadLetterPublishingRecoverer retryableConsumerDeadLetterPublishingRecoverer(
 			final ContainerKafkaTemplate containerKafkaTemplate,
-			final Map<String, CaasKafkaProperties.RetryableConsumer> retryableConsumerMap)
+			final RetryableConsumerRoutingTable retryableConsumerRoutingTable,
+			final ObjectProvider<RetryableConsumerMetricsListener> metricsListener)
 	{
 		return new RetryableConsumerDeadLetterPublishingRecoverer(containerKafkaTemplate.getKafkaTemplate(),
-				new RetryableConsumerDestinationTopicResolver(retryableConsumerMap)::getTopicPartition);
+				new RetryableConsumerDestinationTopicResolver(retryableConsumerRoutingTable,
+						metricsListener.getIfAvailable(() -> RetryableConsumerMetricsListener.NONE))::getTopicPartition);
 	}
 
 	@Bean
@@ -330,6 +432,23 @@ public class CaasKafkaConfig
 		return retryableConsumerMap;
 	}
 
+	@Bean
+	@ConditionalOnProperty(name = "spring.kafka.producer.transaction-id-prefix")
+	@ConditionalOnExpression("!'${caas.kafka.listener.retryable-consumer.transaction-id-prefix:}'.isEmpty()")
+	RetryableConsumerRoutingTable retryableConsumerRoutingTable(
+			final Map<String, CaasKafkaProperties.RetryableConsumer> retryableConsumerMap)
+	{
+		return new RetryableConsumerRoutingTable(retryableConsumerMap);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "spring.kafka.producer.transaction-id-prefix")
+	@ConditionalOnExpression("!'${caas.kafka.listener.retryable-consumer.transaction-id-prefix:}'.isEmpty()")
+	RetryTopicPartitionPauser retryTopicPartitionPauser()
+	{
+		return new RetryTopicPartitionPauser();
+	}
+
 	@Bean
 	@ConditionalOnProperty(name = "spring.kafka.producer.transaction-id-prefix")
 	@ConditionalOnExpression("!'${caas.kafka.listener.retryable-consumer.transaction-id-prefix:}'.isEmpty()")
@@ -340,9 +459,11 @@ public class CaasKafkaConfig
 			final ContainerKafkaTemplate containerKafkaTemplate,
 			final ContainerKafkaTransactionManager containerKafkaTransactionManager,
 			final RetryableConsumerDeadLetterPublishingRecoverer retryableConsumerDeadLetterPublishingRecoverer,
-			final Map<String, CaasKafkaProperties.RetryableConsumer> retryableConsumerMap,
+			final RetryableConsumerRoutingTable retryableConsumerRoutingTable,
+			final RetryTopicPartitionPauser retryTopicPartitionPauser,
 			final Map<Class<? extends Throwable>, Boolean> kafkaListenerRetryExceptionsMap,
-			final Optional<RecoveryCallback<?>> optionalRecoveryCallback)
+			final Optional<RecoveryCallback<?>> optionalRecoveryCallback,
+			final ObjectProvider<RetryableConsumerMetricsListener> optionalMetricsListener)
 	{
 		LOG.info("A Retryable concurrent kafka listener container factory bean is being instantiated");
 		final ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
@@ -360,11 +481,39 @@ public class CaasKafkaConfig
 		factory.setConcurrency(retryableConsumerListener.getConcurrency());
 		factory.setMessageConverter(messageConverter);
 
-		// register record interceptor
-		factory.setRecordInterceptor(new RetryableConsumerRecordInterceptor<>(retryableConsumerMap, IDLE_BETWEEN_RETRY_POLLS_MS));
+		final RetryableConsumerMetricsListener metricsListener = optionalMetricsListener.getIfAvailable(
+				() -> RetryableConsumerMetricsListener.NONE);
+		final RetryableConsumerRecordInterceptor<Object, Object> recordInterceptor = new RetryableConsumerRecordInterceptor<>(
+				retryableConsumerRoutingTable, retryTopicPartitionPauser, metricsListener);
 
-		// register error handler
-		factory.setErrorHandler(new RetryableConsumerErrorHandler(retryableConsumerDeadLetterPublishingRecoverer));
+		if (retryableConsumerListener.isBatchTransactional())
+		{
+			// wrap the record listener of each container to process the records of a poll in a single transaction
+			factory.setContainerCustomizer(container -> container.setupMessageListener(
+					new RetryableConsumerBatchMessageListener<>(container.getContainerProperties().getMessageListener(),
+							recordInterceptor, retryTopicPartitionPauser, retryableConsumerDeadLetterPublishingRecoverer,
+							containerKafkaTemplate.getKafkaTemplate(), retryableConsumerRoutingTable, metricsListener)));
+
+			// no error handler, an error escaping the batch listener rolls the whole batch back
+			factory.setBatchErrorHandler(null);
+		}
+		else
+		{
+			// register record interceptor
+			factory.setRecordInterceptor(recordInterceptor);
+
+			if (metricsListener != RetryableConsumerMetricsListener.NONE)
+			{
+				// wrap the record listener of each container to time the processing of the records
+				factory.setContainerCustomizer(container -> container.setupMessageListener(
+						new RetryableConsumerMetricsMessageListener<>(container.getContainerProperties().getMessageListener(),
+								retryableConsumerRoutingTable, metricsListener)));
+			}
+
+			// register error handler
+			factory.setErrorHandler(
+					new RetryableConsumerErrorHandler(retryableConsumerDeadLetterPublishingRecoverer, retryTopicPartitionPauser));
+		}
 
 		// enable and configure retry on failed message processing, if enabled via caas.kafka.listener.retry.enabled: true
 		final CaasKafkaProperties.Retry retry = caasKafkaProperties.getListener().getRetry();
@@ -378,10 +527,21 @@ public class CaasKafkaConfig
 		final ContainerProperties containerProperties = factory.getContainerProperties();
 		containerProperties.setTransactionManager(containerKafkaTransactionManager.getKafkaTransactionManager());
 
-		// configure record-based acknowledgment
-		containerProperties.setAckMode(AckMode.RECORD);
+		if (retryableConsumerListener.isBatchTransactional())
+		{
+			// offsets are sent to the transaction once per batch by the batch listener
+			containerProperties.setAckMode(AckMode.MANUAL);
+		}
+		else
+		{
+			// configure record-based acknowledgment
+			containerProperties.setAckMode(AckMode.RECORD);
+		}
 		containerProperties.setSyncCommits(true);
 
+		// idle events let paused retry topic partitions be resumed on time when no other record is received
+		containerProperties.setIdleEventInterval(RETRY_PARTITION_RESUME_CHECK_INTERVAL_MS);
+
 		return factory;
 	}
 
@@ -455,13 +615,71 @@ public class CaasKafkaConfig
 		return new ConsumerRecordTracing(tracer, kafkaTracing, messageConverter);
 	}
 
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(name = "caas.kafka.batch.enabled", havingValue = "true")
+	public BatchMessageProcessor batchMessageProcessor(final Tracer tracer, final ConsumerRecordTracing consumerRecordTracing,
+			final KafkaTemplate kafkaTemplate, final ObjectProvider<RetryableConsumerRoutingTable> retryableConsumerRoutingTable)
+	{
+		final RetryableConsumerRoutingTable routingTable = retryableConsumerRoutingTable.getIfAvailable();
+
+		// failed records go to the next tier of their retryable consumer, if any, to their dead letter topic otherwise;
+		// published synchronously so that the offset of a record is never committed before the record is recovered
+		final RetryableConsumerDeadLetterPublishingRecoverer recoverer = new RetryableConsumerDeadLetterPublishingRecoverer(
+				kafkaTemplate, (record, exception) -> getBatchDestination(routingTable, record),
+				Duration.ofMillis(caasKafkaProperties.getProducerSendTimeoutMs()));
+
+		return new BatchMessageProcessor(tracer, consumerRecordTracing, recoverer, kafkaTemplate);
+	}
+
+	static TopicPartition getBatchDestination(final RetryableConsumerRoutingTable routingTable, final ConsumerRecord<?, ?> record)
+	{
+		final RetryableConsumerRoutingTable.Route route = Objects.isNull(routingTable) ? null : routingTable.getRoute(record);
+		if (Objects.nonNull(route) && Objects.nonNull(route.getNextHop()))
+		{
+			return route.getNextHop();
+		}
+		return new TopicPartition(record.topic() + DEAD_LETTER_TOPIC_SUFFIX, -1);
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	public RecordMessageConverter messageConverter()
 	{
+		final CaasKafkaProperties.Serialization serialization = caasKafkaProperties.getSerialization();
+		if (serialization.isEnabled())
+		{
+			return new ContentTypeMessageConverter(serialization.getDefaultFormat(), serialization.getTopics());
+		}
 		return new StringJsonMessageConverter();
 	}
 
+	@Bean
+	@ConditionalOnProperty(name = "caas.kafka.serialization.enabled", havingValue = "true")
+	@SuppressWarnings("unchecked")
+	public DefaultKafkaProducerFactoryCustomizer byteArrayValueSerializerCustomizer()
+	{
+		// values are serialized to bytes by the message converter, values sent directly keep the configured serializer
+		return producerFactory -> {
+			final Serializer<?> valueSerializer = createValueSerializer(producerFactory.getConfigurationProperties());
+			((DefaultKafkaProducerFactory<?, Object>) producerFactory).setValueSerializer(
+					new ByteArrayPassThroughSerializer<>(valueSerializer));
+		};
+	}
+
+	private static Serializer<?> createValueSerializer(final Map<String, Object> producerConfigs)
+	{
+		final Object valueSerializer = producerConfigs.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG);
+		final Class<?> valueSerializerClass = valueSerializer instanceof Class ?
+				(Class<?>) valueSerializer :
+				ClassUtils.resolveClassName(Objects.requireNonNull(valueSerializer, "value.serializer must be configured")
+						.toString(), CaasKafkaConfig.class.getClassLoader());
+
+		final Serializer<?> serializer = BeanUtils.instantiateClass(valueSerializerClass, Serializer.class);
+		serializer.configure(producerConfigs, false);
+		return serializer;
+	}
+
 	@Bean
 	@ConditionalOnMissingBean(name = "kafkaListenerRetryExceptionsMap")
 	public Map<Class<? extends Throwable>, Boolean> kafkaListenerRetryExceptionsMap()
@@ -480,6 +698,21 @@ public class CaasKafkaConfig
 		return amountOfConsumer > 0 ? amountOfConsumer : null;
 	}
 
+	@Configuration
+	@ConditionalOnClass(MeterRegistry.class)
+	static class CaasKafkaMetricsConfig
+	{
+		@Bean
+		@ConditionalOnBean(MeterRegistry.class)
+		@ConditionalOnMissingBean(RetryableConsumerMetricsListener.class)
+		@ConditionalOnProperty(prefix = "caas.kafka.metrics", name = "enabled", matchIfMissing = true)
+		public MicrometerRetryableConsumerMetricsListener micrometerRetryableConsumerMetricsListener(
+				final MeterRegistry meterRegistry)
+		{
+			return new MicrometerRetryableConsumerMetricsListener(meterRegistry);
+		}
+	}
+
 	BeanDefinitionRegistry buildBeanDefinitionRegistry(final ConfigurableListableBeanFactory beanFactory)
 	{
 		return (BeanDefinitionRegistry) beanFactory;
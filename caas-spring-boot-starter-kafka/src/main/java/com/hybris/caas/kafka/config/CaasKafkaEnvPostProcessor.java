@@ -1,39 +1,28 @@
 package com.hybris.caas.kafka.config;
 
 import com.hybris.caas.kafka.error.CaasKafkaConfigurationException;
-import org.apache.commons.lang3.RandomStringUtils;
+import com.hybris.caas.kafka.security.CaasKafkaOAuthBearerLoginCallbackHandler;
+import com.hybris.caas.kafka.security.CaasKafkaPlainClientCallbackHandler;
+import com.hybris.caas.kafka.security.KafkaAccessTokenProvider;
+import com.hybris.caas.kafka.security.TrustStoreCache;
+import org.apache.kafka.common.config.SaslConfigs;
+import org.apache.kafka.common.security.oauthbearer.OAuthBearerLoginModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.boot.env.EnvironmentPostProcessor;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.MapPropertySource;
 import org.springframework.core.env.MutablePropertySources;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
-import org.springframework.security.authentication.AnonymousAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.oauth2.client.OAuth2AuthorizationContext;
-import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
-import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProvider;
-import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
-import org.springframework.security.oauth2.client.registration.ClientRegistration;
-import org.springframework.security.oauth2.core.AuthorizationGrantType;
-import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
-import org.springframework.security.oauth2.core.OAuth2AccessToken;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Flux;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.KeyStore;
-import java.security.cert.CertificateFactory;
-import java.security.cert.X509Certificate;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -54,7 +43,9 @@ import java.util.Optional;
  * Details:
  * <p>
  * The CA root certificate it's downloaded from <code>${vcap.services.${caas.kafka.vcap-service-name}.credentials.urls.ca_cert}</code>.
- * And a temporary ssl trust store is created with a random password.
+ * And a ssl trust store is created with a random password on every startup. When
+ * <code>caas.kafka.security.trust-store-cache-dir</code> is set, the certificate is cached there by {@link TrustStoreCache}
+ * so that restarts reuse it until it expires.
  * The location and password are provided as the <code>caas.kafka.ssl.trust-store-location</code> and
  * <code>caas.kafka.ssl.trust-store-location</code> properties.
  * <p>
@@ -62,6 +53,9 @@ import java.util.Optional;
  * <p>
  * The caas.kafka.jaas.password is obtained by getting an OAuth2 access token from
  * <code>${vcap.services.<${caas.kafka.vcap-service-name}.credentials.urls.token}</code>.
+ * The token is refreshed in the background by the registered {@link KafkaAccessTokenProvider}, and the Kafka clients are
+ * configured to authenticate with the current token through {@link CaasKafkaPlainClientCallbackHandler}, or
+ * {@link CaasKafkaOAuthBearerLoginCallbackHandler} when <code>caas.kafka.security.sasl-mechanism=OAUTHBEARER</code>.
  */
 public class CaasKafkaEnvPostProcessor implements EnvironmentPostProcessor
 {
@@ -72,6 +66,12 @@ public class CaasKafkaEnvPostProcessor implements EnvironmentPostProcessor
 	private static final String CAAS_KAFKA_SSL_TRUST_STORE_PASSWORD = "caas.kafka.ssl.trust-store-password";
 
 	private static final String CAAS_KAFKA_VCAP_SERVICE_NAME = "caas.kafka.vcap-service-name";
+	private static final String CAAS_KAFKA_SECURITY = "caas.kafka.security";
+
+	private static final String SPRING_KAFKA_PROPERTIES = "spring.kafka.properties.";
+	private static final String SPRING_KAFKA_JAAS_LOGIN_MODULE = "spring.kafka.jaas.login-module";
+
+	private static final Duration CA_CERT_DOWNLOAD_TIMEOUT = Duration.ofSeconds(30);
 
 	@Override
 	public void postProcessEnvironment(final ConfigurableEnvironment environment, final SpringApplication application)
@@ -88,7 +88,6 @@ public class CaasKafkaEnvPostProcessor implements EnvironmentPostProcessor
 		var password = environment.getProperty(String.format("vcap.services.%s.credentials.password", kafkaServiceName));
 		var caCertLocation = environment.getProperty(String.format("vcap.services.%s.credentials.urls.ca_cert", kafkaServiceName));
 		var tokenUrl = environment.getProperty(String.format("vcap.services.%s.credentials.urls.token", kafkaServiceName));
-		var truststorePassword = RandomStringUtils.random(16, true, true);
 
 		if (Objects.isNull(username))
 		{
@@ -97,103 +96,78 @@ public class CaasKafkaEnvPostProcessor implements EnvironmentPostProcessor
 			return;
 		}
 
-		var oauthToken = requestOauthToken(username, password, tokenUrl);
-		var caCertFilePath = downloadRootCertificateAuthority(caCertLocation);
-		var truststorePath = generateKeystore(truststorePassword, caCertFilePath);
+		var security = Binder.get(environment)
+				.bind(CAAS_KAFKA_SECURITY, CaasKafkaProperties.Security.class)
+				.orElseGet(CaasKafkaProperties.Security::new);
+
+		// shared by the sasl callback handlers of all the kafka clients
+		var tokenProvider = new KafkaAccessTokenProvider(username, password, tokenUrl, security.getTokenRefreshWindowFactor());
+		KafkaAccessTokenProvider.register(tokenProvider);
+		var oauthToken = tokenProvider.getAccessToken().getTokenValue();
+
+		var trustStore = new TrustStoreCache(getTrustStoreCacheDir(security)).getTrustStore(caCertLocation,
+				() -> downloadRootCertificateAuthority(caCertLocation));
 
-		addPropertySource(environment, username, oauthToken, truststorePassword, truststorePath);
+		addPropertySource(environment, username, oauthToken, trustStore, security.getSaslMechanism());
 	}
 
-	private String requestOauthToken(final String username, final String password, final String tokenUri)
+	private Path getTrustStoreCacheDir(final CaasKafkaProperties.Security security)
 	{
-		final ClientRegistration kafkaClientRegistration = ClientRegistration.withRegistrationId("kafka")
-				.clientAuthenticationMethod(ClientAuthenticationMethod.BASIC)
-				.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
-				.clientId(username)
-				.clientSecret(password)
-				.tokenUri(tokenUri)
-				.build();
-
-		final AnonymousAuthenticationToken principal = new AnonymousAuthenticationToken("anonymous-key", "kafka",
-				List.of(new SimpleGrantedAuthority("anonymous")));
-
-		final OAuth2AuthorizationContext oAuth2Context = OAuth2AuthorizationContext.withClientRegistration(kafkaClientRegistration)
-				.principal(principal)
-				.build();
-
-		final OAuth2AuthorizedClientProvider authorizedClientProvider = OAuth2AuthorizedClientProviderBuilder.builder()
-				.clientCredentials()
-				.build();
-
-		return Optional.ofNullable(authorizedClientProvider.authorize(oAuth2Context))
-				.map(OAuth2AuthorizedClient::getAccessToken)
-				.map(OAuth2AccessToken::getTokenValue)
-				.orElseThrow(() -> new IllegalArgumentException("Unable to retrieve OAuth2 access token for Kafka cluster."));
+		return Optional.ofNullable(security.getTrustStoreCacheDir())
+				.map(Paths::get)
+				.orElse(null);
 	}
 
-	private Path downloadRootCertificateAuthority(final String caCertLocation)
+	private byte[] downloadRootCertificateAuthority(final String caCertLocation)
 	{
 		try
 		{
 			final WebClient client = WebClient.create(caCertLocation);
-			final Flux<DataBuffer> dataBufferFlux = client.get().retrieve().bodyToFlux(DataBuffer.class);
 
-			final Path rootCAPath = Files.createTempFile("rootCA_", ".crt");
-			DataBufferUtils.write(dataBufferFlux, rootCAPath).block();
-			return rootCAPath;
+			return client.get()
+					.retrieve()
+					.bodyToFlux(DataBuffer.class)
+					.as(DataBufferUtils::join)
+					.map(dataBuffer -> {
+						final byte[] bytes = new byte[dataBuffer.readableByteCount()];
+						dataBuffer.read(bytes);
+						DataBufferUtils.release(dataBuffer);
+						return bytes;
+					})
+					.blockOptional(CA_CERT_DOWNLOAD_TIMEOUT)
+					.orElseThrow(() -> new IllegalStateException("Empty SAP CP kafka root CA certificate"));
 		}
-		catch (IOException e)
+		catch (RuntimeException e)
 		{
 			throw new CaasKafkaConfigurationException("Unable to fetch SAP CP kafka root CA certificate", e);
 		}
 	}
 
-	private Path generateKeystore(final String keystorePassword, final Path caCertFilePath)
-	{
-		final Path truststorePath;
-		try
-		{
-			truststorePath = Files.createTempFile("truststore_", ".jks");
-		}
-		catch (IOException e)
-		{
-			throw new CaasKafkaConfigurationException("Unable to create truststore jks file", e);
-		}
-
-		try (final OutputStream fos = Files.newOutputStream(truststorePath);
-				final InputStream input = Files.newInputStream(caCertFilePath))
-		{
-			// create new keystore in memory
-			final KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
-			final char[] password = keystorePassword.toCharArray();
-			keystore.load(null, password); // null creates a new keystore
-
-			// add the CA cert into the keystore
-			final CertificateFactory factory = CertificateFactory.getInstance("X.509");
-			final X509Certificate cert = (X509Certificate) factory.generateCertificate(input);
-			keystore.setCertificateEntry("sap-cp-kafka-root", cert);
-
-			// write the keystore into the filesystem
-			keystore.store(fos, password);
-
-			return truststorePath;
-		}
-		catch (Exception e)
-		{
-			throw new CaasKafkaConfigurationException("Unable to store certificate into truststore", e);
-		}
-	}
-
 	private void addPropertySource(final ConfigurableEnvironment environment, final String username, final String oauthToken,
-			final String truststorePassword, final Path truststorePath)
+			final TrustStoreCache.TrustStore trustStore, final CaasKafkaProperties.SaslMechanism saslMechanism)
 	{
 		final MutablePropertySources propertySources = environment.getPropertySources();
 		final Map<String, Object> properties = new HashMap<>();
 
 		properties.put(CAAS_KAFKA_JAAS_USERNAME, username);
 		properties.put(CAAS_KAFKA_JAAS_PASSWORD, oauthToken);
-		properties.put(CAAS_KAFKA_SSL_TRUST_STORE_LOCATION, "file:" + truststorePath.toFile().getAbsolutePath());
-		properties.put(CAAS_KAFKA_SSL_TRUST_STORE_PASSWORD, truststorePassword);
+		properties.put(CAAS_KAFKA_SSL_TRUST_STORE_LOCATION, "file:" + trustStore.getLocation().toFile().getAbsolutePath());
+		properties.put(CAAS_KAFKA_SSL_TRUST_STORE_PASSWORD, trustStore.getPassword());
+
+		if (saslMechanism == CaasKafkaProperties.SaslMechanism.OAUTHBEARER)
+		{
+			properties.put(SPRING_KAFKA_PROPERTIES + SaslConfigs.SASL_MECHANISM, OAuthBearerLoginModule.OAUTHBEARER_MECHANISM);
+			properties.put(SPRING_KAFKA_JAAS_LOGIN_MODULE, OAuthBearerLoginModule.class.getName());
+			properties.put(SPRING_KAFKA_PROPERTIES + SaslConfigs.SASL_LOGIN_CALLBACK_HANDLER_CLASS,
+					CaasKafkaOAuthBearerLoginCallbackHandler.class.getName());
+		}
+		else if (isPlainMechanism(environment)
+				&& Objects.isNull(environment.getProperty(SPRING_KAFKA_PROPERTIES + SaslConfigs.SASL_CLIENT_CALLBACK_HANDLER_CLASS)))
+		{
+			// each new connection is authenticated with the current token rather than the one of the jaas password
+			properties.put(SPRING_KAFKA_PROPERTIES + SaslConfigs.SASL_CLIENT_CALLBACK_HANDLER_CLASS,
+					CaasKafkaPlainClientCallbackHandler.class.getName());
+		}
 
 		propertySources.addFirst(new MapPropertySource(CaasKafkaEnvPostProcessor.class.getSimpleName(), properties));
 
@@ -202,4 +176,12 @@ public class CaasKafkaEnvPostProcessor implements EnvironmentPostProcessor
 			logger.debug("Added properties: {}", properties);
 		}
 	}
+
+	private boolean isPlainMechanism(final ConfigurableEnvironment environment)
+	{
+		// the PLAIN default of kafka.properties is not loaded yet, only a mechanism set by the service is
+		return CaasKafkaProperties.SaslMechanism.PLAIN.name()
+				.equals(environment.getProperty(SPRING_KAFKA_PROPERTIES + SaslConfigs.SASL_MECHANISM,
+						CaasKafkaProperties.SaslMechanism.PLAIN.name()));
+	}
 }
@@ -0,0 +1,86 @@
+package com.hybris.caas.kafka.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hybris.caas.kafka.outbox.KafkaOutbox;
+import com.hybris.caas.kafka.outbox.OutboxRelay;
+import com.hybris.caas.kafka.outbox.OutboxRepository;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.converter.RecordMessageConverter;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+
+@Configuration
+@AutoConfigureAfter({ HibernateJpaAutoConfiguration.class, KafkaAutoConfiguration.class })
+@ConditionalOnClass(name = "javax.persistence.EntityManagerFactory")
+@ConditionalOnProperty(name = "caas.kafka.outbox.enabled", havingValue = "true")
+public class CaasKafkaOutboxConfig
+{
+	private static final Logger LOG = LoggerFactory.getLogger(CaasKafkaOutboxConfig.class);
+	static final String OUTBOX_CLIENT_ID_SUFFIX = "-outbox";
+
+	private final CaasKafkaProperties caasKafkaProperties;
+	private final KafkaProperties kafkaProperties;
+
+	public CaasKafkaOutboxConfig(final CaasKafkaProperties caasKafkaProperties, final KafkaProperties kafkaProperties)
+	{
+		this.caasKafkaProperties = caasKafkaProperties;
+		this.kafkaProperties = kafkaProperties;
+	}
+
+	@Bean
+	public OutboxRepository outboxRepository(final EntityManagerFactory entityManagerFactory,
+			final ObjectProvider<ObjectMapper> objectMapper)
+	{
+		return new OutboxRepository(SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory),
+				objectMapper.getIfAvailable(ObjectMapper::new), caasKafkaProperties.getOutbox().getTableName());
+	}
+
+	@Bean
+	public KafkaOutbox kafkaOutbox(final OutboxRepository outboxRepository, final RecordMessageConverter messageConverter)
+	{
+		return new KafkaOutbox(outboxRepository, messageConverter, caasKafkaProperties.getOutbox().getPartitions());
+	}
+
+	/**
+	 * The relay runs its own transactions on the JPA transaction manager named "transactionManager", and sends the
+	 * messages with a dedicated idempotent producer, the kafka template of the application being possibly transactional.
+	 */
+	@Bean
+	public OutboxRelay outboxRelay(final OutboxRepository outboxRepository,
+			@Qualifier(CaasKafkaTransactionConfig.TX_MANAGER_BEAN_NAME) final PlatformTransactionManager transactionManager)
+	{
+		LOG.info("CaaS Kafka - created kafka outbox relay for table '{}'", caasKafkaProperties.getOutbox().getTableName());
+		return new OutboxRelay(outboxRepository, new TransactionTemplate(transactionManager),
+				new KafkaTemplate<>(outboxProducerFactory()), caasKafkaProperties.getOutbox(),
+				caasKafkaProperties.getProducerSendTimeoutMs());
+	}
+
+	DefaultKafkaProducerFactory<byte[], byte[]> outboxProducerFactory()
+	{
+		final Map<String, Object> properties = kafkaProperties.buildProducerProperties();
+		properties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+		properties.put(ProducerConfig.ACKS_CONFIG, "all");
+		properties.computeIfPresent(ProducerConfig.CLIENT_ID_CONFIG, (key, clientId) -> clientId + OUTBOX_CLIENT_ID_SUFFIX);
+
+		return new DefaultKafkaProducerFactory<>(properties, new ByteArraySerializer(), new ByteArraySerializer());
+	}
+}
@@ -1,11 +1,13 @@
 package com.hybris.caas.kafka.config;
 
+import com.hybris.caas.kafka.message.MessageFormat;
 import com.hybris.caas.kafka.validator.ValidCaasKafkaProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
 import org.springframework.validation.annotation.Validated;
 
 import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
@@ -39,6 +41,12 @@ public class CaasKafkaProperties
 	@Positive
 	private long producerSendTimeoutMs = 60000;
 
+	/**
+	 * The maximum number of messages sent by the async kafka template and not yet acknowledged by the broker.
+	 */
+	@Positive
+	private int producerMaxInFlight = 1000;
+
 	/**
 	 * Whether to create the consumer topics at startup if they don't exist in the kafka broker.
 	 * Mostly used for local dev environments with clean kafka brokers.
@@ -56,6 +64,26 @@ public class CaasKafkaProperties
 	 */
 	private final Batch batch = new Batch();
 
+	/**
+	 * Optional properties for kafka key ordered listener
+	 */
+	private final KeyOrdered keyOrdered = new KeyOrdered();
+
+	/**
+	 * Optional properties for kafka transactional outbox
+	 */
+	private final Outbox outbox = new Outbox();
+
+	/**
+	 * Optional properties for kafka message serialization
+	 */
+	private final Serialization serialization = new Serialization();
+
+	/**
+	 * Optional properties for the connection to the SAP CP kafka backing service, read by {@link CaasKafkaEnvPostProcessor}
+	 */
+	private final Security security = new Security();
+
 	@NotNull
 	@Valid
 	@NestedConfigurationProperty
@@ -101,6 +129,16 @@ public class CaasKafkaProperties
 		this.producerSendTimeoutMs = producerSendTimeoutMs;
 	}
 
+	public int getProducerMaxInFlight()
+	{
+		return producerMaxInFlight;
+	}
+
+	public void setProducerMaxInFlight(final int producerMaxInFlight)
+	{
+		this.producerMaxInFlight = producerMaxInFlight;
+	}
+
 	public Listener getListener()
 	{
 		return listener;
@@ -111,6 +149,26 @@ public class CaasKafkaProperties
 		return batch;
 	}
 
+	public KeyOrdered getKeyOrdered()
+	{
+		return keyOrdered;
+	}
+
+	public Outbox getOutbox()
+	{
+		return outbox;
+	}
+
+	public Serialization getSerialization()
+	{
+		return serialization;
+	}
+
+	public Security getSecurity()
+	{
+		return security;
+	}
+
 	public Map<String, Producer> getProducer()
 	{
 		return producer;
@@ -504,6 +562,12 @@ public class CaasKafkaProperties
 		 */
 		private String transactionIdPrefix;
 
+		/**
+		 * Whether the records of a poll are processed in a single transaction, committing their offsets once per poll,
+		 * instead of one transaction per record.
+		 */
+		private boolean batchTransactional;
+
 		public int getMaxAttempts()
 		{
 			return maxAttempts;
@@ -533,6 +597,16 @@ public class CaasKafkaProperties
 		{
 			this.transactionIdPrefix = transactionIdPrefix;
 		}
+
+		public boolean isBatchTransactional()
+		{
+			return batchTransactional;
+		}
+
+		public void setBatchTransactional(final boolean batchTransactional)
+		{
+			this.batchTransactional = batchTransactional;
+		}
 	}
 
 	public static class Listener
@@ -675,6 +749,71 @@ public class CaasKafkaProperties
 		 */
 		@Min(1)
 		private int concurrency = 5;
+		/**
+		 * Delay before redelivering the records of a batch from the first record that could not be recovered.
+		 */
+		@NotNull
+		private Duration redeliveryInterval = Duration.ofSeconds(1);
+
+		public boolean isEnabled()
+		{
+			return enabled;
+		}
+
+		public void setEnabled(final boolean enabled)
+		{
+			this.enabled = enabled;
+		}
+
+		public int getConcurrency()
+		{
+			return concurrency;
+		}
+
+		public void setConcurrency(final int concurrency)
+		{
+			this.concurrency = concurrency;
+		}
+
+		public Duration getRedeliveryInterval()
+		{
+			return redeliveryInterval;
+		}
+
+		public void setRedeliveryInterval(final Duration redeliveryInterval)
+		{
+			this.redeliveryInterval = redeliveryInterval;
+		}
+	}
+
+	public static class KeyOrdered
+	{
+		/**
+		 * Whether key ordered parallel processing support should be enabled.
+		 */
+		private boolean enabled;
+		/**
+		 * Key ordered container factory concurrency.
+		 */
+		@Min(1)
+		private int concurrency = 1;
+		/**
+		 * Number of worker threads processing the records in parallel, shared by all key ordered listeners.
+		 */
+		@Min(1)
+		private int workers = 16;
+		/**
+		 * Maximum number of records dispatched to the workers and not yet processed, per listener.
+		 */
+		@Min(1)
+		private int maxInFlight = 1000;
+		/**
+		 * Maximum time to wait for the dispatched records of revoked partitions to complete before handing the partitions
+		 * over, must be lower than the {@code max.poll.interval.ms} of the consumer. The records which did not complete are
+		 * processed again by the new owner of their partition.
+		 */
+		@NotNull
+		private Duration revocationTimeout = Duration.ofSeconds(30);
 
 		public boolean isEnabled()
 		{
@@ -695,5 +834,232 @@ public class CaasKafkaProperties
 		{
 			this.concurrency = concurrency;
 		}
+
+		public int getWorkers()
+		{
+			return workers;
+		}
+
+		public void setWorkers(final int workers)
+		{
+			this.workers = workers;
+		}
+
+		public int getMaxInFlight()
+		{
+			return maxInFlight;
+		}
+
+		public void setMaxInFlight(final int maxInFlight)
+		{
+			this.maxInFlight = maxInFlight;
+		}
+
+		public Duration getRevocationTimeout()
+		{
+			return revocationTimeout;
+		}
+
+		public void setRevocationTimeout(final Duration revocationTimeout)
+		{
+			this.revocationTimeout = revocationTimeout;
+		}
+	}
+
+	public static class Outbox
+	{
+		/**
+		 * Whether the transactional outbox and its relay should be enabled.
+		 */
+		private boolean enabled;
+		/**
+		 * Name of the outbox table.
+		 */
+		@NotEmpty
+		private String tableName = "kafka_outbox";
+		/**
+		 * Number of partitions the outbox messages are spread over by tenant and key, each partition being relayed by a
+		 * single relay instance at a time. Changing it while unsent messages exist may reorder messages of a key.
+		 */
+		@Min(1)
+		private int partitions = 16;
+		/**
+		 * Delay between two polls of the outbox table by the relay.
+		 */
+		@NotNull
+		private Duration pollInterval = Duration.ofMillis(500);
+		/**
+		 * Maximum number of messages of a partition relayed in one transaction.
+		 */
+		@Min(1)
+		private int batchSize = 500;
+		/**
+		 * Time the sent messages are kept in the outbox table before being deleted.
+		 */
+		@NotNull
+		private Duration sentRetention = Duration.ofDays(1);
+
+		public boolean isEnabled()
+		{
+			return enabled;
+		}
+
+		public void setEnabled(final boolean enabled)
+		{
+			this.enabled = enabled;
+		}
+
+		public String getTableName()
+		{
+			return tableName;
+		}
+
+		public void setTableName(final String tableName)
+		{
+			this.tableName = tableName;
+		}
+
+		public int getPartitions()
+		{
+			return partitions;
+		}
+
+		public void setPartitions(final int partitions)
+		{
+			this.partitions = partitions;
+		}
+
+		public Duration getPollInterval()
+		{
+			return pollInterval;
+		}
+
+		public void setPollInterval(final Duration pollInterval)
+		{
+			this.pollInterval = pollInterval;
+		}
+
+		public int getBatchSize()
+		{
+			return batchSize;
+		}
+
+		public void setBatchSize(final int batchSize)
+		{
+			this.batchSize = batchSize;
+		}
+
+		public Duration getSentRetention()
+		{
+			return sentRetention;
+		}
+
+		public void setSentRetention(final Duration sentRetention)
+		{
+			this.sentRetention = sentRetention;
+		}
+	}
+
+	public static class Serialization
+	{
+		/**
+		 * Whether the message payloads should be serialized to byte arrays in the configured formats, with a content type
+		 * header, instead of JSON strings.
+		 */
+		private boolean enabled;
+		/**
+		 * Format of the messages sent to the topics without configured format.
+		 */
+		@NotNull
+		private MessageFormat defaultFormat = MessageFormat.JSON;
+		/**
+		 * Format of the messages sent to a topic, by topic name.
+		 */
+		private Map<String, MessageFormat> topics = new HashMap<>();
+
+		public boolean isEnabled()
+		{
+			return enabled;
+		}
+
+		public void setEnabled(final boolean enabled)
+		{
+			this.enabled = enabled;
+		}
+
+		public MessageFormat getDefaultFormat()
+		{
+			return defaultFormat;
+		}
+
+		public void setDefaultFormat(final MessageFormat defaultFormat)
+		{
+			this.defaultFormat = defaultFormat;
+		}
+
+		public Map<String, MessageFormat> getTopics()
+		{
+			return topics;
+		}
+
+		public void setTopics(final Map<String, MessageFormat> topics)
+		{
+			this.topics = topics;
+		}
+	}
+
+	public static class Security
+	{
+		/**
+		 * SASL mechanism used to authenticate with the OAuth2 access token: PLAIN, the token being the password, or OAUTHBEARER.
+		 */
+		@NotNull
+		private SaslMechanism saslMechanism = SaslMechanism.PLAIN;
+		/**
+		 * Fraction of the lifetime of the access token after which a new token is requested in the background.
+		 */
+		@Positive
+		@DecimalMax("1.0")
+		private double tokenRefreshWindowFactor = 0.75;
+		/**
+		 * Directory the downloaded CA certificates are cached in, created accessible by its owner only. The certificate is
+		 * downloaded on every startup when not set.
+		 */
+		private String trustStoreCacheDir;
+
+		public SaslMechanism getSaslMechanism()
+		{
+			return saslMechanism;
+		}
+
+		public void setSaslMechanism(final SaslMechanism saslMechanism)
+		{
+			this.saslMechanism = saslMechanism;
+		}
+
+		public double getTokenRefreshWindowFactor()
+		{
+			return tokenRefreshWindowFactor;
+		}
+
+		public void setTokenRefreshWindowFactor(final double tokenRefreshWindowFactor)
+		{
+			this.tokenRefreshWindowFactor = tokenRefreshWindowFactor;
+		}
+
+		public String getTrustStoreCacheDir()
+		{
+			return trustStoreCacheDir;
+		}
+
+		public void setTrustStoreCacheDir(final String trustStoreCacheDir)
+		{
+			this.trustStoreCacheDir = trustStoreCacheDir;
+		}
+	}
+
+	public enum SaslMechanism
+	{
+		PLAIN, OAUTHBEARER
 	}
 }
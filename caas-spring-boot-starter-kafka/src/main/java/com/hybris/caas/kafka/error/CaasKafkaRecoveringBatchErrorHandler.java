@@ -0,0 +1,95 @@
+package com.hybris.caas.kafka.error;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.BatchErrorHandler;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.BatchLoggingErrorHandler;
+import org.springframework.kafka.listener.ContainerAwareBatchErrorHandler;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.listener.RecoveringBatchErrorHandler;
+import org.springframework.util.Assert;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Batch error handler committing the offsets of the records processed before a failed record and redelivering the batch
+ * from that record, when the batch listener throws a {@link BatchListenerFailedException} carrying its index, e.g. when
+ * {@link com.hybris.caas.kafka.listener.BatchMessageProcessor} could not recover it. The failed record is redelivered
+ * after the given interval until it is processed or recovered.
+ * <p>
+ * Any other exception is only logged by {@link BatchLoggingErrorHandler} and the whole batch is committed.
+ */
+public class CaasKafkaRecoveringBatchErrorHandler implements ContainerAwareBatchErrorHandler
+{
+	private final ContainerAwareBatchErrorHandler recoveringErrorHandler;
+	private final BatchErrorHandler loggingErrorHandler;
+
+	public CaasKafkaRecoveringBatchErrorHandler(final Duration redeliveryInterval)
+	{
+		Assert.notNull(redeliveryInterval, "redeliveryInterval must not be null");
+
+		this.recoveringErrorHandler = new RecoveringBatchErrorHandler(
+				new FixedBackOff(redeliveryInterval.toMillis(), FixedBackOff.UNLIMITED_ATTEMPTS));
+		this.loggingErrorHandler = new BatchLoggingErrorHandler();
+	}
+
+	@Override
+	public void handle(final Exception thrownException, final ConsumerRecords<?, ?> data, final Consumer<?, ?> consumer,
+			final MessageListenerContainer container)
+	{
+		if (hasBatchListenerFailedException(thrownException))
+		{
+			recoveringErrorHandler.handle(thrownException, data, consumer, container);
+		}
+		else
+		{
+			loggingErrorHandler.handle(thrownException, data);
+			commit(data, consumer);
+		}
+	}
+
+	@Override
+	public boolean isAckAfterHandle()
+	{
+		// the offsets are committed by the handler: up to the failed record only when recovering
+		return false;
+	}
+
+	private static void commit(final ConsumerRecords<?, ?> data, final Consumer<?, ?> consumer)
+	{
+		if (Objects.isNull(data) || data.isEmpty())
+		{
+			return;
+		}
+
+		final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+		data.partitions().forEach(partition -> {
+			final List<? extends ConsumerRecord<?, ?>> records = data.records(partition);
+			offsets.put(partition, new OffsetAndMetadata(records.get(records.size() - 1).offset() + 1));
+		});
+		consumer.commitSync(offsets);
+	}
+
+	private static boolean hasBatchListenerFailedException(final Throwable thrownException)
+	{
+		Throwable throwable = thrownException;
+		while (throwable != null)
+		{
+			if (throwable instanceof BatchListenerFailedException)
+			{
+				return true;
+			}
+			throwable = throwable.getCause() == throwable ? null : throwable.getCause();
+		}
+		return false;
+	}
+}
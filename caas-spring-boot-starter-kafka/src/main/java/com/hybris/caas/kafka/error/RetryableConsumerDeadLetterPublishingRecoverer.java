@@ -11,9 +11,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.kafka.core.KafkaOperations;
 import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.Iterator;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BiFunction;
 
 import static com.hybris.caas.kafka.util.CaasKafkaConstants.DEAD_LETTER_TOPIC_SUFFIX;
@@ -32,6 +37,8 @@ import static org.springframework.kafka.support.KafkaHeaders.DLT_ORIGINAL_TOPIC;
  * In all cases the original topic, partition, and timestamp are preserved using DLT headers (see spring-kafka documentation on how DLT headers are named).
  * In addition to the topic information, the exception message is also added as DLT header to messages published to retry topics.
  * Also, in the case of dead letter topic all the DTL headers added by spring-kafka are kept to the published message.
+ * When a send timeout is given, the message is published synchronously and a {@link KafkaRuntimeException} is thrown when it
+ * could not be sent, so that the caller does not commit the offset of a record that was not recovered.
  */
 public class RetryableConsumerDeadLetterPublishingRecoverer extends DeadLetterPublishingRecoverer
 {
@@ -41,10 +48,19 @@ public class RetryableConsumerDeadLetterPublishingRecoverer extends DeadLetterPu
 	private static final String[] MANAGED_DLT_HEADERS = { DLT_ORIGINAL_TOPIC, DLT_ORIGINAL_PARTITION, DLT_ORIGINAL_TIMESTAMP,
 			DLT_ORIGINAL_TIMESTAMP_TYPE, DLT_EXCEPTION_MESSAGE };
 
+	private final Duration sendTimeout;
+
 	public RetryableConsumerDeadLetterPublishingRecoverer(final KafkaOperations<?, ?> template,
 			final BiFunction<ConsumerRecord<?, ?>, Exception, TopicPartition> destinationResolver)
+	{
+		this(template, destinationResolver, null);
+	}
+
+	public RetryableConsumerDeadLetterPublishingRecoverer(final KafkaOperations<?, ?> template,
+			final BiFunction<ConsumerRecord<?, ?>, Exception, TopicPartition> destinationResolver, final Duration sendTimeout)
 	{
 		super(template, destinationResolver);
+		this.sendTimeout = sendTimeout;
 	}
 
 	private RecordHeaders updateHeaders(final String topicName, final Headers headers)
@@ -108,6 +124,25 @@ public class RetryableConsumerDeadLetterPublishingRecoverer extends DeadLetterPu
 		final String updatedOutRecordTopicName = updatedOutRecord.topic();
 		LOG.debug("Publishing message with timestamp {} to topic {}.", retryTimestamp, updatedOutRecordTopicName);
 
-		super.publish(updatedOutRecord, kafkaTemplate);
+		if (Objects.isNull(sendTimeout))
+		{
+			super.publish(updatedOutRecord, kafkaTemplate);
+			return;
+		}
+
+		try
+		{
+			kafkaTemplate.send(updatedOutRecord).get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+		}
+		catch (final InterruptedException e)
+		{
+			// Restore interrupted state...
+			Thread.currentThread().interrupt();
+			throw new KafkaRuntimeException("An error occurred while publishing the message to topic " + updatedOutRecordTopicName, e);
+		}
+		catch (final ExecutionException | TimeoutException e)
+		{
+			throw new KafkaRuntimeException("An error occurred while publishing the message to topic " + updatedOutRecordTopicName, e);
+		}
 	}
 }
@@ -1,20 +1,16 @@
 package com.hybris.caas.kafka.error;
 
 import com.hybris.caas.kafka.config.CaasKafkaProperties;
+import com.hybris.caas.kafka.metrics.RetryableConsumerMetricsListener;
+import com.hybris.caas.kafka.util.RetryableConsumerRoutingTable;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
 
 import java.util.Map;
-import java.util.Optional;
-import java.util.function.Supplier;
-
-import static com.hybris.caas.kafka.util.CaasKafkaConstants.DEAD_LETTER_TOPIC_SUFFIX;
-import static com.hybris.caas.kafka.util.CaasKafkaConstants.LONG_DELAY_RETRY_TOPIC_SUFFIX;
-import static com.hybris.caas.kafka.util.CaasKafkaConstants.SHORT_DELAY_RETRY_TOPIC_SUFFIX;
-import static com.hybris.caas.kafka.util.RetryableConsumerUtils.getOriginalTopic;
-import static com.hybris.caas.kafka.util.RetryableConsumerUtils.getRetryableConsumerByTopicName;
+import java.util.Objects;
 
 /**
  * Determines the destination topic for the failed message.
@@ -26,6 +22,8 @@ import static com.hybris.caas.kafka.util.RetryableConsumerUtils.getRetryableCons
  * <p>
  * Note: In case a dead letter topic is not being used, the message would be retried 2 more times and then discarded (logged).
  * Please see {@link com.hybris.caas.kafka.config.CaasKafkaConfig} retryableKafkaListenerContainerFactory bean for more details.
+ * <p>
+ * The destination topics are precomputed by {@link RetryableConsumerRoutingTable}.
  */
 public class RetryableConsumerDestinationTopicResolver
 {
@@ -33,117 +31,52 @@ public class RetryableConsumerDestinationTopicResolver
 
 	private static final String NO_FURTHER_RECOVERING_CONFIG_FOR_TOPIC = "No further recovering configuration defined for topic: %s";
 
-	private final Map<String, CaasKafkaProperties.RetryableConsumer> retryableConsumerMap;
+	private final RetryableConsumerRoutingTable routingTable;
+
+	private final RetryableConsumerMetricsListener metricsListener;
 
 	public RetryableConsumerDestinationTopicResolver(final Map<String, CaasKafkaProperties.RetryableConsumer> retryableConsumerMap)
 	{
-		this.retryableConsumerMap = retryableConsumerMap;
+		this(new RetryableConsumerRoutingTable(retryableConsumerMap), RetryableConsumerMetricsListener.NONE);
 	}
 
-	public TopicPartition getTopicPartition(final ConsumerRecord<?, ?> record, final Exception exception)
+	public RetryableConsumerDestinationTopicResolver(final RetryableConsumerRoutingTable routingTable,
+			final RetryableConsumerMetricsListener metricsListener)
 	{
-		final String recordTopicName = record.topic();
-		final String originalTopic = getOriginalTopic(record);
-
-		final CaasKafkaProperties.RetryableConsumer retryableConsumer = getRetryableConsumerByTopicName(retryableConsumerMap,
-				originalTopic).orElseThrow(
-				() -> new IllegalStateException(String.format("No retryable-consumer found for topic: %s", recordTopicName),
-						exception));
+		Assert.notNull(routingTable, "routingTable must not be null");
+		Assert.notNull(metricsListener, "metricsListener must not be null");
 
-		final Supplier<KafkaRuntimeException> exceptionSupplier = () -> new KafkaRuntimeException(
-				String.format(NO_FURTHER_RECOVERING_CONFIG_FOR_TOPIC, recordTopicName), exception);
+		this.routingTable = routingTable;
+		this.metricsListener = metricsListener;
+	}
 
-		final TopicPartition targetTopicPartition;
+	public TopicPartition getTopicPartition(final ConsumerRecord<?, ?> record, final Exception exception)
+	{
+		final String recordTopicName = record.topic();
+		final RetryableConsumerRoutingTable.Route route = routingTable.getRoute(record);
 
-		if (recordTopicName.endsWith(SHORT_DELAY_RETRY_TOPIC_SUFFIX))
-		{
-			final String topicName = getTargetTopicNameForShortRetryTopic(originalTopic, retryableConsumer, exceptionSupplier);
-			targetTopicPartition = new TopicPartition(topicName, -1);
-		}
-		else if (recordTopicName.endsWith(LONG_DELAY_RETRY_TOPIC_SUFFIX))
+		if (Objects.isNull(route))
 		{
-			final String topicName = getTargetTopicNameForLongRetryTopic(originalTopic, retryableConsumer, exceptionSupplier);
-			return new TopicPartition(topicName, -1);
+			throw new IllegalStateException(String.format("No retryable-consumer found for topic: %s", recordTopicName), exception);
 		}
-		else if (recordTopicName.endsWith(DEAD_LETTER_TOPIC_SUFFIX))
+
+		if (route.getTier() == RetryableConsumerRoutingTable.Tier.DEAD_LETTER)
 		{
 			throw new UnsupportedOperationException(
 					String.format("Consuming messages from dead letter topic not supported. Topic: %s", recordTopicName));
 		}
-		else
+
+		final TopicPartition targetTopicPartition = route.getNextHop();
+
+		if (Objects.isNull(targetTopicPartition))
 		{
-			final String topicName = getTargetTopicNameForRegularTopic(originalTopic, retryableConsumer, exceptionSupplier);
-			targetTopicPartition = new TopicPartition(topicName, -1);
+			throw new KafkaRuntimeException(String.format(NO_FURTHER_RECOVERING_CONFIG_FOR_TOPIC, recordTopicName), exception);
 		}
 
 		final String targetTopicName = targetTopicPartition.topic();
 		LOG.debug("Target topic {} selected for topic {}.", targetTopicName, recordTopicName);
+		metricsListener.onRouted(route, recordTopicName, targetTopicName);
 
 		return targetTopicPartition;
 	}
-
-	private <X extends Throwable> String getTargetTopicNameForRegularTopic(final String originalTopicName,
-			final CaasKafkaProperties.RetryableConsumer retryableConsumer, Supplier<? extends X> exceptionSupplier) throws X
-	{
-		final Optional<CaasKafkaProperties.RetryTopic> shortDelayRetry = Optional.ofNullable(retryableConsumer.getShortDelayRetry());
-		final Optional<CaasKafkaProperties.RetryTopic> longDelayRetry = Optional.ofNullable(retryableConsumer.getLongDelayRetry());
-		final Optional<CaasKafkaProperties.DeadLetterTopic> deadLetter = Optional.ofNullable(retryableConsumer.getDeadLetter());
-
-		if (shortDelayRetry.isPresent())
-		{
-			return shortDelayRetry.map(CaasKafkaProperties.RetryTopic::getTopicPrefix).orElse(originalTopicName)
-					+ SHORT_DELAY_RETRY_TOPIC_SUFFIX;
-		}
-		else if (longDelayRetry.isPresent())
-		{
-			return longDelayRetry.map(CaasKafkaProperties.RetryTopic::getTopicPrefix).orElse(originalTopicName)
-					+ LONG_DELAY_RETRY_TOPIC_SUFFIX;
-		}
-		else if (deadLetter.isPresent())
-		{
-			return deadLetter.map(CaasKafkaProperties.DeadLetterTopic::getTopicPrefix).orElse(originalTopicName)
-					+ DEAD_LETTER_TOPIC_SUFFIX;
-		}
-		else
-		{
-			throw exceptionSupplier.get();
-		}
-	}
-
-	private <X extends Throwable> String getTargetTopicNameForShortRetryTopic(final String originalTopicName,
-			final CaasKafkaProperties.RetryableConsumer retryableConsumer, Supplier<? extends X> exceptionSupplier) throws X
-	{
-		final Optional<CaasKafkaProperties.RetryTopic> longDelayRetry = Optional.ofNullable(retryableConsumer.getLongDelayRetry());
-		final Optional<CaasKafkaProperties.DeadLetterTopic> deadLetter = Optional.ofNullable(retryableConsumer.getDeadLetter());
-
-		if (longDelayRetry.isPresent())
-		{
-			return longDelayRetry.map(CaasKafkaProperties.RetryTopic::getTopicPrefix).orElse(originalTopicName)
-					+ LONG_DELAY_RETRY_TOPIC_SUFFIX;
-		}
-		else if (deadLetter.isPresent())
-		{
-			return deadLetter.map(CaasKafkaProperties.DeadLetterTopic::getTopicPrefix).orElse(originalTopicName)
-					+ DEAD_LETTER_TOPIC_SUFFIX;
-		}
-		else
-		{
-			throw exceptionSupplier.get();
-		}
-	}
-
-	private <X extends Throwable> String getTargetTopicNameForLongRetryTopic(final String originalTopicName,
-			final CaasKafkaProperties.RetryableConsumer retryableConsumer, Supplier<? extends X> exceptionSupplier) throws X
-	{
-		final Optional<CaasKafkaProperties.DeadLetterTopic> deadLetter = Optional.ofNullable(retryableConsumer.getDeadLetter());
-		if (deadLetter.isPresent())
-		{
-			return deadLetter.map(CaasKafkaProperties.DeadLetterTopic::getTopicPrefix).orElse(originalTopicName)
-					+ DEAD_LETTER_TOPIC_SUFFIX;
-		}
-		else
-		{
-			throw exceptionSupplier.get();
-		}
-	}
 }
@@ -7,13 +7,19 @@ class DelayException extends RuntimeException
 {
 	private static final String ERROR_MESSAGE = "Delay required: %s";
 
-	DelayException(final long requiredDelay)
+	private final long resumeTimestampMs;
+
+	DelayException(final long requiredDelay, final long resumeTimestampMs)
 	{
 		super(String.format(ERROR_MESSAGE, requiredDelay));
+		this.resumeTimestampMs = resumeTimestampMs;
 	}
 
-	DelayException(final String message, final Throwable cause)
+	/**
+	 * @return the epoch timestamp in milliseconds from which the delayed record can be processed
+	 */
+	long getResumeTimestampMs()
 	{
-		super(message, cause);
+		return resumeTimestampMs;
 	}
 }
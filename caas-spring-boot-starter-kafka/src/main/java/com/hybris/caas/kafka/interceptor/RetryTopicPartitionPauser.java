@@ -0,0 +1,107 @@
+package com.hybris.caas.kafka.interceptor;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+
+import java.time.Clock;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Pauses the partitions of retry topics whose next record is not due yet and resumes them once it is due, so that the
+ * other partitions assigned to the same consumer keep being processed while a retry topic partition waits.
+ * <p>
+ * A {@link Consumer} is not thread safe, hence partitions are only paused and resumed on the consumer thread: due
+ * partitions are resumed before a record is intercepted by {@link RetryableConsumerRecordInterceptor} and, when the
+ * consumer does not receive any record, on each {@link ListenerContainerIdleEvent}, which is published on the consumer
+ * thread. The idle event interval of the container therefore bounds how late a partition is resumed.
+ */
+public class RetryTopicPartitionPauser implements ApplicationListener<ListenerContainerIdleEvent>
+{
+	private static final Logger LOG = LoggerFactory.getLogger(RetryTopicPartitionPauser.class);
+
+	private final Map<TopicPartition, Long> resumeTimestamps = new ConcurrentHashMap<>();
+	private final ThreadLocal<Consumer<?, ?>> consumers = new ThreadLocal<>();
+	private final Clock clock;
+
+	public RetryTopicPartitionPauser()
+	{
+		this(Clock.systemUTC());
+	}
+
+	RetryTopicPartitionPauser(final Clock clock)
+	{
+		this.clock = clock;
+	}
+
+	/**
+	 * Pauses a partition until the given timestamp. Must be called on the consumer thread.
+	 *
+	 * @param consumer          the consumer the partition is assigned to
+	 * @param topicPartition    the partition to pause
+	 * @param resumeTimestampMs the epoch timestamp in milliseconds from which the partition can be consumed again
+	 */
+	void pause(final Consumer<?, ?> consumer, final TopicPartition topicPartition, final long resumeTimestampMs)
+	{
+		LOG.debug("Pausing partition {} for {} ms.", topicPartition, resumeTimestampMs - clock.millis());
+
+		consumers.set(consumer);
+		resumeTimestamps.put(topicPartition, resumeTimestampMs);
+		consumer.pause(Collections.singleton(topicPartition));
+	}
+
+	/**
+	 * Resumes the due partitions paused by the consumer of the calling thread, if any.
+	 */
+	void resumeDuePartitions()
+	{
+		final Consumer<?, ?> consumer = consumers.get();
+		if (consumer != null)
+		{
+			resumeDuePartitions(consumer);
+		}
+	}
+
+	/**
+	 * Resumes the due partitions paused by the given consumer. Must be called on the consumer thread.
+	 *
+	 * @param consumer the consumer
+	 */
+	public void resumeDuePartitions(final Consumer<?, ?> consumer)
+	{
+		if (resumeTimestamps.isEmpty())
+		{
+			return;
+		}
+
+		final long now = clock.millis();
+		final List<TopicPartition> duePartitions = consumer.paused()
+				.stream()
+				.filter(topicPartition -> resumeTimestamps.getOrDefault(topicPartition, Long.MAX_VALUE) <= now)
+				.collect(Collectors.toList());
+
+		if (!duePartitions.isEmpty())
+		{
+			LOG.debug("Resuming partitions {}.", duePartitions);
+
+			consumer.resume(duePartitions);
+			duePartitions.forEach(resumeTimestamps::remove);
+		}
+	}
+
+	@Override
+	public void onApplicationEvent(final ListenerContainerIdleEvent event)
+	{
+		if (event.getConsumer() != null)
+		{
+			resumeDuePartitions(event.getConsumer());
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.hybris.caas.kafka.interceptor;
+
+import com.hybris.caas.kafka.error.RetryableConsumerDeadLetterPublishingRecoverer;
+import com.hybris.caas.kafka.listener.RecordListenerInvoker;
+import com.hybris.caas.kafka.metrics.RetryableConsumerMetricsListener;
+import com.hybris.caas.kafka.util.RetryableConsumerRoutingTable;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.BatchAcknowledgingConsumerAwareMessageListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Batch listener processing the records of a poll for retryable consumers within the single transaction started by the
+ * listener container, instead of one transaction and one offset commit per record.
+ * <p>
+ * Each record is passed to the record listener set up by the listener endpoint. A record failing processing is
+ * published to its short delay retry, long delay retry or dead letter topic by
+ * {@link RetryableConsumerDeadLetterPublishingRecoverer} within the same transaction and the processing goes on with the
+ * next record. The offsets of the processed records are sent to the transaction once per batch, so they are committed
+ * atomically with the records published while processing them. An error while publishing a failed record rolls the
+ * whole batch back.
+ * <p>
+ * The required delay of the records consumed from retry topics is enforced by {@link RetryableConsumerRecordInterceptor}:
+ * the partition of a record that is not due is repositioned to that record and paused by
+ * {@link RetryTopicPartitionPauser} until the record is due, while the records of the other partitions are processed.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class RetryableConsumerBatchMessageListener<K, V> implements BatchAcknowledgingConsumerAwareMessageListener<K, V>
+{
+	private static final Logger LOG = LoggerFactory.getLogger(RetryableConsumerBatchMessageListener.class);
+
+	private final RecordListenerInvoker<K, V> delegate;
+	private final RetryableConsumerRecordInterceptor<K, V> retryableConsumerRecordInterceptor;
+	private final RetryTopicPartitionPauser retryTopicPartitionPauser;
+	private final RetryableConsumerDeadLetterPublishingRecoverer retryableConsumerDeadLetterPublishingRecoverer;
+	private final KafkaOperations<?, ?> kafkaOperations;
+	private final RetryableConsumerRoutingTable routingTable;
+	private final RetryableConsumerMetricsListener metricsListener;
+
+	public RetryableConsumerBatchMessageListener(final Object delegate,
+			final RetryableConsumerRecordInterceptor<K, V> retryableConsumerRecordInterceptor,
+			final RetryTopicPartitionPauser retryTopicPartitionPauser,
+			final RetryableConsumerDeadLetterPublishingRecoverer retryableConsumerDeadLetterPublishingRecoverer,
+			final KafkaOperations<?, ?> kafkaOperations)
+	{
+		this(delegate, retryableConsumerRecordInterceptor, retryTopicPartitionPauser, retryableConsumerDeadLetterPublishingRecoverer,
+				kafkaOperations, new RetryableConsumerRoutingTable(Collections.emptyMap()),
+				RetryableConsumerMetricsListener.NONE);
+	}
+
+	@SuppressWarnings("squid:S00107") // too many params
+	public RetryableConsumerBatchMessageListener(final Object delegate,
+			final RetryableConsumerRecordInterceptor<K, V> retryableConsumerRecordInterceptor,
+			final RetryTopicPartitionPauser retryTopicPartitionPauser,
+			final RetryableConsumerDeadLetterPublishingRecoverer retryableConsumerDeadLetterPublishingRecoverer,
+			final KafkaOperations<?, ?> kafkaOperations,
+			final RetryableConsumerRoutingTable routingTable, final RetryableConsumerMetricsListener metricsListener)
+	{
+		Assert.notNull(retryableConsumerRecordInterceptor, "retryableConsumerRecordInterceptor must not be null");
+		Assert.notNull(retryTopicPartitionPauser, "retryTopicPartitionPauser must not be null");
+		Assert.notNull(retryableConsumerDeadLetterPublishingRecoverer,
+				"retryableConsumerDeadLetterPublishingRecoverer must not be null");
+		Assert.notNull(kafkaOperations, "kafkaOperations must not be null");
+		Assert.notNull(routingTable, "routingTable must not be null");
+		Assert.notNull(metricsListener, "metricsListener must not be null");
+
+		this.delegate = new RecordListenerInvoker<>(delegate);
+		this.retryableConsumerRecordInterceptor = retryableConsumerRecordInterceptor;
+		this.retryTopicPartitionPauser = retryTopicPartitionPauser;
+		this.retryableConsumerDeadLetterPublishingRecoverer = retryableConsumerDeadLetterPublishingRecoverer;
+		this.kafkaOperations = kafkaOperations;
+		this.routingTable = routingTable;
+		this.metricsListener = metricsListener;
+	}
+
+	@Override
+	public void onMessage(final List<ConsumerRecord<K, V>> records, final Acknowledgment acknowledgment,
+			final Consumer<?, ?> consumer)
+	{
+		final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+		final Set<TopicPartition> delayedPartitions = new HashSet<>();
+
+		for (final ConsumerRecord<K, V> record : records)
+		{
+			final TopicPartition topicPartition = new TopicPartition(record.topic(), record.partition());
+			if (delayedPartitions.contains(topicPartition))
+			{
+				continue;
+			}
+
+			try
+			{
+				retryableConsumerRecordInterceptor.intercept(record);
+			}
+			catch (final DelayException ex)
+			{
+				// the record and the following ones of its partition are polled again once the partition is resumed
+				consumer.seek(topicPartition, record.offset());
+				retryTopicPartitionPauser.pause(consumer, topicPartition, ex.getResumeTimestampMs());
+				delayedPartitions.add(topicPartition);
+				continue;
+			}
+
+			process(record, consumer);
+			offsets.put(topicPartition, new OffsetAndMetadata(record.offset() + 1));
+		}
+
+		if (!offsets.isEmpty())
+		{
+			kafkaOperations.sendOffsetsToTransaction(offsets, consumer.groupMetadata().groupId());
+		}
+	}
+
+	private void process(final ConsumerRecord<K, V> record, final Consumer<?, ?> consumer)
+	{
+		final long start = System.nanoTime();
+		try
+		{
+			delegate.invoke(record, consumer);
+			onProcessed(record, start, null);
+		}
+		catch (final Exception ex)
+		{
+			onProcessed(record, start, ex);
+			if (LOG.isDebugEnabled())
+			{
+				LOG.debug(String.format("Retryable consumer batch listener failed processing %s", record), ex);
+			}
+			retryableConsumerDeadLetterPublishingRecoverer.accept(record, ex);
+		}
+	}
+
+	private void onProcessed(final ConsumerRecord<K, V> record, final long start, final Exception exception)
+	{
+		final long durationNanos = System.nanoTime() - start;
+		final RetryableConsumerRoutingTable.Route route = routingTable.getRoute(record);
+		if (Objects.nonNull(route))
+		{
+			metricsListener.onProcessed(route, record.topic(), durationNanos, exception);
+		}
+	}
+}
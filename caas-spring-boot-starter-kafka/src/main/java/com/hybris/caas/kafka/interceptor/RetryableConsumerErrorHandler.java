@@ -4,6 +4,7 @@ import com.hybris.caas.kafka.error.RetryableConsumerDeadLetterPublishingRecovere
 import org.apache.commons.logging.LogFactory;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.NestedExceptionUtils;
@@ -23,6 +24,8 @@ import java.util.function.BiPredicate;
  * When {@link DelayException} is being handled, seek records to earliest position is being done for the current record
  * as well as for the remaining unconsumed records.
  * This is being done by using {@link SeekUtils#doSeeks(List, Consumer, Exception, boolean, BiPredicate, LogAccessor)}.
+ * The partition of the delayed record is then paused by {@link RetryTopicPartitionPauser} until the record is due, while
+ * the other partitions assigned to the consumer are polled again right away.
  * <p>
  * If any other error is being handled, the error handler forwards the call to {@link SeekToCurrentErrorHandler} to handle the exception.
  * However, the {@link SeekToCurrentErrorHandler} is not configured with a {@link org.springframework.kafka.listener.DeadLetterPublishingRecoverer}.
@@ -42,11 +45,14 @@ public class RetryableConsumerErrorHandler implements ContainerAwareErrorHandler
 
 	private final SeekToCurrentErrorHandler seekToCurrentErrorHandler;
 	private final RetryableConsumerDeadLetterPublishingRecoverer retryableConsumerDeadLetterPublishingRecoverer;
+	private final RetryTopicPartitionPauser retryTopicPartitionPauser;
 
 	public RetryableConsumerErrorHandler(
-			final RetryableConsumerDeadLetterPublishingRecoverer retryableConsumerDeadLetterPublishingRecoverer)
+			final RetryableConsumerDeadLetterPublishingRecoverer retryableConsumerDeadLetterPublishingRecoverer,
+			final RetryTopicPartitionPauser retryTopicPartitionPauser)
 	{
 		this.retryableConsumerDeadLetterPublishingRecoverer = retryableConsumerDeadLetterPublishingRecoverer;
+		this.retryTopicPartitionPauser = retryTopicPartitionPauser;
 		this.seekToCurrentErrorHandler = new SeekToCurrentErrorHandler((record, ex) -> {
 			if (LOG.isDebugEnabled())
 			{
@@ -70,6 +76,13 @@ public class RetryableConsumerErrorHandler implements ContainerAwareErrorHandler
 		{
 			SeekUtils.doSeeks(records, consumer, thrownException, false, (t, u) -> true, LOGGER);
 
+			if (!records.isEmpty())
+			{
+				final ConsumerRecord<?, ?> delayedRecord = records.get(0);
+				retryTopicPartitionPauser.pause(consumer, new TopicPartition(delayedRecord.topic(), delayedRecord.partition()),
+						((DelayException) cause).getResumeTimestampMs());
+			}
+
 			throw (DelayException) cause;
 		}
 
@@ -1,6 +1,8 @@
 package com.hybris.caas.kafka.interceptor;
 
 import com.hybris.caas.kafka.config.CaasKafkaProperties;
+import com.hybris.caas.kafka.metrics.RetryableConsumerMetricsListener;
+import com.hybris.caas.kafka.util.RetryableConsumerRoutingTable;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,14 +13,11 @@ import java.time.Instant;
 import java.util.Map;
 import java.util.Objects;
 
-import static com.hybris.caas.kafka.util.CaasKafkaConstants.LONG_DELAY_RETRY_TOPIC_SUFFIX;
-import static com.hybris.caas.kafka.util.CaasKafkaConstants.SHORT_DELAY_RETRY_TOPIC_SUFFIX;
-import static com.hybris.caas.kafka.util.RetryableConsumerUtils.getRetryableConsumerByTopicName;
-
 /**
  * Interceptor for {@link ConsumerRecord} invoked by the listener container before invoking the listener.
  * Enforces the required message delay when consuming records from retry topics by throwing {@link DelayException}
- * when the required delay has not already passed.
+ * when the required delay has not already passed, without blocking the consumer thread: the partition of the record
+ * is then paused by {@link RetryableConsumerErrorHandler} until the record is due.
  *
  * @param <K> the key type
  * @param <V> the value type
@@ -27,84 +26,81 @@ public class RetryableConsumerRecordInterceptor<K, V> implements RecordIntercept
 {
 	private static final Logger LOG = LoggerFactory.getLogger(RetryableConsumerRecordInterceptor.class);
 
-	private final Map<String, CaasKafkaProperties.RetryableConsumer> retryableConsumerMap;
+	private final RetryableConsumerRoutingTable routingTable;
+
+	private final RetryTopicPartitionPauser retryTopicPartitionPauser;
 
-	private final long idleBetweenRetryPollsMs;
+	private final RetryableConsumerMetricsListener metricsListener;
 
+	/**
+	 * @param retryableConsumerMap    the retryable consumers by name
+	 * @param idleBetweenRetryPollsMs ignored, the consumer thread no longer sleeps between retry topic polls
+	 * @deprecated retry topic partitions are paused until their next record is due, use
+	 * {@link #RetryableConsumerRecordInterceptor(Map, RetryTopicPartitionPauser)} with the
+	 * {@link RetryTopicPartitionPauser} of the {@link RetryableConsumerErrorHandler}, so that the partitions it pauses are
+	 * resumed before the records are intercepted
+	 */
+	@Deprecated
 	public RetryableConsumerRecordInterceptor(final Map<String, CaasKafkaProperties.RetryableConsumer> retryableConsumerMap,
 			final long idleBetweenRetryPollsMs)
 	{
+		this(retryableConsumerMap, new RetryTopicPartitionPauser());
+
 		Assert.isTrue(idleBetweenRetryPollsMs > 0, "idleBetweenRetryPollsMs must be a positive value");
+	}
+
+	public RetryableConsumerRecordInterceptor(final Map<String, CaasKafkaProperties.RetryableConsumer> retryableConsumerMap,
+			final RetryTopicPartitionPauser retryTopicPartitionPauser)
+	{
+		this(new RetryableConsumerRoutingTable(retryableConsumerMap), retryTopicPartitionPauser,
+				RetryableConsumerMetricsListener.NONE);
+	}
+
+	public RetryableConsumerRecordInterceptor(final RetryableConsumerRoutingTable routingTable,
+			final RetryTopicPartitionPauser retryTopicPartitionPauser, final RetryableConsumerMetricsListener metricsListener)
+	{
+		Assert.notNull(routingTable, "routingTable must not be null");
+		Assert.notNull(retryTopicPartitionPauser, "retryTopicPartitionPauser must not be null");
+		Assert.notNull(metricsListener, "metricsListener must not be null");
 
-		this.retryableConsumerMap = retryableConsumerMap;
-		this.idleBetweenRetryPollsMs = idleBetweenRetryPollsMs;
+		this.routingTable = routingTable;
+		this.retryTopicPartitionPauser = retryTopicPartitionPauser;
+		this.metricsListener = metricsListener;
 	}
 
 	@Override
 	public ConsumerRecord<K, V> intercept(final ConsumerRecord<K, V> record)
 	{
+		// invoked on the consumer thread, resume the retry topic partitions that became due meanwhile
+		retryTopicPartitionPauser.resumeDuePartitions();
+
 		final String recordTopicName = record.topic();
 
 		LOG.debug("Received message with timestamp {} for topic {}.", record.timestamp(), recordTopicName);
 
-		if (!(recordTopicName.endsWith(SHORT_DELAY_RETRY_TOPIC_SUFFIX) || recordTopicName.endsWith(LONG_DELAY_RETRY_TOPIC_SUFFIX)))
+		final RetryableConsumerRoutingTable.Route route = routingTable.getRoute(record);
+
+		if (Objects.isNull(route))
 		{
 			return record;
 		}
 
-		return interceptRetry(record);
-	}
+		metricsListener.onIntercepted(route, recordTopicName);
 
-	private ConsumerRecord<K, V> interceptRetry(final ConsumerRecord<K, V> record)
-	{
-		getRetryableConsumerByTopicName(retryableConsumerMap, record).ifPresent(retryableConsumer -> {
-			long requiredDelayMs = 0;
-
-			if (record.topic().endsWith(SHORT_DELAY_RETRY_TOPIC_SUFFIX) && Objects.nonNull(retryableConsumer.getShortDelayRetry()))
-			{
-				requiredDelayMs = retryableConsumer.getShortDelayRetry().getMessageDelayMs();
-			}
-			else if (record.topic().endsWith(LONG_DELAY_RETRY_TOPIC_SUFFIX) && Objects.nonNull(retryableConsumer.getLongDelayRetry()))
-			{
-				requiredDelayMs = retryableConsumer.getLongDelayRetry().getMessageDelayMs();
-			}
-
-			final long currentTimestamp = Instant.now().toEpochMilli();
-			final long messageTimestamp = record.timestamp();
-
-			final long pastMs = currentTimestamp - (messageTimestamp + requiredDelayMs);
-
-			if (pastMs < 0)
-			{
-				final long positivePastMs = -pastMs;
-				if (positivePastMs <= idleBetweenRetryPollsMs)
-				{
-					sleep(positivePastMs);
-				}
-				else
-				{
-					sleep(idleBetweenRetryPollsMs);
-
-					throw new DelayException(-(pastMs + idleBetweenRetryPollsMs));
-				}
-			}
-		});
+		if (!route.isDelayed())
+		{
+			return record;
+		}
 
-		return record;
-	}
+		final long currentTimestamp = Instant.now().toEpochMilli();
+		final long resumeTimestamp = record.timestamp() + route.getMessageDelayMs();
 
-	private void sleep(final long durationMs)
-	{
-		try
+		if (currentTimestamp < resumeTimestamp)
 		{
-			Thread.sleep(durationMs);
+			metricsListener.onDelayed(route, recordTopicName, resumeTimestamp - currentTimestamp);
+			throw new DelayException(resumeTimestamp - currentTimestamp, resumeTimestamp);
 		}
-		catch (final InterruptedException e)
-		{
-			Thread.currentThread().interrupt();
 
-			// ensure delay is enforced
-			throw new DelayException("Thread sleep interrupted.", e);
-		}
+		return record;
 	}
 }
@@ -0,0 +1,200 @@
+package com.hybris.caas.kafka.listener;
+
+import brave.Span;
+import brave.Tracer;
+import com.hybris.caas.kafka.tracing.ConsumerRecordTracing;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.messaging.Message;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Processes the records received by a batch listener:
+ * <ul>
+ * <li>the records are converted to {@link Message} in parallel, each within the span of its own trace, see
+ * {@link ConsumerRecordTracing}</li>
+ * <li>the converted messages are handled at once by a {@link BulkMessageHandler}, which reports the messages that failed</li>
+ * <li>the records that could not be converted or handled are recovered, i.e. published to their retry or dead letter
+ * topic</li>
+ * </ul>
+ * When a failed record cannot be recovered, a {@link BatchListenerFailedException} with the index of that record is thrown,
+ * so that the batch error handler commits the offsets of the records before it and redelivers the records from it: the
+ * handler must then be idempotent as the records following the failed record are processed again.
+ */
+public class BatchMessageProcessor
+{
+	private static final Logger LOG = LoggerFactory.getLogger(BatchMessageProcessor.class);
+
+	private final Tracer tracer;
+	private final ConsumerRecordTracing consumerRecordTracing;
+	private final ConsumerRecordRecoverer recoverer;
+	private final KafkaOperations<?, ?> kafkaOperations;
+
+	public BatchMessageProcessor(final Tracer tracer, final ConsumerRecordTracing consumerRecordTracing,
+			final ConsumerRecordRecoverer recoverer, final KafkaOperations<?, ?> kafkaOperations)
+	{
+		Assert.notNull(tracer, "tracer must not be null");
+		Assert.notNull(consumerRecordTracing, "consumerRecordTracing must not be null");
+		Assert.notNull(recoverer, "recoverer must not be null");
+		Assert.notNull(kafkaOperations, "kafkaOperations must not be null");
+
+		this.tracer = tracer;
+		this.consumerRecordTracing = consumerRecordTracing;
+		this.recoverer = recoverer;
+		this.kafkaOperations = kafkaOperations;
+	}
+
+	/**
+	 * Processes the records of a batch.
+	 *
+	 * @param records the records received by the batch listener
+	 * @param clazz   the class type of the message payload
+	 * @param handler the handler of the converted messages
+	 * @param <K>     the key type
+	 * @param <V>     the value type
+	 * @param <T>     the type of the message payload
+	 * @throws BatchListenerFailedException when a failed record could not be recovered
+	 */
+	public <K, V, T> void process(final List<ConsumerRecord<K, V>> records, final Class<T> clazz, final BulkMessageHandler<T> handler)
+	{
+		final int size = records.size();
+		final Span[] spans = new Span[size];
+		final Object[] converted = new Object[size];
+		// failed records by index in the batch, sorted in order to recover them in the order they were received
+		final Map<Integer, Exception> failures = Collections.synchronizedMap(new TreeMap<>());
+
+		IntStream.range(0, size).parallel().forEach(index -> {
+			final ConsumerRecord<K, V> record = records.get(index);
+			final Span span = consumerRecordTracing.nextSpan(record);
+			spans[index] = span;
+
+			try (Tracer.SpanInScope spanInScope = tracer.withSpanInScope(span))
+			{
+				converted[index] = consumerRecordTracing.convert(record, clazz);
+			}
+			catch (final RuntimeException e)
+			{
+				failures.put(index, e);
+			}
+		});
+
+		try
+		{
+			handle(converted, failures, handler);
+		}
+		finally
+		{
+			for (int index = 0; index < size; index++)
+			{
+				final Exception failure = failures.get(index);
+				if (Objects.nonNull(failure))
+				{
+					spans[index].error(failure);
+				}
+				spans[index].finish();
+			}
+		}
+
+		if (!failures.isEmpty())
+		{
+			recover(records, failures);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> void handle(final Object[] converted, final Map<Integer, Exception> failures, final BulkMessageHandler<T> handler)
+	{
+		// index in the batch of each message passed to the handler
+		final List<Integer> batchIndexes = new ArrayList<>(converted.length);
+		final List<Message<T>> messages = new ArrayList<>(converted.length);
+		for (int index = 0; index < converted.length; index++)
+		{
+			if (!failures.containsKey(index))
+			{
+				batchIndexes.add(index);
+				messages.add((Message<T>) converted[index]);
+			}
+		}
+
+		if (messages.isEmpty())
+		{
+			return;
+		}
+
+		final Span span = tracer.nextSpan().name("on-consumer-batch").start();
+		try (Tracer.SpanInScope spanInScope = tracer.withSpanInScope(span))
+		{
+			final Map<Integer, Exception> handlerFailures = handler.handle(messages);
+			if (Objects.nonNull(handlerFailures))
+			{
+				handlerFailures.forEach((index, exception) -> failures.put(batchIndexes.get(index), exception));
+			}
+		}
+		catch (final RuntimeException e)
+		{
+			// the handler did not report which messages failed, all of them are recovered
+			LOG.debug("Bulk message handler failed, recovering the {} messages passed to it.", messages.size(), e);
+			span.error(e);
+			batchIndexes.forEach(index -> failures.put(index, e));
+		}
+		finally
+		{
+			span.finish();
+		}
+	}
+
+	private <K, V> void recover(final List<ConsumerRecord<K, V>> records, final Map<Integer, Exception> failures)
+	{
+		if (!kafkaOperations.isTransactional())
+		{
+			failures.forEach((index, exception) -> recover(records, index, exception));
+			return;
+		}
+
+		// the failed records are all published or none of them, the batch is redelivered from the first failed record
+		final int firstIndex = failures.keySet().iterator().next();
+		try
+		{
+			kafkaOperations.executeInTransaction(operations -> {
+				failures.forEach((index, exception) -> recover(records, index, exception));
+				return null;
+			});
+		}
+		catch (final RuntimeException e)
+		{
+			throw new BatchListenerFailedException("Failed to recover the records of the batch", unwrap(e), firstIndex);
+		}
+	}
+
+	private <K, V> void recover(final List<ConsumerRecord<K, V>> records, final int index, final Exception exception)
+	{
+		final ConsumerRecord<K, V> record = records.get(index);
+		try
+		{
+			recoverer.accept(record, exception);
+		}
+		catch (final RuntimeException e)
+		{
+			LOG.error("Failed to recover the message with offset {} of topic {} partition {}.", record.offset(), record.topic(),
+					record.partition(), e);
+			throw new BatchListenerFailedException("Failed to recover the record of the batch", e, index);
+		}
+	}
+
+	private static Throwable unwrap(final RuntimeException e)
+	{
+		return e instanceof BatchListenerFailedException && Objects.nonNull(e.getCause()) ? e.getCause() : e;
+	}
+}
@@ -0,0 +1,24 @@
+package com.hybris.caas.kafka.listener;
+
+import org.springframework.messaging.Message;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Handles the converted messages of a batch of records at once, see {@link BatchMessageProcessor}.
+ *
+ * @param <T> the type of the message payload
+ */
+@FunctionalInterface
+public interface BulkMessageHandler<T>
+{
+	/**
+	 * Handles the messages of a batch.
+	 *
+	 * @param messages the messages, in the order of the records of the batch
+	 * @return the exception of each message that failed processing, keyed by its index in {@code messages}; an empty map
+	 * when all the messages were processed
+	 */
+	Map<Integer, Exception> handle(List<Message<T>> messages);
+}
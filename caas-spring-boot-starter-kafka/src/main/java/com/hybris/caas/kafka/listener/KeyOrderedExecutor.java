@@ -0,0 +1,71 @@
+package com.hybris.caas.kafka.listener;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of workers processing the records dispatched by {@link KeyOrderedMessageListener}.
+ * <p>
+ * Each worker is a single thread processing its records in submission order and every record is assigned to a worker by
+ * the hash of its key, hence the records of a given key are always processed sequentially and in offset order while the
+ * records of different keys are processed in parallel. Records without a key are assigned by partition, which keeps
+ * their partition order.
+ */
+public class KeyOrderedExecutor implements DisposableBean
+{
+	private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+
+	private final ExecutorService[] workers;
+
+	public KeyOrderedExecutor(final int workerCount)
+	{
+		Assert.isTrue(workerCount > 0, "workerCount must be positive");
+
+		final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("caas-kafka-key-ordered-");
+		this.workers = new ExecutorService[workerCount];
+		for (int i = 0; i < workerCount; i++)
+		{
+			workers[i] = Executors.newSingleThreadExecutor(threadFactory);
+		}
+	}
+
+	/**
+	 * Submits the processing of a record to the worker its key is assigned to.
+	 *
+	 * @param record the record
+	 * @param task   the processing of the record
+	 */
+	void execute(final ConsumerRecord<?, ?> record, final Runnable task)
+	{
+		workers[Math.floorMod(hash(record), workers.length)].execute(task);
+	}
+
+	private static int hash(final ConsumerRecord<?, ?> record)
+	{
+		final Object key = record.key();
+		if (key == null)
+		{
+			return record.partition();
+		}
+		return key instanceof byte[] ? Arrays.hashCode((byte[]) key) : key.hashCode();
+	}
+
+	@Override
+	public void destroy() throws InterruptedException
+	{
+		Arrays.stream(workers).forEach(ExecutorService::shutdown);
+
+		final long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MS;
+		for (final ExecutorService worker : workers)
+		{
+			worker.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+		}
+	}
+}
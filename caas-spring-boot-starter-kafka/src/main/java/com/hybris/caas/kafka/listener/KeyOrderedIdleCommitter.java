@@ -0,0 +1,25 @@
+package com.hybris.caas.kafka.listener;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+/**
+ * Commits the offsets of the records completed by the workers of a {@link KeyOrderedMessageListener} when its container
+ * stops receiving records, the listener committing otherwise only when records are polled. Idle events are published on
+ * the consumer thread.
+ */
+public class KeyOrderedIdleCommitter implements ApplicationListener<ListenerContainerIdleEvent>
+{
+	@Override
+	public void onApplicationEvent(final ListenerContainerIdleEvent event)
+	{
+		final MessageListenerContainer container = event.getContainer(MessageListenerContainer.class);
+		final Object listener = container.getContainerProperties().getMessageListener();
+
+		if (listener instanceof KeyOrderedMessageListener && event.getConsumer() != null)
+		{
+			((KeyOrderedMessageListener<?, ?>) listener).commitCompleted(event.getConsumer());
+		}
+	}
+}
@@ -0,0 +1,242 @@
+package com.hybris.caas.kafka.listener;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.listener.BatchAcknowledgingConsumerAwareMessageListener;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ErrorHandler;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Batch listener dispatching the polled records to a {@link KeyOrderedExecutor} and invoking the record listener of the
+ * container on its workers, so that a single partition is processed by several threads while the records of a given
+ * key are still processed in order.
+ * <p>
+ * The listener returns as soon as the records are dispatched and the consumer thread commits, before each dispatch and
+ * on idle events, the offsets of its partitions up to the first record that did not complete yet. A record is thus
+ * never committed before itself and all the records preceding it in its partition completed. The number of records
+ * dispatched but not completed is bounded: once reached, the records not dispatched yet are sought back and the
+ * container is paused, so that the consumer thread keeps polling without blocking and the consumer is not evicted from
+ * its group. The workers resume the container once half of the capacity is free again. When partitions are revoked,
+ * their dispatched records are awaited, at most the revocation timeout, and their offsets committed before the
+ * partitions are handed over.
+ * <p>
+ * Errors thrown by the record listener are handed to the {@link ErrorHandler} on the worker and the failed record is
+ * then considered completed, as done by the default container with a logging error handler. The record listener is
+ * invoked without {@link Acknowledgment} and without {@link Consumer}, the consumer not being thread safe.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class KeyOrderedMessageListener<K, V>
+		implements BatchAcknowledgingConsumerAwareMessageListener<K, V>, ConsumerAwareRebalanceListener
+{
+	private static final Logger LOG = LoggerFactory.getLogger(KeyOrderedMessageListener.class);
+
+	private final RecordListenerInvoker<K, V> delegate;
+	private final KeyOrderedExecutor executor;
+	private final ErrorHandler errorHandler;
+	private final MessageListenerContainer container;
+	private final Semaphore inFlight;
+	private final int resumeThreshold;
+	private final long revocationTimeoutMs;
+	private final AtomicBoolean pausedBySaturation = new AtomicBoolean();
+	private final Map<TopicPartition, PartitionOffsets> partitionOffsets = new ConcurrentHashMap<>();
+
+	/**
+	 * @param delegate          the record listener of the container
+	 * @param executor          the workers processing the records
+	 * @param errorHandler      the handler of the errors thrown by the record listener
+	 * @param maxInFlight       the maximum number of records dispatched and not completed
+	 * @param revocationTimeout the maximum time to wait for the dispatched records of revoked partitions
+	 * @param container         the container of the listener, paused while the listener is saturated
+	 */
+	public KeyOrderedMessageListener(final Object delegate, final KeyOrderedExecutor executor, final ErrorHandler errorHandler,
+			final int maxInFlight, final Duration revocationTimeout, final MessageListenerContainer container)
+	{
+		Assert.notNull(executor, "executor must not be null");
+		Assert.notNull(errorHandler, "errorHandler must not be null");
+		Assert.isTrue(maxInFlight > 0, "maxInFlight must be positive");
+		Assert.isTrue(revocationTimeout != null && !revocationTimeout.isNegative(), "revocationTimeout must not be negative");
+		Assert.notNull(container, "container must not be null");
+
+		this.delegate = new RecordListenerInvoker<>(delegate);
+		this.executor = executor;
+		this.errorHandler = errorHandler;
+		this.container = container;
+		this.inFlight = new Semaphore(maxInFlight);
+		this.resumeThreshold = Math.max(1, maxInFlight / 2);
+		this.revocationTimeoutMs = revocationTimeout.toMillis();
+	}
+
+	@Override
+	public void onMessage(final List<ConsumerRecord<K, V>> records, final Acknowledgment acknowledgment,
+			final Consumer<?, ?> consumer)
+	{
+		for (int i = 0; i < records.size(); i++)
+		{
+			final ConsumerRecord<K, V> record = records.get(i);
+			if (!inFlight.tryAcquire())
+			{
+				pauseUntilCapacityFrees(consumer, records.subList(i, records.size()));
+				break;
+			}
+
+			final PartitionOffsets offsets = partitionOffsets.computeIfAbsent(
+					new TopicPartition(record.topic(), record.partition()), topicPartition -> new PartitionOffsets());
+			offsets.dispatched(record.offset());
+			executor.execute(record, () -> process(record, offsets));
+		}
+
+		commitCompleted(consumer);
+	}
+
+	/**
+	 * Commits the offsets of the completed records of the partitions assigned to the consumer. Must be called on the
+	 * consumer thread.
+	 *
+	 * @param consumer the consumer
+	 */
+	public void commitCompleted(final Consumer<?, ?> consumer)
+	{
+		final Map<TopicPartition, OffsetAndMetadata> offsetsToCommit = new HashMap<>();
+		for (final TopicPartition topicPartition : consumer.assignment())
+		{
+			final PartitionOffsets offsets = partitionOffsets.get(topicPartition);
+			final long committableOffset = offsets == null ? -1 : offsets.getCommittableOffset();
+			if (committableOffset >= 0)
+			{
+				offsetsToCommit.put(topicPartition, new OffsetAndMetadata(committableOffset));
+			}
+		}
+
+		if (!offsetsToCommit.isEmpty())
+		{
+			LOG.debug("Committing offsets {}.", offsetsToCommit);
+
+			consumer.commitSync(offsetsToCommit);
+			offsetsToCommit.forEach((topicPartition, offset) -> partitionOffsets.get(topicPartition).committed(offset.offset()));
+		}
+	}
+
+	@Override
+	public void onPartitionsRevokedBeforeCommit(final Consumer<?, ?> consumer, final Collection<TopicPartition> partitions)
+	{
+		try
+		{
+			final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(revocationTimeoutMs);
+			for (final TopicPartition topicPartition : partitions)
+			{
+				final PartitionOffsets offsets = partitionOffsets.get(topicPartition);
+				final long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (offsets != null && !offsets.awaitCompletion(remainingMs))
+				{
+					// the new owner of the partition processes the records which did not complete again
+					LOG.warn("Records of the revoked partition {} did not complete within {} ms.", topicPartition,
+							revocationTimeoutMs);
+				}
+			}
+			commitCompleted(consumer);
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			LOG.warn("Interrupted while waiting for the records of the revoked partitions {} to complete.", partitions);
+		}
+		finally
+		{
+			partitions.forEach(partitionOffsets::remove);
+		}
+	}
+
+	@Override
+	public void onPartitionsLost(final Consumer<?, ?> consumer, final Collection<TopicPartition> partitions)
+	{
+		// the partitions are already owned by another consumer, their offsets can no longer be committed
+		partitions.forEach(partitionOffsets::remove);
+	}
+
+	/**
+	 * Seeks the partitions of the records which cannot be dispatched back to their first record and pauses the container
+	 * until the workers free capacity, the records being polled again once it is resumed. Must be called on the consumer
+	 * thread.
+	 */
+	private void pauseUntilCapacityFrees(final Consumer<?, ?> consumer, final List<ConsumerRecord<K, V>> undispatched)
+	{
+		final Map<TopicPartition, Long> seekOffsets = new LinkedHashMap<>();
+		for (final ConsumerRecord<K, V> record : undispatched)
+		{
+			seekOffsets.putIfAbsent(new TopicPartition(record.topic(), record.partition()), record.offset());
+		}
+		seekOffsets.forEach(consumer::seek);
+
+		// a container paused by the application is left for the application to resume
+		if (!container.isPauseRequested())
+		{
+			LOG.debug("Pausing the container, seeking back {} polled records.", undispatched.size());
+
+			container.pause();
+			pausedBySaturation.set(true);
+			// the workers may have freed capacity before the flag was set
+			resumeIfCapacityFreed();
+		}
+	}
+
+	private void resumeIfCapacityFreed()
+	{
+		if (pausedBySaturation.get() && inFlight.availablePermits() >= resumeThreshold
+				&& pausedBySaturation.compareAndSet(true, false))
+		{
+			LOG.debug("Resuming the container.");
+
+			container.resume();
+		}
+	}
+
+	private void process(final ConsumerRecord<K, V> record, final PartitionOffsets offsets)
+	{
+		try
+		{
+			delegate.invoke(record, null);
+		}
+		catch (final Exception e)
+		{
+			handleError(e, record);
+		}
+		finally
+		{
+			offsets.completed(record.offset());
+			inFlight.release();
+			resumeIfCapacityFreed();
+		}
+	}
+
+	private void handleError(final Exception thrownException, final ConsumerRecord<K, V> record)
+	{
+		try
+		{
+			errorHandler.handle(thrownException, record);
+		}
+		catch (final Exception e)
+		{
+			LOG.error(String.format("Error handler failed for record %s", record), e);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.hybris.caas.kafka.listener;
+
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the records of a partition that are processed out of offset order and derives the offset that can be
+ * committed, i.e. the one following the highest offset below which every dispatched record completed.
+ */
+class PartitionOffsets
+{
+	private final NavigableSet<Long> pending = new TreeSet<>();
+	private long nextOffset = -1;
+	private long committedOffset = -1;
+
+	synchronized void dispatched(final long offset)
+	{
+		pending.add(offset);
+		nextOffset = Math.max(nextOffset, offset + 1);
+	}
+
+	synchronized void completed(final long offset)
+	{
+		pending.remove(offset);
+		if (pending.isEmpty())
+		{
+			notifyAll();
+		}
+	}
+
+	/**
+	 * @return the offset to commit, or {@code -1} if it did not move since the last commit
+	 */
+	synchronized long getCommittableOffset()
+	{
+		final long committableOffset = pending.isEmpty() ? nextOffset : pending.first();
+		return committableOffset > committedOffset ? committableOffset : -1;
+	}
+
+	synchronized void committed(final long offset)
+	{
+		committedOffset = Math.max(committedOffset, offset);
+	}
+
+	/**
+	 * Waits until every dispatched record completed, at most the given time.
+	 *
+	 * @param timeoutMs the maximum time to wait in milliseconds
+	 * @return {@code true} if every dispatched record completed, {@code false} if the timeout elapsed before
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 */
+	synchronized boolean awaitCompletion(final long timeoutMs) throws InterruptedException
+	{
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		long remainingMs = timeoutMs;
+		while (!pending.isEmpty() && remainingMs > 0)
+		{
+			wait(remainingMs);
+			remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+		}
+		return pending.isEmpty();
+	}
+}
@@ -0,0 +1,67 @@
+package com.hybris.caas.kafka.listener;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.ListenerType;
+import org.springframework.kafka.listener.ListenerUtils;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.util.Assert;
+
+/**
+ * Invokes the record listener set up by a listener endpoint, e.g. the adapter of a {@code @KafkaListener} method, from a
+ * batch listener wrapping it, the way the listener container would invoke it.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class RecordListenerInvoker<K, V>
+{
+	private final MessageListener<K, V> listener;
+	private final ListenerType listenerType;
+
+	@SuppressWarnings("unchecked")
+	public RecordListenerInvoker(final Object listener)
+	{
+		Assert.isInstanceOf(MessageListener.class, listener, "A record listener is required");
+
+		this.listener = (MessageListener<K, V>) listener;
+		this.listenerType = ListenerUtils.determineListenerType(listener);
+	}
+
+	/**
+	 * Invokes the record listener without {@link Acknowledgment}, the offsets being committed by the wrapping listener.
+	 *
+	 * @param record   the record
+	 * @param consumer the consumer passed to consumer aware listeners, {@code null} when not invoked on the consumer thread
+	 */
+	public void invoke(final ConsumerRecord<K, V> record, final Consumer<?, ?> consumer)
+	{
+		invoke(record, null, consumer);
+	}
+
+	/**
+	 * Invokes the record listener.
+	 *
+	 * @param record         the record
+	 * @param acknowledgment the acknowledgment passed to acknowledging listeners, may be {@code null}
+	 * @param consumer       the consumer passed to consumer aware listeners, {@code null} when not invoked on the consumer thread
+	 */
+	public void invoke(final ConsumerRecord<K, V> record, final Acknowledgment acknowledgment, final Consumer<?, ?> consumer)
+	{
+		switch (listenerType)
+		{
+			case ACKNOWLEDGING_CONSUMER_AWARE:
+				listener.onMessage(record, acknowledgment, consumer);
+				break;
+			case ACKNOWLEDGING:
+				listener.onMessage(record, acknowledgment);
+				break;
+			case CONSUMER_AWARE:
+				listener.onMessage(record, consumer);
+				break;
+			default:
+				listener.onMessage(record);
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.hybris.caas.kafka.message;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.util.Assert;
+
+import java.util.Map;
+
+/**
+ * Value serializer writing the {@code byte[]} values as is, e.g. the payloads already serialized by the
+ * {@link ContentTypeMessageConverter}, and handing the other values to the serializer configured for the producer, so
+ * that a single producer factory serves both the messages sent through the converter and the records sent directly.
+ *
+ * @param <T> the value type of the delegate serializer
+ */
+public class ByteArrayPassThroughSerializer<T> implements Serializer<Object>
+{
+	private final Serializer<T> delegate;
+
+	/**
+	 * @param delegate the serializer of the values which are not {@code byte[]}
+	 */
+	public ByteArrayPassThroughSerializer(final Serializer<T> delegate)
+	{
+		Assert.notNull(delegate, "delegate must not be null");
+
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void configure(final Map<String, ?> configs, final boolean isKey)
+	{
+		delegate.configure(configs, isKey);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public byte[] serialize(final String topic, final Object data)
+	{
+		return data instanceof byte[] ? (byte[]) data : delegate.serialize(topic, (T) data);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public byte[] serialize(final String topic, final Headers headers, final Object data)
+	{
+		return data instanceof byte[] ? (byte[]) data : delegate.serialize(topic, headers, (T) data);
+	}
+
+	@Override
+	public void close()
+	{
+		delegate.close();
+	}
+}
@@ -0,0 +1,160 @@
+package com.hybris.caas.kafka.message;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.utils.Bytes;
+import org.springframework.beans.BeanUtils;
+import org.springframework.kafka.support.JacksonUtils;
+import org.springframework.kafka.support.KafkaNull;
+import org.springframework.kafka.support.converter.ConversionException;
+import org.springframework.kafka.support.converter.MessagingMessageConverter;
+import org.springframework.messaging.Message;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.hybris.caas.kafka.util.CaasKafkaHeaders.CONTENT_TYPE;
+
+/**
+ * Message converter serializing the payloads straight to {@code byte[]} with Jackson, in the {@link MessageFormat}
+ * configured for the topic of the message, and setting the {@link com.hybris.caas.kafka.util.CaasKafkaHeaders#CONTENT_TYPE}
+ * header accordingly. The kafka producer must pass {@code byte[]} values through, e.g. with a {@code ByteArraySerializer}
+ * or a {@link ByteArrayPassThroughSerializer}.
+ * <p>
+ * Consumed records are deserialized in the format given by their content type header, or as JSON when they have none,
+ * so that the format of a topic can be changed once all its consumers use this converter. Record values of type
+ * {@code byte[]} are deserialized without intermediate {@code String}, values of type {@code String} are supported for
+ * JSON records consumed with a {@code StringDeserializer}.
+ */
+public class ContentTypeMessageConverter extends MessagingMessageConverter
+{
+	private final MessageFormat defaultFormat;
+	private final Map<String, MessageFormat> topicFormats;
+	private final Map<MessageFormat, ObjectMapper> objectMappers = new ConcurrentHashMap<>();
+
+	/**
+	 * @param defaultFormat the format of the messages sent to the topics without configured format
+	 * @param topicFormats  the format of the messages sent to a topic, by topic name
+	 */
+	public ContentTypeMessageConverter(final MessageFormat defaultFormat, final Map<String, MessageFormat> topicFormats)
+	{
+		Assert.notNull(defaultFormat, "defaultFormat must not be null");
+		Assert.notNull(topicFormats, "topicFormats must not be null");
+
+		this.defaultFormat = defaultFormat;
+		this.topicFormats = Map.copyOf(topicFormats);
+	}
+
+	@Override
+	public ProducerRecord<?, ?> fromMessage(final Message<?> message, final String defaultTopic)
+	{
+		final ProducerRecord<?, ?> record = super.fromMessage(message, defaultTopic);
+		final MessageFormat format = topicFormats.getOrDefault(record.topic(), defaultFormat);
+
+		record.headers().remove(CONTENT_TYPE);
+		record.headers().add(CONTENT_TYPE, format.getContentType().getBytes(StandardCharsets.UTF_8));
+
+		return new ProducerRecord<>(record.topic(), record.partition(), record.timestamp(), record.key(),
+				serialize(record.value(), format), record.headers());
+	}
+
+	@Override
+	protected Object extractAndConvertValue(final ConsumerRecord<?, ?> record, final Type type)
+	{
+		final Object value = record.value();
+		if (value == null)
+		{
+			return KafkaNull.INSTANCE;
+		}
+
+		final ObjectMapper objectMapper = getObjectMapper(getFormat(record));
+		final JavaType javaType = TypeFactory.defaultInstance().constructType(type == null ? Object.class : type);
+		try
+		{
+			if (value instanceof byte[])
+			{
+				return objectMapper.readValue((byte[]) value, javaType);
+			}
+			if (value instanceof Bytes)
+			{
+				return objectMapper.readValue(((Bytes) value).get(), javaType);
+			}
+			if (value instanceof String)
+			{
+				return objectMapper.readValue((String) value, javaType);
+			}
+		}
+		catch (final IOException e)
+		{
+			throw new ConversionException(String.format("Failed to convert the value of %s to %s", record, javaType), e);
+		}
+		throw new IllegalStateException("Only String, Bytes, or byte[] supported");
+	}
+
+	private byte[] serialize(final Object payload, final MessageFormat format)
+	{
+		if (payload == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			return getObjectMapper(format).writeValueAsBytes(payload);
+		}
+		catch (final IOException e)
+		{
+			throw new ConversionException(String.format("Failed to convert the payload to %s", format), e);
+		}
+	}
+
+	private MessageFormat getFormat(final ConsumerRecord<?, ?> record)
+	{
+		final Header contentType = record.headers().lastHeader(CONTENT_TYPE);
+		if (contentType == null || contentType.value() == null)
+		{
+			// records sent before the content type header was introduced
+			return MessageFormat.JSON;
+		}
+
+		final String value = new String(contentType.value(), StandardCharsets.UTF_8);
+		return MessageFormat.fromContentType(value)
+				.orElseThrow(() -> new ConversionException(String.format("Unsupported content type %s of %s", value, record), null));
+	}
+
+	private ObjectMapper getObjectMapper(final MessageFormat format)
+	{
+		return objectMappers.computeIfAbsent(format, ContentTypeMessageConverter::createObjectMapper);
+	}
+
+	private static ObjectMapper createObjectMapper(final MessageFormat format)
+	{
+		if (format == MessageFormat.JSON)
+		{
+			return JacksonUtils.enhancedObjectMapper();
+		}
+
+		Assert.state(ClassUtils.isPresent(format.getJsonFactoryClassName(), null),
+				() -> String.format("%s is required for the %s kafka message format", format.getJsonFactoryClassName(), format));
+
+		// configured as the JSON object mapper
+		final ObjectMapper objectMapper = new ObjectMapper(
+				(JsonFactory) BeanUtils.instantiateClass(ClassUtils.resolveClassName(format.getJsonFactoryClassName(), null)));
+		objectMapper.configure(MapperFeature.DEFAULT_VIEW_INCLUSION, false);
+		objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		objectMapper.findAndRegisterModules();
+		return objectMapper;
+	}
+}
@@ -0,0 +1,55 @@
+package com.hybris.caas.kafka.message;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Formats the kafka message payloads are serialized to by {@link ContentTypeMessageConverter}, identified by the content
+ * type header of the messages.
+ */
+public enum MessageFormat
+{
+	/**
+	 * JSON, as serialized by the {@code StringJsonMessageConverter}.
+	 */
+	JSON("application/json", "com.fasterxml.jackson.core.JsonFactory"),
+	/**
+	 * Binary JSON, requires {@code com.fasterxml.jackson.dataformat:jackson-dataformat-smile}.
+	 */
+	SMILE("application/x-jackson-smile", "com.fasterxml.jackson.dataformat.smile.SmileFactory"),
+	/**
+	 * Concise binary object representation, requires {@code com.fasterxml.jackson.dataformat:jackson-dataformat-cbor}.
+	 */
+	CBOR("application/cbor", "com.fasterxml.jackson.dataformat.cbor.CBORFactory");
+
+	private final String contentType;
+	private final String jsonFactoryClassName;
+
+	MessageFormat(final String contentType, final String jsonFactoryClassName)
+	{
+		this.contentType = contentType;
+		this.jsonFactoryClassName = jsonFactoryClassName;
+	}
+
+	public String getContentType()
+	{
+		return contentType;
+	}
+
+	/**
+	 * @return the name of the Jackson {@code JsonFactory} class reading and writing the format
+	 */
+	public String getJsonFactoryClassName()
+	{
+		return jsonFactoryClassName;
+	}
+
+	/**
+	 * @param contentType the content type
+	 * @return the format identified by the content type, if any
+	 */
+	public static Optional<MessageFormat> fromContentType(final String contentType)
+	{
+		return Arrays.stream(values()).filter(format -> format.contentType.equalsIgnoreCase(contentType)).findFirst();
+	}
+}
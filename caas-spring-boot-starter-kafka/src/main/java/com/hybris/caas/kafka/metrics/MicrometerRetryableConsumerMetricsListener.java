@@ -0,0 +1,128 @@
+package com.hybris.caas.kafka.metrics;
+
+import com.hybris.caas.kafka.util.RetryableConsumerRoutingTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.DEAD_LETTER_TOPIC_SUFFIX;
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.LONG_DELAY_RETRY_TOPIC_SUFFIX;
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.SHORT_DELAY_RETRY_TOPIC_SUFFIX;
+
+/**
+ * Publishes the handling of the records of the retryable consumers as Micrometer meters tagged with the source topic of
+ * the retryable consumer and the tier of the topic of the record: source, short delay retry, long delay retry or dead
+ * letter.
+ * <p>
+ * The meters are registered on the first record of each route and then reused, a route having a fixed source topic,
+ * tier and destination topic.
+ */
+public class MicrometerRetryableConsumerMetricsListener implements RetryableConsumerMetricsListener
+{
+	static final String INTERCEPTED = "caas.kafka.retryable.consumer.intercepted";
+	static final String DELAYED = "caas.kafka.retryable.consumer.delayed";
+	static final String ROUTED = "caas.kafka.retryable.consumer.routed";
+	static final String PROCESSING = "caas.kafka.retryable.consumer.processing";
+
+	static final String SOURCE_TIER = "source";
+	static final String SHORT_DELAY_RETRY_TIER = "short-delay-retry";
+	static final String LONG_DELAY_RETRY_TIER = "long-delay-retry";
+	static final String DEAD_LETTER_TIER = "dead-letter";
+
+	private static final String SOURCE_TOPIC = "source.topic";
+	private static final String TIER = "tier";
+
+	private final MeterRegistry meterRegistry;
+	private final Map<RetryableConsumerRoutingTable.Route, Counter> interceptedCounters = new ConcurrentHashMap<>();
+	private final Map<RetryableConsumerRoutingTable.Route, Timer> delayedTimers = new ConcurrentHashMap<>();
+	private final Map<RetryableConsumerRoutingTable.Route, Counter> routedCounters = new ConcurrentHashMap<>();
+	private final Map<RetryableConsumerRoutingTable.Route, Timer> successTimers = new ConcurrentHashMap<>();
+	private final Map<RetryableConsumerRoutingTable.Route, Timer> failureTimers = new ConcurrentHashMap<>();
+
+	public MicrometerRetryableConsumerMetricsListener(final MeterRegistry meterRegistry)
+	{
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public void onIntercepted(final RetryableConsumerRoutingTable.Route route, final String topic)
+	{
+		interceptedCounters.computeIfAbsent(route, key -> Counter.builder(INTERCEPTED)
+				.description("The records intercepted before being processed")
+				.tag(SOURCE_TOPIC, key.getSource())
+				.tag(TIER, tier(key.getTier()))
+				.register(meterRegistry)).increment();
+	}
+
+	@Override
+	public void onDelayed(final RetryableConsumerRoutingTable.Route route, final String topic, final long remainingDelayMs)
+	{
+		delayedTimers.computeIfAbsent(route, key -> Timer.builder(DELAYED)
+				.description("The delay enforced on the retry topic records not due yet, each one being sought back to")
+				.tag(SOURCE_TOPIC, key.getSource())
+				.tag(TIER, tier(key.getTier()))
+				.register(meterRegistry)).record(remainingDelayMs, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void onRouted(final RetryableConsumerRoutingTable.Route route, final String topic, final String destinationTopic)
+	{
+		// the destination topic of a route is its next hop, hence the same for every record of the route
+		routedCounters.computeIfAbsent(route, key -> Counter.builder(ROUTED)
+				.description("The failed records routed to the next retry topic or to the dead letter topic")
+				.tag(SOURCE_TOPIC, key.getSource())
+				.tag(TIER, tier(key.getTier()))
+				.tag("destination.tier", tier(destinationTopic))
+				.register(meterRegistry)).increment();
+	}
+
+	@Override
+	public void onProcessed(final RetryableConsumerRoutingTable.Route route, final String topic, final long durationNanos,
+			final Exception exception)
+	{
+		final boolean success = exception == null;
+		(success ? successTimers : failureTimers).computeIfAbsent(route, key -> Timer.builder(PROCESSING)
+				.description("The processing time of the records by the listener")
+				.tag(SOURCE_TOPIC, key.getSource())
+				.tag(TIER, tier(key.getTier()))
+				.tag("outcome", success ? "success" : "failure")
+				.publishPercentileHistogram()
+				.register(meterRegistry)).record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	static String tier(final RetryableConsumerRoutingTable.Tier tier)
+	{
+		switch (tier)
+		{
+			case SHORT_DELAY_RETRY:
+				return SHORT_DELAY_RETRY_TIER;
+			case LONG_DELAY_RETRY:
+				return LONG_DELAY_RETRY_TIER;
+			case DEAD_LETTER:
+				return DEAD_LETTER_TIER;
+			default:
+				return SOURCE_TIER;
+		}
+	}
+
+	static String tier(final String topic)
+	{
+		if (topic.endsWith(SHORT_DELAY_RETRY_TOPIC_SUFFIX))
+		{
+			return SHORT_DELAY_RETRY_TIER;
+		}
+		if (topic.endsWith(LONG_DELAY_RETRY_TOPIC_SUFFIX))
+		{
+			return LONG_DELAY_RETRY_TIER;
+		}
+		if (topic.endsWith(DEAD_LETTER_TOPIC_SUFFIX))
+		{
+			return DEAD_LETTER_TIER;
+		}
+		return SOURCE_TIER;
+	}
+}
@@ -0,0 +1,68 @@
+package com.hybris.caas.kafka.metrics;
+
+import com.hybris.caas.kafka.util.RetryableConsumerRoutingTable;
+
+/**
+ * Callback interface notified of the handling of the records of the retryable consumers, from their source topic to their
+ * retry and dead letter topics. Every callback is given the route of the record, i.e. the source topic of the retryable
+ * consumer and the tier of the topic of the record, and the topic of the record, which is either the source topic or one
+ * of its retry topics.
+ */
+public interface RetryableConsumerMetricsListener
+{
+	/**
+	 * Listener ignoring all the callbacks.
+	 */
+	RetryableConsumerMetricsListener NONE = new RetryableConsumerMetricsListener()
+	{
+	};
+
+	/**
+	 * Called when a record is intercepted before being processed.
+	 *
+	 * @param route       the route of the record
+	 * @param topic       the topic of the record
+	 */
+	default void onIntercepted(final RetryableConsumerRoutingTable.Route route, final String topic)
+	{
+		// no-op
+	}
+
+	/**
+	 * Called when a record of a retry topic is not due yet, its partition is then sought back to it and paused.
+	 *
+	 * @param route            the route of the record
+	 * @param topic            the topic of the record
+	 * @param remainingDelayMs the time remaining until the record is due
+	 */
+	default void onDelayed(final RetryableConsumerRoutingTable.Route route, final String topic, final long remainingDelayMs)
+	{
+		// no-op
+	}
+
+	/**
+	 * Called when a failed record is routed to the next retry topic or to the dead letter topic.
+	 *
+	 * @param route            the route of the record
+	 * @param topic            the topic of the record
+	 * @param destinationTopic the topic the record is published to
+	 */
+	default void onRouted(final RetryableConsumerRoutingTable.Route route, final String topic, final String destinationTopic)
+	{
+		// no-op
+	}
+
+	/**
+	 * Called when a record has been processed by the listener.
+	 *
+	 * @param route         the route of the record
+	 * @param topic         the topic of the record
+	 * @param durationNanos the processing time
+	 * @param exception     the exception thrown by the listener, {@code null} if the processing succeeded
+	 */
+	default void onProcessed(final RetryableConsumerRoutingTable.Route route, final String topic, final long durationNanos,
+			final Exception exception)
+	{
+		// no-op
+	}
+}
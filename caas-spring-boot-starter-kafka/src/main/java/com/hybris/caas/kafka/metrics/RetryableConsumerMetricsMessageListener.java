@@ -0,0 +1,124 @@
+package com.hybris.caas.kafka.metrics;
+
+import com.hybris.caas.kafka.listener.RecordListenerInvoker;
+import com.hybris.caas.kafka.util.RetryableConsumerRoutingTable;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.AcknowledgingConsumerAwareMessageListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.listener.DelegatingMessageListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.util.Assert;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Record listener wrapping the record listener of a retryable consumer container to notify the
+ * {@link RetryableConsumerMetricsListener} of the processing time of each record.
+ * <p>
+ * The partition assignment and seek callbacks are passed on to the wrapped listener when it is {@link ConsumerSeekAware},
+ * e.g. the adapter of a {@code @KafkaListener} bean implementing it.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class RetryableConsumerMetricsMessageListener<K, V>
+		implements AcknowledgingConsumerAwareMessageListener<K, V>, ConsumerSeekAware, DelegatingMessageListener<Object>
+{
+	private final Object delegate;
+	private final RecordListenerInvoker<K, V> invoker;
+	private final RetryableConsumerRoutingTable routingTable;
+	private final RetryableConsumerMetricsListener metricsListener;
+
+	public RetryableConsumerMetricsMessageListener(final Object delegate,
+			final RetryableConsumerRoutingTable routingTable, final RetryableConsumerMetricsListener metricsListener)
+	{
+		Assert.notNull(routingTable, "routingTable must not be null");
+		Assert.notNull(metricsListener, "metricsListener must not be null");
+
+		this.delegate = delegate;
+		this.invoker = new RecordListenerInvoker<>(delegate);
+		this.routingTable = routingTable;
+		this.metricsListener = metricsListener;
+	}
+
+	@Override
+	public void onMessage(final ConsumerRecord<K, V> record, final Acknowledgment acknowledgment, final Consumer<?, ?> consumer)
+	{
+		final long start = System.nanoTime();
+		try
+		{
+			invoker.invoke(record, acknowledgment, consumer);
+		}
+		catch (final RuntimeException e)
+		{
+			onProcessed(record, start, e);
+			throw e;
+		}
+		onProcessed(record, start, null);
+	}
+
+	@Override
+	public Object getDelegate()
+	{
+		return delegate;
+	}
+
+	@Override
+	public void registerSeekCallback(final ConsumerSeekCallback callback)
+	{
+		if (delegate instanceof ConsumerSeekAware)
+		{
+			((ConsumerSeekAware) delegate).registerSeekCallback(callback);
+		}
+	}
+
+	@Override
+	public void onPartitionsAssigned(final Map<TopicPartition, Long> assignments, final ConsumerSeekCallback callback)
+	{
+		if (delegate instanceof ConsumerSeekAware)
+		{
+			((ConsumerSeekAware) delegate).onPartitionsAssigned(assignments, callback);
+		}
+	}
+
+	@Override
+	public void onPartitionsRevoked(final Collection<TopicPartition> partitions)
+	{
+		if (delegate instanceof ConsumerSeekAware)
+		{
+			((ConsumerSeekAware) delegate).onPartitionsRevoked(partitions);
+		}
+	}
+
+	@Override
+	public void onIdleContainer(final Map<TopicPartition, Long> assignments, final ConsumerSeekCallback callback)
+	{
+		if (delegate instanceof ConsumerSeekAware)
+		{
+			((ConsumerSeekAware) delegate).onIdleContainer(assignments, callback);
+		}
+	}
+
+	@Override
+	public void unregisterSeekCallback()
+	{
+		if (delegate instanceof ConsumerSeekAware)
+		{
+			((ConsumerSeekAware) delegate).unregisterSeekCallback();
+		}
+	}
+
+	private void onProcessed(final ConsumerRecord<K, V> record, final long start, final Exception exception)
+	{
+		final long durationNanos = System.nanoTime() - start;
+		final RetryableConsumerRoutingTable.Route route = routingTable.getRoute(record);
+		if (Objects.nonNull(route))
+		{
+			metricsListener.onProcessed(route, record.topic(), durationNanos, exception);
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.hybris.caas.kafka.outbox;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.utils.Bytes;
+import org.springframework.kafka.support.converter.RecordMessageConverter;
+import org.springframework.messaging.Message;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static com.hybris.caas.kafka.util.CaasKafkaHeaders.TENANT;
+
+/**
+ * Transactional outbox, writes kafka messages to the outbox table within the JPA transaction of the caller instead of
+ * sending them to the Kafka broker(s). The messages are sent by the {@link OutboxRelay} once the transaction is committed
+ * and are discarded with the transaction when it is rolled back, without chaining a kafka transaction to the JPA one.
+ * <p>
+ * The messages are converted to producer records by the {@link RecordMessageConverter} used by the kafka template, so
+ * that they are sent with the same value and headers as when sent directly, and are assigned to a relay partition by
+ * tenant and key: the messages of a given tenant and key are sent in the order they were committed.
+ */
+public class KafkaOutbox
+{
+	private final OutboxRepository outboxRepository;
+	private final RecordMessageConverter messageConverter;
+	private final int partitions;
+	private final Clock clock;
+
+	public KafkaOutbox(final OutboxRepository outboxRepository, final RecordMessageConverter messageConverter,
+			final int partitions)
+	{
+		this(outboxRepository, messageConverter, partitions, Clock.systemUTC());
+	}
+
+	KafkaOutbox(final OutboxRepository outboxRepository, final RecordMessageConverter messageConverter, final int partitions,
+			final Clock clock)
+	{
+		Assert.notNull(outboxRepository, "outboxRepository must not be null");
+		Assert.notNull(messageConverter, "messageConverter must not be null");
+		Assert.isTrue(partitions > 0, "partitions must be positive");
+
+		this.outboxRepository = outboxRepository;
+		this.messageConverter = messageConverter;
+		this.partitions = partitions;
+		this.clock = clock;
+	}
+
+	/**
+	 * Adds a {@link Message} to the outbox, to be sent once the current transaction is committed.
+	 *
+	 * @param message to be sent, holding the topic in the {@code KafkaHeaders.TOPIC} header
+	 * @throws IllegalStateException when no transaction is active
+	 */
+	public void add(final Message<?> message)
+	{
+		Assert.state(TransactionSynchronizationManager.isActualTransactionActive(),
+				"Kafka outbox messages must be added within a transaction");
+
+		final ProducerRecord<?, ?> record = messageConverter.fromMessage(message, null);
+		final String tenant = message.getHeaders().get(TENANT, String.class);
+		final byte[] key = toBytes(record.key());
+		// the message is sent later on, keep the time it was produced at
+		final long timestamp = record.timestamp() == null ? clock.millis() : record.timestamp();
+
+		outboxRepository.insert(tenant, relayPartition(tenant, key, partitions),
+				new ProducerRecord<>(record.topic(), record.partition(), timestamp, key, toBytes(record.value()),
+						record.headers()));
+	}
+
+	static int relayPartition(final String tenant, final byte[] key, final int partitions)
+	{
+		return Math.floorMod(31 * Objects.hashCode(tenant) + Arrays.hashCode(key), partitions);
+	}
+
+	private static byte[] toBytes(final Object data)
+	{
+		if (data == null || data instanceof byte[])
+		{
+			return (byte[]) data;
+		}
+		if (data instanceof String)
+		{
+			return ((String) data).getBytes(StandardCharsets.UTF_8);
+		}
+		if (data instanceof Bytes)
+		{
+			return ((Bytes) data).get();
+		}
+		throw new IllegalArgumentException(String.format(
+				"Unsupported kafka outbox message key or value type %s, the message converter must convert them to String, Bytes or byte[]",
+				data.getClass().getName()));
+	}
+}
@@ -0,0 +1,28 @@
+package com.hybris.caas.kafka.outbox;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+/**
+ * Message read from the outbox table, with the serialized producer record to be relayed.
+ */
+class OutboxRecord
+{
+	private final long id;
+	private final ProducerRecord<byte[], byte[]> producerRecord;
+
+	OutboxRecord(final long id, final ProducerRecord<byte[], byte[]> producerRecord)
+	{
+		this.id = id;
+		this.producerRecord = producerRecord;
+	}
+
+	long getId()
+	{
+		return id;
+	}
+
+	ProducerRecord<byte[], byte[]> getProducerRecord()
+	{
+		return producerRecord;
+	}
+}
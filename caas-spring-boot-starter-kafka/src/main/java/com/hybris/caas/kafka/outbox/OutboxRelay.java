@@ -0,0 +1,207 @@
+package com.hybris.caas.kafka.outbox;
+
+import com.hybris.caas.kafka.config.CaasKafkaProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Relays the messages of the outbox table to the Kafka broker(s) and marks them sent.
+ * <p>
+ * The outbox is polled partition by partition, each partition in its own transaction holding a lock on the partition,
+ * so that relays running in several instances of the application share the partitions and a partition is relayed by
+ * a single relay at a time. The messages of a partition are sent in batches, in the order they were written, with an
+ * idempotent producer and without kafka transaction.
+ * <p>
+ * Messages are sent at least once: when a message fails to be sent, it and the following messages of its partition are
+ * sent again on the next poll, even though some of them may already have been sent.
+ */
+public class OutboxRelay implements SmartLifecycle
+{
+	private static final Logger LOG = LoggerFactory.getLogger(OutboxRelay.class);
+	private static final Duration PURGE_INTERVAL = Duration.ofMinutes(1);
+
+	private final OutboxRepository outboxRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final KafkaTemplate<byte[], byte[]> kafkaTemplate;
+	private final CaasKafkaProperties.Outbox outbox;
+	private final long sendTimeoutMs;
+	private final Clock clock;
+	private Instant nextPurge;
+	private volatile ScheduledExecutorService executor;
+
+	/**
+	 * @param outboxRepository    the outbox repository
+	 * @param transactionTemplate the transaction template of the JPA transaction manager
+	 * @param kafkaTemplate       the non transactional kafka template of an idempotent producer
+	 * @param outbox              the outbox properties
+	 * @param sendTimeoutMs       the maximum time to wait for a batch of messages to be sent
+	 */
+	public OutboxRelay(final OutboxRepository outboxRepository, final TransactionTemplate transactionTemplate,
+			final KafkaTemplate<byte[], byte[]> kafkaTemplate, final CaasKafkaProperties.Outbox outbox, final long sendTimeoutMs)
+	{
+		this(outboxRepository, transactionTemplate, kafkaTemplate, outbox, sendTimeoutMs, Clock.systemUTC());
+	}
+
+	OutboxRelay(final OutboxRepository outboxRepository, final TransactionTemplate transactionTemplate,
+			final KafkaTemplate<byte[], byte[]> kafkaTemplate, final CaasKafkaProperties.Outbox outbox, final long sendTimeoutMs,
+			final Clock clock)
+	{
+		Assert.notNull(outboxRepository, "outboxRepository must not be null");
+		Assert.notNull(transactionTemplate, "transactionTemplate must not be null");
+		Assert.notNull(kafkaTemplate, "kafkaTemplate must not be null");
+		Assert.notNull(outbox, "outbox must not be null");
+
+		this.outboxRepository = outboxRepository;
+		this.transactionTemplate = transactionTemplate;
+		this.kafkaTemplate = kafkaTemplate;
+		this.outbox = outbox;
+		this.sendTimeoutMs = sendTimeoutMs;
+		this.clock = clock;
+		this.nextPurge = clock.instant();
+	}
+
+	/**
+	 * Relays a batch of messages of each outbox partition not locked by another relay, then deletes the messages sent
+	 * before the retention period if not done recently.
+	 *
+	 * @return the number of messages sent
+	 */
+	public int relay()
+	{
+		int sent = 0;
+		for (int partition = 0; partition < outbox.getPartitions(); partition++)
+		{
+			final int relayPartition = partition;
+			final Integer partitionSent = transactionTemplate.execute(status -> relay(relayPartition));
+			sent += partitionSent == null ? 0 : partitionSent;
+		}
+
+		final Instant now = clock.instant();
+		if (!now.isBefore(nextPurge))
+		{
+			final Integer deleted = transactionTemplate.execute(
+					status -> outboxRepository.deleteSentBefore(now.minus(outbox.getSentRetention())));
+			LOG.debug("Deleted {} sent kafka outbox messages.", deleted);
+			nextPurge = now.plus(PURGE_INTERVAL);
+		}
+		return sent;
+	}
+
+	private int relay(final int relayPartition)
+	{
+		if (!outboxRepository.tryLock(relayPartition))
+		{
+			return 0;
+		}
+
+		final List<OutboxRecord> records = outboxRepository.findUnsent(relayPartition, outbox.getBatchSize());
+		final List<ListenableFuture<SendResult<byte[], byte[]>>> futures = records.stream()
+				.map(record -> kafkaTemplate.send(record.getProducerRecord()))
+				.collect(Collectors.toList());
+
+		final List<Long> sentIds = new ArrayList<>();
+		final long deadline = clock.millis() + sendTimeoutMs;
+		for (int i = 0; i < records.size(); i++)
+		{
+			if (!awaitSent(futures.get(i), deadline, records.get(i)))
+			{
+				// the following messages are sent again, to keep the order of the messages of a key
+				break;
+			}
+			sentIds.add(records.get(i).getId());
+		}
+
+		if (!sentIds.isEmpty())
+		{
+			outboxRepository.markSent(sentIds, clock.instant());
+		}
+		return sentIds.size();
+	}
+
+	private boolean awaitSent(final ListenableFuture<SendResult<byte[], byte[]>> future, final long deadline,
+			final OutboxRecord record)
+	{
+		try
+		{
+			future.get(Math.max(0, deadline - clock.millis()), TimeUnit.MILLISECONDS);
+			return true;
+		}
+		catch (final InterruptedException e)
+		{
+			// Restore interrupted state...
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		catch (final ExecutionException | TimeoutException e)
+		{
+			LOG.warn(String.format("Failed to send kafka outbox message %d to topic %s, retrying on next poll", record.getId(),
+					record.getProducerRecord().topic()), e);
+			return false;
+		}
+	}
+
+	private void relayQuietly()
+	{
+		try
+		{
+			relay();
+		}
+		catch (final Exception e)
+		{
+			// not propagating the exception, it would cancel the next polls
+			LOG.error("Failed to relay kafka outbox messages", e);
+		}
+	}
+
+	@Override
+	public void start()
+	{
+		executor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("caas-kafka-outbox-relay-"));
+		executor.scheduleWithFixedDelay(this::relayQuietly, 0, outbox.getPollInterval().toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void stop()
+	{
+		final ScheduledExecutorService scheduledExecutor = executor;
+		executor = null;
+		scheduledExecutor.shutdown();
+		try
+		{
+			scheduledExecutor.awaitTermination(sendTimeoutMs, TimeUnit.MILLISECONDS);
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			kafkaTemplate.getProducerFactory().reset();
+		}
+	}
+
+	@Override
+	public boolean isRunning()
+	{
+		return executor != null;
+	}
+}
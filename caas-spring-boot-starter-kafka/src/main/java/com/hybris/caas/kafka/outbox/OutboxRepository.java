@@ -0,0 +1,162 @@
+package com.hybris.caas.kafka.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.hybris.caas.kafka.error.KafkaRuntimeException;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Native queries on the outbox table, run within the JPA transaction bound to the current thread.
+ * <p>
+ * The outbox table is expected to be created by the application, see the README of the starter. Relay partitions are
+ * locked with PostgreSQL transaction level advisory locks.
+ */
+public class OutboxRepository
+{
+	private static final String HEADER_KEY = "key";
+	private static final String HEADER_VALUE = "value";
+	private static final int NO_PARTITION = -1;
+
+	private final EntityManager entityManager;
+	private final ObjectMapper objectMapper;
+	private final String tableName;
+	private final int lockKey;
+
+	/**
+	 * @param entityManager the shared entity manager, bound to the transaction of the current thread
+	 * @param objectMapper  the object mapper used to encode the record headers
+	 * @param tableName     the name of the outbox table
+	 */
+	public OutboxRepository(final EntityManager entityManager, final ObjectMapper objectMapper, final String tableName)
+	{
+		Assert.notNull(entityManager, "entityManager must not be null");
+		Assert.notNull(objectMapper, "objectMapper must not be null");
+		Assert.hasText(tableName, "tableName must not be empty");
+
+		this.entityManager = entityManager;
+		this.objectMapper = objectMapper;
+		this.tableName = tableName;
+		this.lockKey = tableName.hashCode();
+	}
+
+	void insert(final String tenant, final int relayPartition, final ProducerRecord<byte[], byte[]> record)
+	{
+		entityManager.createNativeQuery("insert into " + tableName
+				+ " (tenant, relay_partition, topic, kafka_partition, kafka_timestamp, message_key, payload, headers)"
+				+ " values (?1, ?2, ?3, nullif(?4, " + NO_PARTITION + "), ?5, ?6, ?7, ?8)")
+				.setParameter(1, tenant)
+				.setParameter(2, relayPartition)
+				.setParameter(3, record.topic())
+				.setParameter(4, record.partition() == null ? NO_PARTITION : record.partition())
+				.setParameter(5, record.timestamp())
+				.setParameter(6, record.key())
+				.setParameter(7, record.value())
+				.setParameter(8, writeHeaders(record.headers()))
+				.executeUpdate();
+	}
+
+	/**
+	 * Locks a relay partition until the end of the current transaction, without waiting.
+	 *
+	 * @param relayPartition the relay partition
+	 * @return whether the lock was acquired, {@code false} if held by another transaction
+	 */
+	boolean tryLock(final int relayPartition)
+	{
+		return Boolean.TRUE.equals(entityManager.createNativeQuery("select pg_try_advisory_xact_lock(?1, ?2)")
+				.setParameter(1, lockKey)
+				.setParameter(2, relayPartition)
+				.getSingleResult());
+	}
+
+	@SuppressWarnings("unchecked")
+	List<OutboxRecord> findUnsent(final int relayPartition, final int limit)
+	{
+		final List<Object[]> rows = entityManager.createNativeQuery("select id, topic, kafka_partition, kafka_timestamp,"
+				+ " message_key, payload, headers from " + tableName + " where relay_partition = ?1 and sent_at is null order by id")
+				.setParameter(1, relayPartition)
+				.setMaxResults(limit)
+				.getResultList();
+
+		return rows.stream().map(this::toOutboxRecord).collect(Collectors.toList());
+	}
+
+	void markSent(final List<Long> ids, final Instant sentAt)
+	{
+		// collection parameters are not supported by all JPA providers in native queries
+		final Query query = entityManager.createNativeQuery("update " + tableName + " set sent_at = ?1 where id in ("
+				+ IntStream.range(0, ids.size()).mapToObj(i -> "?" + (i + 2)).collect(Collectors.joining(", ")) + ")")
+				.setParameter(1, Timestamp.from(sentAt));
+		for (int i = 0; i < ids.size(); i++)
+		{
+			query.setParameter(i + 2, ids.get(i));
+		}
+		query.executeUpdate();
+	}
+
+	int deleteSentBefore(final Instant sentBefore)
+	{
+		return entityManager.createNativeQuery("delete from " + tableName + " where sent_at < ?1")
+				.setParameter(1, Timestamp.from(sentBefore))
+				.executeUpdate();
+	}
+
+	private OutboxRecord toOutboxRecord(final Object[] row)
+	{
+		final Integer partition = row[2] == null ? null : ((Number) row[2]).intValue();
+		return new OutboxRecord(((Number) row[0]).longValue(),
+				new ProducerRecord<>((String) row[1], partition, ((Number) row[3]).longValue(), (byte[]) row[4],
+						(byte[]) row[5], readHeaders((String) row[6])));
+	}
+
+	private String writeHeaders(final Headers headers)
+	{
+		final ArrayNode node = objectMapper.createArrayNode();
+		for (final Header header : headers)
+		{
+			node.addObject().put(HEADER_KEY, header.key()).put(HEADER_VALUE, header.value());
+		}
+
+		try
+		{
+			return objectMapper.writeValueAsString(node);
+		}
+		catch (final JsonProcessingException e)
+		{
+			throw new KafkaRuntimeException("Failed to write the outbox message headers", e);
+		}
+	}
+
+	private Headers readHeaders(final String headers)
+	{
+		try
+		{
+			final RecordHeaders recordHeaders = new RecordHeaders();
+			for (final JsonNode header : objectMapper.readTree(headers))
+			{
+				final JsonNode value = header.get(HEADER_VALUE);
+				recordHeaders.add(header.get(HEADER_KEY).asText(), value.isNull() ? null : value.binaryValue());
+			}
+			return recordHeaders;
+		}
+		catch (final IOException e)
+		{
+			throw new KafkaRuntimeException("Failed to read the outbox message headers", e);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.hybris.caas.kafka.security;
+
+import org.apache.kafka.common.security.auth.AuthenticateCallbackHandler;
+import org.apache.kafka.common.security.auth.SaslExtensionsCallback;
+import org.apache.kafka.common.security.oauthbearer.OAuthBearerLoginModule;
+import org.apache.kafka.common.security.oauthbearer.OAuthBearerToken;
+import org.apache.kafka.common.security.oauthbearer.OAuthBearerTokenCallback;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.UnsupportedCallbackException;
+import javax.security.auth.login.AppConfigurationEntry;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * SASL/OAUTHBEARER login callback handler providing the access token of the registered {@link KafkaAccessTokenProvider},
+ * set as {@code sasl.login.callback.handler.class}.
+ * <p>
+ * The login, shared by the Kafka clients of the same JAAS configuration, is refreshed by the Kafka clients in the
+ * background ahead of the token expiry (see {@code sasl.login.refresh.window.factor}), while the provider requests a new
+ * token ahead of that refresh: the new connections and the re-authentications are then done with a valid token.
+ */
+public class CaasKafkaOAuthBearerLoginCallbackHandler implements AuthenticateCallbackHandler
+{
+	private KafkaAccessTokenProvider tokenProvider;
+
+	public CaasKafkaOAuthBearerLoginCallbackHandler()
+	{
+		// instantiated by the kafka clients
+	}
+
+	CaasKafkaOAuthBearerLoginCallbackHandler(final KafkaAccessTokenProvider tokenProvider)
+	{
+		this.tokenProvider = tokenProvider;
+	}
+
+	@Override
+	public void configure(final Map<String, ?> configs, final String saslMechanism, final List<AppConfigurationEntry> jaasConfigEntries)
+	{
+		if (!OAuthBearerLoginModule.OAUTHBEARER_MECHANISM.equals(saslMechanism))
+		{
+			throw new IllegalArgumentException("Unexpected SASL mechanism: " + saslMechanism);
+		}
+
+		if (Objects.isNull(tokenProvider))
+		{
+			tokenProvider = KafkaAccessTokenProvider.getInstance();
+		}
+
+		if (Objects.isNull(tokenProvider))
+		{
+			throw new IllegalStateException("No Kafka access token provider registered, check caas.kafka.vcap-service-name.");
+		}
+	}
+
+	@Override
+	public void handle(final Callback[] callbacks) throws UnsupportedCallbackException
+	{
+		for (final Callback callback : callbacks)
+		{
+			if (callback instanceof OAuthBearerTokenCallback)
+			{
+				((OAuthBearerTokenCallback) callback).token(
+						new AccessToken(tokenProvider.getAccessToken(), tokenProvider.getClientId()));
+			}
+			else if (!(callback instanceof SaslExtensionsCallback))
+			{
+				// no SASL extensions are sent
+				throw new UnsupportedCallbackException(callback);
+			}
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		// the token provider is shared
+	}
+
+	static final class AccessToken implements OAuthBearerToken
+	{
+		private final OAuth2AccessToken token;
+		private final String principalName;
+
+		AccessToken(final OAuth2AccessToken token, final String principalName)
+		{
+			this.token = token;
+			this.principalName = principalName;
+		}
+
+		@Override
+		public String value()
+		{
+			return token.getTokenValue();
+		}
+
+		@Override
+		public Set<String> scope()
+		{
+			return token.getScopes();
+		}
+
+		@Override
+		public long lifetimeMs()
+		{
+			return Objects.isNull(token.getExpiresAt()) ? Long.MAX_VALUE : token.getExpiresAt().toEpochMilli();
+		}
+
+		@Override
+		public String principalName()
+		{
+			return principalName;
+		}
+
+		@Override
+		public Long startTimeMs()
+		{
+			final Instant issuedAt = token.getIssuedAt();
+			return Objects.isNull(issuedAt) ? null : issuedAt.toEpochMilli();
+		}
+	}
+}
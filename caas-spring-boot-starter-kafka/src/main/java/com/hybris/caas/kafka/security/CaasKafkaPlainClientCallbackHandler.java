@@ -0,0 +1,79 @@
+package com.hybris.caas.kafka.security;
+
+import org.apache.kafka.common.security.auth.AuthenticateCallbackHandler;
+
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.NameCallback;
+import javax.security.auth.callback.PasswordCallback;
+import javax.security.auth.callback.UnsupportedCallbackException;
+import javax.security.auth.login.AppConfigurationEntry;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * SASL/PLAIN client callback handler authenticating each new broker connection with the client id and the current access
+ * token of the registered {@link KafkaAccessTokenProvider}, set as {@code sasl.client.callback.handler.class}, instead of the
+ * token set as JAAS password at startup, which is not valid anymore once expired.
+ */
+public class CaasKafkaPlainClientCallbackHandler implements AuthenticateCallbackHandler
+{
+	private static final String PLAIN_MECHANISM = "PLAIN";
+
+	private KafkaAccessTokenProvider tokenProvider;
+
+	public CaasKafkaPlainClientCallbackHandler()
+	{
+		// instantiated by the kafka clients
+	}
+
+	CaasKafkaPlainClientCallbackHandler(final KafkaAccessTokenProvider tokenProvider)
+	{
+		this.tokenProvider = tokenProvider;
+	}
+
+	@Override
+	public void configure(final Map<String, ?> configs, final String saslMechanism, final List<AppConfigurationEntry> jaasConfigEntries)
+	{
+		if (!PLAIN_MECHANISM.equals(saslMechanism))
+		{
+			throw new IllegalArgumentException("Unexpected SASL mechanism: " + saslMechanism);
+		}
+
+		if (Objects.isNull(tokenProvider))
+		{
+			tokenProvider = KafkaAccessTokenProvider.getInstance();
+		}
+
+		if (Objects.isNull(tokenProvider))
+		{
+			throw new IllegalStateException("No Kafka access token provider registered, check caas.kafka.vcap-service-name.");
+		}
+	}
+
+	@Override
+	public void handle(final Callback[] callbacks) throws UnsupportedCallbackException
+	{
+		for (final Callback callback : callbacks)
+		{
+			if (callback instanceof NameCallback)
+			{
+				((NameCallback) callback).setName(tokenProvider.getClientId());
+			}
+			else if (callback instanceof PasswordCallback)
+			{
+				((PasswordCallback) callback).setPassword(tokenProvider.getAccessToken().getTokenValue().toCharArray());
+			}
+			else
+			{
+				throw new UnsupportedCallbackException(callback);
+			}
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		// the token provider is shared
+	}
+}
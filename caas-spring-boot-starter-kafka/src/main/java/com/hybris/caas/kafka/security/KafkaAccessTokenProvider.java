@@ -0,0 +1,229 @@
+package com.hybris.caas.kafka.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.client.OAuth2AuthorizationContext;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProvider;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Provides the OAuth2 access token used to authenticate with the SAP CP Kafka brokers, shared by all the producers, consumers
+ * and admin clients of the application.
+ * <p>
+ * The token is requested with the client credentials grant and requested again in the background once the given fraction of
+ * its lifetime elapsed, so that a valid token is available without blocking whenever a new broker connection is
+ * authenticated. A failed background request is retried until it succeeds; the token is requested synchronously only when
+ * the current one has expired meanwhile.
+ * <p>
+ * As the Kafka clients instantiate their SASL callback handlers themselves, the provider of the application is registered
+ * with {@link #register(KafkaAccessTokenProvider)} and looked up by the handlers with {@link #getInstance()}.
+ */
+public class KafkaAccessTokenProvider implements Closeable
+{
+	private static final Logger LOG = LoggerFactory.getLogger(KafkaAccessTokenProvider.class);
+	private static final AtomicReference<KafkaAccessTokenProvider> INSTANCE = new AtomicReference<>();
+
+	static final Duration MIN_REFRESH_DELAY = Duration.ofSeconds(30);
+
+	private final String clientId;
+	private final Supplier<OAuth2AccessToken> tokenSupplier;
+	private final double refreshWindowFactor;
+	private final ScheduledExecutorService scheduler;
+
+	private volatile OAuth2AccessToken accessToken;
+	private ScheduledFuture<?> scheduledRefresh;
+
+	public KafkaAccessTokenProvider(final String clientId, final String clientSecret, final String tokenUri,
+			final double refreshWindowFactor)
+	{
+		this(clientId, clientCredentialsTokenSupplier(clientId, clientSecret, tokenUri), refreshWindowFactor);
+	}
+
+	KafkaAccessTokenProvider(final String clientId, final Supplier<OAuth2AccessToken> tokenSupplier, final double refreshWindowFactor)
+	{
+		Assert.notNull(clientId, "clientId must not be null");
+		Assert.notNull(tokenSupplier, "tokenSupplier must not be null");
+		Assert.isTrue(refreshWindowFactor > 0 && refreshWindowFactor <= 1, "refreshWindowFactor must be in ]0, 1]");
+
+		this.clientId = clientId;
+		this.tokenSupplier = tokenSupplier;
+		this.refreshWindowFactor = refreshWindowFactor;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "caas-kafka-token-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Registers the provider shared by the SASL callback handlers of the Kafka clients, closing the one previously registered.
+	 *
+	 * @param provider the provider
+	 */
+	public static void register(final KafkaAccessTokenProvider provider)
+	{
+		Assert.notNull(provider, "provider must not be null");
+
+		final KafkaAccessTokenProvider previous = INSTANCE.getAndSet(provider);
+		if (Objects.nonNull(previous) && previous != provider)
+		{
+			previous.close();
+		}
+	}
+
+	/**
+	 * @return the registered provider, {@code null} when none was registered
+	 */
+	public static KafkaAccessTokenProvider getInstance()
+	{
+		return INSTANCE.get();
+	}
+
+	/**
+	 * @return the OAuth2 client id, i.e. the user name of the Kafka clients
+	 */
+	public String getClientId()
+	{
+		return clientId;
+	}
+
+	/**
+	 * Returns the current access token, requesting one when there is no valid token yet.
+	 *
+	 * @return the access token
+	 */
+	public OAuth2AccessToken getAccessToken()
+	{
+		final OAuth2AccessToken token = accessToken;
+		return isValid(token) ? token : refreshIfInvalid();
+	}
+
+	/**
+	 * Requests a new access token and schedules its refresh.
+	 *
+	 * @return the new access token
+	 */
+	synchronized OAuth2AccessToken refresh()
+	{
+		final OAuth2AccessToken token;
+		try
+		{
+			token = tokenSupplier.get();
+		}
+		catch (final RuntimeException e)
+		{
+			schedule(MIN_REFRESH_DELAY);
+			throw e;
+		}
+
+		accessToken = token;
+		schedule(getRefreshDelay(token));
+		return token;
+	}
+
+	private synchronized OAuth2AccessToken refreshIfInvalid()
+	{
+		// the token may have been refreshed by another thread meanwhile
+		final OAuth2AccessToken token = accessToken;
+		return isValid(token) ? token : refresh();
+	}
+
+	@Override
+	public void close()
+	{
+		scheduler.shutdownNow();
+		INSTANCE.compareAndSet(this, null);
+	}
+
+	Duration getRefreshDelay(final OAuth2AccessToken token)
+	{
+		if (Objects.isNull(token.getIssuedAt()) || Objects.isNull(token.getExpiresAt()))
+		{
+			return null;
+		}
+
+		final long lifetimeMs = Duration.between(token.getIssuedAt(), token.getExpiresAt()).toMillis();
+		final Instant refreshAt = token.getIssuedAt().plusMillis((long) (lifetimeMs * refreshWindowFactor));
+		final Duration delay = Duration.between(Instant.now(), refreshAt);
+		return delay.compareTo(MIN_REFRESH_DELAY) < 0 ? MIN_REFRESH_DELAY : delay;
+	}
+
+	private void schedule(final Duration delay)
+	{
+		if (Objects.nonNull(scheduledRefresh))
+		{
+			scheduledRefresh.cancel(false);
+		}
+
+		scheduledRefresh = Objects.isNull(delay) || scheduler.isShutdown() ?
+				null :
+				scheduler.schedule(this::refreshInBackground, delay.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	private void refreshInBackground()
+	{
+		try
+		{
+			refresh();
+			LOG.debug("Refreshed the Kafka access token of client {}.", clientId);
+		}
+		catch (final RuntimeException e)
+		{
+			LOG.warn("Unable to refresh the Kafka access token of client {}, retrying in {}.", clientId, MIN_REFRESH_DELAY, e);
+		}
+	}
+
+	private static boolean isValid(final OAuth2AccessToken token)
+	{
+		return Objects.nonNull(token) && (Objects.isNull(token.getExpiresAt()) || token.getExpiresAt().isAfter(Instant.now()));
+	}
+
+	private static Supplier<OAuth2AccessToken> clientCredentialsTokenSupplier(final String clientId, final String clientSecret,
+			final String tokenUri)
+	{
+		final ClientRegistration kafkaClientRegistration = ClientRegistration.withRegistrationId("kafka")
+				.clientAuthenticationMethod(ClientAuthenticationMethod.BASIC)
+				.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+				.clientId(clientId)
+				.clientSecret(clientSecret)
+				.tokenUri(tokenUri)
+				.build();
+
+		final AnonymousAuthenticationToken principal = new AnonymousAuthenticationToken("anonymous-key", "kafka",
+				List.of(new SimpleGrantedAuthority("anonymous")));
+
+		// no authorized client in the context, a new token is requested on each call
+		final OAuth2AuthorizationContext oAuth2Context = OAuth2AuthorizationContext.withClientRegistration(kafkaClientRegistration)
+				.principal(principal)
+				.build();
+
+		final OAuth2AuthorizedClientProvider authorizedClientProvider = OAuth2AuthorizedClientProviderBuilder.builder()
+				.clientCredentials()
+				.build();
+
+		return () -> Optional.ofNullable(authorizedClientProvider.authorize(oAuth2Context))
+				.map(OAuth2AuthorizedClient::getAccessToken)
+				.orElseThrow(() -> new IllegalArgumentException("Unable to retrieve OAuth2 access token for Kafka cluster."));
+	}
+}
@@ -0,0 +1,251 @@
+package com.hybris.caas.kafka.security;
+
+import com.hybris.caas.kafka.error.CaasKafkaConfigurationException;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the root CA certificate of the SAP CP Kafka brokers, used to generate the SSL trust store.
+ * <p>
+ * The certificate downloaded from a location is stored in the cache directory under the SHA-256 of the location, and a
+ * restart reuses it without downloading it again as long as it is still valid. The trust store itself is generated on
+ * every startup into an owner-only temporary file, with a random password which is never persisted.
+ * <p>
+ * The cache is only used when a cache directory is configured. The directory is created readable and writable by its
+ * owner only, and is ignored when it is not owned by the current user or is accessible by other users, or when its
+ * file system does not support POSIX permissions.
+ * <p>
+ * A rotation of the CA certificate at the same location is not detected until the cached certificate expires: delete the
+ * cached certificate to pick up a new one earlier.
+ */
+public class TrustStoreCache
+{
+	private static final Logger LOG = LoggerFactory.getLogger(TrustStoreCache.class);
+	static final String CERTIFICATE_ALIAS = "sap-cp-kafka-root";
+	private static final Set<PosixFilePermission> OWNER_ONLY = EnumSet.of(PosixFilePermission.OWNER_READ,
+			PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE);
+
+	private final Path cacheDir;
+
+	/**
+	 * @param cacheDir the directory the CA certificates are cached in, <code>null</code> disables the cache
+	 */
+	public TrustStoreCache(final Path cacheDir)
+	{
+		this.cacheDir = cacheDir;
+	}
+
+	/**
+	 * Trust store holding the CA certificate.
+	 */
+	public static final class TrustStore
+	{
+		private final Path location;
+		private final String password;
+
+		TrustStore(final Path location, final String password)
+		{
+			this.location = location;
+			this.password = password;
+		}
+
+		public Path getLocation()
+		{
+			return location;
+		}
+
+		public String getPassword()
+		{
+			return password;
+		}
+	}
+
+	/**
+	 * Generates the trust store of a CA certificate, reusing the cached certificate when still valid.
+	 *
+	 * @param caCertLocation the location of the CA certificate
+	 * @param caCertLoader   downloads the CA certificate, only invoked when the cached certificate cannot be used
+	 * @return the trust store
+	 */
+	public TrustStore getTrustStore(final String caCertLocation, final Supplier<byte[]> caCertLoader)
+	{
+		final boolean cacheEnabled = Objects.nonNull(cacheDir) && prepareCacheDir();
+		final Path certificatePath = cacheEnabled ?
+				cacheDir.resolve("ca-" + sha256(caCertLocation.getBytes(StandardCharsets.UTF_8)) + ".crt") :
+				null;
+
+		X509Certificate certificate = cacheEnabled ? loadCachedCertificate(certificatePath) : null;
+		if (Objects.nonNull(certificate))
+		{
+			LOG.debug("Reusing cached CA certificate {} for {}.", certificatePath, caCertLocation);
+		}
+		else
+		{
+			final byte[] caCert = caCertLoader.get();
+			certificate = parseCertificate(caCert);
+			if (cacheEnabled)
+			{
+				storeCertificate(certificatePath, caCert);
+			}
+		}
+
+		return generateTrustStore(certificate);
+	}
+
+	/**
+	 * Creates the cache directory owner-only when missing, and checks that no other user can tamper with its content.
+	 */
+	private boolean prepareCacheDir()
+	{
+		try
+		{
+			if (!Files.isDirectory(cacheDir, LinkOption.NOFOLLOW_LINKS))
+			{
+				Files.createDirectories(cacheDir, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+			}
+
+			final PosixFileAttributeView view = Files.getFileAttributeView(cacheDir, PosixFileAttributeView.class,
+					LinkOption.NOFOLLOW_LINKS);
+			if (Objects.isNull(view))
+			{
+				LOG.warn("Not caching the CA certificate, permissions of {} cannot be checked.", cacheDir);
+				return false;
+			}
+
+			final PosixFileAttributes attributes = view.readAttributes();
+			final UserPrincipal currentUser = cacheDir.getFileSystem()
+					.getUserPrincipalLookupService()
+					.lookupPrincipalByName(System.getProperty("user.name"));
+			if (!attributes.owner().equals(currentUser) || !OWNER_ONLY.containsAll(attributes.permissions()))
+			{
+				LOG.warn("Not caching the CA certificate, {} must be owned by {} and accessible by its owner only.", cacheDir,
+						currentUser.getName());
+				return false;
+			}
+			return true;
+		}
+		catch (final IOException | UnsupportedOperationException e)
+		{
+			LOG.warn("Not caching the CA certificate, {} cannot be used: {}", cacheDir, e.getMessage());
+			return false;
+		}
+	}
+
+	private X509Certificate loadCachedCertificate(final Path certificatePath)
+	{
+		if (!Files.isRegularFile(certificatePath, LinkOption.NOFOLLOW_LINKS))
+		{
+			return null;
+		}
+
+		try
+		{
+			final X509Certificate certificate = parseCertificate(Files.readAllBytes(certificatePath));
+			certificate.checkValidity();
+			return certificate;
+		}
+		catch (final IOException | GeneralSecurityException | RuntimeException e)
+		{
+			LOG.info("Ignoring cached CA certificate {}: {}", certificatePath, e.getMessage());
+			return null;
+		}
+	}
+
+	private void storeCertificate(final Path certificatePath, final byte[] caCert)
+	{
+		try
+		{
+			// temp files are created owner-only
+			final Path tempPath = Files.createTempFile(cacheDir, "ca_", ".tmp");
+			Files.write(tempPath, caCert);
+			// replace the certificate atomically, it may be read by another instance sharing the cache directory
+			Files.move(tempPath, certificatePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (final IOException e)
+		{
+			// the certificate is downloaded again on next startup
+			LOG.warn("Unable to cache the CA certificate {}.", certificatePath, e);
+		}
+	}
+
+	private static TrustStore generateTrustStore(final X509Certificate certificate)
+	{
+		final String password = RandomStringUtils.random(16, true, true);
+
+		try
+		{
+			// temp files are created owner-only
+			final Path location = Files.createTempFile("caas-kafka-truststore_", ".jks");
+			location.toFile().deleteOnExit();
+			try (final OutputStream output = Files.newOutputStream(location))
+			{
+				// create new keystore in memory
+				final KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+				keyStore.load(null, password.toCharArray()); // null creates a new keystore
+
+				// add the CA cert into the keystore
+				keyStore.setCertificateEntry(CERTIFICATE_ALIAS, certificate);
+
+				// write the keystore into the filesystem
+				keyStore.store(output, password.toCharArray());
+			}
+
+			return new TrustStore(location, password);
+		}
+		catch (final IOException | GeneralSecurityException e)
+		{
+			throw new CaasKafkaConfigurationException("Unable to store certificate into truststore", e);
+		}
+	}
+
+	private static X509Certificate parseCertificate(final byte[] caCert)
+	{
+		try
+		{
+			final CertificateFactory factory = CertificateFactory.getInstance("X.509");
+			return (X509Certificate) factory.generateCertificate(new ByteArrayInputStream(caCert));
+		}
+		catch (final GeneralSecurityException e)
+		{
+			throw new CaasKafkaConfigurationException("Unable to parse SAP CP kafka root CA certificate", e);
+		}
+	}
+
+	private static String sha256(final byte[] bytes)
+	{
+		try
+		{
+			return String.format("%064x", new BigInteger(1, MessageDigest.getInstance("SHA-256").digest(bytes)));
+		}
+		catch (final NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -53,12 +53,11 @@ public class ConsumerRecordTracing
 			final Function<Message<T>, Runnable> functionToTrace)
 	{
 		return () -> {
-			final Span span = kafkaTracing.nextSpan(record).name("on-consumer-record").start();
+			final Span span = nextSpan(record);
 
 			try (Tracer.SpanInScope spanInScope = tracer.withSpanInScope(span))
 			{
-				final Message<T> convertedMessage = (Message<T>) messageConverter.toMessage(record, null, null,
-						TypeUtils.wrap(clazz).getType());
+				final Message<T> convertedMessage = convert(record, clazz);
 
 				functionToTrace.apply(convertedMessage).run();
 			}
@@ -73,4 +72,29 @@ public class ConsumerRecordTracing
 			}
 		};
 	}
+
+	/**
+	 * Starts the span of the processing of a consumer record, joining the trace propagated in its headers.
+	 *
+	 * @param record the consumer record
+	 * @return the started span, to be finished by the caller
+	 */
+	public Span nextSpan(final ConsumerRecord<?, ?> record)
+	{
+		return kafkaTracing.nextSpan(record).name("on-consumer-record").start();
+	}
+
+	/**
+	 * Converts a consumer record to a {@link Message}, see {@link #traceAndConvert(ConsumerRecord, Class, Function)}.
+	 *
+	 * @param record the consumer record
+	 * @param clazz  the class type of consumer record payload
+	 * @param <T>    the type of consumer record payload
+	 * @return the converted message
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Message<T> convert(final ConsumerRecord<?, ?> record, final Class<T> clazz)
+	{
+		return (Message<T>) messageConverter.toMessage(record, null, null, TypeUtils.wrap(clazz).getType());
+	}
 }
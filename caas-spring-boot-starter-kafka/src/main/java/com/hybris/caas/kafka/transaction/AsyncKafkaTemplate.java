@@ -0,0 +1,153 @@
+package com.hybris.caas.kafka.transaction;
+
+import com.hybris.caas.kafka.config.CaasKafkaProperties;
+import com.hybris.caas.kafka.error.KafkaRuntimeException;
+import org.reactivestreams.Publisher;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.messaging.Message;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Asynchronous kafka template, sends messages without waiting for the broker to acknowledge each of them so that the
+ * producer can batch them (see {@code linger.ms} and {@code batch.size}), and completes the returned futures
+ * exceptionally with a {@link KafkaRuntimeException} when a message fails to be sent.
+ * <p>
+ * The number of messages sent and not yet acknowledged is bounded by {@link CaasKafkaProperties#getProducerMaxInFlight()}:
+ * once reached, sending waits for in-flight messages to be acknowledged, at most for
+ * {@link CaasKafkaProperties#getProducerSendTimeoutMs()}.
+ */
+public class AsyncKafkaTemplate
+{
+	private static final String ERROR_MESSAGE = "An error occurred while sending the kafka message";
+
+	private final KafkaTemplate<?, ?> kafkaTemplate;
+	private final long timeout;
+	private final int maxInFlight;
+	private final Semaphore inFlight;
+
+	public AsyncKafkaTemplate(final KafkaTemplate<?, ?> kafkaTemplate, final CaasKafkaProperties caasKafkaProperties)
+	{
+		this.kafkaTemplate = kafkaTemplate;
+		this.timeout = caasKafkaProperties.getProducerSendTimeoutMs();
+		this.maxInFlight = caasKafkaProperties.getProducerMaxInFlight();
+		this.inFlight = new Semaphore(maxInFlight);
+	}
+
+	/**
+	 * Sends a {@link Message} to the Kafka broker(s), waiting only if the in-flight limit is reached.
+	 *
+	 * @param message to be sent
+	 * @return a future completed with the send result, or exceptionally with a {@link KafkaRuntimeException} when fail to
+	 * send kafka message
+	 */
+	public CompletableFuture<SendResult<?, ?>> send(final Message<?> message)
+	{
+		try
+		{
+			if (!inFlight.tryAcquire(timeout, TimeUnit.MILLISECONDS))
+			{
+				return failed(new TimeoutException("Timed out waiting for in-flight kafka messages to be sent"));
+			}
+		}
+		catch (final InterruptedException e)
+		{
+			// Restore interrupted state...
+			Thread.currentThread().interrupt();
+			return failed(e);
+		}
+
+		return sendPermitted(message);
+	}
+
+	/**
+	 * Sends {@link Message}s to the Kafka broker(s) one after the other without waiting for their acknowledgment, waiting
+	 * only if the in-flight limit is reached.
+	 *
+	 * @param messages to be sent
+	 * @return the futures of the messages in the iteration order of the messages, see {@link #send(Message)}
+	 */
+	public List<CompletableFuture<SendResult<?, ?>>> sendAll(final Collection<? extends Message<?>> messages)
+	{
+		return messages.stream().map(this::send).collect(Collectors.toList());
+	}
+
+	/**
+	 * Sends {@link Message}s to the Kafka broker(s) as they are emitted, one after the other and without waiting for their
+	 * acknowledgment. Each message takes part in the same in-flight limit as {@link #send(Message)}: once reached, the next
+	 * message is sent when in-flight messages are acknowledged, the waiting happening off the calling thread.
+	 * <p>
+	 * The returned flux fails fast: the first message failing to be sent, or to be acknowledged, terminates it with a
+	 * {@link KafkaRuntimeException} and cancels the publisher. The messages already sent are not recalled, and the results
+	 * of the messages following the failed one are not emitted, so the caller has to resend from the failed message on.
+	 *
+	 * @param messages to be sent
+	 * @return a flux of the send results in the order of the messages, terminated with a {@link KafkaRuntimeException}
+	 * when fail to send a kafka message
+	 */
+	public Flux<SendResult<?, ?>> send(final Publisher<? extends Message<?>> messages)
+	{
+		return Flux.from(messages)
+				.concatMap(this::sendWhenPermitted, 1)
+				.flatMapSequential(Mono::fromFuture, Math.max(1, maxInFlight));
+	}
+
+	private Mono<CompletableFuture<SendResult<?, ?>>> sendWhenPermitted(final Message<?> message)
+	{
+		// the permit is acquired and the message sent at once, so that a cancellation never leaks a permit
+		return Mono.fromCallable(() -> inFlight.tryAcquire() ? sendPermitted(message) : null)
+				.switchIfEmpty(Mono.fromCallable(() -> inFlight.tryAcquire(timeout, TimeUnit.MILLISECONDS) ?
+						sendPermitted(message) :
+						failed(new TimeoutException("Timed out waiting for in-flight kafka messages to be sent")))
+						.subscribeOn(Schedulers.boundedElastic()));
+	}
+
+	private CompletableFuture<SendResult<?, ?>> sendPermitted(final Message<?> message)
+	{
+		return doSend(message).whenComplete((result, e) -> inFlight.release());
+	}
+
+	private CompletableFuture<SendResult<?, ?>> doSend(final Message<?> message)
+	{
+		final CompletableFuture<SendResult<?, ?>> sent = new CompletableFuture<>();
+		try
+		{
+			kafkaTemplate.send(message).addCallback(sent::complete, sent::completeExceptionally);
+		}
+		catch (final RuntimeException e)
+		{
+			return failed(e);
+		}
+
+		final CompletableFuture<SendResult<?, ?>> result = new CompletableFuture<>();
+		// if an error happens, the send result would be failed after transaction/metadata timeout has elapsed
+		sent.orTimeout(timeout, TimeUnit.MILLISECONDS).whenComplete((sendResult, e) -> {
+			if (e == null)
+			{
+				result.complete(sendResult);
+			}
+			else
+			{
+				result.completeExceptionally(new KafkaRuntimeException(ERROR_MESSAGE, e));
+			}
+		});
+		return result;
+	}
+
+	private static CompletableFuture<SendResult<?, ?>> failed(final Exception e)
+	{
+		final CompletableFuture<SendResult<?, ?>> failed = new CompletableFuture<>();
+		failed.completeExceptionally(new KafkaRuntimeException(ERROR_MESSAGE, e));
+		return failed;
+	}
+}
@@ -25,9 +25,25 @@ public final class CaasKafkaConstants
 	/**
 	 * The sleep interval in milliseconds between retry topic polling cycles for retryable consumer.
 	 * Applied only when the message delay required relative to the message processing current time is larger than this value.
+	 *
+	 * @deprecated the retryable consumer no longer sleeps, retry topic partitions are paused until their next record is due,
+	 * see {@link #RETRY_PARTITION_RESUME_CHECK_INTERVAL_MS}
 	 */
+	@Deprecated
 	public static final int IDLE_BETWEEN_RETRY_POLLS_MS = 5_000;
 
+	/**
+	 * The interval in milliseconds at which an idle retryable consumer checks whether its paused retry topic partitions
+	 * are due, i.e. the maximum additional delay of a retried message once its required delay elapsed.
+	 */
+	public static final long RETRY_PARTITION_RESUME_CHECK_INTERVAL_MS = 1_000;
+
+	/**
+	 * The interval in milliseconds at which an idle key ordered consumer commits the offsets of the records completed since
+	 * its last poll.
+	 */
+	public static final long KEY_ORDERED_IDLE_COMMIT_INTERVAL_MS = 1_000;
+
 	private CaasKafkaConstants()
 	{
 		// private constructor
@@ -25,6 +25,11 @@ public final class CaasKafkaHeaders
 	 */
 	public static final String CONTENT_LANGUAGE = "content_language";
 
+	/**
+	 * Identifier of the header holding the content type of the payload.
+	 */
+	public static final String CONTENT_TYPE = "content_type";
+
 	private CaasKafkaHeaders()
 	{
 		// private constructor
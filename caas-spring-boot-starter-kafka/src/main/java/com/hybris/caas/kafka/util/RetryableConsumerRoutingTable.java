@@ -0,0 +1,203 @@
+package com.hybris.caas.kafka.util;
+
+import com.hybris.caas.kafka.config.CaasKafkaProperties;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.DEAD_LETTER_TOPIC_SUFFIX;
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.LONG_DELAY_RETRY_TOPIC_SUFFIX;
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.SHORT_DELAY_RETRY_TOPIC_SUFFIX;
+
+/**
+ * Immutable routing table of the retryable consumers, computed once from their configuration: maps the source, retry and
+ * dead letter topic of each retryable consumer to its {@link Route}, i.e. the tier of the topic, the delay to enforce on
+ * its records and the next topic a failed record is published to.
+ * <p>
+ * As the retry and dead letter topic names are resolved upfront, including their configured {@code topicPrefix}, a route
+ * is looked up with a single hash lookup on the topic of the record, without parsing the topic name nor reading the
+ * headers of the record. Only the records of a topic shared by several retryable consumers, e.g. a common dead letter
+ * topic, are routed according to their {@link KafkaHeaders#DLT_ORIGINAL_TOPIC} header.
+ */
+public class RetryableConsumerRoutingTable
+{
+	/**
+	 * Tier of a topic of a retryable consumer.
+	 */
+	public enum Tier
+	{
+		SOURCE, SHORT_DELAY_RETRY, LONG_DELAY_RETRY, DEAD_LETTER
+	}
+
+	/**
+	 * Route of the records of a topic of a retryable consumer.
+	 */
+	public static final class Route
+	{
+		private final String source;
+		private final Tier tier;
+		private final long messageDelayMs;
+		private final TopicPartition nextHop;
+
+		Route(final String source, final Tier tier, final long messageDelayMs, final TopicPartition nextHop)
+		{
+			this.source = source;
+			this.tier = tier;
+			this.messageDelayMs = messageDelayMs;
+			this.nextHop = nextHop;
+		}
+
+		/**
+		 * @return the source topic of the retryable consumer
+		 */
+		public String getSource()
+		{
+			return source;
+		}
+
+		public Tier getTier()
+		{
+			return tier;
+		}
+
+		/**
+		 * @return whether the records of the topic are delayed, i.e. the topic is a short or long delay retry topic
+		 */
+		public boolean isDelayed()
+		{
+			return tier == Tier.SHORT_DELAY_RETRY || tier == Tier.LONG_DELAY_RETRY;
+		}
+
+		/**
+		 * @return the delay to enforce on the records of a retry topic, {@code 0} otherwise
+		 */
+		public long getMessageDelayMs()
+		{
+			return messageDelayMs;
+		}
+
+		/**
+		 * @return the topic, with no partition set, to publish the failed records to, {@code null} when no further
+		 * recovering is configured
+		 */
+		public TopicPartition getNextHop()
+		{
+			return nextHop;
+		}
+	}
+
+	private final Map<String, Route> routes = new HashMap<>();
+	private final Map<String, Map<String, Route>> sharedRoutes = new HashMap<>();
+
+	public RetryableConsumerRoutingTable(final Map<String, CaasKafkaProperties.RetryableConsumer> retryableConsumerMap)
+	{
+		Assert.notNull(retryableConsumerMap, "retryableConsumerMap must not be null");
+
+		final Map<String, Map<String, Route>> routesByTopic = new HashMap<>();
+		retryableConsumerMap.values().forEach(retryableConsumer -> addRoutes(routesByTopic, retryableConsumer));
+
+		routesByTopic.forEach((topic, routesBySource) -> {
+			if (routesBySource.size() == 1)
+			{
+				routes.put(topic, routesBySource.values().iterator().next());
+			}
+			else
+			{
+				sharedRoutes.put(topic, routesBySource);
+			}
+		});
+	}
+
+	/**
+	 * Returns the route of a record.
+	 *
+	 * @param record the consumer record
+	 * @return the route, {@code null} when the topic of the record does not belong to a retryable consumer
+	 */
+	public Route getRoute(final ConsumerRecord<?, ?> record)
+	{
+		final Route route = routes.get(record.topic());
+		if (Objects.nonNull(route))
+		{
+			return route;
+		}
+
+		final Map<String, Route> routesBySource = sharedRoutes.get(record.topic());
+		if (Objects.isNull(routesBySource))
+		{
+			return null;
+		}
+
+		// the topic is shared by several retryable consumers, the source topic is the original topic of the record
+		final Iterator<Header> originalTopicHeaders = record.headers().headers(KafkaHeaders.DLT_ORIGINAL_TOPIC).iterator();
+		return originalTopicHeaders.hasNext() ?
+				routesBySource.get(new String(originalTopicHeaders.next().value(), StandardCharsets.UTF_8)) :
+				null;
+	}
+
+	private static void addRoutes(final Map<String, Map<String, Route>> routesByTopic, final CaasKafkaProperties.RetryableConsumer retryableConsumer)
+	{
+		final String source = retryableConsumer.getSource();
+		final CaasKafkaProperties.RetryTopic shortDelayRetry = retryableConsumer.getShortDelayRetry();
+		final CaasKafkaProperties.RetryTopic longDelayRetry = retryableConsumer.getLongDelayRetry();
+		final CaasKafkaProperties.DeadLetterTopic deadLetter = retryableConsumer.getDeadLetter();
+
+		final String shortDelayRetryTopic = Objects.isNull(shortDelayRetry) ?
+				null :
+				topicName(shortDelayRetry.getTopicPrefix(), source, SHORT_DELAY_RETRY_TOPIC_SUFFIX);
+		final String longDelayRetryTopic = Objects.isNull(longDelayRetry) ?
+				null :
+				topicName(longDelayRetry.getTopicPrefix(), source, LONG_DELAY_RETRY_TOPIC_SUFFIX);
+		final String deadLetterTopic = Objects.isNull(deadLetter) ?
+				null :
+				topicName(deadLetter.getTopicPrefix(), source, DEAD_LETTER_TOPIC_SUFFIX);
+
+		// a failed record goes to the next configured tier: source -> short delay retry -> long delay retry -> dead letter
+		final TopicPartition fromLongDelayRetry = toTopic(deadLetterTopic);
+		final TopicPartition fromShortDelayRetry = Objects.isNull(longDelayRetryTopic) ?
+				fromLongDelayRetry :
+				toTopic(longDelayRetryTopic);
+		final TopicPartition fromSource = Objects.isNull(shortDelayRetryTopic) ?
+				fromShortDelayRetry :
+				toTopic(shortDelayRetryTopic);
+
+		addRoute(routesByTopic, source, new Route(source, Tier.SOURCE, 0, fromSource));
+		if (Objects.nonNull(shortDelayRetry))
+		{
+			addRoute(routesByTopic, shortDelayRetryTopic,
+					new Route(source, Tier.SHORT_DELAY_RETRY, shortDelayRetry.getMessageDelayMs(), fromShortDelayRetry));
+		}
+		if (Objects.nonNull(longDelayRetry))
+		{
+			addRoute(routesByTopic, longDelayRetryTopic,
+					new Route(source, Tier.LONG_DELAY_RETRY, longDelayRetry.getMessageDelayMs(), fromLongDelayRetry));
+		}
+		if (Objects.nonNull(deadLetter))
+		{
+			addRoute(routesByTopic, deadLetterTopic, new Route(source, Tier.DEAD_LETTER, 0, null));
+		}
+	}
+
+	private static void addRoute(final Map<String, Map<String, Route>> routesByTopic, final String topic, final Route route)
+	{
+		routesByTopic.computeIfAbsent(topic, key -> new HashMap<>()).put(route.getSource(), route);
+	}
+
+	private static TopicPartition toTopic(final String topic)
+	{
+		return Objects.isNull(topic) ? null : new TopicPartition(topic, -1);
+	}
+
+	private static String topicName(final String topicPrefix, final String source, final String suffix)
+	{
+		return (Objects.isNull(topicPrefix) ? source : topicPrefix) + suffix;
+	}
+}
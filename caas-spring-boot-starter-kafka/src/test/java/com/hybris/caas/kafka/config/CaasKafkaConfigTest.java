@@ -2,9 +2,18 @@ package com.hybris.caas.kafka.config;
 
 import com.hybris.caas.error.converter.ExceptionConverter;
 import com.hybris.caas.error.converter.ExceptionConverterFactory;
+import com.hybris.caas.kafka.error.CaasKafkaRecoveringBatchErrorHandler;
 import com.hybris.caas.kafka.error.RetryableConsumerDeadLetterPublishingRecoverer;
+import com.hybris.caas.kafka.interceptor.RetryTopicPartitionPauser;
+import com.hybris.caas.kafka.listener.KeyOrderedExecutor;
+import com.hybris.caas.kafka.message.ContentTypeMessageConverter;
+import com.hybris.caas.kafka.metrics.RetryableConsumerMetricsListener;
+import com.hybris.caas.kafka.util.RetryableConsumerRoutingTable;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.RoundRobinAssignor;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -14,15 +23,18 @@ import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaConsumerFactoryCustomizer;
 import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.ErrorHandler;
 import org.springframework.kafka.support.ProducerListener;
 import org.springframework.kafka.support.converter.RecordMessageConverter;
+import org.springframework.kafka.support.converter.StringJsonMessageConverter;
 import org.springframework.kafka.transaction.KafkaTransactionManager;
 import org.springframework.retry.RecoveryCallback;
 import org.springframework.retry.policy.SimpleRetryPolicy;
@@ -41,6 +53,10 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static com.hybris.caas.kafka.config.CaasKafkaConfig.CONTAINER_TRANSACTION_ID_PREFIX;
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.DEAD_LETTER_TOPIC_SUFFIX;
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.KEY_ORDERED_IDLE_COMMIT_INTERVAL_MS;
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.RETRY_PARTITION_RESUME_CHECK_INTERVAL_MS;
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.SHORT_DELAY_RETRY_TOPIC_SUFFIX;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasEntry;
@@ -86,6 +102,10 @@ public class CaasKafkaConfigTest
 	@Mock
 	private ObjectProvider<RecordMessageConverter> providerMessageConverter;
 	@Mock
+	private ObjectProvider<DefaultKafkaConsumerFactoryCustomizer> consumerFactoryCustomizers;
+	@Mock
+	private ObjectProvider<RetryableConsumerMetricsListener> providerMetricsListener;
+	@Mock
 	private CaasKafkaConfig.ContainerKafkaTemplate containerKafkaTemplate;
 	@Mock
 	private CaasKafkaConfig.ContainerKafkaTransactionManager containerKafkaTransactionManager;
@@ -100,7 +120,7 @@ public class CaasKafkaConfigTest
 
 	private final KafkaProperties kafkaProperties = new KafkaProperties();
 	private final CaasKafkaProperties caasKafkaProperties = new CaasKafkaProperties();
-	private final Map<String, CaasKafkaProperties.RetryableConsumer> retryableConsumerMap = Collections.emptyMap();
+	private final RetryableConsumerRoutingTable routingTable = new RetryableConsumerRoutingTable(Collections.emptyMap());
 	private final Map<Class<? extends Throwable>, Boolean> kafkaListenerRetryExceptionsMap = Collections.singletonMap(Exception.class, true);
 
 	private CaasKafkaConfig caasKafkaConfig;
@@ -159,12 +179,43 @@ public class CaasKafkaConfigTest
 	@Test
 	public void should_create_kafkaConsumerFactory_preconfigured()
 	{
-		final ConsumerFactory<?, ?> consumerFactory = caasKafkaConfig.kafkaConsumerFactory();
+		final ConsumerFactory<?, ?> consumerFactory = caasKafkaConfig.kafkaConsumerFactory(consumerFactoryCustomizers);
 		final Map<String, Object> config = consumerFactory.getConfigurationProperties();
 		assertThat(config, hasEntry(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, RoundRobinAssignor.class.getName()));
 		assertFalse(consumerFactory.isAutoCommit());
 	}
 
+	@Test
+	public void should_apply_customizers_to_kafkaConsumerFactory()
+	{
+		final DefaultKafkaConsumerFactoryCustomizer customizer = mock(DefaultKafkaConsumerFactoryCustomizer.class);
+		when(consumerFactoryCustomizers.orderedStream()).thenReturn(Stream.of(customizer));
+
+		final ConsumerFactory<?, ?> consumerFactory = caasKafkaConfig.kafkaConsumerFactory(consumerFactoryCustomizers);
+
+		verify(customizer).customize((DefaultKafkaConsumerFactory<?, ?>) consumerFactory);
+	}
+
+	@Test
+	public void should_create_kafkaConsumerFactory_with_byte_array_values_when_serialization_enabled()
+	{
+		caasKafkaProperties.getSerialization().setEnabled(true);
+
+		final Map<String, Object> config = caasKafkaConfig.kafkaConsumerFactory(consumerFactoryCustomizers).getConfigurationProperties();
+
+		assertThat(config, hasEntry(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class));
+	}
+
+	@Test
+	public void should_create_messageConverter_for_serialization()
+	{
+		assertTrue(caasKafkaConfig.messageConverter() instanceof StringJsonMessageConverter);
+
+		caasKafkaProperties.getSerialization().setEnabled(true);
+
+		assertTrue(caasKafkaConfig.messageConverter() instanceof ContentTypeMessageConverter);
+	}
+
 	@Test
 	public void should_set_retry_template_in_kafkaListenerContainerFactory()
 	{
@@ -186,6 +237,50 @@ public class CaasKafkaConfigTest
 				.isSameAs(recoveryCallback);
 	}
 
+	@Test
+	public void should_create_keyOrderedKafkaListenerContainerFactory_with_manual_commits()
+	{
+		caasKafkaProperties.getKeyOrdered().setConcurrency(2);
+
+		final ConcurrentKafkaListenerContainerFactory<?, ?> keyOrderedKafkaListenerContainerFactory = caasKafkaConfig
+				.keyOrderedKafkaListenerContainerFactory(configurer, kafkaConsumerFactory, messageConverter, errorHandler,
+						new KeyOrderedExecutor(1));
+
+		final ContainerProperties containerProperties = keyOrderedKafkaListenerContainerFactory.getContainerProperties();
+		assertThat(containerProperties.getAckMode(), is(ContainerProperties.AckMode.MANUAL));
+		assertThat(containerProperties.getIdleEventInterval(), is(KEY_ORDERED_IDLE_COMMIT_INTERVAL_MS));
+		org.assertj.core.api.Assertions.assertThat(keyOrderedKafkaListenerContainerFactory).extracting("concurrency").isEqualTo(2);
+		org.assertj.core.api.Assertions.assertThat(keyOrderedKafkaListenerContainerFactory)
+				.extracting("containerCustomizer")
+				.isNotNull();
+	}
+
+	@Test
+	public void should_create_kafkaBatchListenerContainerFactory_with_recovering_batch_error_handler()
+	{
+		final ConcurrentKafkaListenerContainerFactory<?, ?> kafkaBatchListenerContainerFactory = caasKafkaConfig
+				.kafkaBatchListenerContainerFactory(configurer, kafkaConsumerFactory, messageConverter);
+
+		assertThat(kafkaBatchListenerContainerFactory.getContainerProperties().getAckMode(), is(ContainerProperties.AckMode.BATCH));
+		org.assertj.core.api.Assertions.assertThat(kafkaBatchListenerContainerFactory)
+				.extracting("errorHandler")
+				.isInstanceOf(CaasKafkaRecoveringBatchErrorHandler.class);
+	}
+
+	@Test
+	public void should_resolve_batch_destination_from_routing_table_or_dead_letter_topic()
+	{
+		final RetryableConsumerRoutingTable retryableConsumerRoutingTable = new RetryableConsumerRoutingTable(
+				caasKafkaConfig.retryableConsumerMap());
+
+		assertThat(CaasKafkaConfig.getBatchDestination(retryableConsumerRoutingTable, new ConsumerRecord<>(SOURCE_2, 0, 0, null, null)),
+				equalTo(new TopicPartition(SOURCE_2 + SHORT_DELAY_RETRY_TOPIC_SUFFIX, -1)));
+		assertThat(CaasKafkaConfig.getBatchDestination(retryableConsumerRoutingTable, new ConsumerRecord<>(SOURCE_1, 0, 0, null, null)),
+				equalTo(new TopicPartition(SOURCE_1 + DEAD_LETTER_TOPIC_SUFFIX, -1)));
+		assertThat(CaasKafkaConfig.getBatchDestination(null, new ConsumerRecord<>(SOURCE_2, 0, 0, null, null)),
+				equalTo(new TopicPartition(SOURCE_2 + DEAD_LETTER_TOPIC_SUFFIX, -1)));
+	}
+
 	@Test
 	public void should_set_container_transactionIdPrefix_for_container_template()
 	{
@@ -249,15 +344,18 @@ public class CaasKafkaConfigTest
 	@Test
 	public void should_create_retryableKafkaListenerContainerFactory_without_retry_template()
 	{
+		when(providerMetricsListener.getIfAvailable(any())).thenReturn(RetryableConsumerMetricsListener.NONE);
 		final ConcurrentKafkaListenerContainerFactory<?, ?> retryableKafkaListenerContainerFactory = caasKafkaConfig.retryableKafkaListenerContainerFactory(
 				configurer, kafkaConsumerFactory, messageConverter, containerKafkaTemplate, containerKafkaTransactionManager,
-				retryableConsumerDeadLetterPublishingRecoverer, retryableConsumerMap, kafkaListenerRetryExceptionsMap,
-				Optional.empty());
+				retryableConsumerDeadLetterPublishingRecoverer, routingTable, new RetryTopicPartitionPauser(),
+				kafkaListenerRetryExceptionsMap, Optional.empty(), providerMetricsListener);
 
 		assertFalse(retryableKafkaListenerContainerFactory.getContainerProperties().isAckOnError());
 		assertThat(retryableKafkaListenerContainerFactory.getContainerProperties().getAckMode(),
 				is(ContainerProperties.AckMode.RECORD));
 		assertTrue(retryableKafkaListenerContainerFactory.getContainerProperties().isSyncCommits());
+		assertThat(retryableKafkaListenerContainerFactory.getContainerProperties().getIdleEventInterval(),
+				is(RETRY_PARTITION_RESUME_CHECK_INTERVAL_MS));
 
 		org.assertj.core.api.Assertions.assertThat(retryableKafkaListenerContainerFactory).extracting("statefulRetry").isNull();
 		org.assertj.core.api.Assertions.assertThat(retryableKafkaListenerContainerFactory).extracting("replyTemplate").isNull();
@@ -265,16 +363,57 @@ public class CaasKafkaConfigTest
 		assertThat(retryableKafkaListenerContainerFactory.getContainerProperties().getTransactionManager(), is(transactionManager));
 	}
 
+	@Test
+	public void should_create_batch_transactional_retryableKafkaListenerContainerFactory()
+	{
+		when(providerMetricsListener.getIfAvailable(any())).thenReturn(RetryableConsumerMetricsListener.NONE);
+		caasKafkaProperties.getListener().getRetryableConsumer().setBatchTransactional(true);
+
+		final ConcurrentKafkaListenerContainerFactory<?, ?> retryableKafkaListenerContainerFactory = caasKafkaConfig.retryableKafkaListenerContainerFactory(
+				configurer, kafkaConsumerFactory, messageConverter, containerKafkaTemplate, containerKafkaTransactionManager,
+				retryableConsumerDeadLetterPublishingRecoverer, routingTable, new RetryTopicPartitionPauser(),
+				kafkaListenerRetryExceptionsMap, Optional.empty(), providerMetricsListener);
+
+		assertThat(retryableKafkaListenerContainerFactory.getContainerProperties().getAckMode(),
+				is(ContainerProperties.AckMode.MANUAL));
+		assertThat(retryableKafkaListenerContainerFactory.getContainerProperties().getTransactionManager(), is(transactionManager));
+
+		org.assertj.core.api.Assertions.assertThat(retryableKafkaListenerContainerFactory).extracting("recordInterceptor").isNull();
+		org.assertj.core.api.Assertions.assertThat(retryableKafkaListenerContainerFactory).extracting("errorHandler").isNull();
+		org.assertj.core.api.Assertions.assertThat(retryableKafkaListenerContainerFactory)
+				.extracting("containerCustomizer")
+				.isNotNull();
+	}
+
+	@Test
+	public void should_time_record_processing_when_metrics_listener_available()
+	{
+		when(providerMetricsListener.getIfAvailable(any())).thenReturn(mock(RetryableConsumerMetricsListener.class));
+
+		final ConcurrentKafkaListenerContainerFactory<?, ?> retryableKafkaListenerContainerFactory = caasKafkaConfig.retryableKafkaListenerContainerFactory(
+				configurer, kafkaConsumerFactory, messageConverter, containerKafkaTemplate, containerKafkaTransactionManager,
+				retryableConsumerDeadLetterPublishingRecoverer, routingTable, new RetryTopicPartitionPauser(),
+				kafkaListenerRetryExceptionsMap, Optional.empty(), providerMetricsListener);
+
+		org.assertj.core.api.Assertions.assertThat(retryableKafkaListenerContainerFactory)
+				.extracting("recordInterceptor")
+				.isNotNull();
+		org.assertj.core.api.Assertions.assertThat(retryableKafkaListenerContainerFactory)
+				.extracting("containerCustomizer")
+				.isNotNull();
+	}
+
 	@Test
 	public void should_create_retryableKafkaListenerContainerFactory_with_retry_template()
 	{
+		when(providerMetricsListener.getIfAvailable(any())).thenReturn(RetryableConsumerMetricsListener.NONE);
 		final RecoveryCallback recoveryCallback = mock(RecoveryCallback.class);
 		caasKafkaProperties.getListener().getRetry().setEnabled(true);
 
 		final ConcurrentKafkaListenerContainerFactory<?, ?> retryableKafkaListenerContainerFactory = caasKafkaConfig.retryableKafkaListenerContainerFactory(
 				configurer, kafkaConsumerFactory, messageConverter, containerKafkaTemplate, containerKafkaTransactionManager,
-				retryableConsumerDeadLetterPublishingRecoverer, retryableConsumerMap, kafkaListenerRetryExceptionsMap,
-				Optional.of(recoveryCallback));
+				retryableConsumerDeadLetterPublishingRecoverer, routingTable, new RetryTopicPartitionPauser(),
+				kafkaListenerRetryExceptionsMap, Optional.of(recoveryCallback), providerMetricsListener);
 
 		org.assertj.core.api.Assertions.assertThat(retryableKafkaListenerContainerFactory)
 				.extracting("statefulRetry")
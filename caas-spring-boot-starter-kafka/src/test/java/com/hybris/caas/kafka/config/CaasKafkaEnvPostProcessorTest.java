@@ -2,10 +2,14 @@ package com.hybris.caas.kafka.config;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.BasicCredentials;
+import com.hybris.caas.kafka.security.CaasKafkaOAuthBearerLoginCallbackHandler;
+import com.hybris.caas.kafka.security.CaasKafkaPlainClientCallbackHandler;
+import com.hybris.caas.kafka.security.KafkaAccessTokenProvider;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
 import org.springframework.boot.SpringApplication;
 import org.springframework.mock.env.MockEnvironment;
@@ -22,6 +26,7 @@ import java.security.cert.CertificateException;
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
@@ -38,6 +43,9 @@ class CaasKafkaEnvPostProcessorTest
 
 	private WireMockServer wireMockServer;
 
+	@TempDir
+	Path trustStoreCacheDir;
+
 	@BeforeEach
 	void setUp()
 	{
@@ -51,32 +59,18 @@ class CaasKafkaEnvPostProcessorTest
 	void tearDown()
 	{
 		wireMockServer.stop();
+
+		final KafkaAccessTokenProvider tokenProvider = KafkaAccessTokenProvider.getInstance();
+		if (tokenProvider != null)
+		{
+			tokenProvider.close();
+		}
 	}
 
 	@Test
 	void shouldSetupEnvironment() throws IOException, KeyStoreException, CertificateException, NoSuchAlgorithmException
 	{
-		var dummyJwtToken = "{\"access_token\":\"a.long.jwt.token.string\",\"token_type\":\"bearer\",\"expires_in\":7776000,\"jti\":\"3f34d19b-d18c-48c8-85a4-31bfba1f6bd5\",\"scope\":\"kafka.none\"}";
-
-		// require caas kafka property to find the service
-		environment.setProperty("caas.kafka.vcap-service-name", "kafka");
-		// provide properties as if we were on CF via vcap services
-		environment.setProperty("vcap.services.kafka.credentials.username", "username");
-		environment.setProperty("vcap.services.kafka.credentials.password", "password");
-		environment.setProperty("vcap.services.kafka.credentials.urls.ca_cert", "http://localhost:8080/certs/rootCA.crt");
-		environment.setProperty("vcap.services.kafka.credentials.urls.token", "http://localhost:8080/oauth/token");
-
-		// @formatter:off
-		stubFor(post(urlEqualTo("/oauth/token"))
-				.willReturn(aResponse()
-						.withHeader("Content-Type", "application/json; charset=utf-8")
-						.withBody(dummyJwtToken)));
-
-		stubFor(get(urlEqualTo("/certs/rootCA.crt"))
-				.willReturn(aResponse()
-						.withHeader("Content-Type", "application/x-x509-ca-cert; charset=utf-8")
-						.withBody(Files.readAllBytes(Paths.get("src/test/resources/dummy.crt")))));
-		// @formatter:on
+		setUpKafkaService();
 
 		caasKafkaEnvPostProcessor.postProcessEnvironment(environment, application);
 
@@ -101,6 +95,45 @@ class CaasKafkaEnvPostProcessorTest
 		keystore.load(Files.newInputStream(truststoreLocationPath), password); // null creates a new keystore
 
 		assertThat(keystore.containsAlias("sap-cp-kafka-root")).isTrue();
+
+		assertThat(environment.getProperty("spring.kafka.properties.sasl.client.callback.handler.class")).isEqualTo(
+				CaasKafkaPlainClientCallbackHandler.class.getName());
+		assertThat(KafkaAccessTokenProvider.getInstance().getAccessToken().getTokenValue()).isEqualTo("a.long.jwt.token.string");
+	}
+
+	@Test
+	void shouldReuseCachedCertificate() throws IOException
+	{
+		setUpKafkaService();
+		environment.setProperty("caas.kafka.security.trust-store-cache-dir", trustStoreCacheDir.resolve("caas-kafka").toString());
+		stubFor(get(urlEqualTo("/certs/rootCA.crt")).willReturn(
+				aResponse().withBody(Files.readAllBytes(Paths.get("src/test/resources/valid-ca.crt")))));
+
+		caasKafkaEnvPostProcessor.postProcessEnvironment(environment, application);
+		final String truststorePassword = environment.getProperty("caas.kafka.ssl.trust-store-password");
+
+		// restart
+		environment.getPropertySources().remove("CaasKafkaEnvPostProcessor");
+		caasKafkaEnvPostProcessor.postProcessEnvironment(environment, application);
+
+		assertThat(environment.getProperty("caas.kafka.ssl.trust-store-password")).isNotEqualTo(truststorePassword);
+		verify(1, getRequestedFor(urlEqualTo("/certs/rootCA.crt")));
+	}
+
+	@Test
+	void shouldSetupOAuthBearerMechanism() throws IOException
+	{
+		setUpKafkaService();
+		environment.setProperty("caas.kafka.security.sasl-mechanism", "OAUTHBEARER");
+
+		caasKafkaEnvPostProcessor.postProcessEnvironment(environment, application);
+
+		assertThat(environment.getProperty("spring.kafka.properties.sasl.mechanism")).isEqualTo("OAUTHBEARER");
+		assertThat(environment.getProperty("spring.kafka.jaas.login-module")).isEqualTo(
+				"org.apache.kafka.common.security.oauthbearer.OAuthBearerLoginModule");
+		assertThat(environment.getProperty("spring.kafka.properties.sasl.login.callback.handler.class")).isEqualTo(
+				CaasKafkaOAuthBearerLoginCallbackHandler.class.getName());
+		assertThat(environment.getProperty("spring.kafka.properties.sasl.client.callback.handler.class")).isNull();
 	}
 
 	@Test
@@ -128,4 +161,29 @@ class CaasKafkaEnvPostProcessorTest
 		assertThat(environment.getProperty("caas.kafka.ssl.trust-store-password")).isNull();
 		assertThat(environment.getPropertySources().contains("CaasKafkaEnvPostProcessor")).isFalse();
 	}
-}
\ No newline at end of file
+
+	private void setUpKafkaService() throws IOException
+	{
+		var dummyJwtToken = "{\"access_token\":\"a.long.jwt.token.string\",\"token_type\":\"bearer\",\"expires_in\":7776000,\"jti\":\"3f34d19b-d18c-48c8-85a4-31bfba1f6bd5\",\"scope\":\"kafka.none\"}";
+
+		// require caas kafka property to find the service
+		environment.setProperty("caas.kafka.vcap-service-name", "kafka");
+		// provide properties as if we were on CF via vcap services
+		environment.setProperty("vcap.services.kafka.credentials.username", "username");
+		environment.setProperty("vcap.services.kafka.credentials.password", "password");
+		environment.setProperty("vcap.services.kafka.credentials.urls.ca_cert", "http://localhost:8080/certs/rootCA.crt");
+		environment.setProperty("vcap.services.kafka.credentials.urls.token", "http://localhost:8080/oauth/token");
+
+		// @formatter:off
+		stubFor(post(urlEqualTo("/oauth/token"))
+				.willReturn(aResponse()
+						.withHeader("Content-Type", "application/json; charset=utf-8")
+						.withBody(dummyJwtToken)));
+
+		stubFor(get(urlEqualTo("/certs/rootCA.crt"))
+				.willReturn(aResponse()
+						.withHeader("Content-Type", "application/x-x509-ca-cert; charset=utf-8")
+						.withBody(Files.readAllBytes(Paths.get("src/test/resources/dummy.crt")))));
+		// @formatter:on
+	}
+}
@@ -0,0 +1,91 @@
+package com.hybris.caas.kafka.error;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.lenient;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CaasKafkaRecoveringBatchErrorHandlerTest
+{
+	private static final String DUMMY_TOPIC_NAME = "dummy";
+	private static final TopicPartition TOPIC_PARTITION = new TopicPartition(DUMMY_TOPIC_NAME, 0);
+
+	@Mock
+	private MessageListenerContainer container;
+
+	private final MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+	private final CaasKafkaRecoveringBatchErrorHandler errorHandler = new CaasKafkaRecoveringBatchErrorHandler(Duration.ZERO);
+
+	@Before
+	public void setUp()
+	{
+		consumer.assign(Collections.singleton(TOPIC_PARTITION));
+		consumer.updateBeginningOffsets(Collections.singletonMap(TOPIC_PARTITION, 0L));
+	}
+
+	@Test
+	public void should_commit_records_before_failed_record_and_redeliver_from_it()
+	{
+		lenient().when(container.getContainerProperties()).thenReturn(new ContainerProperties(DUMMY_TOPIC_NAME));
+		final ListenerExecutionFailedException exception = new ListenerExecutionFailedException("failed",
+				new BatchListenerFailedException("failed", new IllegalStateException(), 2));
+
+		try
+		{
+			errorHandler.handle(exception, records(4), consumer, container);
+		}
+		catch (final KafkaException e)
+		{
+			// the records from the failed record are redelivered
+		}
+
+		assertThat(consumer.committed(Collections.singleton(TOPIC_PARTITION)).get(TOPIC_PARTITION).offset(), equalTo(2L));
+		assertThat(consumer.position(TOPIC_PARTITION), equalTo(2L));
+	}
+
+	@Test
+	public void should_log_and_commit_batch_when_failed_record_is_unknown()
+	{
+		errorHandler.handle(new IllegalStateException("failed"), records(4), consumer, container);
+
+		assertThat(consumer.committed(Collections.singleton(TOPIC_PARTITION)).get(TOPIC_PARTITION).offset(), equalTo(4L));
+	}
+
+	@Test
+	public void should_not_ack_after_handle()
+	{
+		assertFalse(errorHandler.isAckAfterHandle());
+	}
+
+	private static ConsumerRecords<String, String> records(final int count)
+	{
+		final List<ConsumerRecord<String, String>> records = new ArrayList<>();
+		for (int offset = 0; offset < count; offset++)
+		{
+			records.add(new ConsumerRecord<>(DUMMY_TOPIC_NAME, 0, offset, "key-" + offset, "value-" + offset));
+		}
+		return new ConsumerRecords<>(Collections.singletonMap(TOPIC_PARTITION, records));
+	}
+}
@@ -18,6 +18,7 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.scheduling.annotation.AsyncResult;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.UUID;
 
@@ -30,6 +31,7 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -86,6 +88,19 @@ public class RetryableConsumerDeadLetterPublishingRecovererTest
 		assertThat(publishedRecord.timestamp(), allOf(greaterThanOrEqualTo(now.toEpochMilli()), lessThan(now.toEpochMilli() + 100)));
 	}
 
+	@Test
+	public void should_throw_KafkaRuntimeException_when_synchronous_publishing_fails()
+	{
+		final RetryableConsumerDeadLetterPublishingRecoverer synchronousRecoverer = new RetryableConsumerDeadLetterPublishingRecoverer(
+				template, ((consumerRecord, e) -> new TopicPartition("dummy", 0)), Duration.ofSeconds(1));
+		when(template.send(ArgumentMatchers.<ProducerRecord<Object, Object>>any())).thenReturn(
+				AsyncResult.forExecutionException(new IllegalStateException("failed")));
+
+		final ProducerRecord<Object, Object> outRecord = new ProducerRecord<>(TOPIC_NAME, KEY, VALUE);
+
+		assertThrows(KafkaRuntimeException.class, () -> synchronousRecoverer.publish(outRecord, template));
+	}
+
 	@Test
 	public void should_preserve_essential_dlt_headers_for_retry_topic()
 	{
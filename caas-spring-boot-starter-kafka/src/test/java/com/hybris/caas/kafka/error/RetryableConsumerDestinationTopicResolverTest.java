@@ -1,6 +1,8 @@
 package com.hybris.caas.kafka.error;
 
 import com.hybris.caas.kafka.config.CaasKafkaProperties;
+import com.hybris.caas.kafka.metrics.RetryableConsumerMetricsListener;
+import com.hybris.caas.kafka.util.RetryableConsumerRoutingTable;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.common.TopicPartition;
 import org.junit.Before;
@@ -17,6 +19,8 @@ import static com.hybris.caas.kafka.util.CaasKafkaConstants.SHORT_DELAY_RETRY_TO
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 public class RetryableConsumerDestinationTopicResolverTest
 {
@@ -25,7 +29,6 @@ public class RetryableConsumerDestinationTopicResolverTest
 	private Map<String, CaasKafkaProperties.RetryableConsumer> retryableConsumerMap = new HashMap<>();
 	private Exception ex = new Exception();
 	private ConsumerRecord<?, ?> consumerRecord = new ConsumerRecord<>(DUMMY_TOPIC_NAME, 10, 15, null, null);
-	private RetryableConsumerDestinationTopicResolver retryableConsumerDestinationTopicResolver;
 
 	@Before
 	public void setUp()
@@ -46,8 +49,6 @@ public class RetryableConsumerDestinationTopicResolverTest
 		retryableConsumer.setDeadLetter(deadLetterTopic);
 
 		retryableConsumerMap.put(DUMMY_TOPIC_NAME, retryableConsumer);
-
-		retryableConsumerDestinationTopicResolver = new RetryableConsumerDestinationTopicResolver(retryableConsumerMap);
 	}
 
 	@Test(expected = UnsupportedOperationException.class)
@@ -55,7 +56,7 @@ public class RetryableConsumerDestinationTopicResolverTest
 	{
 		final ConsumerRecord<?, ?> record = new ConsumerRecord<>(DUMMY_TOPIC_NAME + DEAD_LETTER_TOPIC_SUFFIX, 10, 15, null, null);
 
-		retryableConsumerDestinationTopicResolver.getTopicPartition(record, ex);
+		getTopicPartition(record);
 	}
 
 	@Test(expected = IllegalStateException.class)
@@ -63,7 +64,7 @@ public class RetryableConsumerDestinationTopicResolverTest
 	{
 		final ConsumerRecord<?, ?> record = new ConsumerRecord<>(DUMMY_TOPIC_NAME + "abc", 10, 15, null, null);
 
-		retryableConsumerDestinationTopicResolver.getTopicPartition(record, ex);
+		getTopicPartition(record);
 	}
 
 	@Test(expected = KafkaRuntimeException.class)
@@ -72,7 +73,7 @@ public class RetryableConsumerDestinationTopicResolverTest
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).setDeadLetter(null);
 		final ConsumerRecord<?, ?> record = new ConsumerRecord<>(DUMMY_TOPIC_NAME + LONG_DELAY_RETRY_TOPIC_SUFFIX, 10, 15, null, null);
 
-		retryableConsumerDestinationTopicResolver.getTopicPartition(record, ex);
+		getTopicPartition(record);
 	}
 
 	@Test
@@ -80,7 +81,7 @@ public class RetryableConsumerDestinationTopicResolverTest
 	{
 		final ConsumerRecord<?, ?> record = new ConsumerRecord<>(DUMMY_TOPIC_NAME + LONG_DELAY_RETRY_TOPIC_SUFFIX, 10, 15, null, null);
 
-		final TopicPartition result = retryableConsumerDestinationTopicResolver.getTopicPartition(record, ex);
+		final TopicPartition result = getTopicPartition(record);
 
 		assertTrue(result.topic().endsWith(DEAD_LETTER_TOPIC_SUFFIX));
 		assertThat(result.partition(), equalTo(-1));
@@ -94,19 +95,33 @@ public class RetryableConsumerDestinationTopicResolverTest
 
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).getDeadLetter().setTopicPrefix("dltTopicPrefix");
 
-		final TopicPartition result = retryableConsumerDestinationTopicResolver.getTopicPartition(record, ex);
+		final TopicPartition result = getTopicPartition(record);
 
 		assertThat(result.topic(), equalTo("dltTopicPrefix.DLT"));
 		assertThat(result.partition(), equalTo(-1));
 	}
 
+	@Test
+	public void should_notify_metrics_listener_of_routed_record()
+	{
+		final RetryableConsumerMetricsListener metricsListener = mock(RetryableConsumerMetricsListener.class);
+		final RetryableConsumerRoutingTable routingTable = new RetryableConsumerRoutingTable(retryableConsumerMap);
+		final RetryableConsumerDestinationTopicResolver resolver = new RetryableConsumerDestinationTopicResolver(routingTable,
+				metricsListener);
+		final ConsumerRecord<?, ?> record = new ConsumerRecord<>(DUMMY_TOPIC_NAME + LONG_DELAY_RETRY_TOPIC_SUFFIX, 10, 15, null, null);
+
+		final TopicPartition result = resolver.getTopicPartition(record, ex);
+
+		verify(metricsListener).onRouted(routingTable.getRoute(record), record.topic(), result.topic());
+	}
+
 	@Test
 	public void should_return_LDR_topic_for_SDR()
 	{
 		final ConsumerRecord<?, ?> record = new ConsumerRecord<>(DUMMY_TOPIC_NAME + SHORT_DELAY_RETRY_TOPIC_SUFFIX, 10, 15, null,
 				null);
 
-		final TopicPartition result = retryableConsumerDestinationTopicResolver.getTopicPartition(record, ex);
+		final TopicPartition result = getTopicPartition(record);
 
 		assertTrue(result.topic().endsWith(LONG_DELAY_RETRY_TOPIC_SUFFIX));
 		assertThat(result.partition(), equalTo(-1));
@@ -121,7 +136,7 @@ public class RetryableConsumerDestinationTopicResolverTest
 
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).getLongDelayRetry().setTopicPrefix("ldrTopicPrefix");
 
-		final TopicPartition result = retryableConsumerDestinationTopicResolver.getTopicPartition(record, ex);
+		final TopicPartition result = getTopicPartition(record);
 
 		assertThat(result.topic(), equalTo("ldrTopicPrefix.LDR"));
 		assertThat(result.partition(), equalTo(-1));
@@ -134,7 +149,7 @@ public class RetryableConsumerDestinationTopicResolverTest
 		final ConsumerRecord<?, ?> record = new ConsumerRecord<>(DUMMY_TOPIC_NAME + SHORT_DELAY_RETRY_TOPIC_SUFFIX, 10, 15, null,
 				null);
 
-		final TopicPartition result = retryableConsumerDestinationTopicResolver.getTopicPartition(record, ex);
+		final TopicPartition result = getTopicPartition(record);
 
 		assertTrue(result.topic().endsWith(DEAD_LETTER_TOPIC_SUFFIX));
 		assertThat(result.partition(), equalTo(-1));
@@ -150,7 +165,7 @@ public class RetryableConsumerDestinationTopicResolverTest
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).setLongDelayRetry(null);
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).getDeadLetter().setTopicPrefix("dltTopicPrefix");
 
-		final TopicPartition result = retryableConsumerDestinationTopicResolver.getTopicPartition(record, ex);
+		final TopicPartition result = getTopicPartition(record);
 
 		assertThat(result.topic(), equalTo("dltTopicPrefix.DLT"));
 		assertThat(result.partition(), equalTo(-1));
@@ -164,7 +179,7 @@ public class RetryableConsumerDestinationTopicResolverTest
 		final ConsumerRecord<?, ?> record = new ConsumerRecord<>(DUMMY_TOPIC_NAME + SHORT_DELAY_RETRY_TOPIC_SUFFIX, 10, 15, null,
 				null);
 
-		retryableConsumerDestinationTopicResolver.getTopicPartition(record, ex);
+		getTopicPartition(record);
 	}
 
 	@Test
@@ -173,7 +188,7 @@ public class RetryableConsumerDestinationTopicResolverTest
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).setLongDelayRetry(null);
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).setDeadLetter(null);
 
-		final TopicPartition result = retryableConsumerDestinationTopicResolver.getTopicPartition(consumerRecord, ex);
+		final TopicPartition result = getTopicPartition(consumerRecord);
 
 		assertTrue(result.topic().endsWith(SHORT_DELAY_RETRY_TOPIC_SUFFIX));
 		assertThat(result.partition(), equalTo(-1));
@@ -186,7 +201,7 @@ public class RetryableConsumerDestinationTopicResolverTest
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).setDeadLetter(null);
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).getShortDelayRetry().setTopicPrefix("sdrTopicPrefix");
 
-		final TopicPartition result = retryableConsumerDestinationTopicResolver.getTopicPartition(consumerRecord, ex);
+		final TopicPartition result = getTopicPartition(consumerRecord);
 
 		assertThat(result.topic(), equalTo("sdrTopicPrefix.SDR"));
 		assertThat(result.partition(), equalTo(-1));
@@ -198,7 +213,7 @@ public class RetryableConsumerDestinationTopicResolverTest
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).setShortDelayRetry(null);
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).setDeadLetter(null);
 
-		final TopicPartition result = retryableConsumerDestinationTopicResolver.getTopicPartition(consumerRecord, ex);
+		final TopicPartition result = getTopicPartition(consumerRecord);
 
 		assertTrue(result.topic().endsWith(LONG_DELAY_RETRY_TOPIC_SUFFIX));
 		assertThat(result.partition(), equalTo(-1));
@@ -211,7 +226,7 @@ public class RetryableConsumerDestinationTopicResolverTest
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).setDeadLetter(null);
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).getLongDelayRetry().setTopicPrefix("ldrTopicPrefix");
 
-		final TopicPartition result = retryableConsumerDestinationTopicResolver.getTopicPartition(consumerRecord, ex);
+		final TopicPartition result = getTopicPartition(consumerRecord);
 
 		assertThat(result.topic(), equalTo("ldrTopicPrefix.LDR"));
 		assertThat(result.partition(), equalTo(-1));
@@ -223,7 +238,7 @@ public class RetryableConsumerDestinationTopicResolverTest
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).setShortDelayRetry(null);
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).setLongDelayRetry(null);
 
-		final TopicPartition result = retryableConsumerDestinationTopicResolver.getTopicPartition(consumerRecord, ex);
+		final TopicPartition result = getTopicPartition(consumerRecord);
 
 		assertTrue(result.topic().endsWith(DEAD_LETTER_TOPIC_SUFFIX));
 		assertThat(result.partition(), equalTo(-1));
@@ -236,7 +251,7 @@ public class RetryableConsumerDestinationTopicResolverTest
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).setLongDelayRetry(null);
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).getDeadLetter().setTopicPrefix("dltTopicPrefix");
 
-		final TopicPartition result = retryableConsumerDestinationTopicResolver.getTopicPartition(consumerRecord, ex);
+		final TopicPartition result = getTopicPartition(consumerRecord);
 
 		assertThat(result.topic(), equalTo("dltTopicPrefix.DLT"));
 		assertThat(result.partition(), equalTo(-1));
@@ -249,6 +264,12 @@ public class RetryableConsumerDestinationTopicResolverTest
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).setLongDelayRetry(null);
 		retryableConsumerMap.get(DUMMY_TOPIC_NAME).setDeadLetter(null);
 
-		retryableConsumerDestinationTopicResolver.getTopicPartition(consumerRecord, ex);
+		getTopicPartition(consumerRecord);
+	}
+
+	private TopicPartition getTopicPartition(final ConsumerRecord<?, ?> record)
+	{
+		// the routing table is computed from the configuration on creation, after the configuration changes of the test
+		return new RetryableConsumerDestinationTopicResolver(retryableConsumerMap).getTopicPartition(record, ex);
 	}
 }
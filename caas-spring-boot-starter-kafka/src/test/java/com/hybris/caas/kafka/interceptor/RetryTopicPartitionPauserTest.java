@@ -0,0 +1,84 @@
+package com.hybris.caas.kafka.interceptor;
+
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class RetryTopicPartitionPauserTest
+{
+	private static final long NOW = 10_000L;
+	private static final TopicPartition RETRY_PARTITION = new TopicPartition("dummy-short-delay-retry", 0);
+	private static final TopicPartition OTHER_PARTITION = new TopicPartition("dummy", 0);
+
+	private final MockConsumer<Object, Object> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+	private final RetryTopicPartitionPauser pauser = new RetryTopicPartitionPauser(
+			Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+
+	@Before
+	public void setUp()
+	{
+		consumer.assign(Arrays.asList(RETRY_PARTITION, OTHER_PARTITION));
+	}
+
+	@Test
+	public void should_pause_only_partition_of_delayed_record()
+	{
+		pauser.pause(consumer, RETRY_PARTITION, NOW + 1);
+
+		assertThat(consumer.paused(), equalTo(Collections.singleton(RETRY_PARTITION)));
+	}
+
+	@Test
+	public void should_not_resume_partition_before_it_is_due()
+	{
+		pauser.pause(consumer, RETRY_PARTITION, NOW + 1);
+
+		pauser.resumeDuePartitions();
+
+		assertThat(consumer.paused(), equalTo(Collections.singleton(RETRY_PARTITION)));
+	}
+
+	@Test
+	public void should_resume_partition_once_it_is_due()
+	{
+		pauser.pause(consumer, RETRY_PARTITION, NOW);
+
+		pauser.resumeDuePartitions();
+
+		assertThat(consumer.paused().isEmpty(), equalTo(true));
+	}
+
+	@Test
+	public void should_resume_due_partition_on_idle_event()
+	{
+		pauser.pause(consumer, RETRY_PARTITION, NOW - 1);
+
+		pauser.onApplicationEvent(new ListenerContainerIdleEvent(this, this, 1_000L, "listener",
+				Collections.singletonList(RETRY_PARTITION), consumer, false));
+
+		assertThat(consumer.paused().isEmpty(), equalTo(true));
+	}
+
+	@Test
+	public void should_not_resume_partition_paused_by_someone_else()
+	{
+		consumer.pause(Collections.singleton(OTHER_PARTITION));
+		pauser.pause(consumer, RETRY_PARTITION, NOW);
+
+		pauser.resumeDuePartitions(consumer);
+
+		assertThat(consumer.paused(), equalTo(Collections.singleton(OTHER_PARTITION)));
+	}
+}
@@ -27,7 +27,7 @@ public class RetryableConsumerAfterRollbackProcessorDecoratorTest
 	private Consumer<Object, Object> consumer;
 
 	private final List<ConsumerRecord<Object, Object>> consumerRecords = Collections.emptyList();
-	private final Exception exception = new ListenerExecutionFailedException("dummy", new DelayException(5));
+	private final Exception exception = new ListenerExecutionFailedException("dummy", new DelayException(5, 100L));
 
 	private RetryableConsumerAfterRollbackProcessorDecorator<Object, Object> retryableConsumerAfterRollbackProcessorDecorator;
 
@@ -0,0 +1,149 @@
+package com.hybris.caas.kafka.interceptor;
+
+import com.hybris.caas.kafka.config.CaasKafkaProperties;
+import com.hybris.caas.kafka.error.RetryableConsumerDeadLetterPublishingRecoverer;
+import com.hybris.caas.kafka.metrics.RetryableConsumerMetricsListener;
+import com.hybris.caas.kafka.util.RetryableConsumerRoutingTable;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.MessageListener;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.SHORT_DELAY_RETRY_TOPIC_SUFFIX;
+import static org.apache.kafka.clients.consumer.ConsumerRecord.NULL_SIZE;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RetryableConsumerBatchMessageListenerTest
+{
+	private static final String DUMMY_TOPIC_NAME = "dummy";
+	private static final String RETRY_TOPIC_NAME = DUMMY_TOPIC_NAME + SHORT_DELAY_RETRY_TOPIC_SUFFIX;
+	private static final String GROUP_ID = "group";
+	private static final int MESSAGE_DELAY_MS = 60_000;
+
+	@Mock
+	private Consumer<?, ?> consumer;
+	@Mock
+	private KafkaOperations<Object, Object> kafkaOperations;
+	@Mock
+	private RetryableConsumerDeadLetterPublishingRecoverer retryableConsumerDeadLetterPublishingRecoverer;
+	@Mock
+	private RetryableConsumerMetricsListener metricsListener;
+
+	private final RetryTopicPartitionPauser retryTopicPartitionPauser = new RetryTopicPartitionPauser();
+	private final List<ConsumerRecord<Object, Object>> processedRecords = new ArrayList<>();
+	private Map<String, CaasKafkaProperties.RetryableConsumer> retryableConsumerMap;
+	private RetryableConsumerRoutingTable routingTable;
+	private RetryableConsumerRecordInterceptor<Object, Object> retryableConsumerRecordInterceptor;
+
+	@Before
+	public void setUp()
+	{
+		final CaasKafkaProperties.RetryableConsumer retryableConsumer = new CaasKafkaProperties.RetryableConsumer();
+		retryableConsumer.setSource(DUMMY_TOPIC_NAME);
+		final CaasKafkaProperties.RetryTopic shortDelayRetryTopic = new CaasKafkaProperties.RetryTopic();
+		shortDelayRetryTopic.setMessageDelayMs(MESSAGE_DELAY_MS);
+		retryableConsumer.setShortDelayRetry(shortDelayRetryTopic);
+
+		retryableConsumerMap = Collections.singletonMap(DUMMY_TOPIC_NAME, retryableConsumer);
+		routingTable = new RetryableConsumerRoutingTable(retryableConsumerMap);
+		retryableConsumerRecordInterceptor = new RetryableConsumerRecordInterceptor<>(retryableConsumerMap,
+				retryTopicPartitionPauser);
+
+		when(consumer.groupMetadata()).thenReturn(new ConsumerGroupMetadata(GROUP_ID));
+	}
+
+	@Test
+	public void should_process_records_and_send_offsets_to_transaction_once()
+	{
+		final List<ConsumerRecord<Object, Object>> records = Arrays.asList(record(DUMMY_TOPIC_NAME, 0, 3),
+				record(DUMMY_TOPIC_NAME, 0, 4), record(DUMMY_TOPIC_NAME, 1, 7));
+
+		createListener(processedRecords::add).onMessage(records, null, consumer);
+
+		assertThat(processedRecords, equalTo(records));
+		final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>(offsets(0, 5L));
+		offsets.putAll(offsets(1, 8L));
+		verify(kafkaOperations).sendOffsetsToTransaction(eq(offsets), eq(GROUP_ID));
+	}
+
+	@Test
+	public void should_publish_failed_record_and_go_on_with_next_record()
+	{
+		final ConsumerRecord<Object, Object> failingRecord = record(DUMMY_TOPIC_NAME, 0, 3);
+		final ConsumerRecord<Object, Object> nextRecord = record(DUMMY_TOPIC_NAME, 0, 4);
+		final IllegalStateException exception = new IllegalStateException("failed");
+
+		createListener(record -> {
+			if (record == failingRecord)
+			{
+				throw exception;
+			}
+			processedRecords.add(record);
+		}).onMessage(Arrays.asList(failingRecord, nextRecord), null, consumer);
+
+		verify(retryableConsumerDeadLetterPublishingRecoverer).accept(same(failingRecord), same(exception));
+		verify(metricsListener).onProcessed(same(routingTable.getRoute(failingRecord)), eq(DUMMY_TOPIC_NAME), anyLong(),
+				same(exception));
+		verify(metricsListener).onProcessed(same(routingTable.getRoute(nextRecord)), eq(DUMMY_TOPIC_NAME), anyLong(), isNull());
+		assertThat(processedRecords, equalTo(Collections.singletonList(nextRecord)));
+		verify(kafkaOperations).sendOffsetsToTransaction(eq(offsets(0, 5L)), eq(GROUP_ID));
+	}
+
+	@Test
+	public void should_seek_and_pause_partition_of_record_not_due()
+	{
+		final TopicPartition retryTopicPartition = new TopicPartition(RETRY_TOPIC_NAME, 0);
+		final ConsumerRecord<Object, Object> dueRecord = record(DUMMY_TOPIC_NAME, 0, 3);
+
+		createListener(processedRecords::add).onMessage(
+				Arrays.asList(record(RETRY_TOPIC_NAME, 0, 10), dueRecord, record(RETRY_TOPIC_NAME, 0, 11)), null, consumer);
+
+		assertThat(processedRecords, equalTo(Collections.singletonList(dueRecord)));
+		verify(consumer).seek(retryTopicPartition, 10L);
+		verify(consumer).pause(Collections.singleton(retryTopicPartition));
+		verify(kafkaOperations).sendOffsetsToTransaction(eq(offsets(0, 4L)), eq(GROUP_ID));
+	}
+
+	private RetryableConsumerBatchMessageListener<Object, Object> createListener(final MessageListener<Object, Object> delegate)
+	{
+		return new RetryableConsumerBatchMessageListener<>(delegate, retryableConsumerRecordInterceptor,
+				retryTopicPartitionPauser, retryableConsumerDeadLetterPublishingRecoverer, kafkaOperations,
+				routingTable, metricsListener);
+	}
+
+	private static ConsumerRecord<Object, Object> record(final String topic, final int partition, final long offset)
+	{
+		return new ConsumerRecord<>(topic, partition, offset, Instant.now().toEpochMilli(), TimestampType.CREATE_TIME,
+				ConsumerRecord.NULL_CHECKSUM, NULL_SIZE, NULL_SIZE, "key", "value");
+	}
+
+	private static Map<TopicPartition, OffsetAndMetadata> offsets(final int partition, final long offset)
+	{
+		return Collections.singletonMap(new TopicPartition(DUMMY_TOPIC_NAME, partition), new OffsetAndMetadata(offset));
+	}
+}
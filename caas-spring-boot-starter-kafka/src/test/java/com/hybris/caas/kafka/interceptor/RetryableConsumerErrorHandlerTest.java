@@ -57,7 +57,8 @@ public class RetryableConsumerErrorHandlerTest
 	@Before
 	public void setUp()
 	{
-		retryableConsumerErrorHandler = new RetryableConsumerErrorHandler(retryableConsumerDeadLetterPublishingRecoverer);
+		retryableConsumerErrorHandler = new RetryableConsumerErrorHandler(retryableConsumerDeadLetterPublishingRecoverer,
+				new RetryTopicPartitionPauser());
 	}
 
 	@Test(expected = UnsupportedOperationException.class)
@@ -67,6 +68,22 @@ public class RetryableConsumerErrorHandlerTest
 				new MockConsumer<>(OffsetResetStrategy.EARLIEST));
 	}
 
+	@Test
+	public void should_pause_partition_of_delayed_record()
+	{
+		try
+		{
+			retryableConsumerErrorHandler.handle(new ListenerExecutionFailedException("dummy", new DelayException(5, 100L)),
+					consumerRecordList, consumer, listenerContainer);
+			fail();
+		}
+		catch (final DelayException ex)
+		{
+			verify(consumer).seek(new TopicPartition(DUMMY_TOPIC_NAME, PARTITION), RECORD_OFFSET);
+			verify(consumer).pause(Collections.singleton(new TopicPartition(DUMMY_TOPIC_NAME, PARTITION)));
+		}
+	}
+
 	@Test
 	public void should_further_propagate_DelayException()
 	{
@@ -76,8 +93,8 @@ public class RetryableConsumerErrorHandlerTest
 
 		try
 		{
-			retryableConsumerErrorHandler.handle(new ListenerExecutionFailedException("dummy", new DelayException(5)), recordList,
-					consumer, listenerContainer);
+			retryableConsumerErrorHandler.handle(new ListenerExecutionFailedException("dummy", new DelayException(5, 100L)),
+					recordList, consumer, listenerContainer);
 			fail();
 		}
 		catch (final DelayException ex)
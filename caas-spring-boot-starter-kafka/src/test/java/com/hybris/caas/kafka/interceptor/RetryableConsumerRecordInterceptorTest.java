@@ -1,6 +1,8 @@
 package com.hybris.caas.kafka.interceptor;
 
 import com.hybris.caas.kafka.config.CaasKafkaProperties;
+import com.hybris.caas.kafka.metrics.RetryableConsumerMetricsListener;
+import com.hybris.caas.kafka.util.RetryableConsumerRoutingTable;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.common.record.TimestampType;
 import org.junit.Before;
@@ -17,15 +19,18 @@ import static org.apache.kafka.clients.consumer.ConsumerRecord.NULL_SIZE;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 public class RetryableConsumerRecordInterceptorTest
 {
 	private static final String DUMMY_TOPIC_NAME = "dummy";
 	private static final int MAX_VARIANCE_MS = 100;
-	private static final int EXECUTION_VARIANCE_MS = 50;
 	private static final int SHORT_DELAY_MS = 200;
 	private static final int LONG_DELAY_MS = 500;
-	private static final long IDLE_BETWEEN_RETRY_POLLS_MS = 1_000;
 
 	private Map<String, CaasKafkaProperties.RetryableConsumer> retryableConsumerMap = new HashMap<>();
 	private RetryableConsumerRecordInterceptor<Object, Object> interceptor;
@@ -50,7 +55,7 @@ public class RetryableConsumerRecordInterceptorTest
 
 		retryableConsumerMap.put(DUMMY_TOPIC_NAME, retryableConsumer);
 
-		interceptor = new RetryableConsumerRecordInterceptor<>(retryableConsumerMap, IDLE_BETWEEN_RETRY_POLLS_MS);
+		interceptor = new RetryableConsumerRecordInterceptor<>(retryableConsumerMap, new RetryTopicPartitionPauser());
 	}
 
 	@Test
@@ -80,34 +85,66 @@ public class RetryableConsumerRecordInterceptorTest
 	}
 
 	@Test
-	public void should_delay_processing_of_record_from_short_delay_retry_topic()
+	public void should_throw_DelayException_without_delay_for_record_from_short_delay_retry_topic()
 	{
+		final long timestamp = Instant.now().toEpochMilli();
 		final ConsumerRecord<Object, Object> consumerRecord = new ConsumerRecord<>(DUMMY_TOPIC_NAME + SHORT_DELAY_RETRY_TOPIC_SUFFIX,
-				0, 0, Instant.now().toEpochMilli(), TimestampType.CREATE_TIME, ConsumerRecord.NULL_CHECKSUM, NULL_SIZE, NULL_SIZE,
-				null, null);
+				0, 0, timestamp, TimestampType.CREATE_TIME, ConsumerRecord.NULL_CHECKSUM, NULL_SIZE, NULL_SIZE, null, null);
 
-		assertRecordInterceptionTimeElapsedBetween(consumerRecord, SHORT_DELAY_MS - EXECUTION_VARIANCE_MS,
-				SHORT_DELAY_MS + MAX_VARIANCE_MS);
+		assertDelayExceptionThrownWithoutDelay(consumerRecord, timestamp + SHORT_DELAY_MS);
 	}
 
 	@Test
-	public void should_delay_processing_of_record_from_long_delay_retry_topic()
+	public void should_throw_DelayException_without_delay_for_record_from_long_delay_retry_topic()
 	{
+		final long timestamp = Instant.now().toEpochMilli();
 		final ConsumerRecord<Object, Object> consumerRecord = new ConsumerRecord<>(DUMMY_TOPIC_NAME + LONG_DELAY_RETRY_TOPIC_SUFFIX, 0,
-				0, Instant.now().toEpochMilli(), TimestampType.CREATE_TIME, ConsumerRecord.NULL_CHECKSUM, NULL_SIZE, NULL_SIZE, null,
-				null);
+				0, timestamp, TimestampType.CREATE_TIME, ConsumerRecord.NULL_CHECKSUM, NULL_SIZE, NULL_SIZE, null, null);
 
-		assertRecordInterceptionTimeElapsedBetween(consumerRecord, LONG_DELAY_MS - EXECUTION_VARIANCE_MS,
-				LONG_DELAY_MS + MAX_VARIANCE_MS);
+		assertDelayExceptionThrownWithoutDelay(consumerRecord, timestamp + LONG_DELAY_MS);
 	}
 
 	@Test
-	public void should_throw_DelayException_when_large_delay_is_required_after_min_sleep()
+	public void should_notify_metrics_listener_of_intercepted_and_delayed_record()
 	{
-		final ConsumerRecord<Object, Object> consumerRecord = new ConsumerRecord<>(DUMMY_TOPIC_NAME + LONG_DELAY_RETRY_TOPIC_SUFFIX, 0,
-				0, Instant.now().plusMillis(IDLE_BETWEEN_RETRY_POLLS_MS).toEpochMilli(), TimestampType.CREATE_TIME,
-				ConsumerRecord.NULL_CHECKSUM, NULL_SIZE, NULL_SIZE, null, null);
+		final RetryableConsumerMetricsListener metricsListener = mock(RetryableConsumerMetricsListener.class);
+		final RetryableConsumerRoutingTable routingTable = new RetryableConsumerRoutingTable(retryableConsumerMap);
+		interceptor = new RetryableConsumerRecordInterceptor<>(routingTable, new RetryTopicPartitionPauser(), metricsListener);
+		final String retryTopicName = DUMMY_TOPIC_NAME + SHORT_DELAY_RETRY_TOPIC_SUFFIX;
+		final long timestamp = Instant.now().toEpochMilli();
+		final ConsumerRecord<Object, Object> consumerRecord = new ConsumerRecord<>(retryTopicName, 0, 0, timestamp,
+				TimestampType.CREATE_TIME, ConsumerRecord.NULL_CHECKSUM, NULL_SIZE, NULL_SIZE, null, null);
+
+		assertDelayExceptionThrownWithoutDelay(consumerRecord, timestamp + SHORT_DELAY_MS);
+
+		final RetryableConsumerRoutingTable.Route route = routingTable.getRoute(consumerRecord);
+		assertEquals(DUMMY_TOPIC_NAME, route.getSource());
+		verify(metricsListener).onIntercepted(route, retryTopicName);
+		verify(metricsListener).onDelayed(same(route), eq(retryTopicName), anyLong());
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void should_throw_DelayException_without_delay_when_created_with_idle_between_retry_polls()
+	{
+		interceptor = new RetryableConsumerRecordInterceptor<>(retryableConsumerMap, 1000L);
+		final long timestamp = Instant.now().toEpochMilli();
+		final ConsumerRecord<Object, Object> consumerRecord = new ConsumerRecord<>(DUMMY_TOPIC_NAME + SHORT_DELAY_RETRY_TOPIC_SUFFIX,
+				0, 0, timestamp, TimestampType.CREATE_TIME, ConsumerRecord.NULL_CHECKSUM, NULL_SIZE, NULL_SIZE, null, null);
+
+		assertDelayExceptionThrownWithoutDelay(consumerRecord, timestamp + SHORT_DELAY_MS);
+	}
 
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings("deprecation")
+	public void should_reject_non_positive_idle_between_retry_polls()
+	{
+		new RetryableConsumerRecordInterceptor<>(retryableConsumerMap, 0L);
+	}
+
+	private void assertDelayExceptionThrownWithoutDelay(final ConsumerRecord<Object, Object> consumerRecord,
+			final long expectedResumeTimestampMs)
+	{
 		final Instant beforeInterceptorTimestamp = Instant.now();
 
 		try
@@ -117,16 +154,9 @@ public class RetryableConsumerRecordInterceptorTest
 		}
 		catch (final DelayException ex)
 		{
-			final Instant afterInterceptorTiemstamp = Instant.now();
-			final long timeElapsed = Duration.between(beforeInterceptorTimestamp, afterInterceptorTiemstamp).toMillis();
-			assertTrue("Time elapsed not greater than minimum interval: " + timeElapsed,
-					timeElapsed >= IDLE_BETWEEN_RETRY_POLLS_MS - EXECUTION_VARIANCE_MS);
-			assertTrue("Time elapsed not smaller than maximum interval: " + timeElapsed,
-					timeElapsed <= IDLE_BETWEEN_RETRY_POLLS_MS + MAX_VARIANCE_MS);
-		}
-		catch (final Exception ex)
-		{
-			fail();
+			final long timeElapsed = Duration.between(beforeInterceptorTimestamp, Instant.now()).toMillis();
+			assertTrue("Time elapsed not smaller than maximum interval: " + timeElapsed, timeElapsed <= MAX_VARIANCE_MS);
+			assertEquals(expectedResumeTimestampMs, ex.getResumeTimestampMs());
 		}
 	}
 
@@ -0,0 +1,202 @@
+package com.hybris.caas.kafka.listener;
+
+import brave.Span;
+import brave.Tracer;
+import com.hybris.caas.kafka.tracing.ConsumerRecordTracing;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BatchMessageProcessorTest
+{
+	private static final String DUMMY_TOPIC_NAME = "dummy";
+
+	@Mock
+	private Tracer tracer;
+
+	@Mock
+	private ConsumerRecordTracing consumerRecordTracing;
+
+	@Mock
+	private ConsumerRecordRecoverer recoverer;
+
+	@Mock
+	private KafkaOperations<Object, Object> kafkaOperations;
+
+	@Mock
+	private Span span;
+
+	@Mock
+	private Span batchSpan;
+
+	@Mock
+	private Tracer.SpanInScope spanInScope;
+
+	private BatchMessageProcessor batchMessageProcessor;
+
+	@Before
+	public void setUp()
+	{
+		batchMessageProcessor = new BatchMessageProcessor(tracer, consumerRecordTracing, recoverer, kafkaOperations);
+
+		when(consumerRecordTracing.nextSpan(any())).thenReturn(span);
+		when(tracer.withSpanInScope(any())).thenReturn(spanInScope);
+		lenient().when(tracer.nextSpan()).thenReturn(batchSpan);
+		lenient().when(batchSpan.name(anyString())).thenReturn(batchSpan);
+		lenient().when(batchSpan.start()).thenReturn(batchSpan);
+	}
+
+	@Test
+	public void should_handle_converted_messages_in_order()
+	{
+		final List<ConsumerRecord<String, String>> records = records(3);
+		records.forEach(this::convertRecord);
+		final List<Object> payloads = new ArrayList<>();
+
+		batchMessageProcessor.process(records, String.class, messages -> {
+			messages.forEach(message -> payloads.add(message.getPayload()));
+			return Collections.emptyMap();
+		});
+
+		assertThat(payloads, equalTo(Arrays.asList("value-0", "value-1", "value-2")));
+		verify(span, times(3)).finish();
+		verify(span, never()).error(any());
+		verify(batchSpan).finish();
+		verify(recoverer, never()).accept(any(), any());
+	}
+
+	@Test
+	public void should_recover_records_failing_conversion_or_handling_in_order()
+	{
+		final List<ConsumerRecord<String, String>> records = records(4);
+		final IllegalArgumentException conversionException = new IllegalArgumentException("conversion");
+		final IllegalStateException handlingException = new IllegalStateException("handling");
+		when(consumerRecordTracing.convert(records.get(0), String.class)).thenThrow(conversionException);
+		convertRecord(records.get(1));
+		convertRecord(records.get(2));
+		convertRecord(records.get(3));
+
+		batchMessageProcessor.process(records, String.class, messages -> {
+			// messages of records 1, 2 and 3, the message of record 2 fails
+			assertThat(messages.size(), equalTo(3));
+			return Collections.singletonMap(1, handlingException);
+		});
+
+		final InOrder inOrder = inOrder(recoverer);
+		inOrder.verify(recoverer).accept(records.get(0), conversionException);
+		inOrder.verify(recoverer).accept(records.get(2), handlingException);
+		inOrder.verifyNoMoreInteractions();
+		verify(span).error(conversionException);
+		verify(span).error(handlingException);
+		verify(span, times(4)).finish();
+	}
+
+	@Test
+	public void should_recover_all_handled_records_when_handler_throws()
+	{
+		final List<ConsumerRecord<String, String>> records = records(2);
+		records.forEach(this::convertRecord);
+		final IllegalStateException exception = new IllegalStateException("handling");
+
+		batchMessageProcessor.process(records, String.class, messages -> {
+			throw exception;
+		});
+
+		verify(recoverer).accept(records.get(0), exception);
+		verify(recoverer).accept(records.get(1), exception);
+		verify(batchSpan).error(exception);
+		verify(batchSpan).finish();
+	}
+
+	@Test
+	public void should_fail_from_first_record_not_recovered()
+	{
+		final List<ConsumerRecord<String, String>> records = records(4);
+		records.forEach(this::convertRecord);
+		final IllegalStateException handlingException = new IllegalStateException("handling");
+		final IllegalStateException recoveryException = new IllegalStateException("recovery");
+		doThrow(recoveryException).when(recoverer).accept(records.get(1), handlingException);
+
+		final BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+				() -> batchMessageProcessor.process(records, String.class, messages -> failing(handlingException, 1, 3)));
+
+		assertThat(exception.getIndex(), equalTo(1));
+		assertThat(exception.getCause(), sameInstance(recoveryException));
+		verify(recoverer, times(1)).accept(any(), any());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void should_recover_records_within_a_transaction_when_template_is_transactional()
+	{
+		final List<ConsumerRecord<String, String>> records = records(4);
+		records.forEach(this::convertRecord);
+		final IllegalStateException handlingException = new IllegalStateException("handling");
+		final IllegalStateException recoveryException = new IllegalStateException("recovery");
+		when(kafkaOperations.isTransactional()).thenReturn(true);
+		when(kafkaOperations.executeInTransaction(any())).thenAnswer(
+				invocation -> ((KafkaOperations.OperationsCallback<Object, Object, Object>) invocation.getArgument(0)).doInOperations(
+						kafkaOperations));
+		doThrow(recoveryException).when(recoverer).accept(records.get(3), handlingException);
+
+		final BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+				() -> batchMessageProcessor.process(records, String.class, messages -> failing(handlingException, 1, 3)));
+
+		// the publishing of the record 1 is rolled back with the transaction, the batch is redelivered from it
+		assertThat(exception.getIndex(), equalTo(1));
+		assertThat(exception.getCause(), sameInstance(recoveryException));
+		verify(recoverer).accept(records.get(1), handlingException);
+	}
+
+	private static Map<Integer, Exception> failing(final Exception exception, final Integer... indexes)
+	{
+		return Arrays.stream(indexes).collect(Collectors.toMap(index -> index, index -> exception));
+	}
+
+	private void convertRecord(final ConsumerRecord<String, String> record)
+	{
+		final Message<String> message = MessageBuilder.withPayload(record.value()).build();
+		when(consumerRecordTracing.convert(record, String.class)).thenReturn(message);
+	}
+
+	private static List<ConsumerRecord<String, String>> records(final int count)
+	{
+		final List<ConsumerRecord<String, String>> records = new ArrayList<>();
+		for (int offset = 0; offset < count; offset++)
+		{
+			records.add(new ConsumerRecord<>(DUMMY_TOPIC_NAME, 0, offset, "key-" + offset, "value-" + offset));
+		}
+		return records;
+	}
+}
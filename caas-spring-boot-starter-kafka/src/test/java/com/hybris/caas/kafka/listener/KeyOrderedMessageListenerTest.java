@@ -0,0 +1,241 @@
+package com.hybris.caas.kafka.listener;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.kafka.listener.ErrorHandler;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class KeyOrderedMessageListenerTest
+{
+	private static final String DUMMY_TOPIC_NAME = "dummy";
+	private static final TopicPartition TOPIC_PARTITION = new TopicPartition(DUMMY_TOPIC_NAME, 0);
+	private static final long TIMEOUT_MS = 5_000;
+
+	@Mock
+	private ErrorHandler errorHandler;
+	@Mock
+	private MessageListenerContainer container;
+
+	private final MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+	private final KeyOrderedExecutor executor = new KeyOrderedExecutor(4);
+
+	@Before
+	public void setUp()
+	{
+		consumer.assign(Collections.singleton(TOPIC_PARTITION));
+	}
+
+	@After
+	public void tearDown() throws InterruptedException
+	{
+		executor.destroy();
+	}
+
+	@Test
+	public void should_process_records_of_same_key_in_offset_order()
+	{
+		final Map<String, List<Long>> processedOffsets = new ConcurrentHashMap<>();
+		final CountDownLatch processed = new CountDownLatch(6);
+		final KeyOrderedMessageListener<String, String> listener = createListener(record -> {
+			processedOffsets.computeIfAbsent(record.key(), key -> new CopyOnWriteArrayList<>()).add(record.offset());
+			processed.countDown();
+		});
+
+		listener.onMessage(Arrays.asList(record(0, "a"), record(1, "b"), record(2, "a"), record(3, "b"), record(4, "a"),
+				record(5, "b")), null, consumer);
+
+		await(processed);
+		assertThat(processedOffsets.get("a"), equalTo(Arrays.asList(0L, 2L, 4L)));
+		assertThat(processedOffsets.get("b"), equalTo(Arrays.asList(1L, 3L, 5L)));
+	}
+
+	@Test
+	public void should_commit_only_up_to_first_record_not_completed()
+	{
+		final CountDownLatch firstRecordReleased = new CountDownLatch(1);
+		final CountDownLatch otherRecordsProcessed = new CountDownLatch(2);
+		final KeyOrderedMessageListener<String, String> listener = createListener(record -> {
+			if (record.offset() == 0)
+			{
+				await(firstRecordReleased);
+			}
+			else
+			{
+				otherRecordsProcessed.countDown();
+			}
+		});
+
+		listener.onMessage(Arrays.asList(record(0, "a"), record(1, "b"), record(2, "c")), null, consumer);
+		await(otherRecordsProcessed);
+		listener.commitCompleted(consumer);
+
+		assertThat(committedOffset(), nullValue());
+
+		firstRecordReleased.countDown();
+		listener.onPartitionsRevokedBeforeCommit(consumer, Collections.singleton(TOPIC_PARTITION));
+
+		assertThat(committedOffset().offset(), equalTo(3L));
+	}
+
+	@Test
+	public void should_handle_error_and_commit_failed_record()
+	{
+		final RuntimeException exception = new IllegalStateException("failed");
+		final KeyOrderedMessageListener<String, String> listener = createListener(record -> {
+			throw exception;
+		});
+		final ConsumerRecord<String, String> record = record(0, "a");
+
+		listener.onMessage(Collections.singletonList(record), null, consumer);
+
+		verify(errorHandler, timeout(TIMEOUT_MS)).handle(eq(exception), eq(record));
+		listener.onPartitionsRevokedBeforeCommit(consumer, Collections.singleton(TOPIC_PARTITION));
+		assertThat(committedOffset().offset(), equalTo(1L));
+	}
+
+	@Test
+	public void should_not_commit_lost_partitions()
+	{
+		final CountDownLatch recordReleased = new CountDownLatch(1);
+		final CountDownLatch recordProcessed = new CountDownLatch(1);
+		final KeyOrderedMessageListener<String, String> listener = createListener(record -> {
+			await(recordReleased);
+			recordProcessed.countDown();
+		});
+
+		listener.onMessage(Collections.singletonList(record(0, "a")), null, consumer);
+		listener.onPartitionsLost(consumer, Collections.singleton(TOPIC_PARTITION));
+		recordReleased.countDown();
+		await(recordProcessed);
+		listener.commitCompleted(consumer);
+
+		assertThat(committedOffset(), nullValue());
+	}
+
+	@Test
+	public void should_seek_back_and_pause_container_until_capacity_frees()
+	{
+		final CountDownLatch recordsReleased = new CountDownLatch(1);
+		final KeyOrderedMessageListener<String, String> listener = createListener(record -> await(recordsReleased), 2,
+				Duration.ofMillis(TIMEOUT_MS));
+		when(container.isPauseRequested()).thenReturn(false);
+
+		listener.onMessage(Arrays.asList(record(0, "a"), record(1, "b"), record(2, "c"), record(3, "d")), null, consumer);
+
+		verify(container).pause();
+		verify(container, never()).resume();
+		assertThat(consumer.position(TOPIC_PARTITION), equalTo(2L));
+
+		recordsReleased.countDown();
+
+		verify(container, timeout(TIMEOUT_MS)).resume();
+		listener.onPartitionsRevokedBeforeCommit(consumer, Collections.singleton(TOPIC_PARTITION));
+		assertThat(committedOffset().offset(), equalTo(2L));
+	}
+
+	@Test
+	public void should_not_pause_container_paused_by_application()
+	{
+		final CountDownLatch recordReleased = new CountDownLatch(1);
+		final KeyOrderedMessageListener<String, String> listener = createListener(record -> await(recordReleased), 1,
+				Duration.ofMillis(TIMEOUT_MS));
+		when(container.isPauseRequested()).thenReturn(true);
+
+		listener.onMessage(Arrays.asList(record(0, "a"), record(1, "b")), null, consumer);
+		recordReleased.countDown();
+		listener.onPartitionsRevokedBeforeCommit(consumer, Collections.singleton(TOPIC_PARTITION));
+
+		verify(container, never()).pause();
+		verify(container, never()).resume();
+		assertThat(consumer.position(TOPIC_PARTITION), equalTo(1L));
+		assertThat(committedOffset().offset(), equalTo(1L));
+	}
+
+	@Test
+	public void should_stop_waiting_for_records_of_revoked_partitions_after_revocation_timeout()
+	{
+		final CountDownLatch recordReleased = new CountDownLatch(1);
+		final KeyOrderedMessageListener<String, String> listener = createListener(record -> await(recordReleased), 10,
+				Duration.ofMillis(100));
+
+		listener.onMessage(Collections.singletonList(record(0, "a")), null, consumer);
+		final long start = System.nanoTime();
+		listener.onPartitionsRevokedBeforeCommit(consumer, Collections.singleton(TOPIC_PARTITION));
+		final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		recordReleased.countDown();
+
+		assertTrue("Revocation not bounded by the timeout: " + elapsedMs, elapsedMs < TIMEOUT_MS);
+		assertThat(committedOffset(), nullValue());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void should_reject_non_record_listener()
+	{
+		new KeyOrderedMessageListener<>(new Object(), executor, errorHandler, 1, Duration.ofMillis(TIMEOUT_MS), container);
+	}
+
+	private KeyOrderedMessageListener<String, String> createListener(final MessageListener<String, String> delegate)
+	{
+		return createListener(delegate, 10, Duration.ofMillis(TIMEOUT_MS));
+	}
+
+	private KeyOrderedMessageListener<String, String> createListener(final MessageListener<String, String> delegate,
+			final int maxInFlight, final Duration revocationTimeout)
+	{
+		return new KeyOrderedMessageListener<>(delegate, executor, errorHandler, maxInFlight, revocationTimeout, container);
+	}
+
+	private OffsetAndMetadata committedOffset()
+	{
+		return consumer.committed(Collections.singleton(TOPIC_PARTITION)).get(TOPIC_PARTITION);
+	}
+
+	private static ConsumerRecord<String, String> record(final long offset, final String key)
+	{
+		return new ConsumerRecord<>(DUMMY_TOPIC_NAME, 0, offset, key, "value");
+	}
+
+	private static void await(final CountDownLatch latch)
+	{
+		try
+		{
+			assertTrue("Timed out waiting for the records to be processed", latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.hybris.caas.kafka.listener;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class PartitionOffsetsTest
+{
+	private final PartitionOffsets partitionOffsets = new PartitionOffsets();
+
+	@Test
+	public void should_not_commit_before_any_record_is_dispatched()
+	{
+		assertThat(partitionOffsets.getCommittableOffset(), equalTo(-1L));
+	}
+
+	@Test
+	public void should_commit_up_to_first_pending_record()
+	{
+		partitionOffsets.dispatched(10);
+		partitionOffsets.dispatched(11);
+		partitionOffsets.dispatched(12);
+
+		partitionOffsets.completed(10);
+		partitionOffsets.completed(12);
+
+		assertThat(partitionOffsets.getCommittableOffset(), equalTo(11L));
+
+		partitionOffsets.completed(11);
+
+		assertThat(partitionOffsets.getCommittableOffset(), equalTo(13L));
+	}
+
+	@Test
+	public void should_not_commit_same_offset_twice()
+	{
+		partitionOffsets.dispatched(10);
+		partitionOffsets.completed(10);
+		partitionOffsets.committed(partitionOffsets.getCommittableOffset());
+
+		assertThat(partitionOffsets.getCommittableOffset(), equalTo(-1L));
+	}
+
+	@Test
+	public void should_stop_waiting_for_pending_records_after_timeout() throws InterruptedException
+	{
+		partitionOffsets.dispatched(10);
+
+		assertThat(partitionOffsets.awaitCompletion(10), equalTo(false));
+
+		partitionOffsets.completed(10);
+
+		assertThat(partitionOffsets.awaitCompletion(10), equalTo(true));
+	}
+}
@@ -0,0 +1,34 @@
+package com.hybris.caas.kafka.message;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ByteArrayPassThroughSerializerTest
+{
+	private static final String TOPIC = "topic";
+
+	private final ByteArrayPassThroughSerializer<String> serializer = new ByteArrayPassThroughSerializer<>(new StringSerializer());
+
+	@Test
+	public void should_pass_byte_array_values_through()
+	{
+		final byte[] value = { 1, 2, 3 };
+
+		assertThat(serializer.serialize(TOPIC, value), sameInstance(value));
+		assertThat(serializer.serialize(TOPIC, new RecordHeaders(), value), sameInstance(value));
+	}
+
+	@Test
+	public void should_serialize_other_values_with_delegate()
+	{
+		assertThat(serializer.serialize(TOPIC, "value"), equalTo("value".getBytes(StandardCharsets.UTF_8)));
+		assertThat(serializer.serialize(TOPIC, new RecordHeaders(), "value"), equalTo("value".getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,135 @@
+package com.hybris.caas.kafka.message;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.Test;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.converter.ConversionException;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.hybris.caas.kafka.util.CaasKafkaHeaders.CONTENT_TYPE;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ContentTypeMessageConverterTest
+{
+	private static final String TOPIC = "topic";
+	private static final String SMILE_TOPIC = "smile-topic";
+	private static final Payload PAYLOAD = new Payload("value");
+
+	private final ContentTypeMessageConverter converter = new ContentTypeMessageConverter(MessageFormat.JSON,
+			Collections.singletonMap(SMILE_TOPIC, MessageFormat.SMILE));
+
+	@Test
+	public void shouldSerializeToJsonBytesWithContentType()
+	{
+		final ProducerRecord<?, ?> record = converter.fromMessage(message(TOPIC), null);
+
+		assertThat(record.value(), instanceOf(byte[].class));
+		assertThat(new String((byte[]) record.value(), StandardCharsets.UTF_8), equalTo("{\"name\":\"value\"}"));
+		assertThat(contentType(record), equalTo(MessageFormat.JSON.getContentType()));
+	}
+
+	@Test
+	public void shouldSerializeAndDeserializeTopicFormat()
+	{
+		final ProducerRecord<?, ?> record = converter.fromMessage(message(SMILE_TOPIC), null);
+
+		assertThat(contentType(record), equalTo(MessageFormat.SMILE.getContentType()));
+		assertThat(converter.toMessage(consumerRecord(record.value(), record.headers()), null, null, Payload.class).getPayload(),
+				equalTo(PAYLOAD));
+	}
+
+	@Test
+	public void shouldDeserializeCbor()
+	{
+		final ContentTypeMessageConverter cborConverter = new ContentTypeMessageConverter(MessageFormat.CBOR,
+				Collections.emptyMap());
+		final ProducerRecord<?, ?> record = cborConverter.fromMessage(message(TOPIC), null);
+
+		assertThat(converter.toMessage(consumerRecord(record.value(), record.headers()), null, null, Payload.class).getPayload(),
+				equalTo(PAYLOAD));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void shouldDeserializeJsonStringWithoutContentType()
+	{
+		final Object payload = converter.toMessage(consumerRecord("{\"name\":\"value\"}", new RecordHeaders()), null, null,
+				Map.class).getPayload();
+
+		assertThat(((Map<String, Object>) payload).get("name"), equalTo("value"));
+	}
+
+	@Test(expected = ConversionException.class)
+	public void shouldFail_UnsupportedContentType()
+	{
+		final RecordHeaders headers = new RecordHeaders();
+		headers.add(CONTENT_TYPE, "application/xml".getBytes(StandardCharsets.UTF_8));
+
+		converter.toMessage(consumerRecord("<name>value</name>".getBytes(StandardCharsets.UTF_8), headers), null, null,
+				Payload.class);
+	}
+
+	private static Message<Payload> message(final String topic)
+	{
+		return MessageBuilder.withPayload(PAYLOAD).setHeader(KafkaHeaders.TOPIC, topic).build();
+	}
+
+	private static String contentType(final ProducerRecord<?, ?> record)
+	{
+		return new String(record.headers().lastHeader(CONTENT_TYPE).value(), StandardCharsets.UTF_8);
+	}
+
+	private static ConsumerRecord<Object, Object> consumerRecord(final Object value, final Headers headers)
+	{
+		return new ConsumerRecord<>(TOPIC, 0, 0, 0, TimestampType.CREATE_TIME, 0L, 0, 0, null, value, headers);
+	}
+
+	public static class Payload
+	{
+		private String name;
+
+		public Payload()
+		{
+			// for deserialization
+		}
+
+		Payload(final String name)
+		{
+			this.name = name;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public void setName(final String name)
+		{
+			this.name = name;
+		}
+
+		@Override
+		public boolean equals(final Object o)
+		{
+			return o instanceof Payload && Objects.equals(name, ((Payload) o).name);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hashCode(name);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.hybris.caas.kafka.metrics;
+
+import com.hybris.caas.kafka.config.CaasKafkaProperties;
+import com.hybris.caas.kafka.util.RetryableConsumerRoutingTable;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static com.hybris.caas.kafka.metrics.MicrometerRetryableConsumerMetricsListener.DEAD_LETTER_TIER;
+import static com.hybris.caas.kafka.metrics.MicrometerRetryableConsumerMetricsListener.DELAYED;
+import static com.hybris.caas.kafka.metrics.MicrometerRetryableConsumerMetricsListener.INTERCEPTED;
+import static com.hybris.caas.kafka.metrics.MicrometerRetryableConsumerMetricsListener.LONG_DELAY_RETRY_TIER;
+import static com.hybris.caas.kafka.metrics.MicrometerRetryableConsumerMetricsListener.PROCESSING;
+import static com.hybris.caas.kafka.metrics.MicrometerRetryableConsumerMetricsListener.ROUTED;
+import static com.hybris.caas.kafka.metrics.MicrometerRetryableConsumerMetricsListener.SHORT_DELAY_RETRY_TIER;
+import static com.hybris.caas.kafka.metrics.MicrometerRetryableConsumerMetricsListener.SOURCE_TIER;
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.DEAD_LETTER_TOPIC_SUFFIX;
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.LONG_DELAY_RETRY_TOPIC_SUFFIX;
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.SHORT_DELAY_RETRY_TOPIC_SUFFIX;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class MicrometerRetryableConsumerMetricsListenerTest
+{
+	private static final String SOURCE_TOPIC = "source";
+	private static final String SHORT_DELAY_RETRY_TOPIC = SOURCE_TOPIC + SHORT_DELAY_RETRY_TOPIC_SUFFIX;
+	private static final String LONG_DELAY_RETRY_TOPIC = SOURCE_TOPIC + LONG_DELAY_RETRY_TOPIC_SUFFIX;
+	private static final String DEAD_LETTER_TOPIC = "prefix" + DEAD_LETTER_TOPIC_SUFFIX;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final MicrometerRetryableConsumerMetricsListener listener = new MicrometerRetryableConsumerMetricsListener(
+			meterRegistry);
+
+	private RetryableConsumerRoutingTable routingTable;
+
+	@Before
+	public void setUp()
+	{
+		final CaasKafkaProperties.RetryableConsumer retryableConsumer = new CaasKafkaProperties.RetryableConsumer();
+		retryableConsumer.setSource(SOURCE_TOPIC);
+		retryableConsumer.setShortDelayRetry(new CaasKafkaProperties.RetryTopic());
+		retryableConsumer.setLongDelayRetry(new CaasKafkaProperties.RetryTopic());
+		final CaasKafkaProperties.DeadLetterTopic deadLetterTopic = new CaasKafkaProperties.DeadLetterTopic();
+		deadLetterTopic.setTopicPrefix("prefix");
+		retryableConsumer.setDeadLetter(deadLetterTopic);
+
+		routingTable = new RetryableConsumerRoutingTable(Collections.singletonMap(SOURCE_TOPIC, retryableConsumer));
+	}
+
+	@Test
+	public void should_count_intercepted_records_per_tier()
+	{
+		listener.onIntercepted(route(SOURCE_TOPIC), SOURCE_TOPIC);
+		listener.onIntercepted(route(SHORT_DELAY_RETRY_TOPIC), SHORT_DELAY_RETRY_TOPIC);
+		listener.onIntercepted(route(SHORT_DELAY_RETRY_TOPIC), SHORT_DELAY_RETRY_TOPIC);
+
+		assertThat(meterRegistry.get(INTERCEPTED).tags("source.topic", SOURCE_TOPIC, "tier", SOURCE_TIER).counter().count(),
+				equalTo(1.0));
+		assertThat(meterRegistry.get(INTERCEPTED)
+				.tags("source.topic", SOURCE_TOPIC, "tier", SHORT_DELAY_RETRY_TIER)
+				.counter()
+				.count(), equalTo(2.0));
+	}
+
+	@Test
+	public void should_record_remaining_delay_of_delayed_records()
+	{
+		listener.onDelayed(route(LONG_DELAY_RETRY_TOPIC), LONG_DELAY_RETRY_TOPIC, 1500);
+
+		final Timer timer = meterRegistry.get(DELAYED).tags("tier", LONG_DELAY_RETRY_TIER).timer();
+		assertThat(timer.count(), equalTo(1L));
+		assertThat(timer.totalTime(TimeUnit.MILLISECONDS), equalTo(1500.0));
+	}
+
+	@Test
+	public void should_count_records_routed_to_dead_letter_topic()
+	{
+		listener.onRouted(route(LONG_DELAY_RETRY_TOPIC), LONG_DELAY_RETRY_TOPIC, DEAD_LETTER_TOPIC);
+
+		assertThat(meterRegistry.get(ROUTED)
+				.tags("source.topic", SOURCE_TOPIC, "tier", LONG_DELAY_RETRY_TIER, "destination.tier", DEAD_LETTER_TIER)
+				.counter()
+				.count(), equalTo(1.0));
+	}
+
+	@Test
+	public void should_time_processing_per_outcome()
+	{
+		listener.onProcessed(route(SOURCE_TOPIC), SOURCE_TOPIC, TimeUnit.MILLISECONDS.toNanos(20), null);
+		listener.onProcessed(route(SOURCE_TOPIC), SOURCE_TOPIC, TimeUnit.MILLISECONDS.toNanos(30), new IllegalStateException());
+
+		assertThat(meterRegistry.get(PROCESSING).tags("outcome", "success").timer().count(), equalTo(1L));
+		assertThat(meterRegistry.get(PROCESSING).tags("outcome", "failure").timer().totalTime(TimeUnit.MILLISECONDS),
+				equalTo(30.0));
+	}
+
+	@Test
+	public void should_reuse_meters_of_route()
+	{
+		listener.onProcessed(route(SOURCE_TOPIC), SOURCE_TOPIC, TimeUnit.MILLISECONDS.toNanos(20), null);
+		final Timer timer = meterRegistry.get(PROCESSING).tags("outcome", "success").timer();
+		meterRegistry.clear();
+
+		listener.onProcessed(route(SOURCE_TOPIC), SOURCE_TOPIC, TimeUnit.MILLISECONDS.toNanos(20), null);
+
+		assertThat(timer.count(), equalTo(2L));
+		assertThat(meterRegistry.getMeters().isEmpty(), is(true));
+	}
+
+	private RetryableConsumerRoutingTable.Route route(final String topic)
+	{
+		return routingTable.getRoute(new ConsumerRecord<>(topic, 0, 0, null, null));
+	}
+}
@@ -0,0 +1,88 @@
+package com.hybris.caas.kafka.metrics;
+
+import com.hybris.caas.kafka.config.CaasKafkaProperties;
+import com.hybris.caas.kafka.util.RetryableConsumerRoutingTable;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.listener.MessageListener;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RetryableConsumerMetricsMessageListenerTest
+{
+	private static final String SOURCE_TOPIC = "source";
+	private static final TopicPartition PARTITION = new TopicPartition(SOURCE_TOPIC, 0);
+
+	@Mock
+	private RetryableConsumerMetricsListener metricsListener;
+	@Mock
+	private ConsumerSeekAware.ConsumerSeekCallback seekCallback;
+
+	private MessageListener<String, String> delegate;
+	private RetryableConsumerRoutingTable routingTable;
+	private RetryableConsumerMetricsMessageListener<String, String> listener;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp()
+	{
+		final CaasKafkaProperties.RetryableConsumer retryableConsumer = new CaasKafkaProperties.RetryableConsumer();
+		retryableConsumer.setSource(SOURCE_TOPIC);
+		retryableConsumer.setShortDelayRetry(new CaasKafkaProperties.RetryTopic());
+		retryableConsumer.setLongDelayRetry(new CaasKafkaProperties.RetryTopic());
+		retryableConsumer.setDeadLetter(new CaasKafkaProperties.DeadLetterTopic());
+
+		delegate = mock(MessageListener.class, withSettings().extraInterfaces(ConsumerSeekAware.class));
+		routingTable = new RetryableConsumerRoutingTable(Collections.singletonMap(SOURCE_TOPIC, retryableConsumer));
+		listener = new RetryableConsumerMetricsMessageListener<>(delegate, routingTable, metricsListener);
+	}
+
+	@Test
+	public void should_time_processing_of_record()
+	{
+		final ConsumerRecord<String, String> record = new ConsumerRecord<>(SOURCE_TOPIC, 0, 0, "key", "value");
+
+		listener.onMessage(record, null, null);
+
+		verify(delegate).onMessage(record);
+		verify(metricsListener).onProcessed(same(routingTable.getRoute(record)), eq(SOURCE_TOPIC), anyLong(), isNull());
+	}
+
+	@Test
+	public void should_pass_seek_callbacks_to_seek_aware_listener()
+	{
+		final Map<TopicPartition, Long> assignments = Collections.singletonMap(PARTITION, 42L);
+		final ConsumerSeekAware seekAware = (ConsumerSeekAware) delegate;
+
+		listener.registerSeekCallback(seekCallback);
+		listener.onPartitionsAssigned(assignments, seekCallback);
+		listener.onIdleContainer(assignments, seekCallback);
+		listener.onPartitionsRevoked(Collections.singletonList(PARTITION));
+		listener.unregisterSeekCallback();
+
+		verify(seekAware).registerSeekCallback(seekCallback);
+		verify(seekAware).onPartitionsAssigned(assignments, seekCallback);
+		verify(seekAware).onIdleContainer(assignments, seekCallback);
+		verify(seekAware).onPartitionsRevoked(Collections.singletonList(PARTITION));
+		verify(seekAware).unregisterSeekCallback();
+		assertThat(listener.getDelegate(), sameInstance(delegate));
+	}
+}
@@ -0,0 +1,120 @@
+package com.hybris.caas.kafka.outbox;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.converter.StringJsonMessageConverter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+
+import static com.hybris.caas.kafka.util.CaasKafkaHeaders.TENANT;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class KafkaOutboxTest
+{
+	private static final String TOPIC = "topic";
+	private static final String TENANT_NAME = "tenant";
+	private static final String KEY = "key";
+	private static final int PARTITIONS = 16;
+	private static final Instant NOW = Instant.parse("2020-10-01T10:00:00Z");
+
+	@Mock
+	private OutboxRepository outboxRepository;
+
+	private KafkaOutbox kafkaOutbox;
+
+	@Before
+	public void setUp()
+	{
+		kafkaOutbox = new KafkaOutbox(outboxRepository, new StringJsonMessageConverter(), PARTITIONS,
+				Clock.fixed(NOW, ZoneOffset.UTC));
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+	}
+
+	@After
+	public void tearDown()
+	{
+		TransactionSynchronizationManager.setActualTransactionActive(false);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void shouldInsertConvertedMessage()
+	{
+		kafkaOutbox.add(message(KEY));
+
+		final ArgumentCaptor<ProducerRecord<byte[], byte[]>> record = ArgumentCaptor.forClass(ProducerRecord.class);
+		verify(outboxRepository).insert(eq(TENANT_NAME),
+				eq(KafkaOutbox.relayPartition(TENANT_NAME, KEY.getBytes(StandardCharsets.UTF_8), PARTITIONS)), record.capture());
+		assertThat(record.getValue().topic(), equalTo(TOPIC));
+		assertThat(record.getValue().partition(), nullValue());
+		assertThat(record.getValue().timestamp(), equalTo(NOW.toEpochMilli()));
+		assertThat(new String(record.getValue().key(), StandardCharsets.UTF_8), equalTo(KEY));
+		assertThat(new String(record.getValue().value(), StandardCharsets.UTF_8), equalTo("{\"name\":\"value\"}"));
+		assertThat(record.getValue().headers().lastHeader(TENANT), notNullValue());
+	}
+
+	@Test
+	public void shouldInsertMessageWithoutKey()
+	{
+		kafkaOutbox.add(message(null));
+
+		verify(outboxRepository).insert(eq(TENANT_NAME), eq(KafkaOutbox.relayPartition(TENANT_NAME, null, PARTITIONS)), any());
+	}
+
+	@Test
+	public void shouldAssignSameTenantAndKeyToSameRelayPartition()
+	{
+		final int relayPartition = KafkaOutbox.relayPartition(TENANT_NAME, KEY.getBytes(StandardCharsets.UTF_8), PARTITIONS);
+
+		assertThat(KafkaOutbox.relayPartition(TENANT_NAME, KEY.getBytes(StandardCharsets.UTF_8), PARTITIONS),
+				equalTo(relayPartition));
+		assertThat(relayPartition >= 0 && relayPartition < PARTITIONS, is(true));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldFail_NoTransaction()
+	{
+		TransactionSynchronizationManager.setActualTransactionActive(false);
+
+		try
+		{
+			kafkaOutbox.add(message(KEY));
+		}
+		finally
+		{
+			verifyNoInteractions(outboxRepository);
+		}
+	}
+
+	private static Message<?> message(final String key)
+	{
+		return MessageBuilder.withPayload(Collections.singletonMap("name", "value"))
+				.setHeader(KafkaHeaders.TOPIC, TOPIC)
+				.setHeader(KafkaHeaders.MESSAGE_KEY, key)
+				.setHeader(TENANT, TENANT_NAME)
+				.build();
+	}
+}
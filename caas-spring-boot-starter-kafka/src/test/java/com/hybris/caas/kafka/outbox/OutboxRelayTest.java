@@ -0,0 +1,134 @@
+package com.hybris.caas.kafka.outbox;
+
+import com.hybris.caas.kafka.config.CaasKafkaProperties;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OutboxRelayTest
+{
+	private static final int PARTITION = 0;
+	private static final int BATCH_SIZE = 10;
+	private static final Instant NOW = Instant.parse("2020-10-01T10:00:00Z");
+
+	@Mock
+	private OutboxRepository outboxRepository;
+	@Mock
+	private KafkaTemplate<byte[], byte[]> kafkaTemplate;
+
+	private final CaasKafkaProperties.Outbox outbox = new CaasKafkaProperties.Outbox();
+	private final OutboxRecord record = outboxRecord(1L);
+	private final OutboxRecord otherRecord = outboxRecord(2L);
+	private final SettableListenableFuture<SendResult<byte[], byte[]>> future = new SettableListenableFuture<>();
+	private final SettableListenableFuture<SendResult<byte[], byte[]>> otherFuture = new SettableListenableFuture<>();
+
+	private OutboxRelay outboxRelay;
+
+	@Before
+	public void setUp()
+	{
+		outbox.setPartitions(1);
+		outbox.setBatchSize(BATCH_SIZE);
+		outboxRelay = new OutboxRelay(outboxRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+				kafkaTemplate, outbox, 100, Clock.fixed(NOW, ZoneOffset.UTC));
+	}
+
+	@Test
+	public void shouldSendMessagesAndMarkThemSent()
+	{
+		when(outboxRepository.tryLock(PARTITION)).thenReturn(true);
+		when(outboxRepository.findUnsent(PARTITION, BATCH_SIZE)).thenReturn(Arrays.asList(record, otherRecord));
+		when(kafkaTemplate.send(record.getProducerRecord())).thenReturn(future);
+		when(kafkaTemplate.send(otherRecord.getProducerRecord())).thenReturn(otherFuture);
+		future.set(null);
+		otherFuture.set(null);
+
+		assertThat(outboxRelay.relay(), equalTo(2));
+
+		verify(outboxRepository).markSent(Arrays.asList(1L, 2L), NOW);
+	}
+
+	@Test
+	public void shouldMarkSentOnlyMessagesBeforeFailedOne()
+	{
+		when(outboxRepository.tryLock(PARTITION)).thenReturn(true);
+		when(outboxRepository.findUnsent(PARTITION, BATCH_SIZE)).thenReturn(Arrays.asList(record, otherRecord));
+		when(kafkaTemplate.send(record.getProducerRecord())).thenReturn(future);
+		when(kafkaTemplate.send(otherRecord.getProducerRecord())).thenReturn(otherFuture);
+		future.set(null);
+		otherFuture.setException(new IllegalStateException());
+
+		assertThat(outboxRelay.relay(), equalTo(1));
+
+		verify(outboxRepository).markSent(Collections.singletonList(1L), NOW);
+	}
+
+	@Test
+	public void shouldNotMarkSentMessagesNotAcknowledgedInTime()
+	{
+		when(outboxRepository.tryLock(PARTITION)).thenReturn(true);
+		when(outboxRepository.findUnsent(PARTITION, BATCH_SIZE)).thenReturn(Collections.singletonList(record));
+		when(kafkaTemplate.send(record.getProducerRecord())).thenReturn(future);
+
+		assertThat(outboxRelay.relay(), equalTo(0));
+
+		verify(outboxRepository, never()).markSent(anyList(), any());
+	}
+
+	@Test
+	public void shouldSkipPartitionLockedByAnotherRelay()
+	{
+		outbox.setPartitions(2);
+		when(outboxRepository.tryLock(0)).thenReturn(false);
+		when(outboxRepository.tryLock(1)).thenReturn(true);
+
+		assertThat(outboxRelay.relay(), equalTo(0));
+
+		verify(outboxRepository, never()).findUnsent(0, BATCH_SIZE);
+		verify(outboxRepository).findUnsent(1, BATCH_SIZE);
+	}
+
+	@Test
+	public void shouldDeleteSentMessagesOncePerPurgeInterval()
+	{
+		outbox.setSentRetention(Duration.ofHours(1));
+
+		outboxRelay.relay();
+		outboxRelay.relay();
+
+		verify(outboxRepository, times(1)).deleteSentBefore(NOW.minus(Duration.ofHours(1)));
+		verify(outboxRepository, times(2)).tryLock(anyInt());
+	}
+
+	private static OutboxRecord outboxRecord(final long id)
+	{
+		return new OutboxRecord(id, new ProducerRecord<>("topic", new byte[] { (byte) id }, new byte[0]));
+	}
+}
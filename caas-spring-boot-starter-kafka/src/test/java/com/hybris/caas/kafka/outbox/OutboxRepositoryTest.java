@@ -0,0 +1,173 @@
+package com.hybris.caas.kafka.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hybris.caas.kafka.error.KafkaRuntimeException;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OutboxRepositoryTest
+{
+	private static final String TABLE_NAME = "kafka_outbox";
+	private static final String TENANT = "tenant";
+	private static final String TOPIC = "topic";
+	private static final int RELAY_PARTITION = 3;
+	private static final long TIMESTAMP = 1601546400000L;
+	private static final byte[] KEY = "key".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] PAYLOAD = "{\"name\":\"product\"}".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] CONTENT_TYPE = "application/json".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] BINARY = { 0, -1, 127, -128 };
+
+	@Mock
+	private EntityManager entityManager;
+	@Mock
+	private Query query;
+
+	private OutboxRepository outboxRepository;
+
+	@Before
+	public void setUp()
+	{
+		outboxRepository = new OutboxRepository(entityManager, new ObjectMapper(), TABLE_NAME);
+
+		when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+		when(query.setParameter(anyInt(), any())).thenReturn(query);
+	}
+
+	@Test
+	public void should_encode_header_values_as_base64_json()
+	{
+		outboxRepository.insert(TENANT, RELAY_PARTITION, new ProducerRecord<>(TOPIC, null, TIMESTAMP, KEY, PAYLOAD,
+				headers()));
+
+		final String headers = insertedHeaders();
+		assertThat(headers, containsString("\"key\":\"contentType\""));
+		assertThat(headers, containsString("\"value\":\"" + Base64.getEncoder().encodeToString(CONTENT_TYPE) + "\""));
+		assertThat(headers, containsString("\"value\":\"" + Base64.getEncoder().encodeToString(BINARY) + "\""));
+		assertThat(headers, containsString("\"value\":null"));
+	}
+
+	@Test
+	public void should_round_trip_headers()
+	{
+		outboxRepository.insert(TENANT, RELAY_PARTITION, new ProducerRecord<>(TOPIC, null, TIMESTAMP, KEY, PAYLOAD,
+				headers()));
+		final String headers = insertedHeaders();
+		when(query.setMaxResults(anyInt())).thenReturn(query);
+		when(query.getResultList()).thenReturn(
+				Collections.singletonList(new Object[] { BigInteger.ONE, TOPIC, null, BigInteger.valueOf(TIMESTAMP), KEY,
+						PAYLOAD, headers }));
+
+		final Headers readHeaders = outboxRepository.findUnsent(RELAY_PARTITION, 10).get(0).getProducerRecord().headers();
+
+		assertThat(readHeaders, equalTo(headers()));
+	}
+
+	@Test
+	public void should_insert_null_key_and_partition()
+	{
+		outboxRepository.insert(TENANT, RELAY_PARTITION, new ProducerRecord<>(TOPIC, null, TIMESTAMP, null, PAYLOAD,
+				new RecordHeaders()));
+
+		verify(query).setParameter(1, TENANT);
+		verify(query).setParameter(2, RELAY_PARTITION);
+		verify(query).setParameter(3, TOPIC);
+		// mapped back to null by the nullif of the insert
+		verify(query).setParameter(4, -1);
+		verify(query).setParameter(5, TIMESTAMP);
+		verify(query).setParameter(6, null);
+		verify(query).setParameter(7, PAYLOAD);
+		verify(query).setParameter(8, "[]");
+		verify(query).executeUpdate();
+	}
+
+	@Test
+	public void should_map_row_with_null_key_and_partition()
+	{
+		when(query.setMaxResults(anyInt())).thenReturn(query);
+		when(query.getResultList()).thenReturn(
+				Collections.singletonList(new Object[] { BigInteger.valueOf(42), TOPIC, null, BigInteger.valueOf(TIMESTAMP), null,
+						PAYLOAD, "[]" }));
+
+		final List<OutboxRecord> records = outboxRepository.findUnsent(RELAY_PARTITION, 10);
+
+		verify(query).setParameter(1, RELAY_PARTITION);
+		verify(query).setMaxResults(10);
+		assertThat(records.size(), is(1));
+		assertThat(records.get(0).getId(), is(42L));
+		final ProducerRecord<byte[], byte[]> record = records.get(0).getProducerRecord();
+		assertThat(record.topic(), is(TOPIC));
+		assertThat(record.partition(), nullValue());
+		assertThat(record.timestamp(), is(TIMESTAMP));
+		assertThat(record.key(), nullValue());
+		assertThat(record.value(), equalTo(PAYLOAD));
+		assertThat(record.headers().toArray().length, is(0));
+	}
+
+	@Test
+	public void should_map_row_with_key_and_partition()
+	{
+		when(query.setMaxResults(anyInt())).thenReturn(query);
+		when(query.getResultList()).thenReturn(
+				Collections.singletonList(new Object[] { 42L, TOPIC, 2, TIMESTAMP, KEY, PAYLOAD, "[]" }));
+
+		final ProducerRecord<byte[], byte[]> record = outboxRepository.findUnsent(RELAY_PARTITION, 10).get(0)
+				.getProducerRecord();
+
+		assertThat(record.partition(), is(2));
+		assertThat(record.key(), equalTo(KEY));
+	}
+
+	@Test(expected = KafkaRuntimeException.class)
+	public void should_fail_on_unreadable_headers()
+	{
+		when(query.setMaxResults(anyInt())).thenReturn(query);
+		when(query.getResultList()).thenReturn(
+				Collections.singletonList(new Object[] { 42L, TOPIC, null, TIMESTAMP, null, PAYLOAD, "[{" }));
+
+		outboxRepository.findUnsent(RELAY_PARTITION, 10);
+	}
+
+	private String insertedHeaders()
+	{
+		final ArgumentCaptor<Object> headers = ArgumentCaptor.forClass(Object.class);
+		verify(query).setParameter(eq(8), headers.capture());
+		return (String) headers.getValue();
+	}
+
+	private static Headers headers()
+	{
+		final Headers headers = new RecordHeaders();
+		headers.add("contentType", CONTENT_TYPE);
+		headers.add("binary", BINARY);
+		headers.add("empty", null);
+		return headers;
+	}
+}
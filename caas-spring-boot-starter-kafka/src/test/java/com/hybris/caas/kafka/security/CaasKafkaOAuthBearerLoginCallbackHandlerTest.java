@@ -0,0 +1,68 @@
+package com.hybris.caas.kafka.security;
+
+import org.apache.kafka.common.security.auth.SaslExtensionsCallback;
+import org.apache.kafka.common.security.oauthbearer.OAuthBearerToken;
+import org.apache.kafka.common.security.oauthbearer.OAuthBearerTokenCallback;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.UnsupportedCallbackException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+public class CaasKafkaOAuthBearerLoginCallbackHandlerTest
+{
+	private static final String CLIENT_ID = "client";
+	private static final Instant ISSUED_AT = Instant.now();
+	private static final Instant EXPIRES_AT = ISSUED_AT.plusSeconds(3600);
+
+	private KafkaAccessTokenProvider tokenProvider;
+
+	@Before
+	public void setUp()
+	{
+		tokenProvider = new KafkaAccessTokenProvider(CLIENT_ID,
+				() -> new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token", ISSUED_AT, EXPIRES_AT, Set.of("kafka")),
+				0.75);
+	}
+
+	@After
+	public void tearDown()
+	{
+		tokenProvider.close();
+	}
+
+	@Test
+	public void should_provide_oauth_bearer_token() throws UnsupportedCallbackException
+	{
+		final CaasKafkaOAuthBearerLoginCallbackHandler handler = new CaasKafkaOAuthBearerLoginCallbackHandler(tokenProvider);
+		handler.configure(Collections.emptyMap(), "OAUTHBEARER", Collections.emptyList());
+		final OAuthBearerTokenCallback tokenCallback = new OAuthBearerTokenCallback();
+
+		handler.handle(new Callback[] { tokenCallback, new SaslExtensionsCallback() });
+
+		final OAuthBearerToken token = tokenCallback.token();
+		assertThat(token.value(), equalTo("token"));
+		assertThat(token.principalName(), equalTo(CLIENT_ID));
+		assertThat(token.scope(), equalTo(Set.of("kafka")));
+		assertThat(token.lifetimeMs(), equalTo(EXPIRES_AT.toEpochMilli()));
+		assertThat(token.startTimeMs(), equalTo(ISSUED_AT.toEpochMilli()));
+	}
+
+	@Test
+	public void should_fail_configuration_when_no_provider_registered()
+	{
+		final CaasKafkaOAuthBearerLoginCallbackHandler handler = new CaasKafkaOAuthBearerLoginCallbackHandler();
+
+		assertThrows(IllegalStateException.class,
+				() -> handler.configure(Collections.emptyMap(), "OAUTHBEARER", Collections.emptyList()));
+	}
+}
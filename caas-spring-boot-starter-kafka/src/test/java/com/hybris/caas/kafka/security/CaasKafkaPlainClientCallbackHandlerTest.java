@@ -0,0 +1,61 @@
+package com.hybris.caas.kafka.security;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.NameCallback;
+import javax.security.auth.callback.PasswordCallback;
+import javax.security.auth.callback.UnsupportedCallbackException;
+import java.time.Instant;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+public class CaasKafkaPlainClientCallbackHandlerTest
+{
+	private static final String CLIENT_ID = "client";
+
+	private KafkaAccessTokenProvider tokenProvider;
+
+	@Before
+	public void setUp()
+	{
+		tokenProvider = new KafkaAccessTokenProvider(CLIENT_ID,
+				() -> new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token", Instant.now(), Instant.now().plusSeconds(3600)),
+				0.75);
+	}
+
+	@After
+	public void tearDown()
+	{
+		tokenProvider.close();
+	}
+
+	@Test
+	public void should_provide_access_token_as_plain_password() throws UnsupportedCallbackException
+	{
+		final CaasKafkaPlainClientCallbackHandler handler = new CaasKafkaPlainClientCallbackHandler(tokenProvider);
+		handler.configure(Collections.emptyMap(), "PLAIN", Collections.emptyList());
+		final NameCallback nameCallback = new NameCallback("username");
+		final PasswordCallback passwordCallback = new PasswordCallback("password", false);
+
+		handler.handle(new Callback[] { nameCallback, passwordCallback });
+
+		assertThat(nameCallback.getName(), equalTo(CLIENT_ID));
+		assertThat(new String(passwordCallback.getPassword()), equalTo("token"));
+	}
+
+	@Test
+	public void should_reject_other_mechanism()
+	{
+		final CaasKafkaPlainClientCallbackHandler handler = new CaasKafkaPlainClientCallbackHandler(tokenProvider);
+
+		assertThrows(IllegalArgumentException.class,
+				() -> handler.configure(Collections.emptyMap(), "SCRAM-SHA-512", Collections.emptyList()));
+	}
+}
@@ -0,0 +1,109 @@
+package com.hybris.caas.kafka.security;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThrows;
+
+public class KafkaAccessTokenProviderTest
+{
+	private static final String CLIENT_ID = "client";
+
+	private final AtomicInteger requestedTokens = new AtomicInteger();
+	private KafkaAccessTokenProvider tokenProvider;
+
+	@After
+	public void tearDown()
+	{
+		tokenProvider.close();
+	}
+
+	@Test
+	public void should_request_token_once_while_valid()
+	{
+		tokenProvider = new KafkaAccessTokenProvider(CLIENT_ID, () -> token(Instant.now(), Duration.ofHours(1)), 0.75);
+
+		final OAuth2AccessToken token = tokenProvider.getAccessToken();
+
+		assertThat(tokenProvider.getAccessToken(), sameInstance(token));
+		assertThat(requestedTokens.get(), equalTo(1));
+	}
+
+	@Test
+	public void should_request_new_token_when_expired()
+	{
+		tokenProvider = new KafkaAccessTokenProvider(CLIENT_ID,
+				() -> token(Instant.now().minus(Duration.ofHours(2)), Duration.ofHours(1)), 0.75);
+
+		tokenProvider.getAccessToken();
+		tokenProvider.getAccessToken();
+
+		assertThat(requestedTokens.get(), equalTo(2));
+	}
+
+	@Test
+	public void should_refresh_token_once_refresh_window_elapsed()
+	{
+		tokenProvider = new KafkaAccessTokenProvider(CLIENT_ID, () -> token(Instant.now(), Duration.ofHours(1)), 0.75);
+		final Instant issuedAt = Instant.now();
+
+		final Duration refreshDelay = tokenProvider.getRefreshDelay(
+				new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token", issuedAt, issuedAt.plus(Duration.ofHours(1))));
+
+		assertThat(refreshDelay, greaterThan(Duration.ofMinutes(44)));
+		assertThat(refreshDelay, lessThanOrEqualTo(Duration.ofMinutes(45)));
+	}
+
+	@Test
+	public void should_not_refresh_token_sooner_than_min_refresh_delay()
+	{
+		tokenProvider = new KafkaAccessTokenProvider(CLIENT_ID, () -> token(Instant.now(), Duration.ofSeconds(1)), 0.75);
+		final Instant issuedAt = Instant.now();
+
+		assertThat(tokenProvider.getRefreshDelay(
+				new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token", issuedAt, issuedAt.plusSeconds(1))),
+				equalTo(KafkaAccessTokenProvider.MIN_REFRESH_DELAY));
+	}
+
+	@Test
+	public void should_propagate_token_request_failure()
+	{
+		tokenProvider = new KafkaAccessTokenProvider(CLIENT_ID, () -> {
+			throw new IllegalArgumentException("Unable to retrieve OAuth2 access token for Kafka cluster.");
+		}, 0.75);
+
+		assertThrows(IllegalArgumentException.class, () -> tokenProvider.getAccessToken());
+	}
+
+	@Test
+	public void should_close_previously_registered_provider()
+	{
+		tokenProvider = new KafkaAccessTokenProvider(CLIENT_ID, () -> token(Instant.now(), Duration.ofHours(1)), 0.75);
+		final KafkaAccessTokenProvider previousTokenProvider = new KafkaAccessTokenProvider(CLIENT_ID,
+				() -> token(Instant.now(), Duration.ofHours(1)), 0.75);
+
+		KafkaAccessTokenProvider.register(previousTokenProvider);
+		KafkaAccessTokenProvider.register(tokenProvider);
+		assertThat(KafkaAccessTokenProvider.getInstance(), sameInstance(tokenProvider));
+
+		tokenProvider.close();
+		assertThat(KafkaAccessTokenProvider.getInstance(), nullValue());
+	}
+
+	private OAuth2AccessToken token(final Instant issuedAt, final Duration lifetime)
+	{
+		return new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token-" + requestedTokens.incrementAndGet(), issuedAt,
+				issuedAt.plus(lifetime));
+	}
+}
@@ -0,0 +1,142 @@
+package com.hybris.caas.kafka.security;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TrustStoreCacheTest
+{
+	private static final String CA_CERT_LOCATION = "https://kafka.cf.sap.hana.ondemand.com/certs/rootCA.crt";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final AtomicInteger downloads = new AtomicInteger();
+	private byte[] caCert;
+	private Path cacheDir;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		caCert = Files.readAllBytes(Paths.get("src/test/resources/valid-ca.crt"));
+		cacheDir = temporaryFolder.getRoot().toPath().resolve("caas-kafka");
+	}
+
+	@Test
+	public void should_reuse_cached_certificate() throws IOException, GeneralSecurityException
+	{
+		final TrustStoreCache cache = new TrustStoreCache(cacheDir);
+
+		final TrustStoreCache.TrustStore first = cache.getTrustStore(CA_CERT_LOCATION, download());
+		final TrustStoreCache.TrustStore second = cache.getTrustStore(CA_CERT_LOCATION, download());
+
+		assertThat(downloads.get(), is(1));
+		assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(cacheDir)), equalTo("rwx------"));
+		assertThat(second.getPassword(), not(equalTo(first.getPassword())));
+		assertTrustStore(second);
+	}
+
+	@Test
+	public void should_not_persist_trust_store_password() throws IOException
+	{
+		final TrustStoreCache.TrustStore trustStore = new TrustStoreCache(cacheDir).getTrustStore(CA_CERT_LOCATION, download());
+
+		try (final Stream<Path> files = Files.list(cacheDir))
+		{
+			assertThat(files.filter(file -> contains(file, trustStore.getPassword())).count(), is(0L));
+		}
+		assertThat(trustStore.getLocation().startsWith(cacheDir), is(false));
+	}
+
+	@Test
+	public void should_download_certificate_when_cache_dir_not_set() throws IOException, GeneralSecurityException
+	{
+		final TrustStoreCache cache = new TrustStoreCache(null);
+
+		cache.getTrustStore(CA_CERT_LOCATION, download());
+		assertTrustStore(cache.getTrustStore(CA_CERT_LOCATION, download()));
+
+		assertThat(downloads.get(), is(2));
+	}
+
+	@Test
+	public void should_not_cache_into_directory_accessible_by_other_users() throws IOException, GeneralSecurityException
+	{
+		Files.createDirectories(cacheDir);
+		Files.setPosixFilePermissions(cacheDir, PosixFilePermissions.fromString("rwxrwxrwx"));
+		final TrustStoreCache cache = new TrustStoreCache(cacheDir);
+
+		cache.getTrustStore(CA_CERT_LOCATION, download());
+		assertTrustStore(cache.getTrustStore(CA_CERT_LOCATION, download()));
+
+		assertThat(downloads.get(), is(2));
+		try (final Stream<Path> files = Files.list(cacheDir))
+		{
+			assertThat(files.count(), is(0L));
+		}
+	}
+
+	@Test
+	public void should_download_certificate_when_cached_certificate_expired() throws IOException
+	{
+		final byte[] expiredCaCert = Files.readAllBytes(Paths.get("src/test/resources/dummy.crt"));
+		final TrustStoreCache cache = new TrustStoreCache(cacheDir);
+
+		cache.getTrustStore(CA_CERT_LOCATION, () -> {
+			downloads.incrementAndGet();
+			return expiredCaCert;
+		});
+		cache.getTrustStore(CA_CERT_LOCATION, download());
+
+		assertThat(downloads.get(), is(2));
+	}
+
+	private Supplier<byte[]> download()
+	{
+		return () -> {
+			downloads.incrementAndGet();
+			return caCert;
+		};
+	}
+
+	private static void assertTrustStore(final TrustStoreCache.TrustStore trustStore) throws IOException, GeneralSecurityException
+	{
+		final KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+		try (final InputStream input = Files.newInputStream(trustStore.getLocation()))
+		{
+			keyStore.load(input, trustStore.getPassword().toCharArray());
+		}
+		assertThat(keyStore.containsAlias(TrustStoreCache.CERTIFICATE_ALIAS), is(true));
+	}
+
+	private static boolean contains(final Path file, final String text)
+	{
+		try
+		{
+			return new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1).contains(text);
+		}
+		catch (final IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+}
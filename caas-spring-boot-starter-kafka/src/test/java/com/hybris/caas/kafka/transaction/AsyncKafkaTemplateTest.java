@@ -0,0 +1,206 @@
+package com.hybris.caas.kafka.transaction;
+
+import com.hybris.caas.kafka.config.CaasKafkaProperties;
+import com.hybris.caas.kafka.error.KafkaRuntimeException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.messaging.Message;
+import org.springframework.util.concurrent.SettableListenableFuture;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncKafkaTemplateTest
+{
+	@Mock
+	private KafkaTemplate<Object, Object> kafkaTemplate;
+	@Mock
+	private Message<String> message;
+	@Mock
+	private Message<String> otherMessage;
+
+	private final CaasKafkaProperties properties = new CaasKafkaProperties();
+	private final SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+	private final SettableListenableFuture<SendResult<Object, Object>> otherFuture = new SettableListenableFuture<>();
+
+	private AsyncKafkaTemplate asyncKafkaTemplate;
+
+	@Before
+	public void setUp()
+	{
+		properties.setProducerSendTimeoutMs(100);
+		properties.setProducerMaxInFlight(1);
+
+		asyncKafkaTemplate = new AsyncKafkaTemplate(kafkaTemplate, properties);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void shouldSendMessageWithoutWaiting()
+	{
+		final SendResult<Object, Object> sendResult = mock(SendResult.class);
+		when(kafkaTemplate.send(message)).thenReturn(future);
+
+		final CompletableFuture<SendResult<?, ?>> result = asyncKafkaTemplate.send(message);
+
+		assertThat(result.isDone(), is(false));
+		future.set(sendResult);
+		assertThat(result.join(), sameInstance(sendResult));
+	}
+
+	@Test
+	public void shouldFail_SendException() throws InterruptedException
+	{
+		when(kafkaTemplate.send(message)).thenReturn(future);
+
+		final CompletableFuture<SendResult<?, ?>> result = asyncKafkaTemplate.send(message);
+		future.setException(new IllegalStateException());
+
+		assertFailedWith(result, IllegalStateException.class);
+	}
+
+	@Test
+	public void shouldFail_TimeoutException() throws InterruptedException
+	{
+		when(kafkaTemplate.send(message)).thenReturn(future);
+
+		assertFailedWith(asyncKafkaTemplate.send(message), TimeoutException.class);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void shouldWaitForInFlightMessage()
+	{
+		properties.setProducerSendTimeoutMs(5000);
+		asyncKafkaTemplate = new AsyncKafkaTemplate(kafkaTemplate, properties);
+		final SendResult<Object, Object> sendResult = mock(SendResult.class);
+		when(kafkaTemplate.send(message)).thenReturn(future);
+		when(kafkaTemplate.send(otherMessage)).thenReturn(otherFuture);
+		asyncKafkaTemplate.send(message);
+
+		final CompletableFuture<CompletableFuture<SendResult<?, ?>>> otherResult = CompletableFuture.supplyAsync(
+				() -> asyncKafkaTemplate.send(otherMessage));
+
+		verify(kafkaTemplate, after(100).never()).send(otherMessage);
+		future.set(sendResult);
+		otherFuture.set(sendResult);
+		assertThat(otherResult.join().join(), sameInstance(sendResult));
+	}
+
+	@Test
+	public void shouldFail_InFlightLimitReached() throws InterruptedException
+	{
+		properties.setProducerMaxInFlight(0);
+		asyncKafkaTemplate = new AsyncKafkaTemplate(kafkaTemplate, properties);
+
+		assertFailedWith(asyncKafkaTemplate.send(message), TimeoutException.class);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void shouldSendAllMessagesOnceInFlightOnesAreAcknowledged()
+	{
+		final SendResult<Object, Object> sendResult = mock(SendResult.class);
+		when(kafkaTemplate.send(message)).thenReturn(future);
+		when(kafkaTemplate.send(otherMessage)).thenReturn(otherFuture);
+		future.set(sendResult);
+		otherFuture.set(sendResult);
+
+		final List<CompletableFuture<SendResult<?, ?>>> results = asyncKafkaTemplate.sendAll(Arrays.asList(message, otherMessage));
+
+		assertThat(results.size(), equalTo(2));
+		results.forEach(result -> assertThat(result.join(), sameInstance(sendResult)));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void shouldSendPublishedMessagesInOrder()
+	{
+		final SendResult<Object, Object> sendResult = mock(SendResult.class);
+		final SendResult<Object, Object> otherSendResult = mock(SendResult.class);
+		when(kafkaTemplate.send(message)).thenReturn(future);
+		when(kafkaTemplate.send(otherMessage)).thenReturn(otherFuture);
+		future.set(sendResult);
+		otherFuture.set(otherSendResult);
+
+		final List<SendResult<?, ?>> results = asyncKafkaTemplate.send(Flux.just(message, otherMessage)).collectList().block();
+
+		assertThat(results, equalTo(Arrays.asList(sendResult, otherSendResult)));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void shouldShareInFlightLimitBetweenPublishedAndSingleMessages()
+	{
+		final SendResult<Object, Object> sendResult = mock(SendResult.class);
+		when(kafkaTemplate.send(message)).thenReturn(future);
+		when(kafkaTemplate.send(otherMessage)).thenReturn(otherFuture);
+		otherFuture.set(sendResult);
+
+		asyncKafkaTemplate.send(message);
+		final CompletableFuture<List<SendResult<?, ?>>> results = asyncKafkaTemplate.send(Flux.just(otherMessage))
+				.collectList()
+				.toFuture();
+
+		verify(kafkaTemplate, after(50).never()).send(otherMessage);
+		future.set(sendResult);
+		assertThat(results.join(), equalTo(Arrays.asList(sendResult)));
+	}
+
+	@Test
+	public void shouldFailFast_PublishedMessageFailed()
+	{
+		properties.setProducerMaxInFlight(2);
+		asyncKafkaTemplate = new AsyncKafkaTemplate(kafkaTemplate, properties);
+		when(kafkaTemplate.send(message)).thenReturn(future);
+		// the message following the failed one may or may not be sent before the flux is cancelled
+		lenient().when(kafkaTemplate.send(otherMessage)).thenReturn(otherFuture);
+		future.setException(new IllegalStateException("broker unavailable"));
+
+		final List<Object> signals = new ArrayList<>();
+		asyncKafkaTemplate.send(Flux.just(message, otherMessage)).subscribe(signals::add, signals::add);
+
+		// the result of the message following the failed one is not emitted, even once acknowledged
+		otherFuture.set(mock(SendResult.class));
+		assertThat(signals.size(), equalTo(1));
+		assertThat(signals.get(0), instanceOf(KafkaRuntimeException.class));
+	}
+
+	private static void assertFailedWith(final CompletableFuture<SendResult<?, ?>> result, final Class<? extends Throwable> cause)
+			throws InterruptedException
+	{
+		try
+		{
+			result.get();
+			fail();
+		}
+		catch (final ExecutionException e)
+		{
+			assertThat(e.getCause(), instanceOf(KafkaRuntimeException.class));
+			assertThat(e.getCause().getCause(), instanceOf(cause));
+		}
+	}
+}
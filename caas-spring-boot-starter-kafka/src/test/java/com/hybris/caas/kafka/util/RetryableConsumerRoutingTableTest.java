@@ -0,0 +1,152 @@
+package com.hybris.caas.kafka.util;
+
+import com.hybris.caas.kafka.config.CaasKafkaProperties;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.DEAD_LETTER_TOPIC_SUFFIX;
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.LONG_DELAY_RETRY_TOPIC_SUFFIX;
+import static com.hybris.caas.kafka.util.CaasKafkaConstants.SHORT_DELAY_RETRY_TOPIC_SUFFIX;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryableConsumerRoutingTableTest
+{
+	private static final String DUMMY_TOPIC_NAME = "dummy";
+	private static final String OTHER_TOPIC_NAME = "other";
+	private static final int SHORT_DELAY_MS = 200;
+	private static final int LONG_DELAY_MS = 500;
+
+	private final Map<String, CaasKafkaProperties.RetryableConsumer> retryableConsumerMap = new HashMap<>();
+	private CaasKafkaProperties.RetryableConsumer retryableConsumer;
+
+	@Before
+	public void setUp()
+	{
+		retryableConsumer = new CaasKafkaProperties.RetryableConsumer();
+		retryableConsumer.setSource(DUMMY_TOPIC_NAME);
+
+		final CaasKafkaProperties.RetryTopic shortDelayRetryTopic = new CaasKafkaProperties.RetryTopic();
+		shortDelayRetryTopic.setMessageDelayMs(SHORT_DELAY_MS);
+
+		final CaasKafkaProperties.RetryTopic longDelayRetryTopic = new CaasKafkaProperties.RetryTopic();
+		longDelayRetryTopic.setMessageDelayMs(LONG_DELAY_MS);
+
+		retryableConsumer.setShortDelayRetry(shortDelayRetryTopic);
+		retryableConsumer.setLongDelayRetry(longDelayRetryTopic);
+		retryableConsumer.setDeadLetter(new CaasKafkaProperties.DeadLetterTopic());
+
+		retryableConsumerMap.put(DUMMY_TOPIC_NAME, retryableConsumer);
+	}
+
+	@Test
+	public void should_route_each_tier_to_the_next_one()
+	{
+		final RetryableConsumerRoutingTable routingTable = new RetryableConsumerRoutingTable(retryableConsumerMap);
+
+		assertRoute(routingTable.getRoute(record(DUMMY_TOPIC_NAME)), RetryableConsumerRoutingTable.Tier.SOURCE, 0,
+				DUMMY_TOPIC_NAME + SHORT_DELAY_RETRY_TOPIC_SUFFIX);
+		assertRoute(routingTable.getRoute(record(DUMMY_TOPIC_NAME + SHORT_DELAY_RETRY_TOPIC_SUFFIX)),
+				RetryableConsumerRoutingTable.Tier.SHORT_DELAY_RETRY, SHORT_DELAY_MS, DUMMY_TOPIC_NAME + LONG_DELAY_RETRY_TOPIC_SUFFIX);
+		assertRoute(routingTable.getRoute(record(DUMMY_TOPIC_NAME + LONG_DELAY_RETRY_TOPIC_SUFFIX)),
+				RetryableConsumerRoutingTable.Tier.LONG_DELAY_RETRY, LONG_DELAY_MS, DUMMY_TOPIC_NAME + DEAD_LETTER_TOPIC_SUFFIX);
+		assertRoute(routingTable.getRoute(record(DUMMY_TOPIC_NAME + DEAD_LETTER_TOPIC_SUFFIX)),
+				RetryableConsumerRoutingTable.Tier.DEAD_LETTER, 0, null);
+	}
+
+	@Test
+	public void should_skip_tiers_not_configured()
+	{
+		retryableConsumer.setShortDelayRetry(null);
+		retryableConsumer.setLongDelayRetry(null);
+
+		final RetryableConsumerRoutingTable routingTable = new RetryableConsumerRoutingTable(retryableConsumerMap);
+
+		assertRoute(routingTable.getRoute(record(DUMMY_TOPIC_NAME)), RetryableConsumerRoutingTable.Tier.SOURCE, 0,
+				DUMMY_TOPIC_NAME + DEAD_LETTER_TOPIC_SUFFIX);
+		assertThat(routingTable.getRoute(record(DUMMY_TOPIC_NAME + SHORT_DELAY_RETRY_TOPIC_SUFFIX)), nullValue());
+		assertThat(routingTable.getRoute(record(DUMMY_TOPIC_NAME + LONG_DELAY_RETRY_TOPIC_SUFFIX)), nullValue());
+	}
+
+	@Test
+	public void should_route_topics_with_prefix_configured()
+	{
+		retryableConsumer.getShortDelayRetry().setTopicPrefix("sdrTopicPrefix");
+		retryableConsumer.getDeadLetter().setTopicPrefix("dltTopicPrefix");
+
+		final RetryableConsumerRoutingTable routingTable = new RetryableConsumerRoutingTable(retryableConsumerMap);
+
+		assertRoute(routingTable.getRoute(record("sdrTopicPrefix" + SHORT_DELAY_RETRY_TOPIC_SUFFIX)),
+				RetryableConsumerRoutingTable.Tier.SHORT_DELAY_RETRY, SHORT_DELAY_MS, DUMMY_TOPIC_NAME + LONG_DELAY_RETRY_TOPIC_SUFFIX);
+		assertRoute(routingTable.getRoute(record(DUMMY_TOPIC_NAME + LONG_DELAY_RETRY_TOPIC_SUFFIX)),
+				RetryableConsumerRoutingTable.Tier.LONG_DELAY_RETRY, LONG_DELAY_MS, "dltTopicPrefix" + DEAD_LETTER_TOPIC_SUFFIX);
+		assertThat(routingTable.getRoute(record(DUMMY_TOPIC_NAME + SHORT_DELAY_RETRY_TOPIC_SUFFIX)), nullValue());
+	}
+
+	@Test
+	public void should_not_route_unknown_topic()
+	{
+		final RetryableConsumerRoutingTable routingTable = new RetryableConsumerRoutingTable(retryableConsumerMap);
+
+		assertThat(routingTable.getRoute(record(DUMMY_TOPIC_NAME + "abc")), nullValue());
+	}
+
+	@Test
+	public void should_route_record_of_topic_shared_by_multiple_consumers_by_original_topic()
+	{
+		final CaasKafkaProperties.RetryableConsumer otherRetryableConsumer = new CaasKafkaProperties.RetryableConsumer();
+		otherRetryableConsumer.setSource(OTHER_TOPIC_NAME);
+		final CaasKafkaProperties.DeadLetterTopic deadLetterTopic = new CaasKafkaProperties.DeadLetterTopic();
+		deadLetterTopic.setTopicPrefix(DUMMY_TOPIC_NAME);
+		otherRetryableConsumer.setDeadLetter(deadLetterTopic);
+		retryableConsumerMap.put(OTHER_TOPIC_NAME, otherRetryableConsumer);
+
+		final RetryableConsumerRoutingTable routingTable = new RetryableConsumerRoutingTable(retryableConsumerMap);
+
+		final ConsumerRecord<?, ?> record = record(DUMMY_TOPIC_NAME + DEAD_LETTER_TOPIC_SUFFIX);
+		assertThat(routingTable.getRoute(record), nullValue());
+
+		record.headers().add(KafkaHeaders.DLT_ORIGINAL_TOPIC, OTHER_TOPIC_NAME.getBytes(StandardCharsets.UTF_8));
+		assertThat(routingTable.getRoute(record).getSource(), equalTo(OTHER_TOPIC_NAME));
+	}
+
+	private static ConsumerRecord<?, ?> record(final String topic)
+	{
+		return new ConsumerRecord<>(topic, 0, 0, null, null);
+	}
+
+	private static void assertRoute(final RetryableConsumerRoutingTable.Route route, final RetryableConsumerRoutingTable.Tier tier,
+			final long messageDelayMs, final String nextTopic)
+	{
+		assertThat(route.getSource(), equalTo(DUMMY_TOPIC_NAME));
+		assertThat(route.getTier(), equalTo(tier));
+		assertThat(route.getMessageDelayMs(), equalTo(messageDelayMs));
+		if (nextTopic == null)
+		{
+			assertThat(route.getNextHop(), nullValue());
+		}
+		else
+		{
+			assertThat(route.getNextHop(), equalTo(new TopicPartition(nextTopic, -1)));
+		}
+
+		if (tier == RetryableConsumerRoutingTable.Tier.SHORT_DELAY_RETRY || tier == RetryableConsumerRoutingTable.Tier.LONG_DELAY_RETRY)
+		{
+			assertTrue(route.isDelayed());
+		}
+		else
+		{
+			assertFalse(route.isDelayed());
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package com.hybris.caas.multitenant.filter;
+
+import com.hybris.caas.multitenant.service.TokenProvider;
+import com.hybris.caas.multitenant.service.config.TenantProperties;
+import com.sap.cloud.security.xsuaa.token.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+
+import static com.hybris.caas.multitenant.Constants.TENANT_ATTRIBUTE_NAME;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the tenant resolution of the {@link TenantResolver} with the former linear scan of
+ * {@link TenantProperties#getPropertiesForPath(String)}, and measures the {@link TenantHeaderFilter} as a whole.
+ * <p>
+ * The requests are a fixed mix of paths, of {@code X-Forwarded-Host} headers of a few hundred tenants and of
+ * {@code Authorization} headers: anonymous, {@code Bearer} and {@code bearer} tokens and basic credentials.
+ */
+@State(Scope.Benchmark)
+public class TenantResolverBenchmark
+{
+	private static final String HOST_SUFFIX = ".caas.example.com";
+	private static final String JWT_TENANT = "tenant-0";
+	private static final int REQUEST_COUNT = 1024;
+	private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+		// the benchmark measures the filter only
+	};
+
+	/**
+	 * Number of configured path patterns, besides the default properties.
+	 */
+	@Param({ "2", "16" })
+	private int pathCount;
+
+	/**
+	 * Number of distinct tenants of the {@code X-Forwarded-Host} headers.
+	 */
+	@Param({ "300" })
+	private int tenantCount;
+
+	private final String[] paths = new String[REQUEST_COUNT];
+	private final String[] hosts = new String[REQUEST_COUNT];
+	private final String[] authorizations = new String[REQUEST_COUNT];
+	private final MockHttpServletRequest[] requests = new MockHttpServletRequest[REQUEST_COUNT];
+	private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+	private TenantProperties tenantProperties;
+	private TenantResolver tenantResolver;
+	private TenantHeaderFilter tenantHeaderFilter;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		tenantProperties = new TenantProperties();
+		tenantProperties.setForwardedHostRegex("^([a-zA-Z0-9-]+)" + HOST_SUFFIX.replace(".", "\\.") + "$");
+		tenantProperties.setPaasName("paas-tenant");
+
+		final List<TenantProperties.TenantPathProperties> pathProperties = new ArrayList<>();
+		for (int i = 0; i < pathCount; i++)
+		{
+			final TenantProperties.TenantPathProperties properties = new TenantProperties.TenantPathProperties();
+			properties.setPathPattern("/service-" + i + "/**/*");
+			properties.setForwardedHostRegex("^([a-zA-Z0-9-]+)" + HOST_SUFFIX.replace(".", "\\.") + "$");
+			properties.setCapturingGroup(1);
+			pathProperties.add(properties);
+		}
+		tenantProperties.setPaths(pathProperties);
+
+		final Token token = mock(Token.class);
+		when(token.getSubdomain()).thenReturn(JWT_TENANT);
+		final TokenProvider tokenProvider = () -> token;
+
+		tenantResolver = new TenantResolver(tenantProperties);
+		tenantHeaderFilter = new TenantHeaderFilter(tenantProperties, tokenProvider);
+
+		final Random random = new Random(42);
+		for (int i = 0; i < REQUEST_COUNT; i++)
+		{
+			// half of the requests go to the configured paths, the others fall back to the default properties
+			paths[i] = random.nextBoolean() ?
+					"/service-" + random.nextInt(pathCount) + "/products/" + i :
+					"/products/" + i + "/variants";
+
+			final int kind = random.nextInt(4);
+			authorizations[i] = kind == 0 ? null : kind == 1 ? "Bearer eyJhbGciOiJSUzI1NiJ9.e30.c2ln" :
+					kind == 2 ? "bearer eyJhbGciOiJSUzI1NiJ9.e30.c2ln" : "Basic dXNlcjpwYXNzd29yZA==";
+			// the tenant of the host has to match the tenant of the token for the filter to accept the request
+			hosts[i] = kind == 1 || kind == 2 ? JWT_TENANT + HOST_SUFFIX : "tenant-" + random.nextInt(tenantCount) + HOST_SUFFIX;
+
+			final MockHttpServletRequest request = new MockHttpServletRequest("GET", paths[i]);
+			request.setServletPath(paths[i]);
+			request.addHeader(TenantHeaderFilter.X_FORWARDED_HOST, hosts[i]);
+			if (authorizations[i] != null)
+			{
+				request.addHeader(HttpHeaders.AUTHORIZATION, authorizations[i]);
+			}
+			requests[i] = request;
+		}
+	}
+
+	@Benchmark
+	public void linearScan(final Blackhole blackhole)
+	{
+		final int i = nextRequest();
+		final Optional<String> tenant = tenantProperties.getPropertiesForPath(paths[i]).getTenantFromHost(hosts[i]);
+		blackhole.consume(tenant);
+		blackhole.consume(authorizations[i] != null && authorizations[i].toLowerCase(Locale.ENGLISH).startsWith(TenantResolver.BEARER));
+	}
+
+	@Benchmark
+	public void compiledResolver(final Blackhole blackhole)
+	{
+		final int i = nextRequest();
+		blackhole.consume(tenantResolver.resolveFromHost(paths[i], hosts[i]));
+		blackhole.consume(TenantResolver.isBearer(authorizations[i]));
+	}
+
+	@Benchmark
+	public Object filter() throws ServletException, IOException
+	{
+		final MockHttpServletRequest request = requests[nextRequest()];
+		tenantHeaderFilter.doFilter(request, response, NO_OP_CHAIN);
+		return request.getAttribute(TENANT_ATTRIBUTE_NAME);
+	}
+
+	private int nextRequest()
+	{
+		next = (next + 1) & (REQUEST_COUNT - 1);
+		return next;
+	}
+}
@@ -0,0 +1,131 @@
+package com.hybris.caas.multitenant.jpa.aspect;
+
+import com.hybris.caas.multitenant.TenantHolder;
+import com.hybris.caas.multitenant.jpa.EntityManagerHolder;
+import com.hybris.caas.multitenant.service.config.TenantProperties;
+import org.aspectj.lang.JoinPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compares the {@link TransactionTenantSetterAspect} advice over the repository calls of a transaction, with transaction
+ * synchronization active, i.e. the tenant bound once per transaction in the {@link TransactionTenantContext}, and without,
+ * i.e. the entity manager properties read and set on every call as before.
+ * <p>
+ * The entity manager copies its properties on {@link EntityManager#getProperties()}, as EclipseLink does, and the join
+ * point and entity manager are plain proxies so that the advice itself is measured.
+ */
+@State(Scope.Thread)
+public class TransactionTenantSetterAspectBenchmark
+{
+	private static final String TENANT = "polarbears";
+
+	/**
+	 * Number of repository calls of the transaction.
+	 */
+	@Param({ "1", "10", "100" })
+	private int callsPerTransaction;
+
+	private final TenantHolder tenantHolder = TenantHolder.of(TENANT);
+	private TransactionTenantSetterAspect aspect;
+	private JoinPoint joinPoint;
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		aspect = new TransactionTenantSetterAspect(new TenantProperties());
+
+		final Map<String, Object> properties = new HashMap<>();
+		// an EntityManager holds a few properties besides the tenant
+		properties.put("eclipselink.jdbc.batch-writing", "JDBC");
+		properties.put("eclipselink.cache.shared.default", "true");
+		properties.put("eclipselink.logging.level", "WARNING");
+
+		final EntityManager entityManager = proxy(EntityManager.class, (method, args) -> {
+			switch (method)
+			{
+				case "getProperties":
+					return new HashMap<>(properties);
+				case "setProperty":
+					properties.put((String) args[0], args[1]);
+					return null;
+				default:
+					throw new UnsupportedOperationException(method);
+			}
+		});
+		final EntityManagerHolder entityManagerHolder = () -> entityManager;
+		joinPoint = proxy(JoinPoint.class, (method, args) -> {
+			if ("getThis".equals(method))
+			{
+				return entityManagerHolder;
+			}
+			throw new UnsupportedOperationException(method);
+		});
+	}
+
+	@Benchmark
+	public void withoutTransactionSynchronization()
+	{
+		runTransaction();
+	}
+
+	@Benchmark
+	public void withTransactionSynchronization()
+	{
+		// the binding and the completion of the context are part of the cost of the transaction
+		TransactionSynchronizationManager.initSynchronization();
+		try
+		{
+			runTransaction();
+		}
+		finally
+		{
+			TransactionSynchronizationManager.getSynchronizations()
+					.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	private void runTransaction()
+	{
+		for (int i = 0; i < callsPerTransaction; i++)
+		{
+			aspect.beforeTransactionalOperation(joinPoint, tenantHolder);
+		}
+	}
+
+	@FunctionalInterface
+	private interface Handler
+	{
+		Object invoke(String method, Object[] args);
+	}
+
+	private static <T> T proxy(final Class<T> type, final Handler handler)
+	{
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+				(proxy, method, args) -> {
+					switch (method.getName())
+					{
+						case "hashCode":
+							return System.identityHashCode(proxy);
+						case "equals":
+							return proxy == args[0];
+						case "toString":
+							return type.getSimpleName();
+						default:
+							return handler.invoke(method.getName(), args);
+					}
+				}));
+	}
+}
@@ -1,17 +1,14 @@
 package com.hybris.caas.multitenant.filter;
 
 import com.hybris.caas.multitenant.Constants;
-import com.hybris.caas.multitenant.TenantUtils;
 import com.hybris.caas.multitenant.service.TokenProvider;
 import com.hybris.caas.multitenant.service.config.TenantProperties;
 import com.hybris.caas.multitenant.service.exception.InvalidTenantException;
-import com.hybris.caas.multitenant.service.exception.InvalidTenantFormatException;
 import com.hybris.caas.multitenant.service.exception.MissingTenantException;
 import org.springframework.boot.web.servlet.filter.OrderedFilter;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 import org.springframework.web.filter.ForwardedHeaderFilter;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -38,14 +35,13 @@ import static com.hybris.caas.multitenant.Constants.TENANT_ATTRIBUTE_NAME;
 public class TenantHeaderFilter extends OncePerRequestFilter
 {
 	static final String X_FORWARDED_HOST = "X-Forwarded-Host";
-	static final String BEARER = "bearer";
 
-	private final TenantProperties tenantProperties;
+	private final TenantResolver tenantResolver;
 	private final TokenProvider tokenProvider;
 
 	public TenantHeaderFilter(final TenantProperties tenantProperties, final TokenProvider tokenProvider)
 	{
-		this.tenantProperties = tenantProperties;
+		this.tenantResolver = new TenantResolver(tenantProperties);
 		this.tokenProvider = tokenProvider;
 	}
 
@@ -73,18 +69,13 @@ public class TenantHeaderFilter extends OncePerRequestFilter
 	 */
 	private Optional<String> getTenant(final HttpServletRequest request)
 	{
-		// Get tenant from request using tenant properties
-		final TenantProperties.TenantPathProperties pathProperties = tenantProperties.getPropertiesForPath(request.getServletPath());
-		final Optional<String> tenantFromHeader = extractTenantFromRequest(request, pathProperties).map(
-				tenant -> tenant.toLowerCase(Locale.ENGLISH));
+		// Get tenant from request using the compiled tenant properties
+		final Optional<String> tenantFromHeader = tenantResolver.resolveFromHost(request.getServletPath(),
+				request.getHeader(X_FORWARDED_HOST));
 
 		// If Authorization header present and value starts with "Bearer", attempt to get the tenant from the already parsed JWT token.
 		// Spring allows "bearer" to be case insensitive
-		final Optional<String> oAuth2 = Optional.ofNullable(request.getHeader(HttpHeaders.AUTHORIZATION))
-				.map(authHeader -> authHeader.toLowerCase(Locale.ENGLISH))
-				.filter(authHeader -> authHeader.startsWith(BEARER));
-
-		if (oAuth2.isPresent())
+		if (TenantResolver.isBearer(request.getHeader(HttpHeaders.AUTHORIZATION)))
 		{
 			final String tenantFromJwt;
 			try
@@ -108,18 +99,4 @@ public class TenantHeaderFilter extends OncePerRequestFilter
 			return tenantFromHeader;
 		}
 	}
-
-	private Optional<String> extractTenantFromRequest(final HttpServletRequest request,
-			final TenantProperties.TenantPathProperties pathProperties)
-	{
-		Optional<String> tenant = Optional.ofNullable(request.getHeader(X_FORWARDED_HOST))
-				.filter(host -> !StringUtils.isEmpty(host))
-				.flatMap(pathProperties::getTenantFromHost);
-		if (tenant.isPresent() && !TenantUtils.isValid(tenant.get()))
-		{
-			throw new InvalidTenantFormatException();
-		}
-		return tenant;
-	}
-
 }
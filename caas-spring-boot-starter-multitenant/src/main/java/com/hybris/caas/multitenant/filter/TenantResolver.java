@@ -0,0 +1,245 @@
+package com.hybris.caas.multitenant.filter;
+
+import com.hybris.caas.multitenant.TenantUtils;
+import com.hybris.caas.multitenant.service.config.TenantProperties;
+import com.hybris.caas.multitenant.service.exception.InvalidTenantFormatException;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable tenant resolution engine, compiled once from the {@link TenantProperties}: resolves the tenant of a request from
+ * its servlet path and {@code X-Forwarded-Host} header the same way as
+ * {@link TenantProperties#getPropertiesForPath(String)} followed by {@link TenantProperties.TenantPathProperties#getTenantFromHost(String)}.
+ * <p>
+ * The configured path patterns are indexed in a trie by their literal leading segments, so only the patterns sharing the
+ * leading segments of the request path are matched, with a single shared {@link AntPathMatcher}, in their configuration
+ * order. The tenant extracted from a host is cached per path properties in a bounded map, including the hosts not
+ * matching the regular expression and the invalid tenants, so the regular expressions only run for hosts not seen before.
+ * <p>
+ * Changes to the {@link TenantProperties} after the resolver is created are not taken into account.
+ */
+public class TenantResolver
+{
+	static final String BEARER = "bearer";
+
+	private static final String PATH_SEPARATOR = "/";
+
+	private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+	private final List<Route> routes = new ArrayList<>();
+	private final Node root = new Node();
+	private final Route defaultRoute;
+
+	public TenantResolver(final TenantProperties tenantProperties)
+	{
+		Assert.notNull(tenantProperties, "tenantProperties must not be null");
+
+		final int hostCacheSize = tenantProperties.getHostCacheSize();
+		for (final TenantProperties.TenantPathProperties pathProperties : tenantProperties.getPaths())
+		{
+			final Route route = new Route(routes.size(), pathProperties, hostCacheSize);
+			routes.add(route);
+			addToTrie(route);
+		}
+		defaultRoute = new Route(routes.size(), tenantProperties.getDefaultProperties(), hostCacheSize);
+	}
+
+	/**
+	 * Checks whether an {@code Authorization} header value holds a bearer token, ignoring the case of the scheme as Spring
+	 * does, without copying the header value.
+	 *
+	 * @param authorizationHeader the {@code Authorization} header value, may be {@code null}
+	 * @return {@code true} when the header value starts with {@code bearer}, ignoring case
+	 */
+	public static boolean isBearer(final String authorizationHeader)
+	{
+		return Objects.nonNull(authorizationHeader) && authorizationHeader.regionMatches(true, 0, BEARER, 0, BEARER.length());
+	}
+
+	/**
+	 * Get the tenant path properties that match the given request path, the first matching ones in configuration order
+	 * otherwise the default properties.
+	 *
+	 * @param path the request path
+	 * @return the tenant properties for the given path
+	 */
+	public TenantProperties.TenantPathProperties getPropertiesForPath(final String path)
+	{
+		return getRoute(path).pathProperties;
+	}
+
+	/**
+	 * Resolves the tenant from the {@code X-Forwarded-Host} header of a request.
+	 *
+	 * @param path          the servlet path of the request
+	 * @param forwardedHost the {@code X-Forwarded-Host} header value, may be {@code null}
+	 * @return the lower case tenant or empty optional when the host does not hold a tenant
+	 * @throws InvalidTenantFormatException when the tenant extracted from the host has an invalid format
+	 */
+	public Optional<String> resolveFromHost(final String path, final String forwardedHost)
+	{
+		if (StringUtils.isEmpty(forwardedHost))
+		{
+			return Optional.empty();
+		}
+
+		final HostTenant hostTenant = getRoute(path).getHostTenant(forwardedHost);
+		if (hostTenant.invalid)
+		{
+			throw new InvalidTenantFormatException();
+		}
+		return Optional.ofNullable(hostTenant.tenant);
+	}
+
+	private Route getRoute(final String path)
+	{
+		if (routes.isEmpty() || Objects.isNull(path))
+		{
+			return defaultRoute;
+		}
+
+		// walk down the trie along the path segments, the candidates of each visited node share their literal segments with the path
+		Route match = null;
+		Node node = root;
+		int start = 0;
+		while (Objects.nonNull(node))
+		{
+			match = firstMatch(node.routes, path, match);
+
+			start = skipSeparators(path, start);
+			if (start == path.length())
+			{
+				break;
+			}
+			int end = path.indexOf(PATH_SEPARATOR, start);
+			end = end < 0 ? path.length() : end;
+			node = node.children.get(path.substring(start, end));
+			start = end;
+		}
+		return Objects.isNull(match) ? defaultRoute : match;
+	}
+
+	private Route firstMatch(final List<Route> candidates, final String path, final Route match)
+	{
+		for (final Route candidate : candidates)
+		{
+			// candidates are sorted by configuration order, none after the current match can take precedence
+			if (Objects.nonNull(match) && candidate.order > match.order)
+			{
+				return match;
+			}
+			if (antPathMatcher.match(candidate.pathProperties.getPathPattern(), path))
+			{
+				return candidate;
+			}
+		}
+		return match;
+	}
+
+	private void addToTrie(final Route route)
+	{
+		Node node = root;
+		for (final String segment : StringUtils.tokenizeToStringArray(route.pathProperties.getPathPattern(), PATH_SEPARATOR, false,
+				true))
+		{
+			if (isPattern(segment))
+			{
+				break;
+			}
+			node = node.children.computeIfAbsent(segment, key -> new Node());
+		}
+		node.routes.add(route);
+	}
+
+	private static boolean isPattern(final String segment)
+	{
+		return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0 || segment.indexOf('{') >= 0;
+	}
+
+	private static int skipSeparators(final String path, final int start)
+	{
+		int index = start;
+		while (index < path.length() && path.startsWith(PATH_SEPARATOR, index))
+		{
+			index++;
+		}
+		return index;
+	}
+
+	private static final class Node
+	{
+		private final Map<String, Node> children = new HashMap<>();
+		private final List<Route> routes = new ArrayList<>();
+	}
+
+	private static final class Route
+	{
+		private final int order;
+		private final TenantProperties.TenantPathProperties pathProperties;
+		private final int hostCacheSize;
+		private final Map<String, HostTenant> hostTenants;
+
+		Route(final int order, final TenantProperties.TenantPathProperties pathProperties, final int hostCacheSize)
+		{
+			this.order = order;
+			this.pathProperties = pathProperties;
+			this.hostCacheSize = hostCacheSize;
+			this.hostTenants = hostCacheSize > 0 ? new ConcurrentHashMap<>() : Collections.emptyMap();
+		}
+
+		HostTenant getHostTenant(final String forwardedHost)
+		{
+			final HostTenant cached = hostTenants.get(forwardedHost);
+			if (Objects.nonNull(cached))
+			{
+				return cached;
+			}
+
+			final HostTenant hostTenant = HostTenant.of(pathProperties.getTenantFromHost(forwardedHost));
+			if (hostCacheSize > 0)
+			{
+				// the forwarded host is set by the router but not trusted, keep the cache bounded by starting over when full
+				if (hostTenants.size() >= hostCacheSize)
+				{
+					hostTenants.clear();
+				}
+				hostTenants.put(forwardedHost, hostTenant);
+			}
+			return hostTenant;
+		}
+	}
+
+	private static final class HostTenant
+	{
+		private static final HostTenant NONE = new HostTenant(null, false);
+		private static final HostTenant INVALID = new HostTenant(null, true);
+
+		private final String tenant;
+		private final boolean invalid;
+
+		private HostTenant(final String tenant, final boolean invalid)
+		{
+			this.tenant = tenant;
+			this.invalid = invalid;
+		}
+
+		static HostTenant of(final Optional<String> tenant)
+		{
+			if (tenant.isEmpty())
+			{
+				return NONE;
+			}
+			return TenantUtils.isValid(tenant.get()) ? new HostTenant(tenant.get().toLowerCase(Locale.ENGLISH), false) : INVALID;
+		}
+	}
+}
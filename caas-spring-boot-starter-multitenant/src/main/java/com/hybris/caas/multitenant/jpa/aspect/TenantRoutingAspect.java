@@ -0,0 +1,40 @@
+package com.hybris.caas.multitenant.jpa.aspect;
+
+import com.hybris.caas.multitenant.TenantHolder;
+import com.hybris.caas.multitenant.jpa.annotation.TenantSetter;
+import com.hybris.caas.multitenant.jpa.routing.TenantRoutingContext;
+import com.hybris.caas.multitenant.jpa.routing.TenantRoutingDataSource;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.annotation.Order;
+
+import java.util.Objects;
+
+/**
+ * Aspect that binds the tenant to the {@link TenantRoutingContext} for methods within a type annotated with {@link TenantSetter}
+ * or directly annotated with {@link TenantSetter}, having the {@link TenantHolder} as the first parameter.
+ * <p>
+ * The tenant needs to be bound before the transaction is started, as the connection is acquired from the
+ * {@link TenantRoutingDataSource} when the transaction begins; the tenant previously bound is restored afterwards.
+ */
+@Aspect
+@Order(50)
+public class TenantRoutingAspect
+{
+	@Around("(@annotation(com.hybris.caas.multitenant.jpa.annotation.TenantSetter)"
+			+ " || @within(com.hybris.caas.multitenant.jpa.annotation.TenantSetter))"
+			+ " && args(tenantHolder,..)")
+	public Object aroundTenantOperation(final ProceedingJoinPoint pjp, final TenantHolder tenantHolder) throws Throwable
+	{
+		final String previous = TenantRoutingContext.bind(Objects.isNull(tenantHolder) ? null : tenantHolder.getTenant());
+		try
+		{
+			return pjp.proceed();
+		}
+		finally
+		{
+			TenantRoutingContext.restore(previous);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.hybris.caas.multitenant.jpa.aspect;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Holds the tenant set by the {@link TransactionTenantSetterAspect} on the entity managers of the current transaction.
+ * <p>
+ * The context is bound as a transaction resource the first time a tenant is set within a transaction and unbound on
+ * completion of the transaction, following its suspension and resumption, so that the tenant of the current transaction is
+ * read without accessing the properties of the {@link EntityManager}.
+ */
+public final class TransactionTenantContext extends TransactionSynchronizationAdapter
+{
+	private static final Object RESOURCE_KEY = TransactionTenantContext.class;
+
+	private final Map<EntityManager, String> tenants = new IdentityHashMap<>(2);
+	private String tenant;
+
+	private TransactionTenantContext()
+	{
+		// bound through #bind()
+	}
+
+	/**
+	 * @return the tenant set within the current transaction, {@code null} when none is set or no transaction is active
+	 */
+	public static String getTenant()
+	{
+		final TransactionTenantContext context = current();
+		return Objects.isNull(context) ? null : context.tenant;
+	}
+
+	/**
+	 * @return the context bound to the current transaction, {@code null} when none is bound
+	 */
+	static TransactionTenantContext current()
+	{
+		return (TransactionTenantContext) TransactionSynchronizationManager.getResource(RESOURCE_KEY);
+	}
+
+	/**
+	 * Binds a new context to the current transaction, unbound on completion of the transaction.
+	 *
+	 * @return the context, {@code null} when transaction synchronization is not active
+	 */
+	static TransactionTenantContext bind()
+	{
+		if (!TransactionSynchronizationManager.isSynchronizationActive())
+		{
+			return null;
+		}
+
+		final TransactionTenantContext context = new TransactionTenantContext();
+		TransactionSynchronizationManager.bindResource(RESOURCE_KEY, context);
+		TransactionSynchronizationManager.registerSynchronization(context);
+		return context;
+	}
+
+	String getTenant(final EntityManager entityManager)
+	{
+		return tenants.get(entityManager);
+	}
+
+	void setTenant(final EntityManager entityManager, final String tenant)
+	{
+		tenants.put(entityManager, tenant);
+		if (Objects.isNull(this.tenant))
+		{
+			this.tenant = tenant;
+		}
+	}
+
+	@Override
+	public void suspend()
+	{
+		TransactionSynchronizationManager.unbindResourceIfPossible(RESOURCE_KEY);
+	}
+
+	@Override
+	public void resume()
+	{
+		TransactionSynchronizationManager.bindResource(RESOURCE_KEY, this);
+	}
+
+	@Override
+	public void afterCompletion(final int status)
+	{
+		TransactionSynchronizationManager.unbindResourceIfPossible(RESOURCE_KEY);
+	}
+}
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.Objects;
 
 /**
  * Aspect that sets the tenant for methods within a type annotated with {@link TenantSetter}
@@ -21,7 +22,9 @@ import javax.persistence.EntityManager;
  * and the annotated type or the type providing the annotated method should implement the {@link EntityManagerHolder}
  * interface that would provide access to the {@link EntityManager} instance on which the tenant should be set.
  * <p>
- * Setting of the tenant needs to be done after the transactions has been started.
+ * Setting of the tenant needs to be done after the transactions has been started. When transaction synchronization is active,
+ * the tenant is set once per transaction and entity manager and kept in the {@link TransactionTenantContext}, the following
+ * operations of the transaction only compare their tenant with it.
  */
 
 @Aspect
@@ -46,17 +49,36 @@ public class TransactionTenantSetterAspect
 	{
 		final EntityManagerHolder entityManagerHolder = (EntityManagerHolder) jp.getThis();
 		final EntityManager entityManager = entityManagerHolder.getEntityManager();
+		final String operationTenant = tenantHolder.getTenant();
+
+		// the tenant is only set once per transaction and entity manager, the following operations just compare it
+		TransactionTenantContext context = TransactionTenantContext.current();
+		final String boundTenant = Objects.isNull(context) ? null : context.getTenant(entityManager);
+		if (Objects.nonNull(boundTenant))
+		{
+			checkTenant(boundTenant, operationTenant);
+			return;
+		}
 
 		final String currentTenant = (String) entityManager.getProperties().get(multiTenantSessionProperty);
-		final String operationTenant = tenantHolder.getTenant();
+		checkTenant(currentTenant, operationTenant);
+
+		entityManager.setProperty(multiTenantSessionProperty, operationTenant);
 
+		context = Objects.isNull(context) ? TransactionTenantContext.bind() : context;
+		if (Objects.nonNull(context))
+		{
+			context.setTenant(entityManager, operationTenant);
+		}
+	}
+
+	private static void checkTenant(final String currentTenant, final String operationTenant)
+	{
 		//check whether there is a conflict due to concurrent access to entity manager
 		if (currentTenant != null && !currentTenant.equals(operationTenant))
 		{
 			throw new IllegalStateException(String.format("Resource conflict - the entity manager is already assigned to tenant %s."
 					+ " It cannot be reassigned to tenant %s.", currentTenant, operationTenant));
 		}
-
-		entityManager.setProperty(multiTenantSessionProperty, operationTenant);
 	}
 }
@@ -1,11 +1,52 @@
 package com.hybris.caas.multitenant.jpa.config;
 
+import com.hybris.caas.multitenant.jpa.aspect.TenantRoutingAspect;
+import com.hybris.caas.multitenant.jpa.routing.TenantRoutingDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import javax.sql.DataSource;
+
 /**
  * Provides configuration for JPA (EclipseLink) multitenant support.
+ * <p>
+ * When {@code tenant.routing.enabled} is set, the data source bean named {@code tenant.routing.data-source-bean-name}
+ * (by default the {@code dataSource} of the application) is wrapped in a {@link TenantRoutingDataSource} routing the tenants mapped to a shard to a connection pool of their own, see
+ * {@link TenantRoutingProperties}.
  */
 @EnableTransactionManagement(order = 100)
 public class JpaMultitenantConfig
 {
+	@Bean
+	@ConditionalOnProperty(prefix = TenantRoutingProperties.PREFIX, name = "enabled", havingValue = "true")
+	public static BeanPostProcessor tenantRoutingDataSourcePostProcessor(final Environment environment)
+	{
+		final TenantRoutingProperties properties = Binder.get(environment)
+				.bind(TenantRoutingProperties.PREFIX, TenantRoutingProperties.class)
+				.orElseGet(TenantRoutingProperties::new);
+
+		return new BeanPostProcessor()
+		{
+			@Override
+			public Object postProcessAfterInitialization(final Object bean, final String beanName)
+			{
+				// only one data source is wrapped, each routing data source has its own pools and eviction thread
+				return properties.getDataSourceBeanName().equals(beanName) && bean instanceof DataSource
+						&& !(bean instanceof TenantRoutingDataSource) ?
+						new TenantRoutingDataSource((DataSource) bean, properties) :
+						bean;
+			}
+		};
+	}
+
+	@Bean
+	@ConditionalOnProperty(prefix = TenantRoutingProperties.PREFIX, name = "enabled", havingValue = "true")
+	public TenantRoutingAspect tenantRoutingAspect()
+	{
+		return new TenantRoutingAspect();
+	}
 }
@@ -0,0 +1,259 @@
+package com.hybris.caas.multitenant.jpa.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Configuration of the tenant routing mode, bound from the {@code tenant.routing} properties.
+ * <p>
+ * The tenants mapped to a shard get their own connection pool to the shard, sized according to the tier of the tenant;
+ * all the other tenants keep using the data source of the application.
+ *
+ * <pre>
+ * tenant:
+ *   routing:
+ *     enabled: true
+ *     shards:
+ *       shard-1:
+ *         url: jdbc:postgresql://shard-1:5432/caas
+ *         username: caas
+ *         password: secret
+ *         schema: large_tenants
+ *     tiers:
+ *       large:
+ *         maximum-pool-size: 20
+ *         minimum-idle: 2
+ *     tenants:
+ *       polarbears:
+ *         shard: shard-1
+ *         tier: large
+ * </pre>
+ */
+public class TenantRoutingProperties
+{
+	public static final String PREFIX = "tenant.routing";
+	public static final String DEFAULT_TIER = "default";
+
+	/**
+	 * Whether the tenants mapped to a shard are routed to their own connection pool.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * The name of the data source bean wrapped in the routing data source, the other data sources are left untouched.
+	 */
+	private String dataSourceBeanName = "dataSource";
+
+	/**
+	 * The shards by name.
+	 */
+	private Map<String, Shard> shards = new HashMap<>();
+
+	/**
+	 * The pool sizing tiers by name, the {@value #DEFAULT_TIER} tier applies to the tenants mapped without a tier.
+	 */
+	private Map<String, Tier> tiers = new HashMap<>();
+
+	/**
+	 * The shard and tier of the routed tenants by tenant name.
+	 */
+	private Map<String, TenantRoute> tenants = new HashMap<>();
+
+	/**
+	 * The time after which the pool of a tenant without any connection in use is closed.
+	 */
+	private Duration idleTimeout = Duration.ofMinutes(10);
+
+	/**
+	 * The interval at which the idle tenant pools are looked up.
+	 */
+	private Duration evictionInterval = Duration.ofMinutes(1);
+
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	public void setEnabled(final boolean enabled)
+	{
+		this.enabled = enabled;
+	}
+
+	public String getDataSourceBeanName()
+	{
+		return dataSourceBeanName;
+	}
+
+	public void setDataSourceBeanName(final String dataSourceBeanName)
+	{
+		this.dataSourceBeanName = dataSourceBeanName;
+	}
+
+	public Map<String, Shard> getShards()
+	{
+		return shards;
+	}
+
+	public void setShards(final Map<String, Shard> shards)
+	{
+		this.shards = shards;
+	}
+
+	public Map<String, Tier> getTiers()
+	{
+		return tiers;
+	}
+
+	public void setTiers(final Map<String, Tier> tiers)
+	{
+		this.tiers = tiers;
+	}
+
+	public Map<String, TenantRoute> getTenants()
+	{
+		return tenants;
+	}
+
+	public void setTenants(final Map<String, TenantRoute> tenants)
+	{
+		this.tenants = tenants;
+	}
+
+	public Duration getIdleTimeout()
+	{
+		return idleTimeout;
+	}
+
+	public void setIdleTimeout(final Duration idleTimeout)
+	{
+		this.idleTimeout = idleTimeout;
+	}
+
+	public Duration getEvictionInterval()
+	{
+		return evictionInterval;
+	}
+
+	public void setEvictionInterval(final Duration evictionInterval)
+	{
+		this.evictionInterval = evictionInterval;
+	}
+
+	/**
+	 * Returns the tier of the given name, the {@value #DEFAULT_TIER} tier otherwise.
+	 *
+	 * @param name the tier name, may be {@code null}
+	 * @return the tier
+	 */
+	public Tier getTier(final String name)
+	{
+		final Tier tier = Objects.isNull(name) ? null : tiers.get(name);
+		return Objects.nonNull(tier) ? tier : tiers.getOrDefault(DEFAULT_TIER, new Tier());
+	}
+
+	public static class Shard
+	{
+		private String url;
+		private String username;
+		private String password;
+
+		/**
+		 * The schema the connections are set to, the default one of the user when not set.
+		 */
+		private String schema;
+
+		public String getUrl()
+		{
+			return url;
+		}
+
+		public void setUrl(final String url)
+		{
+			this.url = url;
+		}
+
+		public String getUsername()
+		{
+			return username;
+		}
+
+		public void setUsername(final String username)
+		{
+			this.username = username;
+		}
+
+		public String getPassword()
+		{
+			return password;
+		}
+
+		public void setPassword(final String password)
+		{
+			this.password = password;
+		}
+
+		public String getSchema()
+		{
+			return schema;
+		}
+
+		public void setSchema(final String schema)
+		{
+			this.schema = schema;
+		}
+	}
+
+	public static class Tier
+	{
+		private int maximumPoolSize = 5;
+		private int minimumIdle = 0;
+
+		public int getMaximumPoolSize()
+		{
+			return maximumPoolSize;
+		}
+
+		public void setMaximumPoolSize(final int maximumPoolSize)
+		{
+			this.maximumPoolSize = maximumPoolSize;
+		}
+
+		public int getMinimumIdle()
+		{
+			return minimumIdle;
+		}
+
+		public void setMinimumIdle(final int minimumIdle)
+		{
+			this.minimumIdle = minimumIdle;
+		}
+	}
+
+	public static class TenantRoute
+	{
+		private String shard;
+		private String tier;
+
+		public String getShard()
+		{
+			return shard;
+		}
+
+		public void setShard(final String shard)
+		{
+			this.shard = shard;
+		}
+
+		public String getTier()
+		{
+			return tier;
+		}
+
+		public void setTier(final String tier)
+		{
+			this.tier = tier;
+		}
+	}
+}
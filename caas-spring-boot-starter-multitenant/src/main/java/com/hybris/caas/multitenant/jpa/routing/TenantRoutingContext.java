@@ -0,0 +1,54 @@
+package com.hybris.caas.multitenant.jpa.routing;
+
+import java.util.Objects;
+
+/**
+ * Holds the tenant the connections of the current thread are routed for by the {@link TenantRoutingDataSource}.
+ */
+public final class TenantRoutingContext
+{
+	private static final ThreadLocal<String> TENANT = new ThreadLocal<>();
+
+	private TenantRoutingContext()
+	{
+		// utility class
+	}
+
+	/**
+	 * @return the tenant bound to the current thread, {@code null} when none is bound
+	 */
+	public static String getTenant()
+	{
+		return TENANT.get();
+	}
+
+	/**
+	 * Binds a tenant to the current thread.
+	 *
+	 * @param tenant the tenant, {@code null} to unbind the current one
+	 * @return the tenant previously bound, to be restored with {@link #restore(String)}
+	 */
+	public static String bind(final String tenant)
+	{
+		final String previous = TENANT.get();
+		restore(tenant);
+		return previous;
+	}
+
+	/**
+	 * Restores the tenant bound before {@link #bind(String)}.
+	 *
+	 * @param previous the tenant previously bound, may be {@code null}
+	 */
+	public static void restore(final String previous)
+	{
+		if (Objects.isNull(previous))
+		{
+			TENANT.remove();
+		}
+		else
+		{
+			TENANT.set(previous);
+		}
+	}
+}
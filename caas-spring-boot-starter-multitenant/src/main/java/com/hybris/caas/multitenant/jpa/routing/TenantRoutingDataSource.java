@@ -0,0 +1,296 @@
+package com.hybris.caas.multitenant.jpa.routing;
+
+import com.hybris.caas.multitenant.jpa.config.TenantRoutingProperties;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * {@link DataSource} routing the connections of the tenant bound to the {@link TenantRoutingContext} to a connection pool of
+ * its own when the tenant is mapped to a shard, and to the data source of the application otherwise.
+ * <p>
+ * The routes of the tenants are resolved once from the {@link TenantRoutingProperties}; a connection is routed with a lock
+ * free lookup in the map of the open tenant pools, a pool being only created on the first connection of its tenant. The pool
+ * of a tenant without any connection in use for the configured {@code idle-timeout} is closed in the background, so the
+ * number of open pools stays bounded by the number of tenants recently active. Acquiring a connection from a pool and
+ * evicting the pool are mutually exclusive.
+ * <p>
+ * The tenant discriminator of the EclipseLink multitenant entities is still set by the {@code TransactionTenantSetterAspect},
+ * the shared cache of the persistence unit thus stays partitioned by tenant whatever the shard of the tenant.
+ */
+public class TenantRoutingDataSource extends AbstractDataSource implements Closeable
+{
+	private static final Logger LOG = LoggerFactory.getLogger(TenantRoutingDataSource.class);
+
+	private final DataSource defaultDataSource;
+	private final Map<String, TenantRoutingProperties.TenantRoute> routes;
+	private final TenantRoutingProperties properties;
+	private final BiFunction<String, TenantRoutingProperties.TenantRoute, HikariDataSource> poolFactory;
+	private final long idleTimeoutMs;
+	private final Map<String, TenantPool> pools = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService evictionScheduler;
+
+	public TenantRoutingDataSource(final DataSource defaultDataSource, final TenantRoutingProperties properties)
+	{
+		this(defaultDataSource, properties, null);
+	}
+
+	TenantRoutingDataSource(final DataSource defaultDataSource, final TenantRoutingProperties properties,
+			final BiFunction<String, TenantRoutingProperties.TenantRoute, HikariDataSource> poolFactory)
+	{
+		Assert.notNull(defaultDataSource, "defaultDataSource must not be null");
+		Assert.notNull(properties, "properties must not be null");
+		Assert.isTrue(properties.getIdleTimeout().toMillis() > 0, "idleTimeout must be positive");
+		Assert.isTrue(properties.getEvictionInterval().toMillis() > 0, "evictionInterval must be positive");
+		properties.getTenants().forEach((tenant, route) -> Assert.isTrue(properties.getShards().containsKey(route.getShard()),
+				() -> String.format("Unknown shard %s of tenant %s", route.getShard(), tenant)));
+
+		this.defaultDataSource = defaultDataSource;
+		this.routes = new HashMap<>(properties.getTenants());
+		this.properties = properties;
+		this.poolFactory = Objects.isNull(poolFactory) ? this::createPool : poolFactory;
+		this.idleTimeoutMs = properties.getIdleTimeout().toMillis();
+		this.evictionScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "caas-tenant-pool-eviction");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		final long evictionIntervalMs = properties.getEvictionInterval().toMillis();
+		evictionScheduler.scheduleWithFixedDelay(this::evictIdlePoolsInBackground, evictionIntervalMs, evictionIntervalMs,
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException
+	{
+		return getConnection(null, null);
+	}
+
+	@Override
+	public Connection getConnection(final String username, final String password) throws SQLException
+	{
+		final String tenant = TenantRoutingContext.getTenant();
+		final TenantRoutingProperties.TenantRoute route = Objects.isNull(tenant) ? null : routes.get(tenant);
+		if (Objects.isNull(route))
+		{
+			return Objects.isNull(username) ? defaultDataSource.getConnection() : defaultDataSource.getConnection(username, password);
+		}
+
+		while (true)
+		{
+			final TenantPool pool = getOrOpenPool(tenant, route);
+			if (!pool.acquire())
+			{
+				// the pool is being evicted, wait for it to be removed or kept
+				Thread.onSpinWait();
+				continue;
+			}
+			try
+			{
+				pool.lastUsed = System.currentTimeMillis();
+				return pool.dataSource.getConnection();
+			}
+			finally
+			{
+				pool.release();
+			}
+		}
+	}
+
+	private TenantPool getOrOpenPool(final String tenant, final TenantRoutingProperties.TenantRoute route)
+	{
+		final TenantPool pool = pools.get(tenant);
+		if (Objects.nonNull(pool))
+		{
+			return pool;
+		}
+
+		// the pool is opened outside of the map, opening it connects to the shard
+		final TenantPool openedPool = new TenantPool(poolFactory.apply(tenant, route));
+		final TenantPool existingPool = pools.putIfAbsent(tenant, openedPool);
+		if (Objects.nonNull(existingPool))
+		{
+			openedPool.dataSource.close();
+			return existingPool;
+		}
+		return openedPool;
+	}
+
+	/**
+	 * @return the data source of the application the connections of the tenants not mapped to a shard are routed to
+	 */
+	public DataSource getDefaultDataSource()
+	{
+		return defaultDataSource;
+	}
+
+	/**
+	 * @return the number of open tenant pools
+	 */
+	public int getPoolCount()
+	{
+		return pools.size();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T unwrap(final Class<T> iface) throws SQLException
+	{
+		return iface.isInstance(this) ? (T) this : defaultDataSource.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(final Class<?> iface) throws SQLException
+	{
+		return iface.isInstance(this) || defaultDataSource.isWrapperFor(iface);
+	}
+
+	@Override
+	public void close()
+	{
+		evictionScheduler.shutdownNow();
+		pools.values().forEach(pool -> pool.dataSource.close());
+		pools.clear();
+
+		// the data source of the application is no longer closed by the container once wrapped
+		if (defaultDataSource instanceof AutoCloseable)
+		{
+			try
+			{
+				((AutoCloseable) defaultDataSource).close();
+			}
+			catch (final Exception e)
+			{
+				LOG.warn("Unable to close the default data source.", e);
+			}
+		}
+	}
+
+	/**
+	 * Closes the pools without any connection in use since the idle timeout.
+	 * <p>
+	 * A pool is marked closing before its active connections are checked, so no connection can be acquired from it
+	 * meanwhile; it is then either removed and closed, or kept and unmarked.
+	 *
+	 * @param now the current time in milliseconds
+	 */
+	void evictIdlePools(final long now)
+	{
+		pools.forEach((tenant, pool) -> {
+			if (now - pool.lastUsed < idleTimeoutMs || !pool.markClosing())
+			{
+				return;
+			}
+
+			if (pool.getActiveConnections() == 0 && pools.remove(tenant, pool))
+			{
+				LOG.debug("Closing the idle connection pool of tenant {}.", tenant);
+				pool.dataSource.close();
+			}
+			else
+			{
+				pool.unmarkClosing();
+			}
+		});
+	}
+
+	private void evictIdlePoolsInBackground()
+	{
+		try
+		{
+			evictIdlePools(System.currentTimeMillis());
+		}
+		catch (final RuntimeException e)
+		{
+			LOG.warn("Unable to evict the idle tenant connection pools.", e);
+		}
+	}
+
+	private HikariDataSource createPool(final String tenant, final TenantRoutingProperties.TenantRoute route)
+	{
+		final TenantRoutingProperties.Shard shard = properties.getShards().get(route.getShard());
+		final TenantRoutingProperties.Tier tier = properties.getTier(route.getTier());
+
+		final HikariConfig config = new HikariConfig();
+		config.setPoolName("tenant-" + tenant);
+		config.setJdbcUrl(shard.getUrl());
+		config.setUsername(shard.getUsername());
+		config.setPassword(shard.getPassword());
+		config.setSchema(shard.getSchema());
+		config.setMaximumPoolSize(tier.getMaximumPoolSize());
+		config.setMinimumIdle(tier.getMinimumIdle());
+
+		LOG.debug("Opening the connection pool of tenant {} to shard {}.", tenant, route.getShard());
+		return new HikariDataSource(config);
+	}
+
+	private static final class TenantPool
+	{
+		private static final int CLOSING = -1;
+
+		private final HikariDataSource dataSource;
+		// number of connections being acquired, or CLOSING while the pool is being evicted
+		private final AtomicInteger acquiring = new AtomicInteger();
+		private volatile long lastUsed = System.currentTimeMillis();
+
+		TenantPool(final HikariDataSource dataSource)
+		{
+			this.dataSource = dataSource;
+		}
+
+		boolean acquire()
+		{
+			int count;
+			do
+			{
+				count = acquiring.get();
+				if (count == CLOSING)
+				{
+					return false;
+				}
+			}
+			while (!acquiring.compareAndSet(count, count + 1));
+			return true;
+		}
+
+		void release()
+		{
+			acquiring.decrementAndGet();
+		}
+
+		boolean markClosing()
+		{
+			return acquiring.compareAndSet(0, CLOSING);
+		}
+
+		void unmarkClosing()
+		{
+			acquiring.set(0);
+		}
+
+		int getActiveConnections()
+		{
+			final HikariPoolMXBean poolMXBean = dataSource.getHikariPoolMXBean();
+			return Objects.isNull(poolMXBean) ? 0 : poolMXBean.getActiveConnections();
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.hybris.caas.multitenant.service;
+
+import com.hybris.caas.multitenant.service.config.TenantProperties;
+import com.hybris.caas.multitenant.service.exception.MissingTenantException;
+import com.hybris.caas.multitenant.web.reactive.ReactiveTenantContext;
+import com.hybris.caas.multitenant.web.reactive.TenantWebFilter;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+
+/**
+ * This implementation of the {@link ReactiveTenantService} gets the tenant put in the Reactor context by the
+ * {@link TenantWebFilter}.
+ */
+public class ContextReactiveTenantService implements ReactiveTenantService
+{
+	private final TenantProperties tenantProperties;
+
+	public ContextReactiveTenantService(final TenantProperties tenantProperties)
+	{
+		this.tenantProperties = tenantProperties;
+	}
+
+	@Override
+	public Mono<String> getTenant()
+	{
+		return ReactiveTenantContext.getTenant()
+				.switchIfEmpty(Mono.defer(() -> Mono.error(new MissingTenantException(MissingTenantException.AccessType.PUBLIC))));
+	}
+
+	@Override
+	public Mono<Boolean> isPaasTenant()
+	{
+		return ReactiveTenantContext.getTenant()
+				.map(tenant -> Objects.nonNull(tenantProperties.getPaasName()) && tenantProperties.getPaasName().equals(tenant))
+				.defaultIfEmpty(false);
+	}
+}
@@ -0,0 +1,25 @@
+package com.hybris.caas.multitenant.service;
+
+import com.hybris.caas.multitenant.service.exception.MissingTenantException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of the {@link TenantService}, getting the tenant of the current reactive request from the Reactor
+ * context instead of the servlet request bound to the thread.
+ */
+public interface ReactiveTenantService
+{
+	/**
+	 * Get the active tenant.
+	 *
+	 * @return the tenant in lower case, or an error with {@link MissingTenantException} when the tenant could not be retrieved
+	 */
+	Mono<String> getTenant();
+
+	/**
+	 * Checks if the active tenant is the configured PaaS tenant.
+	 *
+	 * @return true if the active tenant is the configured PaaS tenant, otherwise false
+	 */
+	Mono<Boolean> isPaasTenant();
+}
@@ -0,0 +1,17 @@
+package com.hybris.caas.multitenant.service;
+
+import com.sap.cloud.security.xsuaa.token.Token;
+import reactor.core.publisher.Mono;
+
+/**
+ * Provides access to common user related attributes extracted from the JWT token of a reactive request.
+ */
+public interface ReactiveTokenProvider
+{
+	/**
+	 * Get the token
+	 *
+	 * @return the token object, empty when there is no token
+	 */
+	Mono<Token> getToken();
+}
@@ -0,0 +1,17 @@
+package com.hybris.caas.multitenant.service;
+
+import com.sap.cloud.security.xsuaa.token.ReactiveSecurityContext;
+import com.sap.cloud.security.xsuaa.token.Token;
+import reactor.core.publisher.Mono;
+
+/**
+ * Provides access to common user related attributes from the SAP JWT token of the reactive security context.
+ */
+public class SapJwtReactiveTokenProvider implements ReactiveTokenProvider
+{
+	@Override
+	public Mono<Token> getToken()
+	{
+		return ReactiveSecurityContext.getToken().cast(Token.class);
+	}
+}
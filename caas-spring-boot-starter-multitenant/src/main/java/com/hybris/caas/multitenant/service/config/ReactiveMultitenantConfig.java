@@ -0,0 +1,78 @@
+package com.hybris.caas.multitenant.service.config;
+
+import brave.Tracing;
+import com.hybris.caas.multitenant.service.ContextReactiveTenantService;
+import com.hybris.caas.multitenant.service.ReactiveTenantService;
+import com.hybris.caas.multitenant.service.ReactiveTokenProvider;
+import com.hybris.caas.multitenant.service.SapJwtReactiveTokenProvider;
+import com.hybris.caas.multitenant.web.reactive.TenantMdcContextLifter;
+import com.hybris.caas.multitenant.web.reactive.TenantWebFilter;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.server.WebFilter;
+import reactor.core.publisher.Mono;
+
+/**
+ * Provides configuration for reactive (WebFlux) multitenant support.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnClass({ WebFilter.class, Mono.class })
+@AutoConfigureAfter(name = "org.springframework.cloud.sleuth.autoconfig.TraceAutoConfiguration")
+public class ReactiveMultitenantConfig
+{
+	@Bean
+	@ConditionalOnMissingBean(ReactiveTokenProvider.class)
+	public ReactiveTokenProvider reactiveTokenProvider()
+	{
+		return new SapJwtReactiveTokenProvider();
+	}
+
+	@Bean
+	@ConditionalOnMissingBean(ReactiveTenantService.class)
+	public ReactiveTenantService reactiveTenantService(final TenantProperties tenantProperties)
+	{
+		return new ContextReactiveTenantService(tenantProperties);
+	}
+
+	@Bean
+	public TenantWebFilter tenantWebFilter(final TenantProperties tenantProperties, final ReactiveTokenProvider reactiveTokenProvider,
+			final ObjectProvider<Tracing> tracing)
+	{
+		return new TenantWebFilter(tenantProperties, reactiveTokenProvider, tracing.getIfAvailable());
+	}
+
+	/**
+	 * Opt-in, the tenant reaches the MDC through the {@code tenant_id} baggage field of Sleuth otherwise.
+	 */
+	@Bean
+	@ConditionalOnProperty(value = "tenant.reactive.mdc-propagation", havingValue = "true")
+	public TenantMdcHook tenantMdcHook()
+	{
+		return new TenantMdcHook();
+	}
+
+	/**
+	 * Installs the {@link TenantMdcContextLifter} for the lifetime of the application context.
+	 */
+	public static class TenantMdcHook implements DisposableBean
+	{
+		TenantMdcHook()
+		{
+			TenantMdcContextLifter.install();
+		}
+
+		@Override
+		public void destroy()
+		{
+			TenantMdcContextLifter.uninstall();
+		}
+	}
+}
@@ -27,6 +27,7 @@ public class TenantProperties
 
 	static final String DEFAULT_PATH_PATTERN = "/**/*";
 	static final int DEFAULT_CAPTURING_GROUP = 1;
+	static final int DEFAULT_HOST_CACHE_SIZE = 1024;
 
 	@NotEmpty
 	private String forwardedHostRegex;
@@ -39,6 +40,13 @@ public class TenantProperties
 
 	private TenantPathProperties defaultProperties = new TenantPathProperties();
 
+	/**
+	 * The maximum number of {@code X-Forwarded-Host} header values per path properties for which the extracted tenant is
+	 * cached by the {@link com.hybris.caas.multitenant.filter.TenantResolver}, {@code 0} to disable the cache.
+	 */
+	@Min(0)
+	private int hostCacheSize = DEFAULT_HOST_CACHE_SIZE;
+
 	/**
 	 * The "<code>multiTenantSessionProperty</code>" property specifies the
 	 * default context property used to populate multitenant entities for the JPA implementation eclipselink.
@@ -85,6 +93,16 @@ public class TenantProperties
 		this.defaultProperties = defaultProperties;
 	}
 
+	public int getHostCacheSize()
+	{
+		return hostCacheSize;
+	}
+
+	public void setHostCacheSize(final int hostCacheSize)
+	{
+		this.hostCacheSize = hostCacheSize;
+	}
+
 	public String getMultiTenantSessionProperty()
 	{
 		return multiTenantSessionProperty;
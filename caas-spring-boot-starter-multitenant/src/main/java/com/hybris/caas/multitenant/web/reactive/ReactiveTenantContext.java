@@ -0,0 +1,50 @@
+package com.hybris.caas.multitenant.web.reactive;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Tenant of a reactive request, shared through the Reactor context by all the operators of the request.
+ * <p>
+ * The tenant is put in the context once by the {@link TenantWebFilter} and read downstream with {@link #getTenant()}.
+ */
+public final class ReactiveTenantContext
+{
+	private static final Object TENANT_KEY = ReactiveTenantContext.class.getName() + ".TENANT";
+
+	private ReactiveTenantContext()
+	{
+		// utility class
+	}
+
+	/**
+	 * Adds the tenant to the subscriber context, to be applied with {@code subscriberContext}.
+	 *
+	 * @param tenant the tenant
+	 * @return the function adding the tenant to the subscriber context
+	 */
+	public static Function<Context, Context> withTenant(final String tenant)
+	{
+		return context -> context.put(TENANT_KEY, tenant);
+	}
+
+	/**
+	 * @return the tenant of the subscriber context, empty when none was set
+	 */
+	public static Mono<String> getTenant()
+	{
+		return Mono.subscriberContext().flatMap(context -> Mono.justOrEmpty(getTenant(context)));
+	}
+
+	/**
+	 * @param context the subscriber context
+	 * @return the tenant of the given context, empty when none was set
+	 */
+	public static Optional<String> getTenant(final Context context)
+	{
+		return context.getOrEmpty(TENANT_KEY);
+	}
+}
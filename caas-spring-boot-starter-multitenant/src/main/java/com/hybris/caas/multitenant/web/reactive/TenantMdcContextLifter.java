@@ -0,0 +1,97 @@
+package com.hybris.caas.multitenant.web.reactive;
+
+import org.reactivestreams.Subscription;
+import org.slf4j.MDC;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Operators;
+import reactor.util.context.Context;
+
+import java.util.Optional;
+
+/**
+ * Propagates the tenant of the Reactor {@link Context}, see {@link ReactiveTenantContext}, into the {@link MDC} key
+ * {@code tenant_id} on each signal of each operator, whatever the thread the signal is delivered on.
+ * <p>
+ * Installed with {@link #install()} as a {@link Hooks#onEachOperator(String, java.util.function.Function)} hook and removed
+ * with {@link #uninstall()}.
+ * <p>
+ * <b>Note:</b> The hook applies to every operator of the application: the lifted subscribers are neither fuseable nor
+ * scannable, which disables the operator fusion, and the MDC is updated on every signal. Prefer the {@code tenant_id}
+ * baggage field of Sleuth, set by the {@link TenantWebFilter}, as a correlation field.
+ */
+public final class TenantMdcContextLifter<T> implements CoreSubscriber<T>
+{
+	static final String HOOK_KEY = TenantMdcContextLifter.class.getName();
+	static final String TENANT_KEY = "tenant_id";
+
+	private final CoreSubscriber<T> delegate;
+
+	TenantMdcContextLifter(final CoreSubscriber<T> delegate)
+	{
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Installs the hook lifting the subscribers of all the operators.
+	 */
+	public static void install()
+	{
+		Hooks.onEachOperator(HOOK_KEY, Operators.lift((scannable, subscriber) -> new TenantMdcContextLifter<>(subscriber)));
+	}
+
+	/**
+	 * Removes the hook installed with {@link #install()}.
+	 */
+	public static void uninstall()
+	{
+		Hooks.resetOnEachOperator(HOOK_KEY);
+	}
+
+	@Override
+	public Context currentContext()
+	{
+		return delegate.currentContext();
+	}
+
+	@Override
+	public void onSubscribe(final Subscription subscription)
+	{
+		copyToMdc();
+		delegate.onSubscribe(subscription);
+	}
+
+	@Override
+	public void onNext(final T value)
+	{
+		copyToMdc();
+		delegate.onNext(value);
+	}
+
+	@Override
+	public void onError(final Throwable throwable)
+	{
+		copyToMdc();
+		delegate.onError(throwable);
+	}
+
+	@Override
+	public void onComplete()
+	{
+		copyToMdc();
+		delegate.onComplete();
+	}
+
+	private void copyToMdc()
+	{
+		final Optional<String> tenant = ReactiveTenantContext.getTenant(delegate.currentContext());
+		if (tenant.isPresent())
+		{
+			MDC.put(TENANT_KEY, tenant.get());
+		}
+		else
+		{
+			MDC.remove(TENANT_KEY);
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package com.hybris.caas.multitenant.web.reactive;
+
+import brave.Tracing;
+import brave.baggage.BaggageField;
+import brave.propagation.TraceContext;
+import com.hybris.caas.multitenant.Constants;
+import com.hybris.caas.multitenant.filter.TenantHeaderFilter;
+import com.hybris.caas.multitenant.filter.TenantResolver;
+import com.hybris.caas.multitenant.service.ReactiveTokenProvider;
+import com.hybris.caas.multitenant.service.config.TenantProperties;
+import com.hybris.caas.multitenant.service.exception.InvalidTenantException;
+import com.hybris.caas.multitenant.service.exception.MissingTenantException;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+
+import static com.hybris.caas.multitenant.Constants.TENANT_ATTRIBUTE_NAME;
+
+/**
+ * Reactive counterpart of the {@link TenantHeaderFilter}: resolves the tenant of the request once, from the JWT token or the
+ * {@code X-Forwarded-Host} header, and stores it in the exchange as an attribute with the key
+ * {@link Constants#TENANT_ATTRIBUTE_NAME} and in the Reactor context, see {@link ReactiveTenantContext}.
+ * <p>
+ * When a {@link Tracing} is given, the tenant is also set in the {@code tenant_id} baggage field of the current trace
+ * context, propagated by Sleuth across the operators of the request and to the downstream calls.
+ * <p>
+ * NOTE: Needs to run after the Spring Security web filter chain, which sets the security context holding the JWT token,
+ * and the {@code X-Forwarded-Host} header must not be removed by a {@code ForwardedHeaderTransformer}.
+ */
+public class TenantWebFilter implements WebFilter, Ordered
+{
+	/**
+	 * Runs after the Spring Security web filter chain ordered at {@code -100}.
+	 */
+	public static final int TENANT_WEB_FILTER_ORDER = 0;
+
+	static final String X_FORWARDED_HOST = "X-Forwarded-Host";
+	static final String TENANT_KEY = "tenant_id";
+
+	private final TenantResolver tenantResolver;
+	private final ReactiveTokenProvider tokenProvider;
+	private final Tracing tracing;
+
+	public TenantWebFilter(final TenantProperties tenantProperties, final ReactiveTokenProvider tokenProvider,
+			final Tracing tracing)
+	{
+		this.tenantResolver = new TenantResolver(tenantProperties);
+		this.tokenProvider = tokenProvider;
+		this.tracing = tracing;
+	}
+
+	@Override
+	public int getOrder()
+	{
+		return TENANT_WEB_FILTER_ORDER;
+	}
+
+	@Override
+	public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain)
+	{
+		return getTenant(exchange.getRequest()).map(Optional::of)
+				.defaultIfEmpty(Optional.empty())
+				.flatMap(tenant -> {
+					if (tenant.isEmpty())
+					{
+						return chain.filter(exchange);
+					}
+
+					exchange.getAttributes().put(TENANT_ATTRIBUTE_NAME, tenant.get());
+					setInTraceContext(tenant.get());
+					return chain.filter(exchange).subscriberContext(ReactiveTenantContext.withTenant(tenant.get()));
+				});
+	}
+
+	/**
+	 * Same cases as {@link TenantHeaderFilter}, the token being read from the reactive security context.
+	 *
+	 * @param request the http request
+	 * @return the tenant name if available in the request otherwise empty
+	 */
+	private Mono<String> getTenant(final ServerHttpRequest request)
+	{
+		final Optional<String> tenantFromHeader;
+		try
+		{
+			tenantFromHeader = tenantResolver.resolveFromHost(request.getPath().pathWithinApplication().value(),
+					request.getHeaders().getFirst(X_FORWARDED_HOST));
+		}
+		catch (final RuntimeException e)
+		{
+			return Mono.error(e);
+		}
+
+		if (!TenantResolver.isBearer(request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION)))
+		{
+			return Mono.justOrEmpty(tenantFromHeader);
+		}
+
+		return tokenProvider.getToken()
+				.map(token -> token.getSubdomain().toLowerCase(Locale.ENGLISH))
+				.switchIfEmpty(Mono.defer(() -> Mono.error(new IllegalStateException("No JWT token in the security context"))))
+				.onErrorMap(e -> new MissingTenantException(MissingTenantException.AccessType.PROTECTED, e))
+				.flatMap(tenantFromJwt -> {
+					// validate that the tenant from the header and the tenant from the token are the same when they are both provided
+					if (tenantFromHeader.filter(tenant -> !tenant.equals(tenantFromJwt)).isPresent())
+					{
+						return Mono.error(new InvalidTenantException());
+					}
+					return Mono.just(tenantFromJwt);
+				});
+	}
+
+	private void setInTraceContext(final String tenant)
+	{
+		if (Objects.isNull(tracing))
+		{
+			return;
+		}
+
+		final TraceContext traceContext = tracing.currentTraceContext().get();
+		if (Objects.nonNull(traceContext))
+		{
+			BaggageField.getByName(traceContext, TENANT_KEY).updateValue(traceContext, tenant);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.hybris.caas.multitenant.web.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the contention of the {@link TenantLock} of the tenants as Micrometer meters tagged with the lock backend. The
+ * tenant is not used as a tag to keep the cardinality of the meters bounded.
+ */
+public class MicrometerTenantLockMetricsListener implements TenantLockMetricsListener
+{
+	static final String WAIT = "caas.tenant.lock.wait";
+	static final String HELD = "caas.tenant.lock.held";
+
+	static final String ACQUIRED = "acquired";
+	static final String REJECTED = "rejected";
+
+	private static final String BACKEND = "backend";
+
+	private final MeterRegistry meterRegistry;
+
+	public MicrometerTenantLockMetricsListener(final MeterRegistry meterRegistry)
+	{
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public void onAcquired(final String backend, final long waitNanos)
+	{
+		recordWait(backend, ACQUIRED, waitNanos);
+	}
+
+	@Override
+	public void onRejected(final String backend, final long waitNanos)
+	{
+		recordWait(backend, REJECTED, waitNanos);
+	}
+
+	@Override
+	public void onReleased(final String backend, final long heldNanos)
+	{
+		Timer.builder(HELD)
+				.description("The time the tenant locks are held")
+				.tag(BACKEND, backend)
+				.register(meterRegistry)
+				.record(heldNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private void recordWait(final String backend, final String outcome, final long waitNanos)
+	{
+		Timer.builder(WAIT)
+				.description("The time spent waiting for the tenant locks, per outcome")
+				.tag(BACKEND, backend)
+				.tag("outcome", outcome)
+				.publishPercentileHistogram()
+				.register(meterRegistry)
+				.record(waitNanos, TimeUnit.NANOSECONDS);
+	}
+}
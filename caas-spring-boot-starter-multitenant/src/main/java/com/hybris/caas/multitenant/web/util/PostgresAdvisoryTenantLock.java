@@ -0,0 +1,193 @@
+package com.hybris.caas.multitenant.web.util;
+
+import com.hybris.caas.error.exception.BusinessException;
+import com.hybris.caas.multitenant.service.TenantService;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of {@link TenantLock} across all the instances of a service based on Postgres transaction level advisory
+ * locks, keyed by a 64 bit hash of the namespace and the tenant.
+ * <p>
+ * The lock is acquired within a transaction on a connection of its own, held for the execution of the {@link Supplier} and
+ * released by rolling the transaction back. As a lease of the database session, the lock is also released by Postgres
+ * when the connection of a crashed instance is closed. When waiting for the lock, Postgres queues the waiting executions
+ * and grants the lock in their arrival order, the wait being bounded with {@code lock_timeout}.
+ * <p>
+ * <b>Note:</b> A connection is held for the whole execution of the {@link Supplier}, a dedicated {@link DataSource} is
+ * recommended so that the locks do not exhaust the pool of the application. Unlike {@link TenantLockImpl}, the lock is not
+ * reentrant: a nested execution for the same tenant is rejected.
+ */
+public class PostgresAdvisoryTenantLock implements TenantLock
+{
+	static final String BACKEND = "postgres";
+	static final String DEFAULT_NAMESPACE = "caas-tenant-lock";
+
+	static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_xact_lock(?)";
+	static final String LOCK_SQL = "SELECT pg_advisory_xact_lock(?)";
+	static final String LOCK_TIMEOUT_SQL = "SET LOCAL lock_timeout = %d";
+
+	// lock_not_available, raised when lock_timeout elapses
+	private static final String LOCK_NOT_AVAILABLE = "55P03";
+
+	private final TenantService tenantService;
+	private final DataSource dataSource;
+	private final BusinessException failedLockingException;
+	private final String namespace;
+	private final TenantLockMetricsListener metricsListener;
+
+	public PostgresAdvisoryTenantLock(final TenantService tenantService, final DataSource dataSource,
+			final BusinessException failedLockingException)
+	{
+		this(tenantService, dataSource, failedLockingException, DEFAULT_NAMESPACE, TenantLockMetricsListener.NONE);
+	}
+
+	/**
+	 * @param tenantService          the tenant service providing the tenant of the current request
+	 * @param dataSource             the data source of the Postgres database shared by the instances of the service
+	 * @param failedLockingException the exception to be thrown when the lock cannot be acquired
+	 * @param namespace              the namespace of the locks, distinguishing the locks of different usages for a same tenant
+	 * @param metricsListener        the listener notified of the lock contention
+	 */
+	public PostgresAdvisoryTenantLock(final TenantService tenantService, final DataSource dataSource,
+			final BusinessException failedLockingException, final String namespace, final TenantLockMetricsListener metricsListener)
+	{
+		Assert.notNull(tenantService, "tenantService must not be null");
+		Assert.notNull(dataSource, "dataSource must not be null");
+		Assert.notNull(failedLockingException, "failedLockingException must not be null");
+		Assert.hasText(namespace, "namespace must not be empty");
+		Assert.notNull(metricsListener, "metricsListener must not be null");
+
+		this.tenantService = tenantService;
+		this.dataSource = dataSource;
+		this.failedLockingException = failedLockingException;
+		this.namespace = namespace;
+		this.metricsListener = metricsListener;
+	}
+
+	/**
+	 * Gets the exception to be thrown when the lock cannot be acquired.
+	 *
+	 * @return the exception to be thrown when the lock cannot be acquired
+	 */
+	public BusinessException getFailedLockingException()
+	{
+		return failedLockingException;
+	}
+
+	@Override
+	public <T> T withLock(final Supplier<T> supplier)
+	{
+		return withLock(supplier, Duration.ZERO);
+	}
+
+	@Override
+	public <T> T withLock(final Supplier<T> supplier, final Duration timeout)
+	{
+		final long key = lockKey(namespace, tenantService.getTenant());
+
+		try (Connection connection = dataSource.getConnection())
+		{
+			connection.setAutoCommit(false);
+			try
+			{
+				final long start = System.nanoTime();
+				final boolean lockAcquired = lock(connection, key, timeout);
+				final long acquiredAt = System.nanoTime();
+				if (!lockAcquired)
+				{
+					metricsListener.onRejected(BACKEND, acquiredAt - start);
+					throw failedLockingException;
+				}
+
+				metricsListener.onAcquired(BACKEND, acquiredAt - start);
+				try
+				{
+					return supplier.get();
+				}
+				finally
+				{
+					metricsListener.onReleased(BACKEND, System.nanoTime() - acquiredAt);
+				}
+			}
+			finally
+			{
+				// releases the transaction level advisory lock
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new DataAccessResourceFailureException("Unable to acquire or release the Postgres advisory lock of the tenant", e);
+		}
+	}
+
+	private static boolean lock(final Connection connection, final long key, final Duration timeout) throws SQLException
+	{
+		if (timeout.isZero() || timeout.isNegative())
+		{
+			try (PreparedStatement statement = connection.prepareStatement(TRY_LOCK_SQL))
+			{
+				statement.setLong(1, key);
+				try (ResultSet resultSet = statement.executeQuery())
+				{
+					return resultSet.next() && resultSet.getBoolean(1);
+				}
+			}
+		}
+
+		try (Statement statement = connection.createStatement())
+		{
+			statement.execute(String.format(LOCK_TIMEOUT_SQL, Math.max(1, timeout.toMillis())));
+		}
+		try (PreparedStatement statement = connection.prepareStatement(LOCK_SQL))
+		{
+			statement.setLong(1, key);
+			statement.executeQuery().close();
+			return true;
+		}
+		catch (final SQLException e)
+		{
+			if (LOCK_NOT_AVAILABLE.equals(e.getSQLState()))
+			{
+				return false;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Computes the advisory lock key of a tenant, the first 64 bits of the SHA-256 hash of the namespace and the tenant.
+	 *
+	 * @param namespace the namespace of the locks
+	 * @param tenant    the tenant
+	 * @return the lock key
+	 */
+	static long lockKey(final String namespace, final String tenant)
+	{
+		try
+		{
+			final byte[] digest = MessageDigest.getInstance("SHA-256")
+					.digest((namespace + ':' + tenant).getBytes(StandardCharsets.UTF_8));
+			return ByteBuffer.wrap(digest).getLong();
+		}
+		catch (final NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+	}
+}
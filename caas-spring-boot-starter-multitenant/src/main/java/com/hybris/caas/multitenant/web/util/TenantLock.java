@@ -1,20 +1,91 @@
 package com.hybris.caas.multitenant.web.util;
 
+import com.hybris.caas.error.exception.BusinessException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 
 /**
  * Locking mechanism that only allows a single execution of the {@link Supplier} at a time per tenant.
+ * <p>
+ * Implementations:
+ * <ul>
+ * <li>{@link TenantLockImpl} locks within the JVM only.</li>
+ * <li>{@link PostgresAdvisoryTenantLock} locks across all the instances of the service sharing a Postgres database.</li>
+ * </ul>
  */
 public interface TenantLock
 {
-	/*
-	 * Tries to acquire a lock for the execution of the {@link Supplier}.
+	/**
+	 * The backoff between the attempts of the default {@link #withLock(Supplier, Duration)} to acquire the lock.
+	 */
+	Duration LOCK_RETRY_BACKOFF = Duration.ofMillis(50);
+
+	/**
+	 * Tries to acquire a lock for the execution of the {@link Supplier}, without waiting.
 	 * If the lock was acquired, it executes the provided {@link Supplier} while holding the lock and releasing it afterwards.
-	 * If the lock cannot be acquired, it throws a {@link com.hybris.caas.application.service.exception.BusinessException}.
+	 * If the lock cannot be acquired, it throws a {@link BusinessException}.
 	 *
 	 * @param supplier the {@link Supplier} to be invoked while holding the lock
-	 * @param <T> the type of the result returned by {@link Supplier}
+	 * @param <T>      the type of the result returned by {@link Supplier}
 	 * @return the result of invoking the provided {@link Supplier}
 	 */
 	<T> T withLock(Supplier<T> supplier);
+
+	/**
+	 * Tries to acquire a lock for the execution of the {@link Supplier}, waiting at most the given timeout for the lock to be
+	 * released by its current holder.
+	 * If the lock was acquired, it executes the provided {@link Supplier} while holding the lock and releasing it afterwards.
+	 * If the lock cannot be acquired in time, it throws a {@link BusinessException}.
+	 * <p>
+	 * The default implementation polls {@link #withLock(Supplier)} with a short backoff until the lock is acquired or the
+	 * timeout elapses, rethrowing the exception of the last failed attempt. Only the attempts rejected before the
+	 * {@link Supplier} was invoked are retried, so that the {@link Supplier} is executed at most once. Implementations able to
+	 * queue for the lock should override it.
+	 *
+	 * @param supplier the {@link Supplier} to be invoked while holding the lock
+	 * @param timeout  the maximum time to wait for the lock, {@link Duration#ZERO} to fail immediately
+	 * @param <T>      the type of the result returned by {@link Supplier}
+	 * @return the result of invoking the provided {@link Supplier}
+	 */
+	default <T> T withLock(final Supplier<T> supplier, final Duration timeout)
+	{
+		if (timeout.isZero() || timeout.isNegative())
+		{
+			return withLock(supplier);
+		}
+
+		final long deadline = System.nanoTime() + timeout.toNanos();
+		final AtomicBoolean invoked = new AtomicBoolean();
+		final Supplier<T> tracked = () -> {
+			invoked.set(true);
+			return supplier.get();
+		};
+		while (true)
+		{
+			try
+			{
+				return withLock(tracked);
+			}
+			catch (final BusinessException e)
+			{
+				final long remainingNanos = deadline - System.nanoTime();
+				if (invoked.get() || remainingNanos <= 0)
+				{
+					throw e;
+				}
+				try
+				{
+					TimeUnit.NANOSECONDS.sleep(Math.min(LOCK_RETRY_BACKOFF.toNanos(), remainingNanos));
+				}
+				catch (final InterruptedException interrupted)
+				{
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
 }
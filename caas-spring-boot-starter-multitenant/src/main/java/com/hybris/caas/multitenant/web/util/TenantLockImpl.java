@@ -2,27 +2,48 @@ package com.hybris.caas.multitenant.web.util;
 
 import com.hybris.caas.error.exception.BusinessException;
 import com.hybris.caas.multitenant.service.TenantService;
+import org.springframework.util.Assert;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
 /**
- * Implementation of {@link TenantLock} based on {@link Map} having the tenant string as key and {@link ReentrantLock} used for lock.
+ * Implementation of {@link TenantLock} within the JVM based on {@link Map} having the tenant string as key and
+ * {@link ReentrantLock} used for lock.
+ * <p>
+ * The lock of a tenant is only kept in the map while it is held or waited for, so the map does not grow with the number of
+ * tenants ever seen. When fair, waiting executions acquire the lock in their arrival order.
  */
 public class TenantLockImpl implements TenantLock
 {
-	private final Map<String, Lock> tenantLockMap = new ConcurrentHashMap<>();
+	static final String BACKEND = "local";
+
+	private final Map<String, TenantLockEntry> tenantLockMap = new ConcurrentHashMap<>();
 
 	private TenantService tenantService;
 	private BusinessException failedLockingException;
+	private final boolean fair;
+	private final TenantLockMetricsListener metricsListener;
 
 	public TenantLockImpl(final TenantService tenantService, final BusinessException failedLockingException)
 	{
+		this(tenantService, failedLockingException, false, TenantLockMetricsListener.NONE);
+	}
+
+	public TenantLockImpl(final TenantService tenantService, final BusinessException failedLockingException, final boolean fair,
+			final TenantLockMetricsListener metricsListener)
+	{
+		Assert.notNull(metricsListener, "metricsListener must not be null");
+
 		this.tenantService = tenantService;
 		this.failedLockingException = failedLockingException;
+		this.fair = fair;
+		this.metricsListener = metricsListener;
 	}
 
 	/**
@@ -35,21 +56,45 @@ public class TenantLockImpl implements TenantLock
 		return failedLockingException;
 	}
 
+	/**
+	 * @return the number of tenants whose lock is currently held or waited for
+	 */
+	public int getLockCount()
+	{
+		return tenantLockMap.size();
+	}
+
 	@Override
 	public <T> T withLock(final Supplier<T> supplier)
 	{
-		boolean lockAcquired = false;
-		final Lock tenantLock = tenantLockMap.computeIfAbsent(tenantService.getTenant(), k -> new ReentrantLock());
+		return withLock(supplier, Duration.ZERO);
+	}
 
+	@Override
+	public <T> T withLock(final Supplier<T> supplier, final Duration timeout)
+	{
+		final String tenant = tenantService.getTenant();
+		final TenantLockEntry tenantLock = tenantLockMap.compute(tenant, (key, entry) -> {
+			final TenantLockEntry retained = Objects.isNull(entry) ? new TenantLockEntry(fair) : entry;
+			retained.users++;
+			return retained;
+		});
+
+		boolean lockAcquired = false;
+		final long start = System.nanoTime();
+		long acquiredAt = start;
 		try
 		{
-			lockAcquired = tenantLock.tryLock();
+			lockAcquired = tryLock(tenantLock.lock, timeout);
+			acquiredAt = System.nanoTime();
 			if (lockAcquired)
 			{
+				metricsListener.onAcquired(BACKEND, acquiredAt - start);
 				return supplier.get();
 			}
 			else
 			{
+				metricsListener.onRejected(BACKEND, acquiredAt - start);
 				throw failedLockingException;
 			}
 		}
@@ -57,8 +102,39 @@ public class TenantLockImpl implements TenantLock
 		{
 			if (lockAcquired)
 			{
-				tenantLock.unlock();
+				tenantLock.lock.unlock();
+				metricsListener.onReleased(BACKEND, System.nanoTime() - acquiredAt);
 			}
+			// reclaim the lock of the tenant once neither held nor waited for
+			tenantLockMap.computeIfPresent(tenant, (key, entry) -> --entry.users == 0 ? null : entry);
+		}
+	}
+
+	private static boolean tryLock(final ReentrantLock lock, final Duration timeout)
+	{
+		// the timed variant honours the fairness of the lock, even without waiting
+		final long timeoutNanos = timeout.isNegative() ? 0 : timeout.toNanos();
+		try
+		{
+			return lock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS);
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static final class TenantLockEntry
+	{
+		private final ReentrantLock lock;
+
+		// only accessed within the atomic map operations on the tenant key
+		private int users;
+
+		TenantLockEntry(final boolean fair)
+		{
+			this.lock = new ReentrantLock(fair);
 		}
 	}
 }
@@ -0,0 +1,47 @@
+package com.hybris.caas.multitenant.web.util;
+
+/**
+ * Callback interface notified of the acquisition and release of the {@link TenantLock} of the tenants.
+ */
+public interface TenantLockMetricsListener
+{
+	/**
+	 * Listener ignoring all the callbacks.
+	 */
+	TenantLockMetricsListener NONE = new TenantLockMetricsListener()
+	{
+	};
+
+	/**
+	 * Called when the lock of a tenant has been acquired.
+	 *
+	 * @param backend   the lock backend, e.g. {@code local} or {@code postgres}
+	 * @param waitNanos the time spent waiting for the lock
+	 */
+	default void onAcquired(final String backend, final long waitNanos)
+	{
+		// no-op
+	}
+
+	/**
+	 * Called when the lock of a tenant could not be acquired, as it is held by another execution.
+	 *
+	 * @param backend   the lock backend, e.g. {@code local} or {@code postgres}
+	 * @param waitNanos the time spent waiting for the lock
+	 */
+	default void onRejected(final String backend, final long waitNanos)
+	{
+		// no-op
+	}
+
+	/**
+	 * Called when the lock of a tenant has been released.
+	 *
+	 * @param backend   the lock backend, e.g. {@code local} or {@code postgres}
+	 * @param heldNanos the time the lock was held
+	 */
+	default void onReleased(final String backend, final long heldNanos)
+	{
+		// no-op
+	}
+}
@@ -0,0 +1,138 @@
+package com.hybris.caas.multitenant.filter;
+
+import com.hybris.caas.multitenant.service.config.TenantProperties;
+import com.hybris.caas.multitenant.service.exception.InvalidTenantFormatException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TenantResolverTest
+{
+	private static final String DUMMY_HOST = ".dummy.host";
+	private static final String FORWARDED_HOST_REGEX = "^([a-zA-Z0-9-%]+)" + DUMMY_HOST + "$";
+	private static final String FORWARDED_HOST_REGEX_2 = "^([a-zA-Z0-9-]+)-([a-zA-Z0-9-]+)" + DUMMY_HOST + "$";
+
+	private TenantProperties tenantProperties;
+	private TenantProperties.TenantPathProperties fooBar;
+	private TenantProperties.TenantPathProperties foo;
+	private TenantProperties.TenantPathProperties anyJson;
+
+	@Before
+	public void setUp()
+	{
+		tenantProperties = new TenantProperties();
+		tenantProperties.setForwardedHostRegex(FORWARDED_HOST_REGEX);
+		tenantProperties.setPaasName("paas-tenant");
+
+		fooBar = pathProperties("/foo/bar/**/*", 2);
+		foo = pathProperties("/foo/**/*", 1);
+		anyJson = pathProperties("/**/*.json", 2);
+		tenantProperties.setPaths(Arrays.asList(fooBar, foo, anyJson));
+	}
+
+	@Test
+	public void should_match_path_properties_in_configuration_order()
+	{
+		final TenantResolver tenantResolver = new TenantResolver(tenantProperties);
+
+		assertThat(tenantResolver.getPropertiesForPath("/foo/bar/baz"), sameInstance(fooBar));
+		assertThat(tenantResolver.getPropertiesForPath("/foo/baz/bar.json"), sameInstance(foo));
+		assertThat(tenantResolver.getPropertiesForPath("/other/bar.json"), sameInstance(anyJson));
+		assertThat(tenantResolver.getPropertiesForPath("/other/bar"), sameInstance(tenantProperties.getDefaultProperties()));
+		assertThat(tenantResolver.getPropertiesForPath(""), sameInstance(tenantProperties.getDefaultProperties()));
+		assertThat(tenantResolver.getPropertiesForPath(null), sameInstance(tenantProperties.getDefaultProperties()));
+	}
+
+	@Test
+	public void should_match_same_path_properties_as_tenant_properties()
+	{
+		final TenantResolver tenantResolver = new TenantResolver(tenantProperties);
+
+		for (final String path : Arrays.asList("/", "/foo", "/foo/", "/foo/bar", "/foo/bar/", "/foo/bar/a/b/c", "/a.json", "/a/b.json",
+				"/foo/bar/a.json", "foo/bar", "/bar/foo"))
+		{
+			assertThat(path, tenantResolver.getPropertiesForPath(path), sameInstance(tenantProperties.getPropertiesForPath(path)));
+		}
+	}
+
+	@Test
+	public void should_resolve_lower_case_tenant_from_host_of_matching_path_properties()
+	{
+		final TenantResolver tenantResolver = new TenantResolver(tenantProperties);
+
+		assertThat(tenantResolver.resolveFromHost("/foo/bar/baz", "Kiosk-Tenant" + DUMMY_HOST), is(Optional.of("tenant")));
+		assertThat(tenantResolver.resolveFromHost("/foo/baz", "Kiosk-Tenant" + DUMMY_HOST), is(Optional.of("kiosk")));
+		assertThat(tenantResolver.resolveFromHost("/other", "Kiosk-Tenant" + DUMMY_HOST), is(Optional.of("kiosk-tenant")));
+	}
+
+	@Test
+	public void should_not_resolve_tenant_from_missing_or_not_matching_host()
+	{
+		final TenantResolver tenantResolver = new TenantResolver(tenantProperties);
+
+		assertThat(tenantResolver.resolveFromHost("/other", null), is(Optional.empty()));
+		assertThat(tenantResolver.resolveFromHost("/other", ""), is(Optional.empty()));
+		assertThat(tenantResolver.resolveFromHost("/other", "invalid.value"), is(Optional.empty()));
+		assertThat(tenantResolver.resolveFromHost("/other", "invalid.value"), is(Optional.empty()));
+	}
+
+	@Test(expected = InvalidTenantFormatException.class)
+	public void should_throw_invalid_tenant_format_exception_for_cached_invalid_tenant()
+	{
+		final TenantResolver tenantResolver = new TenantResolver(tenantProperties);
+
+		try
+		{
+			tenantResolver.resolveFromHost("/other", "%" + DUMMY_HOST);
+		}
+		catch (final InvalidTenantFormatException e)
+		{
+			// expected, the second call is answered from the cache
+		}
+		tenantResolver.resolveFromHost("/other", "%" + DUMMY_HOST);
+	}
+
+	@Test
+	public void should_resolve_tenant_when_host_cache_is_full_or_disabled()
+	{
+		tenantProperties.setHostCacheSize(1);
+		final TenantResolver boundedTenantResolver = new TenantResolver(tenantProperties);
+		tenantProperties.setHostCacheSize(0);
+		final TenantResolver uncachedTenantResolver = new TenantResolver(tenantProperties);
+
+		for (final TenantResolver tenantResolver : Arrays.asList(boundedTenantResolver, uncachedTenantResolver))
+		{
+			assertThat(tenantResolver.resolveFromHost("/other", "first" + DUMMY_HOST), is(Optional.of("first")));
+			assertThat(tenantResolver.resolveFromHost("/other", "second" + DUMMY_HOST), is(Optional.of("second")));
+			assertThat(tenantResolver.resolveFromHost("/other", "first" + DUMMY_HOST), is(Optional.of("first")));
+		}
+	}
+
+	@Test
+	public void should_detect_bearer_authorization_ignoring_case()
+	{
+		assertTrue(TenantResolver.isBearer("bearer"));
+		assertTrue(TenantResolver.isBearer("BeArEr eyJhbGciOi"));
+		assertFalse(TenantResolver.isBearer("bear"));
+		assertFalse(TenantResolver.isBearer("Basic blah"));
+		assertFalse(TenantResolver.isBearer(""));
+		assertFalse(TenantResolver.isBearer(null));
+	}
+
+	private static TenantProperties.TenantPathProperties pathProperties(final String pathPattern, final int capturingGroup)
+	{
+		final TenantProperties.TenantPathProperties pathProperties = new TenantProperties.TenantPathProperties();
+		pathProperties.setPathPattern(pathPattern);
+		pathProperties.setForwardedHostRegex(FORWARDED_HOST_REGEX_2);
+		pathProperties.setCapturingGroup(capturingGroup);
+		return pathProperties;
+	}
+}
@@ -5,15 +5,23 @@ import com.hybris.caas.multitenant.jpa.EntityManagerHolder;
 import com.hybris.caas.multitenant.service.config.TenantProperties;
 import org.aspectj.lang.JoinPoint;
 import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.persistence.EntityManager;
 import java.util.Collections;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -46,6 +54,17 @@ public class TransactionTenantSetterAspectTest
 		when(entityManager.getProperties()).thenReturn(Collections.emptyMap());
 	}
 
+	@After
+	public void tearDown()
+	{
+		if (TransactionSynchronizationManager.isSynchronizationActive())
+		{
+			TransactionSynchronizationManager.getSynchronizations()
+					.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
 	@Test
 	public void should_set_tenant_when_no_tenant_is_set()
 	{
@@ -73,4 +92,62 @@ public class TransactionTenantSetterAspectTest
 
 		aspect.beforeTransactionalOperation(joinPoint, tenantHolder);
 	}
+
+	@Test
+	public void should_set_tenant_once_per_transaction()
+	{
+		TransactionSynchronizationManager.initSynchronization();
+
+		aspect.beforeTransactionalOperation(joinPoint, tenantHolder);
+		aspect.beforeTransactionalOperation(joinPoint, tenantHolder);
+		aspect.beforeTransactionalOperation(joinPoint, tenantHolder);
+
+		verify(entityManager, times(1)).getProperties();
+		verify(entityManager, times(1)).setProperty(PersistenceUnitProperties.MULTITENANT_PROPERTY_DEFAULT, TENANT_SAP);
+		assertThat(TransactionTenantContext.getTenant(), is(TENANT_SAP));
+	}
+
+	@Test
+	public void should_fail_when_different_tenant_is_bound_to_transaction()
+	{
+		TransactionSynchronizationManager.initSynchronization();
+		aspect.beforeTransactionalOperation(joinPoint, tenantHolder);
+
+		when(tenantHolder.getTenant()).thenReturn("dummytenant");
+		try
+		{
+			aspect.beforeTransactionalOperation(joinPoint, tenantHolder);
+			fail();
+		}
+		catch (final IllegalStateException e)
+		{
+			verify(entityManager, times(1)).getProperties();
+		}
+	}
+
+	@Test
+	public void should_unbind_tenant_on_transaction_completion()
+	{
+		TransactionSynchronizationManager.initSynchronization();
+		aspect.beforeTransactionalOperation(joinPoint, tenantHolder);
+
+		TransactionSynchronizationManager.getSynchronizations()
+				.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+		TransactionSynchronizationManager.clearSynchronization();
+
+		assertThat(TransactionTenantContext.getTenant(), is(nullValue()));
+	}
+
+	@Test
+	public void should_unbind_tenant_while_transaction_is_suspended()
+	{
+		TransactionSynchronizationManager.initSynchronization();
+		aspect.beforeTransactionalOperation(joinPoint, tenantHolder);
+
+		TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::suspend);
+		assertThat(TransactionTenantContext.getTenant(), is(nullValue()));
+
+		TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::resume);
+		assertThat(TransactionTenantContext.getTenant(), is(TENANT_SAP));
+	}
 }
@@ -0,0 +1,209 @@
+package com.hybris.caas.multitenant.jpa.routing;
+
+import com.hybris.caas.multitenant.jpa.config.TenantRoutingProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TenantRoutingDataSourceTest
+{
+	private static final String ROUTED_TENANT = "polarbears";
+	private static final String SHARD = "shard-1";
+
+	@Mock
+	private DataSource defaultDataSource;
+	@Mock
+	private Connection defaultConnection;
+
+	private final List<HikariDataSource> pools = new ArrayList<>();
+	private TenantRoutingProperties properties;
+	private TenantRoutingDataSource dataSource;
+
+	@Before
+	public void setUp()
+	{
+		properties = new TenantRoutingProperties();
+		properties.getShards().put(SHARD, new TenantRoutingProperties.Shard());
+		final TenantRoutingProperties.TenantRoute route = new TenantRoutingProperties.TenantRoute();
+		route.setShard(SHARD);
+		properties.getTenants().put(ROUTED_TENANT, route);
+		properties.setIdleTimeout(Duration.ofMinutes(1));
+
+		dataSource = new TenantRoutingDataSource(defaultDataSource, properties, (tenant, tenantRoute) -> {
+			final HikariDataSource pool = mock(HikariDataSource.class);
+			pools.add(pool);
+			return pool;
+		});
+	}
+
+	@After
+	public void tearDown()
+	{
+		TenantRoutingContext.restore(null);
+		dataSource.close();
+	}
+
+	@Test
+	public void should_route_to_default_data_source_when_no_tenant_is_bound() throws SQLException
+	{
+		when(defaultDataSource.getConnection()).thenReturn(defaultConnection);
+
+		assertThat(dataSource.getConnection(), sameInstance(defaultConnection));
+		assertThat(dataSource.getPoolCount(), is(0));
+	}
+
+	@Test
+	public void should_route_to_default_data_source_when_tenant_is_not_mapped_to_shard() throws SQLException
+	{
+		when(defaultDataSource.getConnection()).thenReturn(defaultConnection);
+		TenantRoutingContext.bind("other");
+
+		assertThat(dataSource.getConnection(), sameInstance(defaultConnection));
+		assertThat(dataSource.getPoolCount(), is(0));
+	}
+
+	@Test
+	public void should_route_to_pool_of_tenant_mapped_to_shard() throws SQLException
+	{
+		TenantRoutingContext.bind(ROUTED_TENANT);
+
+		dataSource.getConnection();
+		dataSource.getConnection();
+
+		assertThat(pools.size(), is(1));
+		verify(pools.get(0), times(2)).getConnection();
+		verify(defaultDataSource, never()).getConnection();
+	}
+
+	@Test
+	public void should_evict_idle_pool_without_active_connections() throws SQLException
+	{
+		TenantRoutingContext.bind(ROUTED_TENANT);
+		dataSource.getConnection();
+
+		dataSource.evictIdlePools(System.currentTimeMillis());
+		assertThat(dataSource.getPoolCount(), is(1));
+
+		final HikariPoolMXBean poolMXBean = mock(HikariPoolMXBean.class);
+		when(pools.get(0).getHikariPoolMXBean()).thenReturn(poolMXBean);
+		when(poolMXBean.getActiveConnections()).thenReturn(1);
+		dataSource.evictIdlePools(System.currentTimeMillis() + Duration.ofMinutes(2).toMillis());
+		assertThat(dataSource.getPoolCount(), is(1));
+
+		when(poolMXBean.getActiveConnections()).thenReturn(0);
+		dataSource.evictIdlePools(System.currentTimeMillis() + Duration.ofMinutes(2).toMillis());
+		assertThat(dataSource.getPoolCount(), is(0));
+		verify(pools.get(0)).close();
+	}
+
+	@Test
+	public void should_open_new_pool_after_eviction() throws SQLException
+	{
+		TenantRoutingContext.bind(ROUTED_TENANT);
+		dataSource.getConnection();
+
+		dataSource.evictIdlePools(System.currentTimeMillis() + Duration.ofMinutes(2).toMillis());
+		dataSource.getConnection();
+
+		assertThat(pools.size(), is(2));
+		verify(pools.get(0)).close();
+		verify(pools.get(1)).getConnection();
+	}
+
+	@Test
+	public void should_not_evict_pool_while_connection_is_acquired() throws Exception
+	{
+		TenantRoutingContext.bind(ROUTED_TENANT);
+		dataSource.getConnection();
+
+		final HikariDataSource pool = pools.get(0);
+		final CountDownLatch acquiring = new CountDownLatch(1);
+		final CountDownLatch evicted = new CountDownLatch(1);
+		when(pool.getConnection()).thenAnswer(invocation -> {
+			// the connection is not active yet while hikari acquires it
+			acquiring.countDown();
+			evicted.await();
+			return defaultConnection;
+		});
+
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try
+		{
+			final Future<Connection> connection = executor.submit(() -> {
+				TenantRoutingContext.bind(ROUTED_TENANT);
+				return dataSource.getConnection();
+			});
+			acquiring.await();
+			dataSource.evictIdlePools(System.currentTimeMillis() + Duration.ofMinutes(2).toMillis());
+			evicted.countDown();
+
+			assertThat(connection.get(5, TimeUnit.SECONDS), sameInstance(defaultConnection));
+			assertThat(dataSource.getPoolCount(), is(1));
+			verify(pool, never()).close();
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(expected = SQLException.class)
+	public void should_propagate_connection_failure_of_open_pool() throws SQLException
+	{
+		TenantRoutingContext.bind(ROUTED_TENANT);
+		dataSource.getConnection();
+
+		when(pools.get(0).getConnection()).thenThrow(new SQLException("timeout"));
+		dataSource.getConnection();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void should_reject_tenant_mapped_to_unknown_shard()
+	{
+		properties.getTenants().get(ROUTED_TENANT).setShard("unknown");
+
+		new TenantRoutingDataSource(defaultDataSource, properties);
+	}
+
+	@Test
+	public void should_size_pool_by_tier_of_tenant()
+	{
+		final TenantRoutingProperties.Tier large = new TenantRoutingProperties.Tier();
+		large.setMaximumPoolSize(20);
+		properties.getTiers().put("large", large);
+
+		assertThat(properties.getTier("large"), sameInstance(large));
+		assertThat(properties.getTier(null).getMaximumPoolSize(), is(5));
+
+		final TenantRoutingProperties.Tier defaultTier = new TenantRoutingProperties.Tier();
+		properties.getTiers().put(TenantRoutingProperties.DEFAULT_TIER, defaultTier);
+		assertThat(properties.getTier("unknown"), sameInstance(defaultTier));
+	}
+}
@@ -0,0 +1,31 @@
+package com.hybris.caas.multitenant.service.config;
+
+import com.hybris.caas.multitenant.service.ReactiveTenantService;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ReactiveWebApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReactiveMultitenantConfigTest
+{
+	private final ReactiveWebApplicationContextRunner contextRunner = new ReactiveWebApplicationContextRunner().withConfiguration(
+			AutoConfigurations.of(ServiceMultitenantConfig.class, ReactiveMultitenantConfig.class))
+			.withPropertyValues("tenant.forwardedHostRegex:abc", "tenant.paasName:cde");
+
+	@Test
+	public void should_not_install_MDC_hook_by_default()
+	{
+		contextRunner.run((context) -> {
+			assertThat(context).hasSingleBean(ReactiveTenantService.class);
+			assertThat(context).doesNotHaveBean(ReactiveMultitenantConfig.TenantMdcHook.class);
+		});
+	}
+
+	@Test
+	public void should_install_MDC_hook_when_enabled()
+	{
+		contextRunner.withPropertyValues("tenant.reactive.mdc-propagation=true")
+				.run((context) -> assertThat(context).hasSingleBean(ReactiveMultitenantConfig.TenantMdcHook.class));
+	}
+}
@@ -10,8 +10,10 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.time.Duration;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 
@@ -49,6 +51,74 @@ public class TenantLockImplTest
 		assertFileTransferInProgress(false, UUID.randomUUID().toString());
 	}
 
+	@Test
+	public void should_wait_for_the_lock_to_be_released_by_the_same_tenant() throws InterruptedException
+	{
+		when(tenantService.getTenant()).thenReturn(POLAR_BEARS_TENANT);
+		final CountDownLatch acquired = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		holdLockInBackground(acquired, release);
+		acquired.await();
+
+		new Thread(() -> {
+			try
+			{
+				sleep(100);
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			release.countDown();
+		}).start();
+
+		assertThat(tenantLock.withLock(() -> true, Duration.ofMillis(WAIT_TIME_MILLISECONDS * 5)), is(true));
+	}
+
+	@Test(expected = BusinessException.class)
+	public void should_throw_exception_if_the_lock_is_not_released_within_the_timeout() throws InterruptedException
+	{
+		when(tenantService.getTenant()).thenReturn(POLAR_BEARS_TENANT);
+		final CountDownLatch acquired = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		holdLockInBackground(acquired, release);
+		acquired.await();
+
+		try
+		{
+			tenantLock.withLock(() -> true, Duration.ofMillis(100));
+		}
+		finally
+		{
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void should_reclaim_the_lock_of_the_tenant_once_released()
+	{
+		when(tenantService.getTenant()).thenReturn(POLAR_BEARS_TENANT);
+
+		tenantLock.withLock(() -> true);
+
+		assertThat(((TenantLockImpl) tenantLock).getLockCount(), is(0));
+	}
+
+	private void holdLockInBackground(final CountDownLatch acquired, final CountDownLatch release)
+	{
+		new Thread(() -> tenantLock.withLock(() -> {
+			acquired.countDown();
+			try
+			{
+				return release.await(WAIT_TIME_MILLISECONDS * 5, TimeUnit.MILLISECONDS);
+			}
+			catch (final InterruptedException e)
+			{
+				throw new IllegalStateException("Unexpected interruption of the test thread.");
+			}
+		})).start();
+	}
+
 	@SuppressWarnings("squid:S2925")
 	private void assertFileTransferInProgress(final boolean inProgress, final String tenant)
 	{
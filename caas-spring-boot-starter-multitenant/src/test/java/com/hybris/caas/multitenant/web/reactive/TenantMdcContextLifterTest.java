@@ -0,0 +1,54 @@
+package com.hybris.caas.multitenant.web.reactive;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.MDC;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import static com.hybris.caas.multitenant.web.reactive.TenantMdcContextLifter.TENANT_KEY;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class TenantMdcContextLifterTest
+{
+	private static final String DUMMY_TENANT = "dummy-tenant";
+
+	@Before
+	public void setUp()
+	{
+		TenantMdcContextLifter.install();
+	}
+
+	@After
+	public void tearDown()
+	{
+		TenantMdcContextLifter.uninstall();
+		MDC.remove(TENANT_KEY);
+	}
+
+	@Test
+	public void should_put_tenant_in_MDC_across_threads()
+	{
+		final Mono<String> tenantInMdc = Mono.just("value")
+				.publishOn(Schedulers.parallel())
+				.map(value -> String.valueOf(MDC.get(TENANT_KEY)))
+				.subscriberContext(ReactiveTenantContext.withTenant(DUMMY_TENANT));
+
+		StepVerifier.create(tenantInMdc).expectNext(DUMMY_TENANT).verifyComplete();
+	}
+
+	@Test
+	public void should_remove_tenant_from_MDC_without_tenant_in_context()
+	{
+		MDC.put(TENANT_KEY, DUMMY_TENANT);
+
+		StepVerifier.create(Mono.fromCallable(() -> String.valueOf(MDC.get(TENANT_KEY))).map(value -> value))
+				.expectNext("null")
+				.verifyComplete();
+		assertThat(MDC.get(TENANT_KEY), is(nullValue()));
+	}
+}
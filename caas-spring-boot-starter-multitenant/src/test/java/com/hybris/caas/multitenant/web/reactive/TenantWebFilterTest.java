@@ -0,0 +1,155 @@
+package com.hybris.caas.multitenant.web.reactive;
+
+import com.hybris.caas.multitenant.Constants;
+import com.hybris.caas.multitenant.service.ContextReactiveTenantService;
+import com.hybris.caas.multitenant.service.ReactiveTokenProvider;
+import com.hybris.caas.multitenant.service.config.TenantProperties;
+import com.hybris.caas.multitenant.service.exception.InvalidTenantException;
+import com.hybris.caas.multitenant.service.exception.MissingTenantException;
+import com.sap.cloud.security.xsuaa.token.Token;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.hybris.caas.multitenant.web.reactive.TenantWebFilter.X_FORWARDED_HOST;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TenantWebFilterTest
+{
+	private static final String CAAS_INTEGRATION_TEST = "caas-integration-test";
+	private static final String DUMMY_HOST = ".dummy.host";
+	private static final String FORWARDED_HOST_REGEX = "^([a-zA-Z0-9-]+)" + DUMMY_HOST + "$";
+	private static final String DUMMY_TENANT = "dummy-tenant";
+	private static final String PAAS_TENANT = "paas-tenant";
+
+	@Mock
+	private ReactiveTokenProvider tokenProvider;
+	@Mock
+	private Token token;
+
+	private final AtomicReference<String> tenantInContext = new AtomicReference<>();
+	private TenantProperties tenantProperties;
+	private TenantWebFilter tenantWebFilter;
+	private WebFilterChain chain;
+
+	@Before
+	public void setUp()
+	{
+		tenantProperties = new TenantProperties();
+		tenantProperties.setForwardedHostRegex(FORWARDED_HOST_REGEX);
+		tenantProperties.setPaasName(PAAS_TENANT);
+
+		tenantWebFilter = new TenantWebFilter(tenantProperties, tokenProvider, null);
+		chain = exchange -> new ContextReactiveTenantService(tenantProperties).getTenant()
+				.doOnNext(tenantInContext::set)
+				.onErrorResume(MissingTenantException.class, e -> Mono.empty())
+				.then();
+	}
+
+	@Test
+	public void should_return_tenant_from_JWT()
+	{
+		givenToken(CAAS_INTEGRATION_TEST);
+		final MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/").header(HttpHeaders.AUTHORIZATION, "BeArEr"));
+
+		StepVerifier.create(tenantWebFilter.filter(exchange, chain)).verifyComplete();
+
+		assertThat(exchange.getAttribute(Constants.TENANT_ATTRIBUTE_NAME), is(CAAS_INTEGRATION_TEST));
+		assertThat(tenantInContext.get(), is(CAAS_INTEGRATION_TEST));
+	}
+
+	@Test
+	public void should_return_tenant_from_header()
+	{
+		final MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/").header(X_FORWARDED_HOST, DUMMY_TENANT + DUMMY_HOST));
+
+		StepVerifier.create(tenantWebFilter.filter(exchange, chain)).verifyComplete();
+
+		assertThat(exchange.getAttribute(Constants.TENANT_ATTRIBUTE_NAME), is(DUMMY_TENANT));
+		assertThat(tenantInContext.get(), is(DUMMY_TENANT));
+	}
+
+	@Test
+	public void should_continue_without_tenant()
+	{
+		final MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/"));
+
+		StepVerifier.create(tenantWebFilter.filter(exchange, chain)).verifyComplete();
+
+		assertThat(exchange.getAttribute(Constants.TENANT_ATTRIBUTE_NAME), is(nullValue()));
+		assertThat(tenantInContext.get(), is(nullValue()));
+	}
+
+	@Test
+	public void should_error_with_MissingTenantException_for_bad_JWT()
+	{
+		when(tokenProvider.getToken()).thenReturn(Mono.error(new AccessDeniedException("Access denied")));
+		final MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/").header(HttpHeaders.AUTHORIZATION, "Bearer"));
+
+		StepVerifier.create(tenantWebFilter.filter(exchange, chain))
+				.expectErrorMatches(e -> e instanceof MissingTenantException
+						&& MissingTenantException.AccessType.PROTECTED.equals(((MissingTenantException) e).getAccessType()))
+				.verify();
+	}
+
+	@Test
+	public void should_error_with_MissingTenantException_without_JWT()
+	{
+		when(tokenProvider.getToken()).thenReturn(Mono.empty());
+		final MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/").header(HttpHeaders.AUTHORIZATION, "Bearer"));
+
+		StepVerifier.create(tenantWebFilter.filter(exchange, chain)).expectError(MissingTenantException.class).verify();
+	}
+
+	@Test
+	public void should_error_with_InvalidTenantException_when_tenants_mismatch()
+	{
+		givenToken(CAAS_INTEGRATION_TEST);
+		final MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer")
+				.header(X_FORWARDED_HOST, DUMMY_TENANT + DUMMY_HOST));
+
+		StepVerifier.create(tenantWebFilter.filter(exchange, chain)).expectError(InvalidTenantException.class).verify();
+		assertThat(tenantInContext.get(), is(nullValue()));
+	}
+
+	@Test
+	public void should_tell_paas_tenant_from_context()
+	{
+		final ContextReactiveTenantService tenantService = new ContextReactiveTenantService(tenantProperties);
+
+		StepVerifier.create(tenantService.isPaasTenant().subscriberContext(ReactiveTenantContext.withTenant(PAAS_TENANT)))
+				.expectNext(true)
+				.verifyComplete();
+		StepVerifier.create(tenantService.isPaasTenant().subscriberContext(ReactiveTenantContext.withTenant(DUMMY_TENANT)))
+				.expectNext(false)
+				.verifyComplete();
+		StepVerifier.create(tenantService.isPaasTenant()).expectNext(false).verifyComplete();
+	}
+
+	private void givenToken(final String subdomain)
+	{
+		when(token.getSubdomain()).thenReturn(subdomain);
+		when(tokenProvider.getToken()).thenReturn(Mono.just(token));
+	}
+
+	private static MockServerWebExchange exchange(final MockServerHttpRequest.BaseBuilder<?> request)
+	{
+		return MockServerWebExchange.from(request);
+	}
+}
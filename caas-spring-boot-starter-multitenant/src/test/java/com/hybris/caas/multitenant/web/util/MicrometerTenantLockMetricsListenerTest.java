@@ -0,0 +1,43 @@
+package com.hybris.caas.multitenant.web.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.hybris.caas.multitenant.web.util.MicrometerTenantLockMetricsListener.ACQUIRED;
+import static com.hybris.caas.multitenant.web.util.MicrometerTenantLockMetricsListener.HELD;
+import static com.hybris.caas.multitenant.web.util.MicrometerTenantLockMetricsListener.REJECTED;
+import static com.hybris.caas.multitenant.web.util.MicrometerTenantLockMetricsListener.WAIT;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class MicrometerTenantLockMetricsListenerTest
+{
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final MicrometerTenantLockMetricsListener listener = new MicrometerTenantLockMetricsListener(meterRegistry);
+
+	@Test
+	public void should_record_wait_time_per_outcome()
+	{
+		listener.onAcquired(TenantLockImpl.BACKEND, TimeUnit.MILLISECONDS.toNanos(20));
+		listener.onRejected(TenantLockImpl.BACKEND, TimeUnit.MILLISECONDS.toNanos(30));
+		listener.onRejected(TenantLockImpl.BACKEND, TimeUnit.MILLISECONDS.toNanos(30));
+
+		assertThat(meterRegistry.get(WAIT).tags("backend", TenantLockImpl.BACKEND, "outcome", ACQUIRED).timer().count(),
+				equalTo(1L));
+		assertThat(meterRegistry.get(WAIT)
+				.tags("backend", TenantLockImpl.BACKEND, "outcome", REJECTED)
+				.timer()
+				.totalTime(TimeUnit.MILLISECONDS), equalTo(60.0));
+	}
+
+	@Test
+	public void should_record_held_time()
+	{
+		listener.onReleased(PostgresAdvisoryTenantLock.BACKEND, TimeUnit.MILLISECONDS.toNanos(50));
+
+		assertThat(meterRegistry.get(HELD).tags("backend", PostgresAdvisoryTenantLock.BACKEND).timer().totalTime(TimeUnit.MILLISECONDS),
+				equalTo(50.0));
+	}
+}
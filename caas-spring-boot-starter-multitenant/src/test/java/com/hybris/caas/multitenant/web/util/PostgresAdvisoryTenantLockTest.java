@@ -0,0 +1,164 @@
+package com.hybris.caas.multitenant.web.util;
+
+import com.hybris.caas.error.exception.BusinessException;
+import com.hybris.caas.multitenant.service.TenantService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static com.hybris.caas.multitenant.web.util.PostgresAdvisoryTenantLock.BACKEND;
+import static com.hybris.caas.multitenant.web.util.PostgresAdvisoryTenantLock.DEFAULT_NAMESPACE;
+import static com.hybris.caas.multitenant.web.util.PostgresAdvisoryTenantLock.LOCK_SQL;
+import static com.hybris.caas.multitenant.web.util.PostgresAdvisoryTenantLock.TRY_LOCK_SQL;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PostgresAdvisoryTenantLockTest
+{
+	private static final String POLAR_BEARS_TENANT = "polarbears";
+
+	@Mock
+	private TenantService tenantService;
+	@Mock
+	private DataSource dataSource;
+	@Mock
+	private Connection connection;
+	@Mock
+	private PreparedStatement preparedStatement;
+	@Mock
+	private Statement statement;
+	@Mock
+	private ResultSet resultSet;
+	@Mock
+	private TenantLockMetricsListener metricsListener;
+
+	private final BusinessException failedLockingException = new BusinessException("");
+	private PostgresAdvisoryTenantLock tenantLock;
+
+	@Before
+	public void setUp()
+	{
+		tenantLock = new PostgresAdvisoryTenantLock(tenantService, dataSource, failedLockingException, DEFAULT_NAMESPACE,
+				metricsListener);
+	}
+
+	@Test
+	public void should_execute_supplier_while_holding_lock_and_release_it() throws SQLException
+	{
+		givenTryLock(true);
+
+		assertThat(tenantLock.withLock(() -> "done"), is("done"));
+
+		final InOrder inOrder = inOrder(connection, preparedStatement, metricsListener);
+		inOrder.verify(connection).setAutoCommit(false);
+		inOrder.verify(preparedStatement).setLong(1, PostgresAdvisoryTenantLock.lockKey(DEFAULT_NAMESPACE, POLAR_BEARS_TENANT));
+		inOrder.verify(metricsListener).onAcquired(eq(BACKEND), anyLong());
+		inOrder.verify(metricsListener).onReleased(eq(BACKEND), anyLong());
+		inOrder.verify(connection).rollback();
+		inOrder.verify(connection).close();
+	}
+
+	@Test
+	public void should_throw_exception_if_lock_is_held_by_another_instance() throws SQLException
+	{
+		givenTryLock(false);
+
+		try
+		{
+			tenantLock.withLock(() -> {
+				fail("must not be executed");
+				return null;
+			});
+			fail();
+		}
+		catch (final BusinessException e)
+		{
+			assertThat(e, sameInstance(failedLockingException));
+		}
+
+		verify(metricsListener).onRejected(eq(BACKEND), anyLong());
+		verify(metricsListener, never()).onAcquired(eq(BACKEND), anyLong());
+		verify(connection).rollback();
+	}
+
+	@Test
+	public void should_wait_for_lock_with_lock_timeout() throws SQLException
+	{
+		givenConnection();
+		when(connection.createStatement()).thenReturn(statement);
+		when(connection.prepareStatement(LOCK_SQL)).thenReturn(preparedStatement);
+		when(preparedStatement.executeQuery()).thenReturn(resultSet);
+
+		assertThat(tenantLock.withLock(() -> "done", Duration.ofMillis(500)), is("done"));
+
+		verify(statement).execute("SET LOCAL lock_timeout = 500");
+		verify(connection).rollback();
+	}
+
+	@Test(expected = BusinessException.class)
+	public void should_throw_exception_if_lock_is_not_released_within_timeout() throws SQLException
+	{
+		givenConnection();
+		when(connection.createStatement()).thenReturn(statement);
+		when(connection.prepareStatement(LOCK_SQL)).thenReturn(preparedStatement);
+		when(preparedStatement.executeQuery()).thenThrow(new SQLException("canceling statement due to lock timeout", "55P03"));
+
+		tenantLock.withLock(() -> "done", Duration.ofMillis(500));
+	}
+
+	@Test(expected = DataAccessResourceFailureException.class)
+	public void should_fail_on_database_error() throws SQLException
+	{
+		givenConnection();
+		when(connection.prepareStatement(TRY_LOCK_SQL)).thenThrow(new SQLException("connection refused", "08001"));
+
+		tenantLock.withLock(() -> "done");
+	}
+
+	@Test
+	public void should_compute_lock_key_per_namespace_and_tenant()
+	{
+		final long key = PostgresAdvisoryTenantLock.lockKey(DEFAULT_NAMESPACE, POLAR_BEARS_TENANT);
+
+		assertThat(PostgresAdvisoryTenantLock.lockKey(DEFAULT_NAMESPACE, POLAR_BEARS_TENANT), is(key));
+		assertThat(PostgresAdvisoryTenantLock.lockKey("other", POLAR_BEARS_TENANT), is(not(key)));
+		assertThat(PostgresAdvisoryTenantLock.lockKey(DEFAULT_NAMESPACE, "other"), is(not(key)));
+	}
+
+	private void givenConnection() throws SQLException
+	{
+		when(tenantService.getTenant()).thenReturn(POLAR_BEARS_TENANT);
+		when(dataSource.getConnection()).thenReturn(connection);
+	}
+
+	private void givenTryLock(final boolean acquired) throws SQLException
+	{
+		givenConnection();
+		when(connection.prepareStatement(TRY_LOCK_SQL)).thenReturn(preparedStatement);
+		when(preparedStatement.executeQuery()).thenReturn(resultSet);
+		when(resultSet.next()).thenReturn(true);
+		when(resultSet.getBoolean(1)).thenReturn(acquired);
+	}
+}
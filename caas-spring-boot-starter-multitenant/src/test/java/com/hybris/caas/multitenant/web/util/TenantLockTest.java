@@ -0,0 +1,94 @@
+package com.hybris.caas.multitenant.web.util;
+
+import com.hybris.caas.error.exception.BusinessException;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.fail;
+
+public class TenantLockTest
+{
+	private final BusinessException failedLockingException = new BusinessException("");
+	private final AtomicInteger attempts = new AtomicInteger();
+
+	@Test
+	public void should_lock_without_waiting_for_zero_timeout()
+	{
+		final TenantLock tenantLock = tenantLockRejecting(0);
+
+		assertThat(tenantLock.withLock(() -> "done", Duration.ZERO), is("done"));
+		assertThat(attempts.get(), is(1));
+	}
+
+	@Test
+	public void should_retry_until_lock_is_acquired_within_timeout()
+	{
+		final TenantLock tenantLock = tenantLockRejecting(3);
+
+		assertThat(tenantLock.withLock(() -> "done", Duration.ofSeconds(5)), is("done"));
+		assertThat(attempts.get(), is(4));
+	}
+
+	@Test
+	public void should_rethrow_failed_locking_exception_once_timeout_elapsed()
+	{
+		final TenantLock tenantLock = tenantLockRejecting(Integer.MAX_VALUE);
+		final long start = System.nanoTime();
+
+		try
+		{
+			tenantLock.withLock(() -> "done", Duration.ofMillis(200));
+			fail();
+		}
+		catch (final BusinessException e)
+		{
+			assertThat(e, sameInstance(failedLockingException));
+			assertThat(Duration.ofNanos(System.nanoTime() - start).toMillis(), greaterThanOrEqualTo(200L));
+			assertThat(attempts.get(), greaterThan(1));
+		}
+	}
+
+	@Test
+	public void should_not_retry_business_exception_of_supplier()
+	{
+		final TenantLock tenantLock = tenantLockRejecting(0);
+		final BusinessException supplierException = new BusinessException("");
+
+		try
+		{
+			tenantLock.withLock(() -> {
+				throw supplierException;
+			}, Duration.ofSeconds(5));
+			fail();
+		}
+		catch (final BusinessException e)
+		{
+			assertThat(e, sameInstance(supplierException));
+			assertThat(attempts.get(), is(1));
+		}
+	}
+
+	private TenantLock tenantLockRejecting(final int rejectedAttempts)
+	{
+		return new TenantLock()
+		{
+			@Override
+			public <T> T withLock(final Supplier<T> supplier)
+			{
+				if (attempts.incrementAndGet() <= rejectedAttempts)
+				{
+					throw failedLockingException;
+				}
+				return supplier.get();
+			}
+		};
+	}
+}